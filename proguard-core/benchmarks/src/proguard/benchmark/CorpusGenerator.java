@@ -0,0 +1,360 @@
+/*
+ * ProGuardCORE -- library to process Java bytecode.
+ *
+ * Copyright (c) 2002-2020 Guardsquare NV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package proguard.benchmark;
+
+import proguard.classfile.*;
+import proguard.classfile.editor.*;
+import proguard.classfile.io.*;
+
+import java.io.*;
+
+/**
+ * This class generates synthetic class pools for benchmarks, so they don't
+ * depend on any external jars. The generated classes are deterministic and
+ * resemble application code: they form class hierarchies, and their
+ * methods contain loops, switches, exception handlers, field accesses,
+ * string constants, and invocations of methods in other classes.
+ *
+ * @author Eric Lafortune
+ */
+public class CorpusGenerator
+{
+    private static final int PACKAGE_COUNT         = 16;
+    private static final int CLASS_HIERARCHY_DEPTH = 4;
+    private static final int BLOCK_TYPE_COUNT      = 5;
+
+    private static final String RUNTIME_EXCEPTION = "java/lang/RuntimeException";
+
+
+    private final int classCount;
+    private final int methodCount;
+    private final int blockCount;
+
+
+    /**
+     * Creates a new CorpusGenerator.
+     * @param classCount  the number of classes in the corpus.
+     * @param methodCount the number of methods per class, besides the
+     *                    constructor and a static helper method.
+     * @param blockCount  the number of code blocks per method, each
+     *                    consisting of a loop, a switch, an exception
+     *                    handler, a string operation, or an invocation.
+     */
+    public CorpusGenerator(int classCount,
+                           int methodCount,
+                           int blockCount)
+    {
+        this.classCount  = classCount;
+        this.methodCount = methodCount;
+        this.blockCount  = blockCount;
+    }
+
+
+    /**
+     * Returns a new class pool with all classes of the corpus.
+     */
+    public ClassPool createProgramClassPool()
+    {
+        ClassPool programClassPool = new ClassPool();
+
+        for (int index = 0; index < classCount; index++)
+        {
+            programClassPool.addClass(createProgramClass(index));
+        }
+
+        return programClassPool;
+    }
+
+
+    /**
+     * Returns the serialized classes of the corpus.
+     */
+    public byte[][] createClassFiles()
+    {
+        byte[][] classFiles = new byte[classCount][];
+
+        for (int index = 0; index < classCount; index++)
+        {
+            classFiles[index] = toByteArray(createProgramClass(index));
+        }
+
+        return classFiles;
+    }
+
+
+    /**
+     * Returns the name of the specified class of the corpus.
+     */
+    public String className(int index)
+    {
+        return "com/example/p" + (index % PACKAGE_COUNT) + "/C" + index;
+    }
+
+
+    /**
+     * Creates the specified class of the corpus.
+     */
+    public ProgramClass createProgramClass(int index)
+    {
+        String className      = className(index);
+        String superClassName = index % CLASS_HIERARCHY_DEPTH == 0 ?
+            ClassConstants.NAME_JAVA_LANG_OBJECT :
+            className(index - 1);
+        String nextClassName  = className((index + 1) % classCount);
+
+        ClassBuilder classBuilder =
+            new ClassBuilder(VersionConstants.CLASS_VERSION_1_8,
+                             AccessConstants.PUBLIC,
+                             className,
+                             superClassName)
+                .addField(AccessConstants.PRIVATE, "count", "I")
+                .addField(AccessConstants.PROTECTED, "name", "Ljava/lang/String;")
+                .addField(AccessConstants.PUBLIC, "next", "L" + nextClassName + ";")
+
+                .addMethod(AccessConstants.PUBLIC,
+                           ClassConstants.METHOD_NAME_INIT,
+                           ClassConstants.METHOD_TYPE_INIT,
+                           10,
+                           code -> code
+                               .aload_0()
+                               .invokespecial(superClassName,
+                                              ClassConstants.METHOD_NAME_INIT,
+                                              ClassConstants.METHOD_TYPE_INIT)
+                               .return_())
+
+                .addMethod(AccessConstants.PUBLIC |
+                           AccessConstants.STATIC,
+                           "helper",
+                           "(II)I",
+                           10,
+                           code -> code
+                               .iload_0()
+                               .iload_1()
+                               .iadd()
+                               .ireturn());
+
+        for (int methodIndex = 0; methodIndex < methodCount; methodIndex++)
+        {
+            int methodSeed = index + methodIndex;
+
+            classBuilder.addMethod(AccessConstants.PUBLIC,
+                                   "method" + methodIndex,
+                                   "(II)I",
+                                   blockCount * 64 + 10,
+                                   code -> composeMethodBody(code,
+                                                             className,
+                                                             nextClassName,
+                                                             methodSeed));
+        }
+
+        return classBuilder.getProgramClass();
+    }
+
+
+    /**
+     * Serializes the given class.
+     */
+    public static byte[] toByteArray(ProgramClass programClass)
+    {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+
+        programClass.accept(
+            new ProgramClassWriter(
+            new DataOutputStream(byteArrayOutputStream)));
+
+        return byteArrayOutputStream.toByteArray();
+    }
+
+
+    /**
+     * Returns a new class pool with the library classes that the corpus
+     * references.
+     */
+    public static ClassPool createLibraryClassPool()
+    {
+        ClassPool libraryClassPool = new ClassPool();
+
+        libraryClassPool.addClass(
+            createLibraryClass(ClassConstants.NAME_JAVA_LANG_OBJECT,
+                               null,
+                               new LibraryMethod(AccessConstants.PUBLIC, ClassConstants.METHOD_NAME_INIT, ClassConstants.METHOD_TYPE_INIT),
+                               new LibraryMethod(AccessConstants.PUBLIC, "hashCode", "()I"),
+                               new LibraryMethod(AccessConstants.PUBLIC, "equals", "(Ljava/lang/Object;)Z"),
+                               new LibraryMethod(AccessConstants.PUBLIC, "toString", "()Ljava/lang/String;")));
+
+        libraryClassPool.addClass(
+            createLibraryClass(ClassConstants.NAME_JAVA_LANG_STRING,
+                               ClassConstants.NAME_JAVA_LANG_OBJECT,
+                               new LibraryMethod(AccessConstants.PUBLIC, "length", "()I"),
+                               new LibraryMethod(AccessConstants.PUBLIC, "concat", "(Ljava/lang/String;)Ljava/lang/String;")));
+
+        libraryClassPool.addClass(
+            createLibraryClass(ClassConstants.NAME_JAVA_LANG_THROWABLE,
+                               ClassConstants.NAME_JAVA_LANG_OBJECT));
+
+        libraryClassPool.addClass(
+            createLibraryClass(ClassConstants.NAME_JAVA_LANG_EXCEPTION,
+                               ClassConstants.NAME_JAVA_LANG_THROWABLE));
+
+        libraryClassPool.addClass(
+            createLibraryClass(RUNTIME_EXCEPTION,
+                               ClassConstants.NAME_JAVA_LANG_EXCEPTION));
+
+        return libraryClassPool;
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Composes the body of a method with the signature (II)I, consisting of
+     * a number of code blocks.
+     */
+    private void composeMethodBody(CompactCodeAttributeComposer code,
+                                   String                       className,
+                                   String                       nextClassName,
+                                   int                          methodSeed)
+    {
+        for (int blockIndex = 0; blockIndex < blockCount; blockIndex++)
+        {
+            int blockSeed = methodSeed + blockIndex;
+
+            switch (blockSeed % BLOCK_TYPE_COUNT)
+            {
+                case 0:
+                {
+                    // for (int i = 0; i < a; i++) this.count += i;
+                    CompactCodeAttributeComposer.Label loop = code.createLabel();
+                    CompactCodeAttributeComposer.Label end  = code.createLabel();
+
+                    code.iconst_0()
+                        .istore(3)
+                        .label(loop)
+                        .iload(3)
+                        .iload_1()
+                        .ificmpge(end)
+                        .aload_0()
+                        .dup()
+                        .getfield(className, "count", "I")
+                        .iload(3)
+                        .iadd()
+                        .putfield(className, "count", "I")
+                        .iinc(3, 1)
+                        .goto_(loop)
+                        .label(end);
+                    break;
+                }
+                case 1:
+                {
+                    // switch (a) { case 0: b += 1; ... }
+                    CompactCodeAttributeComposer.Label[] cases =
+                    {
+                        code.createLabel(),
+                        code.createLabel(),
+                        code.createLabel(),
+                    };
+                    CompactCodeAttributeComposer.Label end = code.createLabel();
+
+                    code.iload_1()
+                        .tableswitch(end, 0, cases.length - 1, cases);
+
+                    for (int caseIndex = 0; caseIndex < cases.length; caseIndex++)
+                    {
+                        code.label(cases[caseIndex])
+                            .iinc(2, caseIndex + 1)
+                            .goto_(end);
+                    }
+
+                    code.label(end);
+                    break;
+                }
+                case 2:
+                {
+                    // try { b = C.helper(a, b); } catch (RuntimeException e) { b = 0; }
+                    CompactCodeAttributeComposer.Label start = code.createLabel();
+                    CompactCodeAttributeComposer.Label stop  = code.createLabel();
+                    CompactCodeAttributeComposer.Label end   = code.createLabel();
+
+                    code.label(start)
+                        .iload_1()
+                        .iload_2()
+                        .invokestatic(className(blockSeed % classCount), "helper", "(II)I")
+                        .istore_2()
+                        .label(stop)
+                        .goto_(end)
+                        .catch_(start, stop, RUNTIME_EXCEPTION, null)
+                        .pop()
+                        .iconst_0()
+                        .istore_2()
+                        .label(end);
+                    break;
+                }
+                case 3:
+                {
+                    // b += "block".concat(this.name).length();
+                    code.iload_2()
+                        .ldc("block" + blockSeed)
+                        .aload_0()
+                        .getfield(className, "name", "Ljava/lang/String;")
+                        .invokevirtual(ClassConstants.NAME_JAVA_LANG_STRING, "concat", "(Ljava/lang/String;)Ljava/lang/String;")
+                        .invokevirtual(ClassConstants.NAME_JAVA_LANG_STRING, "length", "()I")
+                        .iadd()
+                        .istore_2();
+                    break;
+                }
+                default:
+                {
+                    // if (this.next != null) b = Next.helper(a, b);
+                    CompactCodeAttributeComposer.Label end = code.createLabel();
+
+                    code.aload_0()
+                        .getfield(className, "next", "L" + nextClassName + ";")
+                        .ifnull(end)
+                        .iload_1()
+                        .iload_2()
+                        .invokestatic(nextClassName, "helper", "(II)I")
+                        .istore_2()
+                        .label(end);
+                    break;
+                }
+            }
+        }
+
+        code.iload_2()
+            .ireturn();
+    }
+
+
+    /**
+     * Creates a library class with the given name, super class, and methods.
+     */
+    private static LibraryClass createLibraryClass(String           className,
+                                                   String           superClassName,
+                                                   LibraryMethod... methods)
+    {
+        LibraryClass libraryClass = new LibraryClass();
+        libraryClass.u2accessFlags  = AccessConstants.PUBLIC;
+        libraryClass.thisClassName  = className;
+        libraryClass.superClassName = superClassName;
+        libraryClass.interfaceNames = new String[0];
+        libraryClass.fields         = new LibraryField[0];
+        libraryClass.methods        = methods;
+
+        return libraryClass;
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * ProGuardCORE -- library to process Java bytecode.
+ *
+ * Copyright (c) 2002-2020 Guardsquare NV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package proguard.classfile.editor;
+
+import org.openjdk.jmh.annotations.*;
+import proguard.benchmark.CorpusGenerator;
+import proguard.classfile.*;
+import proguard.classfile.attribute.*;
+import proguard.classfile.attribute.visitor.*;
+import proguard.classfile.instruction.*;
+import proguard.classfile.instruction.visitor.InstructionVisitor;
+import proguard.classfile.visitor.AllMethodVisitor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark measures editing code with the {@link CodeAttributeEditor}
+ * and with the {@link CodeAttributeComposer}. Each invocation edits a fresh
+ * copy of the corpus.
+ *
+ * @author Eric Lafortune
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CodeEditingBenchmark
+{
+    @Param({"1000"})
+    public int classCount;
+
+    private CorpusGenerator corpusGenerator;
+    private ClassPool       programClassPool;
+
+
+    @Setup(Level.Trial)
+    public void setUpCorpus()
+    {
+        corpusGenerator = new CorpusGenerator(classCount, 8, 8);
+    }
+
+
+    @Setup(Level.Invocation)
+    public void setUpClassPool()
+    {
+        programClassPool = corpusGenerator.createProgramClassPool();
+    }
+
+
+    @Benchmark
+    public ClassPool codeAttributeEditor()
+    {
+        programClassPool.classesAccept(
+            new AllMethodVisitor(
+            new AllAttributeVisitor(
+            new MyCodeAttributeEditor())));
+
+        return programClassPool;
+    }
+
+
+    @Benchmark
+    public ClassPool codeAttributeComposer()
+    {
+        programClassPool.classesAccept(
+            new AllMethodVisitor(
+            new AllAttributeVisitor(
+            new MyCodeAttributeComposer())));
+
+        return programClassPool;
+    }
+
+
+    /**
+     * This AttributeVisitor inserts a nop instruction before every branch
+     * instruction and increments the constants of all iinc instructions,
+     * with a CodeAttributeEditor.
+     */
+    private static class MyCodeAttributeEditor
+    implements           AttributeVisitor,
+                         InstructionVisitor
+    {
+        private final CodeAttributeEditor codeAttributeEditor = new CodeAttributeEditor();
+
+
+        // Implementations for AttributeVisitor.
+
+        public void visitAnyAttribute(Clazz clazz, Attribute attribute) {}
+
+
+        public void visitCodeAttribute(Clazz clazz, Method method, CodeAttribute codeAttribute)
+        {
+            codeAttributeEditor.reset(codeAttribute.u4codeLength);
+
+            codeAttribute.instructionsAccept(clazz, method, this);
+
+            codeAttributeEditor.visitCodeAttribute(clazz, method, codeAttribute);
+        }
+
+
+        // Implementations for InstructionVisitor.
+
+        public void visitAnyInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, Instruction instruction) {}
+
+
+        public void visitVariableInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, VariableInstruction variableInstruction)
+        {
+            if (variableInstruction.opcode == Instruction.OP_IINC)
+            {
+                codeAttributeEditor.replaceInstruction(offset,
+                    new VariableInstruction(Instruction.OP_IINC,
+                                            variableInstruction.variableIndex,
+                                            variableInstruction.constant + 1));
+            }
+        }
+
+
+        public void visitBranchInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, BranchInstruction branchInstruction)
+        {
+            codeAttributeEditor.insertBeforeInstruction(offset,
+                new SimpleInstruction(Instruction.OP_NOP));
+        }
+    }
+
+
+    /**
+     * This AttributeVisitor composes a copy of each code attribute with a
+     * CodeAttributeComposer, inserting a nop instruction after every iinc
+     * instruction.
+     */
+    private static class MyCodeAttributeComposer
+    implements           AttributeVisitor,
+                         InstructionVisitor,
+                         ExceptionInfoVisitor
+    {
+        private final CodeAttributeComposer codeAttributeComposer = new CodeAttributeComposer();
+
+
+        // Implementations for AttributeVisitor.
+
+        public void visitAnyAttribute(Clazz clazz, Attribute attribute) {}
+
+
+        public void visitCodeAttribute(Clazz clazz, Method method, CodeAttribute codeAttribute)
+        {
+            int codeLength = codeAttribute.u4codeLength;
+
+            codeAttributeComposer.reset();
+            codeAttributeComposer.beginCodeFragment(2 * codeLength);
+
+            codeAttribute.instructionsAccept(clazz, method, this);
+            codeAttribute.exceptionsAccept(clazz, method, this);
+
+            codeAttributeComposer.appendLabel(codeLength);
+            codeAttributeComposer.endCodeFragment();
+
+            codeAttributeComposer.visitCodeAttribute(clazz, method, codeAttribute);
+        }
+
+
+        // Implementations for InstructionVisitor.
+
+        public void visitAnyInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, Instruction instruction)
+        {
+            codeAttributeComposer.appendInstruction(offset, instruction);
+        }
+
+
+        public void visitVariableInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, VariableInstruction variableInstruction)
+        {
+            codeAttributeComposer.appendInstruction(offset, variableInstruction);
+
+            if (variableInstruction.opcode == Instruction.OP_IINC)
+            {
+                codeAttributeComposer.appendInstruction(new SimpleInstruction(Instruction.OP_NOP));
+            }
+        }
+
+
+        // Implementations for ExceptionInfoVisitor.
+
+        public void visitExceptionInfo(Clazz clazz, Method method, CodeAttribute codeAttribute, ExceptionInfo exceptionInfo)
+        {
+            codeAttributeComposer.appendException(new ExceptionInfo(exceptionInfo.u2startPC,
+                                                                    exceptionInfo.u2endPC,
+                                                                    exceptionInfo.u2handlerPC,
+                                                                    exceptionInfo.u2catchType));
+        }
+    }
+}
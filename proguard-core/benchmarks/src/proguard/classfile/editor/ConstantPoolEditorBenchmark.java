@@ -0,0 +1,114 @@
+/*
+ * ProGuardCORE -- library to process Java bytecode.
+ *
+ * Copyright (c) 2002-2020 Guardsquare NV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package proguard.classfile.editor;
+
+import org.openjdk.jmh.annotations.*;
+import proguard.benchmark.CorpusGenerator;
+import proguard.classfile.*;
+import proguard.classfile.visitor.ClassVisitor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark measures adding constants with the
+ * {@link ConstantPoolEditor}, both constants that are already present and
+ * new constants. Each invocation edits a fresh copy of the corpus.
+ *
+ * @author Eric Lafortune
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConstantPoolEditorBenchmark
+{
+    @Param({"1000"})
+    public int classCount;
+
+    @Param({"100"})
+    public int constantCount;
+
+    private CorpusGenerator corpusGenerator;
+    private ClassPool       programClassPool;
+
+
+    @Setup(Level.Trial)
+    public void setUpCorpus()
+    {
+        corpusGenerator = new CorpusGenerator(classCount, 8, 8);
+    }
+
+
+    @Setup(Level.Invocation)
+    public void setUpClassPool()
+    {
+        programClassPool = corpusGenerator.createProgramClassPool();
+    }
+
+
+    @Benchmark
+    public ClassPool addConstants()
+    {
+        programClassPool.classesAccept(new MyConstantAdder());
+
+        return programClassPool;
+    }
+
+
+    /**
+     * This ClassVisitor adds field references, method references, and
+     * strings to the constant pools of the classes that it visits.
+     */
+    private class MyConstantAdder
+    implements    ClassVisitor
+    {
+        // Implementations for ClassVisitor.
+
+        public void visitAnyClass(Clazz clazz) {}
+
+
+        public void visitProgramClass(ProgramClass programClass)
+        {
+            ConstantPoolEditor constantPoolEditor =
+                new ConstantPoolEditor(programClass);
+
+            for (int index = 0; index < constantCount; index++)
+            {
+                // Alternate between existing and new constants.
+                String className =
+                    corpusGenerator.className(index % classCount);
+
+                constantPoolEditor.addFieldrefConstant(className,
+                                                       "next",
+                                                       "L" + className + ";",
+                                                       null,
+                                                       null);
+
+                constantPoolEditor.addMethodrefConstant(className,
+                                                        "method" + index,
+                                                        "(II)I",
+                                                        null,
+                                                        null);
+
+                constantPoolEditor.addStringConstant("block" + index);
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * ProGuardCORE -- library to process Java bytecode.
+ *
+ * Copyright (c) 2002-2020 Guardsquare NV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package proguard.classfile.io;
+
+import org.openjdk.jmh.annotations.*;
+import proguard.benchmark.CorpusGenerator;
+import proguard.classfile.ProgramClass;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark measures reading classes with the {@link ProgramClassReader}
+ * and writing them with the {@link ProgramClassWriter}.
+ *
+ * @author Eric Lafortune
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ProgramClassReadWriteBenchmark
+{
+    @Param({"1000"})
+    public int classCount;
+
+    private byte[][]       classFiles;
+    private ProgramClass[] programClasses;
+
+
+    @Setup
+    public void setUp()
+    {
+        classFiles     = new CorpusGenerator(classCount, 8, 8).createClassFiles();
+        programClasses = read();
+    }
+
+
+    @Benchmark
+    public ProgramClass[] read()
+    {
+        ProgramClass[] programClasses = new ProgramClass[classFiles.length];
+
+        for (int index = 0; index < classFiles.length; index++)
+        {
+            programClasses[index] = read(classFiles[index]);
+        }
+
+        return programClasses;
+    }
+
+
+    @Benchmark
+    public long write()
+    {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        DataOutputStream      dataOutputStream      = new DataOutputStream(byteArrayOutputStream);
+
+        long size = 0L;
+
+        for (ProgramClass programClass : programClasses)
+        {
+            byteArrayOutputStream.reset();
+
+            programClass.accept(new ProgramClassWriter(dataOutputStream));
+
+            size += byteArrayOutputStream.size();
+        }
+
+        return size;
+    }
+
+
+    @Benchmark
+    public long roundTrip()
+    {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        DataOutputStream      dataOutputStream      = new DataOutputStream(byteArrayOutputStream);
+
+        long size = 0L;
+
+        for (byte[] classFile : classFiles)
+        {
+            byteArrayOutputStream.reset();
+
+            read(classFile).accept(new ProgramClassWriter(dataOutputStream));
+
+            size += byteArrayOutputStream.size();
+        }
+
+        return size;
+    }
+
+
+    // Small utility methods.
+
+    private ProgramClass read(byte[] classFile)
+    {
+        ProgramClass programClass = new ProgramClass();
+
+        programClass.accept(
+            new ProgramClassReader(
+            new DataInputStream(
+            new ByteArrayInputStream(classFile))));
+
+        return programClass;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * ProGuardCORE -- library to process Java bytecode.
+ *
+ * Copyright (c) 2002-2020 Guardsquare NV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package proguard.classfile.util;
+
+import org.openjdk.jmh.annotations.*;
+import proguard.benchmark.CorpusGenerator;
+import proguard.classfile.ClassPool;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark measures initializing the references of a class pool
+ * with the {@link ClassReferenceInitializer}.
+ *
+ * @author Eric Lafortune
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ClassReferenceInitializerBenchmark
+{
+    @Param({"1000", "10000"})
+    public int classCount;
+
+    private ClassPool programClassPool;
+    private ClassPool libraryClassPool;
+
+
+    @Setup
+    public void setUp()
+    {
+        programClassPool = new CorpusGenerator(classCount, 8, 8).createProgramClassPool();
+        libraryClassPool = CorpusGenerator.createLibraryClassPool();
+
+        // The reference initializer needs the class hierarchy.
+        programClassPool.classesAccept(new ClassSuperHierarchyInitializer(programClassPool, libraryClassPool));
+    }
+
+
+    @Benchmark
+    public ClassPool initializeReferences()
+    {
+        programClassPool.classesAccept(new ClassReferenceInitializer(programClassPool, libraryClassPool));
+
+        return programClassPool;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * ProGuardCORE -- library to process Java bytecode.
+ *
+ * Copyright (c) 2002-2020 Guardsquare NV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package proguard.classfile.util;
+
+import org.openjdk.jmh.annotations.*;
+import proguard.benchmark.CorpusGenerator;
+import proguard.classfile.*;
+import proguard.classfile.attribute.CodeAttribute;
+import proguard.classfile.attribute.visitor.AllAttributeVisitor;
+import proguard.classfile.constant.Constant;
+import proguard.classfile.editor.InstructionSequenceBuilder;
+import proguard.classfile.instruction.Instruction;
+import proguard.classfile.instruction.visitor.*;
+import proguard.classfile.visitor.AllMethodVisitor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark measures matching instruction sequences with the
+ * {@link InstructionSequenceMatcher}.
+ *
+ * @author Eric Lafortune
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class InstructionSequenceMatcherBenchmark
+{
+    private static final int X = InstructionSequenceMatcher.X;
+    private static final int Y = InstructionSequenceMatcher.Y;
+    private static final int Z = InstructionSequenceMatcher.Z;
+
+
+    @Param({"1000"})
+    public int classCount;
+
+    private ClassPool programClassPool;
+
+    private Constant[]      constants;
+    private Instruction[][] patterns;
+
+
+    @Setup
+    public void setUp()
+    {
+        programClassPool = new CorpusGenerator(classCount, 8, 8).createProgramClassPool();
+
+        InstructionSequenceBuilder builder = new InstructionSequenceBuilder();
+
+        patterns = new Instruction[][]
+        {
+            // Invocations with two arguments.
+            builder.iload(X)
+                   .iload(Y)
+                   .invokestatic(Z)
+                   .istore(Y).__(),
+
+            // Field increments.
+            builder.aload_0()
+                   .dup()
+                   .getfield(X)
+                   .iload(Y)
+                   .iadd()
+                   .putfield(X).__(),
+
+            // Loop conditions.
+            builder.iload(X)
+                   .iload(Y)
+                   .ificmpge(Z).__(),
+
+            // Null checks of fields.
+            builder.aload_0()
+                   .getfield(X)
+                   .ifnull(Y).__(),
+        };
+
+        constants = builder.constants();
+    }
+
+
+    @Benchmark
+    public int matchPatterns()
+    {
+        MyMatchCounter matchCounter = new MyMatchCounter();
+
+        for (Instruction[] pattern : patterns)
+        {
+            matchCounter.matcher =
+                new InstructionSequenceMatcher(constants, pattern);
+
+            programClassPool.classesAccept(
+                new AllMethodVisitor(
+                new AllAttributeVisitor(
+                new AllInstructionVisitor(
+                new MultiInstructionVisitor(
+                    matchCounter.matcher,
+                    matchCounter)))));
+        }
+
+        return matchCounter.count;
+    }
+
+
+    /**
+     * This InstructionVisitor counts the matches of its matcher, after the
+     * matcher has visited an instruction.
+     */
+    private static class MyMatchCounter
+    implements           InstructionVisitor
+    {
+        private InstructionSequenceMatcher matcher;
+        private int                        count;
+
+
+        // Implementations for InstructionVisitor.
+
+        public void visitAnyInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, Instruction instruction)
+        {
+            if (matcher.isMatching())
+            {
+                count++;
+            }
+        }
+    }
+}
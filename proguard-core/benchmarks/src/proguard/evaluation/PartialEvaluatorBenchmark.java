@@ -0,0 +1,84 @@
+/*
+ * ProGuardCORE -- library to process Java bytecode.
+ *
+ * Copyright (c) 2002-2020 Guardsquare NV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package proguard.evaluation;
+
+import org.openjdk.jmh.annotations.*;
+import proguard.benchmark.CorpusGenerator;
+import proguard.classfile.ClassPool;
+import proguard.classfile.attribute.visitor.AllAttributeVisitor;
+import proguard.classfile.util.*;
+import proguard.classfile.visitor.AllMethodVisitor;
+import proguard.evaluation.value.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark measures the {@link PartialEvaluator} on methods of
+ * increasing sizes.
+ *
+ * @author Eric Lafortune
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PartialEvaluatorBenchmark
+{
+    @Param({"10", "100", "1000"})
+    public int blockCount;
+
+    private ClassPool programClassPool;
+
+
+    @Setup
+    public void setUp()
+    {
+        programClassPool = new CorpusGenerator(16, 4, blockCount).createProgramClassPool();
+
+        ClassPool libraryClassPool = CorpusGenerator.createLibraryClassPool();
+
+        programClassPool.classesAccept(new ClassSuperHierarchyInitializer(programClassPool, libraryClassPool));
+        programClassPool.classesAccept(new ClassReferenceInitializer(programClassPool, libraryClassPool));
+    }
+
+
+    @Benchmark
+    public void basicValues()
+    {
+        evaluate(new PartialEvaluator());
+    }
+
+
+    @Benchmark
+    public void typedReferenceValues()
+    {
+        evaluate(new PartialEvaluator(new TypedReferenceValueFactory()));
+    }
+
+
+    // Small utility methods.
+
+    private void evaluate(PartialEvaluator partialEvaluator)
+    {
+        programClassPool.classesAccept(
+            new AllMethodVisitor(
+            new AllAttributeVisitor(partialEvaluator)));
+    }
+}
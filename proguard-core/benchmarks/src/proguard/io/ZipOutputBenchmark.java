@@ -0,0 +1,88 @@
+/*
+ * ProGuardCORE -- library to process Java bytecode.
+ *
+ * Copyright (c) 2002-2020 Guardsquare NV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package proguard.io;
+
+import org.openjdk.jmh.annotations.*;
+import proguard.benchmark.CorpusGenerator;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark measures writing zip files with the {@link ZipOutput}.
+ *
+ * @author Eric Lafortune
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ZipOutputBenchmark
+{
+    @Param({"1000"})
+    public int classCount;
+
+    @Param({"true", "false"})
+    public boolean compress;
+
+    @Param({"1", "4"})
+    public int compressionThreadCount;
+
+    private CorpusGenerator corpusGenerator;
+    private byte[][]        classFiles;
+
+
+    @Setup
+    public void setUp()
+    {
+        corpusGenerator = new CorpusGenerator(classCount, 8, 8);
+        classFiles      = corpusGenerator.createClassFiles();
+    }
+
+
+    @Benchmark
+    public int write() throws IOException
+    {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+
+        ZipOutput zipOutput =
+            new ZipOutput(byteArrayOutputStream, null, 1, null, compressionThreadCount);
+
+        for (int index = 0; index < classFiles.length; index++)
+        {
+            OutputStream outputStream =
+                zipOutput.createOutputStream(corpusGenerator.className(index) + ".class",
+                                             compress,
+                                             0);
+            try
+            {
+                outputStream.write(classFiles[index]);
+            }
+            finally
+            {
+                outputStream.close();
+            }
+        }
+
+        zipOutput.close();
+
+        return byteArrayOutputStream.size();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * ProGuardCORE -- library to process Java bytecode.
+ *
+ * Copyright (c) 2002-2020 Guardsquare NV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package proguard.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark compares the trees of string matchers that a
+ * {@link ListParser} creates with their compiled {@link AutomatonMatcher}
+ * counterparts, for some typical class name filters.
+ *
+ * @author Eric Lafortune
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StringMatcherBenchmark
+{
+    private static final String[] FILTERS = new String[]
+    {
+        "com/example/**",
+        "!**/internal/**,com/example/**,org/example/**",
+        "**/R,**/R$*,**/BuildConfig",
+        "!java/**,!javax/**,!kotlin/**,**",
+        "**/*Activity,**/*Service,**/*Receiver,**/*Provider,**/*Application",
+        "com/example/?ui/**,com/example/model/*Entity,!com/example/**Test",
+        "android/**,androidx/**,com/google/**,kotlin/**,kotlinx/**,org/jetbrains/**",
+    };
+
+    private static final String[] PACKAGES = new String[]
+    {
+        "com/example/",
+        "com/example/ui/",
+        "com/example/internal/util/",
+        "com/example/model/",
+        "org/example/app/",
+        "java/util/",
+        "kotlin/collections/",
+        "androidx/appcompat/widget/",
+    };
+
+    private static final String[] CLASS_NAMES = new String[]
+    {
+        "MainActivity",
+        "R",
+        "R$string",
+        "BuildConfig",
+        "UserEntity",
+        "SyncService",
+        "ArrayList",
+        "LoginFragmentTest",
+        "AbstractCollection$Itr",
+    };
+
+
+    // The index of the filter in the above list.
+    @Param({"0", "1", "2", "3", "4", "5", "6"})
+    public int filterIndex;
+
+    private String[]      classNames;
+    private StringMatcher treeMatcher;
+    private StringMatcher automatonMatcher;
+
+
+    @Setup
+    public void setUp()
+    {
+        String filter = FILTERS[filterIndex];
+
+        classNames       = classNames();
+        treeMatcher      = new ListParser(new ClassNameParser(), false).parse(filter);
+        automatonMatcher = new ListParser(new ClassNameParser(), true).parse(filter);
+
+        // Make sure both matchers agree.
+        for (String className : classNames)
+        {
+            if (treeMatcher.matches(className) != automatonMatcher.matches(className))
+            {
+                throw new IllegalStateException("Different results for ["+filter+"] and ["+className+"]");
+            }
+        }
+    }
+
+
+    @Benchmark
+    public int tree()
+    {
+        return matchCount(treeMatcher);
+    }
+
+
+    @Benchmark
+    public int automaton()
+    {
+        return matchCount(automatonMatcher);
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Returns a list of class names to match, from all combinations of
+     * packages and simple class names.
+     */
+    private static String[] classNames()
+    {
+        List<String> classNames = new ArrayList<>();
+        for (String packageName : PACKAGES)
+        {
+            for (String className : CLASS_NAMES)
+            {
+                classNames.add(packageName + className);
+            }
+        }
+
+        return classNames.toArray(new String[0]);
+    }
+
+
+    /**
+     * Returns the number of class names that the given matcher matches.
+     */
+    private int matchCount(StringMatcher matcher)
+    {
+        int matchCount = 0;
+
+        for (String className : classNames)
+        {
+            if (matcher.matches(className))
+            {
+                matchCount++;
+            }
+        }
+
+        return matchCount;
+    }
+}
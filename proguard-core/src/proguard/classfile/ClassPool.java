@@ -32,7 +32,7 @@ public class ClassPool
 {
     // We're using a sorted tree map instead of a hash map to store the classes,
     // in order to make the processing more deterministic.
-    private final Map<String, Clazz> classes = new TreeMap<String, Clazz>();
+    private final TreeMap<String, Clazz> classes = new TreeMap<String, Clazz>();
 
 
     /**
@@ -349,6 +349,31 @@ public class ClassPool
     }
 
 
+    /**
+     * Applies the given ClassVisitor to all classes in the class pool whose
+     * names start with the given prefix, in sorted order.
+     */
+    public void prefixedClassesAccept(String       classNamePrefix,
+                                      ClassVisitor classVisitor)
+    {
+        // The tree map lets us start at the first class with the prefix.
+        Iterator iterator = classes.tailMap(classNamePrefix).entrySet().iterator();
+        while (iterator.hasNext())
+        {
+            Map.Entry entry     = (Map.Entry)iterator.next();
+            String    className = (String   )entry.getKey();
+
+            if (!className.startsWith(classNamePrefix))
+            {
+                break;
+            }
+
+            Clazz clazz = (Clazz)entry.getValue();
+            clazz.accept(classVisitor);
+        }
+    }
+
+
     /**
      * Applies the given ClassVisitor to the class with the given name,
      * if it is present in the class pool.
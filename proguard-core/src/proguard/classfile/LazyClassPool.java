@@ -0,0 +1,314 @@
+/*
+ * ProGuardCORE -- library to process Java bytecode.
+ *
+ * Copyright (c) 2002-2020 Guardsquare NV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package proguard.classfile;
+
+import proguard.classfile.visitor.ClassVisitor;
+import proguard.util.StringMatcher;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * This {@link ClassPool} can also contain classes that are only known by
+ * name, until they are actually retrieved with {@link #getClass(String)}.
+ * At that point, they are read from their {@link ClassSource} and added to
+ * the class pool as regular classes. This can save a lot of time and memory
+ * for large libraries, of which only a small part is ever used.
+ * <p/>
+ * The methods that iterate over the classes, like
+ * {@link #classesAccept(ClassVisitor)}, only visit the classes that have
+ * been read so far, including any classes that are read while visiting.
+ * <p/>
+ * Retrieving classes is thread-safe.
+ *
+ * @author Eric Lafortune
+ */
+public class LazyClassPool extends ClassPool
+{
+    /**
+     * A source from which classes can be read on demand.
+     */
+    public interface ClassSource extends Closeable
+    {
+        /**
+         * Reads the class with the given name, returning null if it turns
+         * out not to be available after all.
+         */
+        Clazz readClass(String className) throws IOException;
+    }
+
+
+    // The lazy classes, with the sources that can provide them, in order of
+    // priority.
+    private final Map<String, List<ClassSource>> lazyClasses = new HashMap<String, List<ClassSource>>();
+    private final Set<ClassSource>               sources     = new LinkedHashSet<ClassSource>();
+
+    private ClassVisitor classVisitor;
+
+    // Once the lazy classes are cleared, the class pool behaves like a plain
+    // class pool, without any synchronization.
+    private volatile boolean lazy;
+
+
+    /**
+     * Adds the class with the given name, to be read from the given source
+     * when it is first retrieved. If a class with the same name has already
+     * been added, the given source only serves as a fallback, in case the
+     * class can't be read from the earlier sources.
+     */
+    public synchronized void addLazyClass(String className, ClassSource classSource)
+    {
+        List<ClassSource> classSources = lazyClasses.get(className);
+        if (classSources == null)
+        {
+            classSources = new ArrayList<ClassSource>(1);
+            lazyClasses.put(className, classSources);
+        }
+
+        classSources.add(classSource);
+        sources.add(classSource);
+
+        lazy = true;
+    }
+
+
+    /**
+     * Returns whether the class pool contains a class with the given name,
+     * without reading it, if it is lazy.
+     */
+    public synchronized boolean containsClassName(String className)
+    {
+        return lazyClasses.containsKey(className) ||
+               super.getClass(className) != null;
+    }
+
+
+    /**
+     * Sets a visitor that is applied to all lazy classes after they have
+     * been read, for instance to initialize them consistently with the
+     * other classes in the class pool.
+     */
+    public synchronized void setClassVisitor(ClassVisitor classVisitor)
+    {
+        this.classVisitor = classVisitor;
+    }
+
+
+    // Implementations for ClassPool.
+
+    /**
+     * Clears the class pool, including all lazy classes, and closes their
+     * sources.
+     */
+    public synchronized void clear()
+    {
+        super.clear();
+
+        lazy = false;
+
+        lazyClasses.clear();
+
+        for (ClassSource classSource : sources)
+        {
+            try
+            {
+                classSource.close();
+            }
+            catch (IOException ignore) {}
+        }
+
+        sources.clear();
+    }
+
+
+    public synchronized void addClass(Clazz clazz)
+    {
+        super.addClass(clazz);
+    }
+
+
+    public synchronized void addClass(String name, Clazz clazz)
+    {
+        super.addClass(name, clazz);
+    }
+
+
+    public synchronized Clazz removeClass(String className)
+    {
+        lazyClasses.remove(className);
+
+        return super.removeClass(className);
+    }
+
+
+    /**
+     * Returns the class with the given name, reading it first if it is lazy.
+     */
+    public Clazz getClass(String className)
+    {
+        if (!lazy)
+        {
+            return super.getClass(className);
+        }
+
+        synchronized (this)
+        {
+            return getOrReadClass(className);
+        }
+    }
+
+
+    /**
+     * Returns the number of classes in the class pool, including the lazy
+     * classes that haven't been read yet.
+     */
+    public synchronized int size()
+    {
+        return super.size() + lazyClasses.size();
+    }
+
+
+    public void classesAccept(ClassVisitor classVisitor)
+    {
+        if (!lazy)
+        {
+            super.classesAccept(classVisitor);
+            return;
+        }
+
+        Set<Clazz> visitedClasses = new HashSet<Clazz>();
+
+        // Keep visiting classes until no more lazy classes have been read
+        // in the process.
+        while (true)
+        {
+            List<Clazz> classes = currentClasses();
+            if (classes.size() == visitedClasses.size())
+            {
+                break;
+            }
+
+            for (Clazz clazz : classes)
+            {
+                if (visitedClasses.add(clazz))
+                {
+                    clazz.accept(classVisitor);
+                }
+            }
+        }
+    }
+
+
+    public void classesAcceptAlphabetically(ClassVisitor classVisitor)
+    {
+        // Each snapshot of the classes is already sorted.
+        classesAccept(classVisitor);
+    }
+
+
+    public void classesAccept(StringMatcher classNameFilter,
+                              ClassVisitor  classVisitor)
+    {
+        if (!lazy)
+        {
+            super.classesAccept(classNameFilter, classVisitor);
+            return;
+        }
+
+        for (Clazz clazz : currentClasses())
+        {
+            if (classNameFilter.matches(clazz.getName()))
+            {
+                clazz.accept(classVisitor);
+            }
+        }
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Returns the class with the given name, reading it first if it is lazy.
+     */
+    private Clazz getOrReadClass(String className)
+    {
+        Clazz clazz = super.getClass(className);
+        if (clazz == null)
+        {
+            List<ClassSource> classSources = lazyClasses.remove(className);
+            if (classSources != null)
+            {
+                clazz = readClass(className, classSources);
+                if (clazz != null)
+                {
+                    // Add the class before visiting it, in case the visitor
+                    // retrieves it again.
+                    super.addClass(className, clazz);
+
+                    if (classVisitor != null)
+                    {
+                        clazz.accept(classVisitor);
+                    }
+                }
+            }
+        }
+
+        return clazz;
+    }
+
+
+    /**
+     * Reads the class with the given name from the first source that
+     * can provide it.
+     */
+    private Clazz readClass(String className, List<ClassSource> classSources)
+    {
+        for (ClassSource classSource : classSources)
+        {
+            try
+            {
+                Clazz clazz = classSource.readClass(className);
+                if (clazz != null)
+                {
+                    return clazz;
+                }
+            }
+            catch (IOException e)
+            {
+                throw new RuntimeException("Can't read class [" + className + "] (" + e.getMessage() + ")", e);
+            }
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Returns a snapshot of the classes that have been read so far.
+     */
+    private synchronized List<Clazz> currentClasses()
+    {
+        List<Clazz> classes = new ArrayList<Clazz>(super.size());
+        for (Clazz clazz : classes())
+        {
+            classes.add(clazz);
+        }
+
+        return classes;
+    }
+}
@@ -17,16 +17,26 @@
  */
 package proguard.classfile.editor;
 
+import proguard.classfile.*;
+import proguard.classfile.attribute.CodeAttribute;
 import proguard.classfile.constant.Constant;
-import proguard.classfile.instruction.Instruction;
+import proguard.classfile.instruction.*;
 import proguard.classfile.instruction.visitor.*;
-import proguard.classfile.util.BranchTargetFinder;
+import proguard.classfile.util.*;
 
 /**
- * This {@link InstructionVisitor} replaces multiple instruction sequences at once.
+ * This {@link MultiInstructionVisitor} replaces multiple instruction sequences at once.
  * <p/>
  * The replacement sequences are optional, defaulting to the empty sequence,
  * to delete the matched pattern sequences.
+ * <p/>
+ * The replacer indexes the pattern sequences by the opcodes of their first
+ * instructions. It then only passes each instruction to the replacers that
+ * have already matched the start of their patterns and to the replacers
+ * whose patterns may start with the instruction, in their original order.
+ * The other replacers couldn't match the instruction anyway. The results
+ * are therefore the same as when passing each instruction to all
+ * replacers.
  *
  * @see InstructionSequenceReplacer
  * @author Eric Lafortune
@@ -39,6 +49,23 @@ implements   InstructionVisitor
     private static final int REPLACEMENT_INDEX = 1;
 
     private static final Instruction[] EMPTY_INSTRUCTIONS = new Instruction[0];
+    private static final int[]         EMPTY_INDICES      = new int[0];
+
+
+    private final InstructionSequenceMatcher[]  instructionSequenceMatchers;
+    private final InstructionSequenceReplacer[] instructionSequenceReplacers;
+
+    // The indices of the replacers, by the opcodes of their first pattern
+    // instructions.
+    private final int[][] replacerIndices = new int[256][];
+
+    // The indices of the replacers that have matched the start of their
+    // pattern sequences, in increasing order.
+    private int[] partialMatchIndices;
+    private int   partialMatchCount;
+    private int[] nextPartialMatchIndices;
+
+    private boolean hasExtraInstructionVisitors;
 
 
     /**
@@ -90,40 +117,16 @@ implements   InstructionVisitor
                                         CodeAttributeEditor codeAttributeEditor,
                                         InstructionVisitor  extraInstructionVisitor)
     {
-        super(createInstructionSequenceReplacers(constants,
-                                                 instructionSequences,
-                                                 branchTargetFinder,
-                                                 codeAttributeEditor,
-                                                 extraInstructionVisitor));
-    }
+        int sequenceCount = instructionSequences.length;
 
+        instructionSequenceMatchers  = new InstructionSequenceMatcher[sequenceCount];
+        instructionSequenceReplacers = new InstructionSequenceReplacer[sequenceCount];
+        partialMatchIndices          = new int[sequenceCount];
+        nextPartialMatchIndices      = new int[sequenceCount];
 
-    /**
-     * Creates an array of InstructionSequenceReplacer instances.
-     * @param constants               any constants referenced by the pattern
-     *                                instructions and replacement instructions.
-     * @param instructionSequences    the instruction sequences to be replaced,
-     *                                with subsequently the sequence pair index,
-     *                                the from/to index (0 or 1), and the
-     *                                instruction index in the sequence.
-     * @param branchTargetFinder      a branch target finder that has been
-     *                                initialized to indicate branch targets
-     *                                in the visited code.
-     * @param codeAttributeEditor     a code editor that can be used for
-     *                                accumulating changes to the code.
-     * @param extraInstructionVisitor an optional extra visitor for all deleted
-     *                                load instructions.
-     */
-    private static InstructionVisitor[] createInstructionSequenceReplacers(Constant[]          constants,
-                                                                           Instruction[][][]   instructionSequences,
-                                                                           BranchTargetFinder  branchTargetFinder,
-                                                                           CodeAttributeEditor codeAttributeEditor,
-                                                                           InstructionVisitor  extraInstructionVisitor)
-    {
-        InstructionVisitor[] instructionSequenceReplacers =
-            new InstructionVisitor[instructionSequences.length];
+        int[] replacerCounts = new int[256];
 
-        for (int index = 0; index < instructionSequenceReplacers.length; index++)
+        for (int index = 0; index < sequenceCount; index++)
         {
             Instruction[][] instructionSequencePair =
                 instructionSequences[index];
@@ -137,16 +140,215 @@ implements   InstructionVisitor
                     instructionSequencePair[REPLACEMENT_INDEX] :
                     EMPTY_INSTRUCTIONS;
 
+            InstructionSequenceMatcher instructionSequenceMatcher =
+                new InstructionSequenceMatcher(constants, patternInstructions);
+
+            instructionSequenceMatchers[index]  = instructionSequenceMatcher;
             instructionSequenceReplacers[index] =
-                new InstructionSequenceReplacer(constants,
+                new InstructionSequenceReplacer(instructionSequenceMatcher,
+                                                constants,
                                                 patternInstructions,
                                                 constants,
                                                 replacementInstructions,
                                                 branchTargetFinder,
                                                 codeAttributeEditor,
                                                 extraInstructionVisitor);
+
+            super.addInstructionVisitor(instructionSequenceReplacers[index]);
+
+            replacerCounts[patternInstructions[0].opcode & 0xff]++;
+        }
+
+        // Fill out the index of the replacers, in their original order.
+        for (int opcode = 0; opcode < 256; opcode++)
+        {
+            replacerIndices[opcode] = replacerCounts[opcode] == 0 ?
+                EMPTY_INDICES :
+                new int[replacerCounts[opcode]];
+
+            replacerCounts[opcode] = 0;
+        }
+
+        for (int index = 0; index < sequenceCount; index++)
+        {
+            int opcode = instructionSequences[index][PATTERN_INDEX][0].opcode & 0xff;
+
+            replacerIndices[opcode][replacerCounts[opcode]++] = index;
+        }
+    }
+
+
+    // Implementations for MultiInstructionVisitor.
+
+    public void addInstructionVisitor(InstructionVisitor instructionVisitor)
+    {
+        super.addInstructionVisitor(instructionVisitor);
+
+        // The index only covers the replacers.
+        hasExtraInstructionVisitors = true;
+    }
+
+
+    // Implementations for InstructionVisitor.
+
+    public void visitSimpleInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, SimpleInstruction simpleInstruction)
+    {
+        if (hasExtraInstructionVisitors)
+        {
+            super.visitSimpleInstruction(clazz, method, codeAttribute, offset, simpleInstruction);
+        }
+        else
+        {
+            visitAnyInstruction(clazz, method, codeAttribute, offset, simpleInstruction);
+        }
+    }
+
+
+    public void visitVariableInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, VariableInstruction variableInstruction)
+    {
+        if (hasExtraInstructionVisitors)
+        {
+            super.visitVariableInstruction(clazz, method, codeAttribute, offset, variableInstruction);
+        }
+        else
+        {
+            visitAnyInstruction(clazz, method, codeAttribute, offset, variableInstruction);
+        }
+    }
+
+
+    public void visitConstantInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, ConstantInstruction constantInstruction)
+    {
+        if (hasExtraInstructionVisitors)
+        {
+            super.visitConstantInstruction(clazz, method, codeAttribute, offset, constantInstruction);
+        }
+        else
+        {
+            visitAnyInstruction(clazz, method, codeAttribute, offset, constantInstruction);
+        }
+    }
+
+
+    public void visitBranchInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, BranchInstruction branchInstruction)
+    {
+        if (hasExtraInstructionVisitors)
+        {
+            super.visitBranchInstruction(clazz, method, codeAttribute, offset, branchInstruction);
+        }
+        else
+        {
+            visitAnyInstruction(clazz, method, codeAttribute, offset, branchInstruction);
+        }
+    }
+
+
+    public void visitTableSwitchInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, TableSwitchInstruction tableSwitchInstruction)
+    {
+        if (hasExtraInstructionVisitors)
+        {
+            super.visitTableSwitchInstruction(clazz, method, codeAttribute, offset, tableSwitchInstruction);
+        }
+        else
+        {
+            visitAnyInstruction(clazz, method, codeAttribute, offset, tableSwitchInstruction);
+        }
+    }
+
+
+    public void visitLookUpSwitchInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, LookUpSwitchInstruction lookUpSwitchInstruction)
+    {
+        if (hasExtraInstructionVisitors)
+        {
+            super.visitLookUpSwitchInstruction(clazz, method, codeAttribute, offset, lookUpSwitchInstruction);
+        }
+        else
+        {
+            visitAnyInstruction(clazz, method, codeAttribute, offset, lookUpSwitchInstruction);
+        }
+    }
+
+
+    public void visitAnyInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, Instruction instruction)
+    {
+        // A pattern instruction matches an instruction with the same opcode
+        // or with the same canonical opcode.
+        int opcode          = instruction.opcode            & 0xff;
+        int canonicalOpcode = instruction.canonicalOpcode() & 0xff;
+
+        int[] opcodeIndices          = replacerIndices[opcode];
+        int[] canonicalOpcodeIndices = canonicalOpcode == opcode ?
+            EMPTY_INDICES :
+            replacerIndices[canonicalOpcode];
+
+        int opcodeIndex          = 0;
+        int canonicalOpcodeIndex = 0;
+        int partialMatchIndex    = 0;
+
+        int nextPartialMatchCount = 0;
+
+        // Visit the replacers in their original order, merging the sorted
+        // lists of candidate indices.
+        while (true)
+        {
+            int index = Integer.MAX_VALUE;
+
+            if (opcodeIndex < opcodeIndices.length)
+            {
+                index = opcodeIndices[opcodeIndex];
+            }
+
+            if (canonicalOpcodeIndex < canonicalOpcodeIndices.length)
+            {
+                index = Math.min(index, canonicalOpcodeIndices[canonicalOpcodeIndex]);
+            }
+
+            if (partialMatchIndex < partialMatchCount)
+            {
+                index = Math.min(index, partialMatchIndices[partialMatchIndex]);
+            }
+
+            if (index == Integer.MAX_VALUE)
+            {
+                break;
+            }
+
+            // Skip the index in all lists.
+            if (opcodeIndex < opcodeIndices.length &&
+                opcodeIndices[opcodeIndex] == index)
+            {
+                opcodeIndex++;
+            }
+
+            if (canonicalOpcodeIndex < canonicalOpcodeIndices.length &&
+                canonicalOpcodeIndices[canonicalOpcodeIndex] == index)
+            {
+                canonicalOpcodeIndex++;
+            }
+
+            if (partialMatchIndex < partialMatchCount &&
+                partialMatchIndices[partialMatchIndex] == index)
+            {
+                partialMatchIndex++;
+            }
+
+            instructionSequenceReplacers[index].visitAnyInstruction(clazz,
+                                                                    method,
+                                                                    codeAttribute,
+                                                                    offset,
+                                                                    instruction);
+
+            // Remember the replacer if it still expects more instructions.
+            if (instructionSequenceMatchers[index].hasPartialMatch())
+            {
+                nextPartialMatchIndices[nextPartialMatchCount++] = index;
+            }
         }
 
-        return instructionSequenceReplacers;
+        // Swap the lists of partially matching replacers.
+        int[] indices           = partialMatchIndices;
+        partialMatchIndices     = nextPartialMatchIndices;
+        nextPartialMatchIndices = indices;
+        partialMatchCount       = nextPartialMatchCount;
     }
 }
@@ -509,11 +509,11 @@ implements   AttributeVisitor,
     {
         if (notePrinter.accepts(programClass.getName()))
         {
-            System.out.println("      Maybe this is program field '" +
-                               ClassUtil.externalFullClassDescription(0, programClass.getName()) +
-                               " { " +
-                               ClassUtil.externalFullFieldDescription(0, programField.getName(programClass), programField.getDescriptor(programClass)) +
-                               "; }'");
+            notePrinter.printDetails("      Maybe this is program field '" +
+                                     ClassUtil.externalFullClassDescription(0, programClass.getName()) +
+                                     " { " +
+                                     ClassUtil.externalFullFieldDescription(0, programField.getName(programClass), programField.getDescriptor(programClass)) +
+                                     "; }'");
         }
     }
 
@@ -522,11 +522,11 @@ implements   AttributeVisitor,
     {
         if (notePrinter.accepts(programClass.getName()))
         {
-            System.out.println("      Maybe this is program method '" +
-                               ClassUtil.externalFullClassDescription(0, programClass.getName()) +
-                               " { " +
-                               ClassUtil.externalFullMethodDescription(programClass.getName(), 0, programMethod.getName(programClass), programMethod.getDescriptor(programClass)) +
-                               "; }'");
+            notePrinter.printDetails("      Maybe this is program method '" +
+                                     ClassUtil.externalFullClassDescription(0, programClass.getName()) +
+                                     " { " +
+                                     ClassUtil.externalFullMethodDescription(programClass.getName(), 0, programMethod.getName(programClass), programMethod.getDescriptor(programClass)) +
+                                     "; }'");
         }
     }
 
@@ -535,11 +535,11 @@ implements   AttributeVisitor,
     {
         if (notePrinter.accepts(libraryClass.getName()))
         {
-            System.out.println("      Maybe this is library field '" +
-                               ClassUtil.externalFullClassDescription(0, libraryClass.getName()) +
-                               " { " +
-                               ClassUtil.externalFullFieldDescription(0, libraryField.getName(libraryClass), libraryField.getDescriptor(libraryClass)) +
-                               "; }'");
+            notePrinter.printDetails("      Maybe this is library field '" +
+                                     ClassUtil.externalFullClassDescription(0, libraryClass.getName()) +
+                                     " { " +
+                                     ClassUtil.externalFullFieldDescription(0, libraryField.getName(libraryClass), libraryField.getDescriptor(libraryClass)) +
+                                     "; }'");
         }
     }
 
@@ -548,11 +548,11 @@ implements   AttributeVisitor,
     {
         if (notePrinter.accepts(libraryClass.getName()))
         {
-            System.out.println("      Maybe this is library method '" +
-                               ClassUtil.externalFullClassDescription(0, libraryClass.getName()) +
-                               " { " +
-                               ClassUtil.externalFullMethodDescription(libraryClass.getName(), 0, libraryMethod.getName(libraryClass), libraryMethod.getDescriptor(libraryClass)) +
-                               "; }'");
+            notePrinter.printDetails("      Maybe this is library method '" +
+                                     ClassUtil.externalFullClassDescription(0, libraryClass.getName()) +
+                                     " { " +
+                                     ClassUtil.externalFullMethodDescription(libraryClass.getName(), 0, libraryMethod.getName(libraryClass), libraryMethod.getDescriptor(libraryClass)) +
+                                     "; }'");
         }
     }
 
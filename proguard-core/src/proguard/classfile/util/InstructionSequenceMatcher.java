@@ -150,6 +150,17 @@ implements   InstructionVisitor,
     }
 
 
+    /**
+     * Returns whether the first instructions of the pattern sequence have
+     * been matched, so the next instruction may complete or continue the
+     * match.
+     */
+    public boolean hasPartialMatch()
+    {
+        return patternInstructionIndex > 0;
+    }
+
+
     /**
      * Returns the number of instructions in the pattern sequence.
      */
@@ -20,15 +20,24 @@ package proguard.classfile.util;
 import proguard.util.*;
 
 import java.io.PrintWriter;
-import java.util.List;
+import java.util.*;
 
 /**
  * This class prints out and counts warnings.
+ * <p/>
+ * Warning printers can be shared between threads. A thread can defer the
+ * warnings that it prints, in order to print them later on, in a
+ * deterministic order, for instance after visiting classes in parallel.
  *
+ * @see #startDeferringWarnings()
  * @author Eric Lafortune
  */
 public class WarningPrinter
 {
+    // The warnings that the current thread is deferring, if any.
+    private static final ThreadLocal<DeferredWarnings> DEFERRED_WARNINGS = new ThreadLocal<DeferredWarnings>();
+
+
     private final PrintWriter   printWriter;
     private final StringMatcher classFilter;
     private int                 warningCount;
@@ -72,7 +81,7 @@ public class WarningPrinter
     /**
      * Returns whether the given class name passes the class name filter.
      */
-    public boolean accepts(String className)
+    public synchronized boolean accepts(String className)
     {
         return classFilter == null ||
             !classFilter.matches(className);
@@ -95,7 +104,7 @@ public class WarningPrinter
     /**
      * Returns whether the given class names pass the class name filter.
      */
-    public boolean accepts(String className1, String className2)
+    public synchronized boolean accepts(String className1, String className2)
     {
         return classFilter == null ||
             !(classFilter.matches(className1) ||
@@ -103,22 +112,122 @@ public class WarningPrinter
     }
 
 
+    /**
+     * Prints out the given details of the most recently printed warning,
+     * without incrementing the warning count.
+     */
+    public void printDetails(String details)
+    {
+        print(details, false);
+    }
+
+
+    /**
+     * Returns the number of warnings printed so far.
+     */
+    public synchronized int getWarningCount()
+    {
+        return warningCount;
+    }
+
+
+    /**
+     * Starts deferring the warnings that the current thread prints with any
+     * warning printer, discarding any warnings that it was still deferring.
+     */
+    public static void startDeferringWarnings()
+    {
+        DEFERRED_WARNINGS.set(new DeferredWarnings());
+    }
+
+
+    /**
+     * Stops deferring the warnings that the current thread prints.
+     * @return the deferred warnings, or null if there weren't any.
+     */
+    public static DeferredWarnings stopDeferringWarnings()
+    {
+        DeferredWarnings deferredWarnings = DEFERRED_WARNINGS.get();
+        DEFERRED_WARNINGS.remove();
+
+        return deferredWarnings == null ||
+               deferredWarnings.warnings.isEmpty() ? null :
+                   deferredWarnings;
+    }
+
+
+    // Small utility methods.
+
     /**
      * Prints out the given warning and increments the warning count.
      */
     private void print(String warning)
     {
-        printWriter.println(warning);
+        print(warning, true);
+    }
+
 
-        warningCount++;
+    /**
+     * Prints out the given warning and optionally increments the warning
+     * count, or defers the warning if the current thread is deferring
+     * warnings.
+     */
+    private void print(String warning, boolean count)
+    {
+        DeferredWarnings deferredWarnings = DEFERRED_WARNINGS.get();
+        if (deferredWarnings != null)
+        {
+            deferredWarnings.add(this, warning, count);
+        }
+        else
+        {
+            synchronized (this)
+            {
+                printWriter.println(warning);
+
+                if (count)
+                {
+                    warningCount++;
+                }
+            }
+        }
     }
 
 
     /**
-     * Returns the number of warnings printed so far.
+     * This class collects warnings that a thread has deferred, so they can be
+     * printed later on.
      */
-    public int getWarningCount()
+    public static class DeferredWarnings
     {
-        return warningCount;
+        private final List<WarningPrinter> warningPrinters = new ArrayList<WarningPrinter>();
+        private final List<String>         warnings        = new ArrayList<String>();
+        private final BitSet               counts          = new BitSet();
+
+
+        /**
+         * Prints out the deferred warnings with their original warning
+         * printers, in the order in which they were deferred.
+         */
+        public void print()
+        {
+            for (int index = 0; index < warnings.size(); index++)
+            {
+                warningPrinters.get(index).print(warnings.get(index),
+                                                 counts.get(index));
+            }
+        }
+
+
+        // Small utility methods.
+
+        private void add(WarningPrinter warningPrinter,
+                         String         warning,
+                         boolean        count)
+        {
+            counts.set(warnings.size(), count);
+            warningPrinters.add(warningPrinter);
+            warnings.add(warning);
+        }
     }
 }
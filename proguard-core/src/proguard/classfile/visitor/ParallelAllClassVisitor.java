@@ -18,6 +18,7 @@
 package proguard.classfile.visitor;
 
 import proguard.classfile.*;
+import proguard.classfile.util.WarningPrinter;
 
 import java.util.*;
 import java.util.concurrent.*;
@@ -36,6 +37,10 @@ import java.util.concurrent.*;
  * <p/>
  * It is possible to override the number of threads by setting the
  * environment variable {@code parallel.threads} to an integer > 0.
+ * <p/>
+ * Any warnings that the visitors print with {@link WarningPrinter} instances
+ * are printed in the order of the classes in the class pool, as if the
+ * classes were visited sequentially.
  *
  * @author Thomas Neidhart
  */
@@ -77,6 +82,16 @@ implements   ClassPoolVisitor
     }
 
 
+    /**
+     * Returns the number of parallel threads that parallel visitors should
+     * use, as described above.
+     */
+    public static int getThreadCount()
+    {
+        return THREAD_COUNT;
+    }
+
+
     private final ClassVisitorFactory  classVisitorFactory;
 
 
@@ -157,7 +172,7 @@ implements   ClassPoolVisitor
     {
         private final ExecutorService executorService;
 
-        private final List<Future> futures = new ArrayList<>();
+        private final List<Future<WarningPrinter.DeferredWarnings>> futures = new ArrayList<>();
 
         public MyThreadedClassVisitor(ExecutorService executorService)
         {
@@ -166,9 +181,14 @@ implements   ClassPoolVisitor
 
         public void awaitTermination() throws ExecutionException, InterruptedException
         {
-            for (Future future : futures)
+            for (Future<WarningPrinter.DeferredWarnings> future : futures)
             {
-                future.get();
+                // Print any warnings in the original order of the classes.
+                WarningPrinter.DeferredWarnings deferredWarnings = future.get();
+                if (deferredWarnings != null)
+                {
+                    deferredWarnings.print();
+                }
             }
         }
 
@@ -184,7 +204,22 @@ implements   ClassPoolVisitor
         {
             futures.add(executorService.submit(() -> {
                 MyClassVisitorThread thread = (MyClassVisitorThread)Thread.currentThread();
-                clazz.accept(thread.classVisitor);
+
+                WarningPrinter.startDeferringWarnings();
+
+                WarningPrinter.DeferredWarnings deferredWarnings;
+                try
+                {
+                    clazz.accept(thread.classVisitor);
+                }
+                finally
+                {
+                    // Always stop deferring, so the pooled thread doesn't
+                    // keep deferring warnings for the next class.
+                    deferredWarnings = WarningPrinter.stopDeferringWarnings();
+                }
+
+                return deferredWarnings;
             }));
         }
     }
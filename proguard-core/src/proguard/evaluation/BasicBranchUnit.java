@@ -72,7 +72,7 @@ implements   BranchUnit
                        int           branchTarget)
     {
         // Override the branch targets.
-        traceBranchTargets = new InstructionOffsetValue(branchTarget);
+        traceBranchTargets = InstructionOffsetValue.create(branchTarget);
 
         wasCalled = true;
     }
@@ -0,0 +1,37 @@
+/*
+ * ProGuardCORE -- library to process Java bytecode.
+ *
+ * Copyright (c) 2002-2020 Guardsquare NV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package proguard.evaluation;
+
+import proguard.classfile.*;
+
+/**
+ * This interface is notified of the time that partial evaluators spend on
+ * the code of each method, for profiling.
+ *
+ * @see PartialEvaluator#PartialEvaluator(proguard.evaluation.value.ValueFactory, proguard.evaluation.InvocationUnit, boolean, proguard.classfile.instruction.visitor.InstructionVisitor, EvaluationTimeListener)
+ * @author Eric Lafortune
+ */
+public interface EvaluationTimeListener
+{
+    /**
+     * Notifies the listener that a partial evaluator has evaluated the code
+     * of the given method. Partial evaluators in different threads may call
+     * this method concurrently.
+     */
+    void methodEvaluated(Clazz clazz, Method method, long evaluationTimeNanos);
+}
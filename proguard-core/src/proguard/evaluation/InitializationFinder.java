@@ -216,7 +216,7 @@ implements   AttributeVisitor,
         // in variables when branching backward. JVMs without preverification
         // and the Dalvik VM do allow it in practice.
         InstructionOffsetValue currentUninitializedOffsets = method.getName(clazz).equals(ClassConstants.METHOD_NAME_INIT) ?
-            new InstructionOffsetValue(InstructionOffsetValue.METHOD_PARAMETER) :
+            InstructionOffsetValue.create(InstructionOffsetValue.METHOD_PARAMETER) :
             InstructionOffsetValue.EMPTY_VALUE;
 
         for (int offset = 0; offset < codeLength; offset++)
@@ -27,7 +27,7 @@ import proguard.classfile.util.*;
 import proguard.classfile.visitor.*;
 import proguard.evaluation.value.*;
 
-import java.util.Arrays;
+import java.util.*;
 
 /**
  * This {@link AttributeVisitor} performs partial evaluation on the code attributes
@@ -53,10 +53,11 @@ implements   AttributeVisitor,
     public static final int AT_METHOD_ENTRY = -1;
     public static final int AT_CATCH_ENTRY  = -1;
 
-    private final ValueFactory       valueFactory;
-    private final InvocationUnit     invocationUnit;
-    private final boolean            evaluateAllCode;
-    private final InstructionVisitor extraInstructionVisitor;
+    private final ValueFactory           valueFactory;
+    private final InvocationUnit         invocationUnit;
+    private final boolean                evaluateAllCode;
+    private final InstructionVisitor     extraInstructionVisitor;
+    private final EvaluationTimeListener evaluationTimeListener;
 
     private InstructionOffsetValue[] branchOriginValues  = new InstructionOffsetValue[ClassEstimates.TYPICAL_CODE_LENGTH];
     private InstructionOffsetValue[] branchTargetValues  = new InstructionOffsetValue[ClassEstimates.TYPICAL_CODE_LENGTH];
@@ -75,6 +76,14 @@ implements   AttributeVisitor,
     private final java.util.Stack callingInstructionBlockStack;
     private final java.util.Stack instructionBlockStack = new java.util.Stack();
 
+    // Reusable objects, so repeated evaluations hardly allocate any memory.
+    private final TracedVariables          variables               = new TracedVariables(0);
+    private final TracedStack              stack                   = new TracedStack(0);
+    private final Variables                parameters              = new Variables(0);
+    private final TracedVariables          exceptionVariables      = new TracedVariables(0);
+    private final TracedStack              exceptionStack          = new TracedStack(0);
+    private final List<MyInstructionBlock> instructionBlockPool    = new ArrayList<>();
+
 
     /**
      * Creates a simple PartialEvaluator.
@@ -143,6 +152,38 @@ implements   AttributeVisitor,
              invocationUnit,
              evaluateAllCode,
              extraInstructionVisitor,
+             null);
+    }
+
+
+    /**
+     * Creates a new PartialEvaluator.
+     * @param valueFactory            the value factory that will create all
+     *                                values during the evaluation.
+     * @param invocationUnit          the invocation unit that will handle all
+     *                                communication with other fields and
+     *                                methods.
+     * @param evaluateAllCode         a flag that specifies whether all branch
+     *                                targets and exception handlers should be
+     *                                evaluated, even if they are unreachable.
+     * @param extraInstructionVisitor an optional extra visitor for all
+     *                                instructions right before they are
+     *                                executed.
+     * @param evaluationTimeListener  an optional listener that is notified
+     *                                of the time spent on the code of each
+     *                                method, for profiling.
+     */
+    public PartialEvaluator(ValueFactory           valueFactory,
+                            InvocationUnit         invocationUnit,
+                            boolean                evaluateAllCode,
+                            InstructionVisitor     extraInstructionVisitor,
+                            EvaluationTimeListener evaluationTimeListener)
+    {
+        this(valueFactory,
+             invocationUnit,
+             evaluateAllCode,
+             extraInstructionVisitor,
+             evaluationTimeListener,
              evaluateAllCode ?
                  new BasicBranchUnit() :
                  new TracedBranchUnit(),
@@ -161,6 +202,7 @@ implements   AttributeVisitor,
              partialEvaluator.invocationUnit,
              partialEvaluator.evaluateAllCode,
              partialEvaluator.extraInstructionVisitor,
+             partialEvaluator.evaluationTimeListener,
              partialEvaluator.branchUnit,
              partialEvaluator.branchTargetFinder,
              partialEvaluator.instructionBlockStack);
@@ -179,6 +221,11 @@ implements   AttributeVisitor,
      *                                     handlers should be evaluated, even
      *                                     if they are unnecessary or
      *                                     unreachable.
+     * @param extraInstructionVisitor      an optional extra visitor for all
+     *                                     instructions right before they are
+     *                                     executed.
+     * @param evaluationTimeListener       an optional listener for the
+     *                                     evaluation times.
      * @param branchUnit                   the branch unit that will handle all
      *                                     branches.
      * @param branchTargetFinder           the utility class that will find all
@@ -186,18 +233,20 @@ implements   AttributeVisitor,
      * @param callingInstructionBlockStack the stack of instruction blocks to
      *                                     be evaluated
      */
-    private PartialEvaluator(ValueFactory       valueFactory,
-                             InvocationUnit     invocationUnit,
-                             boolean            evaluateAllCode,
-                             InstructionVisitor extraInstructionVisitor,
-                             BasicBranchUnit    branchUnit,
-                             BranchTargetFinder branchTargetFinder,
-                             java.util.Stack    callingInstructionBlockStack)
+    private PartialEvaluator(ValueFactory           valueFactory,
+                             InvocationUnit         invocationUnit,
+                             boolean                evaluateAllCode,
+                             InstructionVisitor     extraInstructionVisitor,
+                             EvaluationTimeListener evaluationTimeListener,
+                             BasicBranchUnit        branchUnit,
+                             BranchTargetFinder     branchTargetFinder,
+                             java.util.Stack        callingInstructionBlockStack)
     {
         this.valueFactory                 = valueFactory;
         this.invocationUnit               = invocationUnit;
         this.evaluateAllCode              = evaluateAllCode;
         this.extraInstructionVisitor      = extraInstructionVisitor;
+        this.evaluationTimeListener       = evaluationTimeListener;
         this.branchUnit                   = branchUnit;
         this.branchTargetFinder           = branchTargetFinder;
         this.callingInstructionBlockStack = callingInstructionBlockStack == null ?
@@ -217,12 +266,21 @@ implements   AttributeVisitor,
 //            clazz.getName().equals("abc/Def") &&
 //            method.getName(clazz).equals("abc");
 
+        // Time the evaluation, if anyone is listening.
+        EvaluationTimeListener listener = evaluationTimeListener;
+        long startTime = listener != null ? System.nanoTime() : 0L;
+
         // TODO: Remove this when the partial evaluator has stabilized.
         // Catch any unexpected exceptions from the actual visiting method.
         try
         {
             // Process the code.
             visitCodeAttribute0(clazz, method, codeAttribute);
+
+            if (listener != null)
+            {
+                listener.methodEvaluated(clazz, method, System.nanoTime() - startTime);
+            }
         }
         catch (RuntimeException ex)
         {
@@ -294,8 +352,8 @@ implements   AttributeVisitor,
         }
 
         // Reuse the existing variables and stack objects, ensuring the right size.
-        TracedVariables variables = new TracedVariables(codeAttribute.u2maxLocals);
-        TracedStack     stack     = new TracedStack(codeAttribute.u2maxStack);
+        variables.reset(codeAttribute.u2maxLocals);
+        stack.reset(codeAttribute.u2maxStack);
 
         // Initialize the reusable arrays and variables.
         initializeArrays(codeAttribute);
@@ -642,9 +700,9 @@ implements   AttributeVisitor,
                                              TracedStack     stack,
                                              int             startOffset)
     {
-        callingInstructionBlockStack.push(new MyInstructionBlock(variables,
-                                                                 stack,
-                                                                 startOffset));
+        callingInstructionBlockStack.push(new MyInstructionBlock().initialize(variables,
+                                                                              stack,
+                                                                              startOffset));
     }
 
 
@@ -655,9 +713,16 @@ implements   AttributeVisitor,
                                       TracedStack     stack,
                                       int             startOffset)
     {
-        instructionBlockStack.push(new MyInstructionBlock(variables,
-                                                          stack,
-                                                          startOffset));
+        // Reuse an instruction block from the pool, if possible.
+        int poolSize = instructionBlockPool.size();
+
+        MyInstructionBlock instructionBlock = poolSize > 0 ?
+            instructionBlockPool.remove(poolSize - 1) :
+            new MyInstructionBlock();
+
+        instructionBlockStack.push(instructionBlock.initialize(variables,
+                                                               stack,
+                                                               startOffset));
     }
 
 
@@ -721,6 +786,9 @@ implements   AttributeVisitor,
                                            instructionBlock.variables,
                                            instructionBlock.stack,
                                            instructionBlock.startOffset);
+
+            // Return the instruction block to the pool.
+            instructionBlockPool.add(instructionBlock);
         }
     }
 
@@ -839,7 +907,7 @@ implements   AttributeVisitor,
             evaluationCounts[instructionOffset]++;
 
             // Remember this instruction's offset with any stored value.
-            Value storeValue = new InstructionOffsetValue(instructionOffset);
+            Value storeValue = InstructionOffsetValue.create(instructionOffset);
             variables.setProducerValue(storeValue);
             stack.setProducerValue(storeValue);
 
@@ -946,7 +1014,7 @@ implements   AttributeVisitor,
                 }
 
                 // Accumulate the branch origins at the branch target offsets.
-                InstructionOffsetValue instructionOffsetValue = new InstructionOffsetValue(instructionOffset);
+                InstructionOffsetValue instructionOffsetValue = InstructionOffsetValue.create(instructionOffset);
                 for (int index = 0; index < branchTargetCount; index++)
                 {
                     int branchTarget = branchTargets.instructionOffset(index);
@@ -963,8 +1031,8 @@ implements   AttributeVisitor,
                     {
                         if (DEBUG) System.out.println("Pushing alternative branch #"+index+" out of "+branchTargetCount+", from ["+instructionOffset+"] to ["+branchTargets.instructionOffset(index)+"]");
 
-                        pushInstructionBlock(new TracedVariables(variables),
-                                             new TracedStack(stack),
+                        pushInstructionBlock(variables,
+                                             stack,
                                              branchTargets.instructionOffset(index));
                     }
 
@@ -1000,8 +1068,8 @@ implements   AttributeVisitor,
             {
                 // Let the partial evaluator that has called the subroutine
                 // handle the evaluation after the return.
-                pushCallingInstructionBlock(new TracedVariables(variables),
-                                            new TracedStack(stack),
+                pushCallingInstructionBlock(variables,
+                                            stack,
                                             instructionOffset);
                 break;
             }
@@ -1154,11 +1222,14 @@ implements   AttributeVisitor,
 
             // Reuse the existing variables and stack objects, ensuring the
             // right size.
-            TracedVariables variables = new TracedVariables(codeAttribute.u2maxLocals);
-            TracedStack     stack     = new TracedStack(codeAttribute.u2maxStack);
+            TracedVariables variables = exceptionVariables;
+            TracedStack     stack     = exceptionStack;
+
+            variables.reset(codeAttribute.u2maxLocals);
+            stack.reset(codeAttribute.u2maxStack);
 
             // Initialize the trace values.
-            Value storeValue = new InstructionOffsetValue(handlerPC | InstructionOffsetValue.EXCEPTION_HANDLER);
+            Value storeValue = InstructionOffsetValue.create(handlerPC | InstructionOffsetValue.EXCEPTION_HANDLER);
             variables.setProducerValue(storeValue);
             stack.setProducerValue(storeValue);
 
@@ -1306,8 +1377,8 @@ implements   AttributeVisitor,
 //        Value storeValue = new InstructionOffsetValue(AT_METHOD_ENTRY);
 //        parameters.setProducerValue(storeValue);
 
-        // Create the method parameters.
-        Variables parameters = new Variables(codeAttribute.u2maxLocals);
+        // Reuse the method parameters.
+        parameters.reset(codeAttribute.u2maxLocals);
 
         // Initialize the method parameters.
         invocationUnit.enterMethod(clazz, method, parameters);
@@ -1326,7 +1397,7 @@ implements   AttributeVisitor,
         for (int index = 0; index < parameters.size(); index++)
         {
             InstructionOffsetValue producerValue =
-                new InstructionOffsetValue(index | InstructionOffsetValue.METHOD_PARAMETER);
+                InstructionOffsetValue.create(index | InstructionOffsetValue.METHOD_PARAMETER);
 
             variables.setProducerValue(index, producerValue);
         }
@@ -1429,18 +1500,25 @@ implements   AttributeVisitor,
      */
     private static class MyInstructionBlock
     {
-        private TracedVariables variables;
-        private TracedStack     stack;
-        private int             startOffset;
-
-
-        private MyInstructionBlock(TracedVariables variables,
-                                   TracedStack     stack,
-                                   int             startOffset)
+        private final TracedVariables variables = new TracedVariables(0);
+        private final TracedStack     stack     = new TracedStack(0);
+        private       int             startOffset;
+
+
+        /**
+         * Initializes this instruction block with copies of the given
+         * variables and stack, so it can be reused.
+         */
+        private MyInstructionBlock initialize(TracedVariables variables,
+                                              TracedStack     stack,
+                                              int             startOffset)
         {
-            this.variables   = variables;
-            this.stack       = stack;
+            this.variables.reset(variables.size());
+            this.variables.initialize(variables);
+            this.stack.copy(stack);
             this.startOffset = startOffset;
+
+            return this;
         }
     }
 
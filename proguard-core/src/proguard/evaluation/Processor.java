@@ -862,8 +862,8 @@ implements   InstructionVisitor
 
             case Instruction.OP_JSR:
             case Instruction.OP_JSR_W:
-                stack.push(new InstructionOffsetValue(offset +
-                                                      branchInstruction.length(offset)));
+                stack.push(InstructionOffsetValue.create(offset +
+                                                         branchInstruction.length(offset)));
                 branchUnit.branch(clazz, codeAttribute, offset, branchTarget);
                 break;
 
@@ -179,7 +179,7 @@ extends      SimplifiedInvocationUnit
             return value;
         }
 
-        return trace(value, new InstructionOffsetValue(trace));
+        return trace(value, InstructionOffsetValue.create(trace));
     }
 
 
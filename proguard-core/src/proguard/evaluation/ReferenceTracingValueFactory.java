@@ -115,11 +115,11 @@ implements   InstructionVisitor,
             case Instruction.OP_ACONST_NULL:
             case Instruction.OP_NEWARRAY:
             case Instruction.OP_ATHROW:
-                traceValue = new InstructionOffsetValue(offset | InstructionOffsetValue.NEW_INSTANCE);
+                traceValue = InstructionOffsetValue.create(offset | InstructionOffsetValue.NEW_INSTANCE);
                 break;
 
             case Instruction.OP_AALOAD:
-                traceValue = new InstructionOffsetValue(offset);
+                traceValue = InstructionOffsetValue.create(offset);
                 break;
 
             default:
@@ -138,23 +138,23 @@ implements   InstructionVisitor,
             case Instruction.OP_NEW:
             case Instruction.OP_ANEWARRAY:
             case Instruction.OP_MULTIANEWARRAY:
-                traceValue = new InstructionOffsetValue(offset | InstructionOffsetValue.NEW_INSTANCE);
+                traceValue = InstructionOffsetValue.create(offset | InstructionOffsetValue.NEW_INSTANCE);
                 break;
 
             case Instruction.OP_GETSTATIC:
             case Instruction.OP_GETFIELD:
-                traceValue = new InstructionOffsetValue(offset | InstructionOffsetValue.FIELD_VALUE);
+                traceValue = InstructionOffsetValue.create(offset | InstructionOffsetValue.FIELD_VALUE);
                 break;
 
             case Instruction.OP_INVOKEVIRTUAL:
             case Instruction.OP_INVOKESPECIAL:
             case Instruction.OP_INVOKESTATIC:
             case Instruction.OP_INVOKEINTERFACE:
-                traceValue = new InstructionOffsetValue(offset | InstructionOffsetValue.METHOD_RETURN_VALUE);
+                traceValue = InstructionOffsetValue.create(offset | InstructionOffsetValue.METHOD_RETURN_VALUE);
                 break;
 
             case Instruction.OP_CHECKCAST:
-                traceValue = new InstructionOffsetValue(offset | InstructionOffsetValue.CAST);
+                traceValue = InstructionOffsetValue.create(offset | InstructionOffsetValue.CAST);
                 break;
 
             default:
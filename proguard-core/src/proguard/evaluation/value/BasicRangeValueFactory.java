@@ -62,7 +62,7 @@ implements   ValueFactory
     public IntegerValue createIntegerValue(int min, int max)
     {
         return min == max ?
-            new ParticularIntegerValue(min) :
+            particularIntegerValue(min) :
             new RangeIntegerValue(min, max);
     }
 }
@@ -40,8 +40,13 @@ public class InstructionOffsetValue extends Category1Value
     public static final int CAST                    = 0x10000000;
     public static final int EXCEPTION_HANDLER       = 0x20000000;
 
+    // Shared copies of values with single instruction offsets, for each
+    // of the above flags, if any. They are created lazily.
+    private static final int                        CACHED_OFFSET_COUNT = 0x10000;
+    private static final InstructionOffsetValue[][] CACHED_VALUES       = new InstructionOffsetValue[7][];
 
-    private int[] values;
+
+    private final int[] values;
 
 
     /**
@@ -53,6 +58,45 @@ public class InstructionOffsetValue extends Category1Value
     }
 
 
+    /**
+     * Returns an InstructionOffsetValue with the given single instruction
+     * offset, possibly with one of the flags. The values are immutable, so
+     * this method shares the instances for common instruction offsets.
+     */
+    public static InstructionOffsetValue create(int value)
+    {
+        int offset = value & 0x00ffffff;
+        int flag   = value >>> 24;
+
+        // Only cache plain offsets or offsets with a single flag.
+        if (offset >= CACHED_OFFSET_COUNT ||
+            (flag & (flag - 1)) != 0)
+        {
+            return new InstructionOffsetValue(value);
+        }
+
+        int cacheIndex = flag == 0 ? 0 : Integer.numberOfTrailingZeros(flag) + 1;
+
+        InstructionOffsetValue[] cachedValues = CACHED_VALUES[cacheIndex];
+        if (cachedValues == null)
+        {
+            // Benign race: other threads may create their own arrays.
+            cachedValues = new InstructionOffsetValue[CACHED_OFFSET_COUNT];
+            CACHED_VALUES[cacheIndex] = cachedValues;
+        }
+
+        InstructionOffsetValue cachedValue = cachedValues[offset];
+        if (cachedValue == null)
+        {
+            // Benign race: the values are immutable and equal.
+            cachedValue = new InstructionOffsetValue(value);
+            cachedValues[offset] = cachedValue;
+        }
+
+        return cachedValue;
+    }
+
+
     /**
      * Creates a new InstructionOffsetValue with the given list of instruction
      * offsets.
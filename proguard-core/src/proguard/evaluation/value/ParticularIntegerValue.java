@@ -60,7 +60,7 @@ final class ParticularIntegerValue extends SpecificIntegerValue
 
     public IntegerValue negate()
     {
-        return new ParticularIntegerValue(-value);
+        return ParticularValueFactory.particularIntegerValue(-value);
     }
 
     public IntegerValue convertToByte()
@@ -69,7 +69,7 @@ final class ParticularIntegerValue extends SpecificIntegerValue
 
         return byteValue == value ?
             this :
-            new ParticularIntegerValue(byteValue);
+            ParticularValueFactory.particularIntegerValue(byteValue);
     }
 
     public IntegerValue convertToCharacter()
@@ -78,7 +78,7 @@ final class ParticularIntegerValue extends SpecificIntegerValue
 
         return charValue == value ?
             this :
-            new ParticularIntegerValue(charValue);
+            ParticularValueFactory.particularIntegerValue(charValue);
     }
 
     public IntegerValue convertToShort()
@@ -87,7 +87,7 @@ final class ParticularIntegerValue extends SpecificIntegerValue
 
         return shortValue == value ?
             this :
-            new ParticularIntegerValue(shortValue);
+            ParticularValueFactory.particularIntegerValue(shortValue);
     }
 
     public LongValue convertToLong()
@@ -243,76 +243,76 @@ final class ParticularIntegerValue extends SpecificIntegerValue
 
     public IntegerValue add(ParticularIntegerValue other)
     {
-        return new ParticularIntegerValue(this.value + other.value);
+        return ParticularValueFactory.particularIntegerValue(this.value + other.value);
     }
 
     public IntegerValue subtract(ParticularIntegerValue other)
     {
-        return new ParticularIntegerValue(this.value - other.value);
+        return ParticularValueFactory.particularIntegerValue(this.value - other.value);
     }
 
     public IntegerValue subtractFrom(ParticularIntegerValue other)
     {
-        return new ParticularIntegerValue(other.value - this.value);
+        return ParticularValueFactory.particularIntegerValue(other.value - this.value);
     }
 
     public IntegerValue multiply(ParticularIntegerValue other)
     {
-        return new ParticularIntegerValue(this.value * other.value);
+        return ParticularValueFactory.particularIntegerValue(this.value * other.value);
     }
 
     public IntegerValue divide(ParticularIntegerValue other)
     throws ArithmeticException
     {
-        return new ParticularIntegerValue(this.value / other.value);
+        return ParticularValueFactory.particularIntegerValue(this.value / other.value);
     }
 
     public IntegerValue divideOf(ParticularIntegerValue other)
     throws ArithmeticException
     {
-        return new ParticularIntegerValue(other.value / this.value);
+        return ParticularValueFactory.particularIntegerValue(other.value / this.value);
     }
 
     public IntegerValue remainder(ParticularIntegerValue other)
     throws ArithmeticException
     {
-        return new ParticularIntegerValue(this.value % other.value);
+        return ParticularValueFactory.particularIntegerValue(this.value % other.value);
     }
 
     public IntegerValue remainderOf(ParticularIntegerValue other)
     throws ArithmeticException
     {
-        return new ParticularIntegerValue(other.value % this.value);
+        return ParticularValueFactory.particularIntegerValue(other.value % this.value);
     }
 
     public IntegerValue shiftLeft(ParticularIntegerValue other)
     {
-        return new ParticularIntegerValue(this.value << other.value);
+        return ParticularValueFactory.particularIntegerValue(this.value << other.value);
     }
 
     public IntegerValue shiftRight(ParticularIntegerValue other)
     {
-        return new ParticularIntegerValue(this.value >> other.value);
+        return ParticularValueFactory.particularIntegerValue(this.value >> other.value);
     }
 
     public IntegerValue unsignedShiftRight(ParticularIntegerValue other)
     {
-        return new ParticularIntegerValue(this.value >>> other.value);
+        return ParticularValueFactory.particularIntegerValue(this.value >>> other.value);
     }
 
     public IntegerValue shiftLeftOf(ParticularIntegerValue other)
     {
-        return new ParticularIntegerValue(other.value << this.value);
+        return ParticularValueFactory.particularIntegerValue(other.value << this.value);
     }
 
     public IntegerValue shiftRightOf(ParticularIntegerValue other)
     {
-        return new ParticularIntegerValue(other.value >> this.value);
+        return ParticularValueFactory.particularIntegerValue(other.value >> this.value);
     }
 
     public IntegerValue unsignedShiftRightOf(ParticularIntegerValue other)
     {
-        return new ParticularIntegerValue(other.value >>> this.value);
+        return ParticularValueFactory.particularIntegerValue(other.value >>> this.value);
     }
 
     public LongValue shiftLeftOf(ParticularLongValue other)
@@ -332,17 +332,17 @@ final class ParticularIntegerValue extends SpecificIntegerValue
 
     public IntegerValue and(ParticularIntegerValue other)
     {
-        return new ParticularIntegerValue(this.value & other.value);
+        return ParticularValueFactory.particularIntegerValue(this.value & other.value);
     }
 
     public IntegerValue or(ParticularIntegerValue other)
     {
-        return new ParticularIntegerValue(this.value | other.value);
+        return ParticularValueFactory.particularIntegerValue(this.value | other.value);
     }
 
     public IntegerValue xor(ParticularIntegerValue other)
     {
-        return new ParticularIntegerValue(this.value ^ other.value);
+        return ParticularValueFactory.particularIntegerValue(this.value ^ other.value);
     }
 
     public int equal(ParticularIntegerValue other)
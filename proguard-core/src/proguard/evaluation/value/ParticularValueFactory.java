@@ -29,14 +29,20 @@ public class ParticularValueFactory
 extends      BasicValueFactory
 implements   ValueFactory
 {
+    // Shared copies of small integer values, like the ones of the bipush
+    // instruction and of typical array lengths.
+    private static final int                      SMALL_INTEGER_MIN    = -128;
+    private static final int                      SMALL_INTEGER_MAX    = 1023;
+    private static final ParticularIntegerValue[] SMALL_INTEGER_VALUES = createSmallIntegerValues();
+
     // Shared copies of Value objects, to avoid creating a lot of objects.
-    static final IntegerValue INTEGER_VALUE_M1 = new ParticularIntegerValue(-1);
-    static final IntegerValue INTEGER_VALUE_0  = new ParticularIntegerValue(0);
-    static final IntegerValue INTEGER_VALUE_1  = new ParticularIntegerValue(1);
-    static final IntegerValue INTEGER_VALUE_2  = new ParticularIntegerValue(2);
-    static final IntegerValue INTEGER_VALUE_3  = new ParticularIntegerValue(3);
-    static final IntegerValue INTEGER_VALUE_4  = new ParticularIntegerValue(4);
-    static final IntegerValue INTEGER_VALUE_5  = new ParticularIntegerValue(5);
+    static final IntegerValue INTEGER_VALUE_M1 = particularIntegerValue(-1);
+    static final IntegerValue INTEGER_VALUE_0  = particularIntegerValue(0);
+    static final IntegerValue INTEGER_VALUE_1  = particularIntegerValue(1);
+    static final IntegerValue INTEGER_VALUE_2  = particularIntegerValue(2);
+    static final IntegerValue INTEGER_VALUE_3  = particularIntegerValue(3);
+    static final IntegerValue INTEGER_VALUE_4  = particularIntegerValue(4);
+    static final IntegerValue INTEGER_VALUE_5  = particularIntegerValue(5);
     static final LongValue    LONG_VALUE_0     = new ParticularLongValue(0);
     static final LongValue    LONG_VALUE_1     = new ParticularLongValue(1);
     static final FloatValue   FLOAT_VALUE_0    = new ParticularFloatValue(0.0f);
@@ -76,17 +82,7 @@ implements   ValueFactory
 
     public IntegerValue createIntegerValue(int value)
     {
-        switch (value)
-        {
-            case -1: return INTEGER_VALUE_M1;
-            case  0: return INTEGER_VALUE_0;
-            case  1: return INTEGER_VALUE_1;
-            case  2: return INTEGER_VALUE_2;
-            case  3: return INTEGER_VALUE_3;
-            case  4: return INTEGER_VALUE_4;
-            case  5: return INTEGER_VALUE_5;
-            default: return new ParticularIntegerValue(value);
-        }
+        return particularIntegerValue(value);
     }
 
 
@@ -163,4 +159,36 @@ implements   ValueFactory
                                                                arrayLength,
                                                                elementValue);
     }
+
+
+    // Small utility methods.
+
+    /**
+     * Returns a particular integer value with the given value, sharing the
+     * instances of small values.
+     */
+    static ParticularIntegerValue particularIntegerValue(int value)
+    {
+        return value >= SMALL_INTEGER_MIN &&
+               value <= SMALL_INTEGER_MAX ?
+            SMALL_INTEGER_VALUES[value - SMALL_INTEGER_MIN] :
+            new ParticularIntegerValue(value);
+    }
+
+
+    /**
+     * Creates the shared instances of small integer values.
+     */
+    private static ParticularIntegerValue[] createSmallIntegerValues()
+    {
+        ParticularIntegerValue[] values =
+            new ParticularIntegerValue[SMALL_INTEGER_MAX - SMALL_INTEGER_MIN + 1];
+
+        for (int index = 0; index < values.length; index++)
+        {
+            values[index] = new ParticularIntegerValue(SMALL_INTEGER_MIN + index);
+        }
+
+        return values;
+    }
 }
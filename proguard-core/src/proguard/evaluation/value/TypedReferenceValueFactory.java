@@ -19,6 +19,9 @@ package proguard.evaluation.value;
 
 import proguard.classfile.*;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * This class provides methods to create and reuse Value instances.
  * Its {@link ReferenceValue} instances have types.
@@ -33,6 +36,11 @@ extends      BasicValueFactory
     static final ReferenceValue REFERENCE_VALUE_JAVA_LANG_OBJECT_NOT_NULL   = new TypedReferenceValue(ClassConstants.NAME_JAVA_LANG_OBJECT, null, true, false);
 
 
+    // Shared copies of the reference values that this factory creates.
+    // The map: [type - values for each combination of extension and null]
+    private final Map<String, ReferenceValue[]> referenceValueCache = new ConcurrentHashMap<>();
+
+
     // Implementations for BasicValueFactory.
 
     public ReferenceValue createReferenceValueNull()
@@ -46,10 +54,10 @@ extends      BasicValueFactory
                                                boolean mayBeExtension,
                                                boolean mayBeNull)
     {
-        return type == null                                       ? REFERENCE_VALUE_NULL                                                      :
+        return type == null                                       ? REFERENCE_VALUE_NULL                                                  :
                !type.equals(ClassConstants.NAME_JAVA_LANG_OBJECT) ||
-               !mayBeExtension                                    ? new TypedReferenceValue(type, referencedClass, mayBeExtension, mayBeNull) :
-               mayBeNull                                          ? REFERENCE_VALUE_JAVA_LANG_OBJECT_MAYBE_NULL                               :
+               !mayBeExtension                                    ? typedReferenceValue(type, referencedClass, mayBeExtension, mayBeNull) :
+               mayBeNull                                          ? REFERENCE_VALUE_JAVA_LANG_OBJECT_MAYBE_NULL                           :
                                                                     REFERENCE_VALUE_JAVA_LANG_OBJECT_NOT_NULL;
     }
 
@@ -78,4 +86,49 @@ extends      BasicValueFactory
                                     false,
                                     false);
     }
+
+
+    // Small utility methods.
+
+    /**
+     * Returns a typed reference value with the given properties, sharing
+     * the instances for the same types, referenced classes, and flags.
+     * The values are immutable, so the factory may hand them out to
+     * different threads.
+     */
+    private ReferenceValue typedReferenceValue(String  type,
+                                               Clazz   referencedClass,
+                                               boolean mayBeExtension,
+                                               boolean mayBeNull)
+    {
+        ReferenceValue[] referenceValues = referenceValueCache.get(type);
+        if (referenceValues == null)
+        {
+            referenceValues = new ReferenceValue[4];
+
+            ReferenceValue[] otherReferenceValues =
+                referenceValueCache.putIfAbsent(type, referenceValues);
+            if (otherReferenceValues != null)
+            {
+                referenceValues = otherReferenceValues;
+            }
+        }
+
+        int index = (mayBeExtension ? 2 : 0) |
+                    (mayBeNull      ? 1 : 0);
+
+        ReferenceValue referenceValue = referenceValues[index];
+        if (referenceValue == null ||
+            referenceValue.getReferencedClass() != referencedClass)
+        {
+            referenceValue = new TypedReferenceValue(type,
+                                                     referencedClass,
+                                                     mayBeExtension,
+                                                     mayBeNull);
+
+            referenceValues[index] = referenceValue;
+        }
+
+        return referenceValue;
+    }
 }
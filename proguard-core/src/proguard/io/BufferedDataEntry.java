@@ -0,0 +1,125 @@
+/*
+ * ProGuardCORE -- library to process Java bytecode.
+ *
+ * Copyright (c) 2002-2020 Guardsquare NV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package proguard.io;
+
+import java.io.*;
+
+/**
+ * This {@link DataEntry} wraps another data entry, whose contents have
+ * already been read into memory. The contents can then still be read after
+ * the wrapped data entry has been closed, for instance on a different thread.
+ *
+ * @author Eric Lafortune
+ */
+public class BufferedDataEntry extends WrappedDataEntry
+{
+    private final byte[] bytes;
+
+
+    /**
+     * Creates a new BufferedDataEntry that reads and closes the input stream
+     * of the given data entry.
+     */
+    public BufferedDataEntry(DataEntry wrappedEntry) throws IOException
+    {
+        super(wrappedEntry);
+
+        this.bytes = readFully(wrappedEntry);
+    }
+
+
+    /**
+     * Creates a new BufferedDataEntry with the given contents.
+     */
+    public BufferedDataEntry(DataEntry wrappedEntry, byte[] bytes)
+    {
+        super(wrappedEntry);
+
+        this.bytes = bytes;
+    }
+
+
+    /**
+     * Returns the buffered contents of this data entry.
+     */
+    public byte[] getBytes()
+    {
+        return bytes;
+    }
+
+
+    // Implementations for DataEntry.
+
+    @Override
+    public long getSize()
+    {
+        return bytes.length;
+    }
+
+
+    @Override
+    public InputStream getInputStream() throws IOException
+    {
+        return new ByteArrayInputStream(bytes);
+    }
+
+
+    @Override
+    public void closeInputStream() throws IOException
+    {
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Reads the complete contents of the given data entry.
+     */
+    private static byte[] readFully(DataEntry dataEntry) throws IOException
+    {
+        long size = dataEntry.getSize();
+
+        ByteArrayOutputStream outputStream =
+            new ByteArrayOutputStream(size > 0L && size < Integer.MAX_VALUE ?
+                                          (int)size :
+                                          1024);
+
+        try
+        {
+            InputStream inputStream = dataEntry.getInputStream();
+
+            byte[] buffer = new byte[8192];
+            while (true)
+            {
+                int count = inputStream.read(buffer);
+                if (count < 0)
+                {
+                    break;
+                }
+
+                outputStream.write(buffer, 0, count);
+            }
+        }
+        finally
+        {
+            dataEntry.closeInputStream();
+        }
+
+        return outputStream.toByteArray();
+    }
+}
@@ -66,6 +66,12 @@ public class DataEntryCopier implements DataEntryReader
                 {
                     try
                     {
+                        // Can we copy the raw data instead?
+                        if (copyRawData(dataEntry, outputStream))
+                        {
+                            return;
+                        }
+
                         InputStream inputStream = dataEntry.getInputStream();
 
                         try
@@ -101,6 +107,30 @@ public class DataEntryCopier implements DataEntryReader
     }
 
 
+    /**
+     * Copies the raw data of the given input entry to the given output
+     * stream, if possible, without decompressing and recompressing them.
+     * The caller of this method will afterwards close the output stream.
+     * Subclasses that modify the data should return false.
+     * @return whether the raw data were copied.
+     */
+    protected boolean copyRawData(DataEntry    dataEntry,
+                                  OutputStream outputStream)
+    throws IOException
+    {
+        if (dataEntry    instanceof ZipFileDataEntry &&
+            outputStream instanceof ZipOutput.RawDataOutputStream)
+        {
+            RawZipData rawZipData = ((ZipFileDataEntry)dataEntry).getRawData();
+
+            return rawZipData != null &&
+                   ((ZipOutput.RawDataOutputStream)outputStream).writeRawData(rawZipData);
+        }
+
+        return false;
+    }
+
+
     /**
      * Copies all data that it can read from the given input stream to the
      * given output stream. The caller of this method will open and
@@ -51,6 +51,15 @@ public class DataEntryRewriter extends DataEntryCopier
 
     // Implementations for DataEntryCopier.
 
+    @Override
+    protected boolean copyRawData(DataEntry    dataEntry,
+                                  OutputStream outputStream)
+    {
+        // We always need to rewrite the data.
+        return false;
+    }
+
+
     @Override
     protected void copyData(InputStream  inputStream,
                             OutputStream outputStream)
@@ -71,6 +71,10 @@ public class JarReader implements DataEntryReader
 
             ZipFile zipFile = new ZipFile(fileDataEntry.getFile(), StandardCharsets.UTF_8);
 
+            // Allow the entries to provide their raw data, so they can be
+            // copied without decompressing and recompressing them.
+            RawZipDataIndex rawZipDataIndex = new RawZipDataIndex(fileDataEntry.getFile());
+
             try
             {
                 Enumeration entries = zipFile.entries();
@@ -83,7 +87,8 @@ public class JarReader implements DataEntryReader
                     // Delegate the actual reading to the data entry reader.
                     dataEntryReader.read(new ZipFileDataEntry(dataEntry,
                                                               zipEntry,
-                                                              zipFile));
+                                                              zipFile,
+                                                              rawZipDataIndex));
                 }
             }
             finally
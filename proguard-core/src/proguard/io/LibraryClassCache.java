@@ -0,0 +1,493 @@
+/*
+ * ProGuardCORE -- library to process Java bytecode.
+ *
+ * Copyright (c) 2002-2020 Guardsquare NV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package proguard.io;
+
+import proguard.classfile.*;
+import proguard.classfile.visitor.ClassVisitor;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.*;
+
+/**
+ * This class stores the {@link LibraryClass} instances that have been read
+ * from library files in snapshot files in a cache directory, and restores
+ * them from these snapshots in subsequent runs, without unpacking and parsing
+ * the library files again.
+ * <p/>
+ * A snapshot is identified by the library file and by a key that should
+ * describe everything else that affects the parsed classes, such as filters
+ * and parsing options. It is only used if the size, the modification time,
+ * and the checksum of the contents of the library file are still the same.
+ * <p/>
+ * The snapshots are memory-mapped when they are read. The strings that they
+ * contain are shared between the restored classes and members.
+ *
+ * @author Eric Lafortune
+ */
+public class LibraryClassCache
+{
+    private static final int MAGIC          = 0x50474c43;
+    private static final int FORMAT_VERSION = 1;
+
+    private static final String SNAPSHOT_EXTENSION = ".classes";
+
+
+    private final File cacheDirectory;
+
+
+    /**
+     * Creates a new LibraryClassCache that stores its snapshots in the given
+     * directory.
+     */
+    public LibraryClassCache(File cacheDirectory)
+    {
+        this.cacheDirectory = cacheDirectory;
+    }
+
+
+    /**
+     * Applies the given class visitor to all library classes from the
+     * snapshot of the given library file, if it is present and up to date.
+     * @param libraryFile  the library file whose classes are cached.
+     * @param key          the description of the filters and options with
+     *                     which the library classes have been read.
+     * @param classVisitor the visitor for the restored classes.
+     * @return whether an up-to-date snapshot has been found.
+     */
+    public boolean readClasses(File         libraryFile,
+                               String       key,
+                               ClassVisitor classVisitor)
+    throws IOException
+    {
+        File snapshotFile = snapshotFile(libraryFile, key);
+        if (!snapshotFile.isFile())
+        {
+            return false;
+        }
+
+        List<LibraryClass> libraryClasses = new ArrayList<>();
+
+        try (FileChannel channel = FileChannel.open(snapshotFile.toPath(), StandardOpenOption.READ))
+        {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+
+            // Check the header.
+            if (buffer.getInt() != MAGIC ||
+                buffer.getInt() != FORMAT_VERSION)
+            {
+                return false;
+            }
+
+            StringTable stringTable = new StringTable(buffer);
+
+            // Check whether the snapshot is still up to date.
+            if (!key.equals(stringTable.getString(buffer.getInt()))                        ||
+                !libraryFile.getAbsolutePath().equals(stringTable.getString(buffer.getInt())) ||
+                buffer.getLong() != libraryFile.length()                                   ||
+                buffer.getLong() != libraryFile.lastModified()                             ||
+                buffer.getLong() != checksum(libraryFile))
+            {
+                return false;
+            }
+
+            // Restore all classes first, so we don't visit any of them if
+            // the snapshot turns out to be corrupt.
+            int classCount = readCount(buffer, 24);
+            for (int index = 0; index < classCount; index++)
+            {
+                libraryClasses.add(readClass(buffer, stringTable));
+            }
+        }
+        catch (RuntimeException e)
+        {
+            // The snapshot is corrupt, for instance with invalid indices or
+            // sizes, so we'll just have to read the library file again.
+            return false;
+        }
+
+        for (LibraryClass libraryClass : libraryClasses)
+        {
+            libraryClass.accept(classVisitor);
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Writes a snapshot of the given library classes, which have been read
+     * from the given library file.
+     * @param libraryFile    the library file whose classes are cached.
+     * @param key            the description of the filters and options with
+     *                       which the library classes have been read.
+     * @param libraryClasses the library classes, in the order in which
+     *                       they have been read.
+     */
+    public void writeClasses(File               libraryFile,
+                             String             key,
+                             List<LibraryClass> libraryClasses)
+    throws IOException
+    {
+        File snapshotFile = snapshotFile(libraryFile, key);
+
+        // Collect all strings, so we can refer to them by their indices.
+        Map<String, Integer> stringIndices = new LinkedHashMap<>();
+
+        stringIndex(stringIndices, key);
+        stringIndex(stringIndices, libraryFile.getAbsolutePath());
+
+        for (LibraryClass libraryClass : libraryClasses)
+        {
+            stringIndex(stringIndices, libraryClass.thisClassName);
+            stringIndex(stringIndices, libraryClass.superClassName);
+
+            for (String interfaceName : libraryClass.interfaceNames)
+            {
+                stringIndex(stringIndices, interfaceName);
+            }
+
+            collectStrings(stringIndices, libraryClass.fields);
+            collectStrings(stringIndices, libraryClass.methods);
+        }
+
+        // Write the snapshot to a temporary file first, so concurrent
+        // processes never see an incomplete snapshot.
+        cacheDirectory.mkdirs();
+
+        File temporaryFile = File.createTempFile(snapshotFile.getName(), null, cacheDirectory);
+
+        try
+        {
+            try (DataOutputStream output =
+                     new DataOutputStream(
+                     new BufferedOutputStream(
+                     new FileOutputStream(temporaryFile))))
+            {
+                output.writeInt(MAGIC);
+                output.writeInt(FORMAT_VERSION);
+
+                writeStringTable(output, stringIndices.keySet());
+
+                output.writeInt(stringIndex(stringIndices, key));
+                output.writeInt(stringIndex(stringIndices, libraryFile.getAbsolutePath()));
+                output.writeLong(libraryFile.length());
+                output.writeLong(libraryFile.lastModified());
+                output.writeLong(checksum(libraryFile));
+
+                output.writeInt(libraryClasses.size());
+                for (LibraryClass libraryClass : libraryClasses)
+                {
+                    writeClass(output, stringIndices, libraryClass);
+                }
+            }
+
+            try
+            {
+                Files.move(temporaryFile.toPath(),
+                           snapshotFile.toPath(),
+                           StandardCopyOption.REPLACE_EXISTING,
+                           StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e)
+            {
+                Files.move(temporaryFile.toPath(),
+                           snapshotFile.toPath(),
+                           StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally
+        {
+            temporaryFile.delete();
+        }
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Returns the snapshot file for the given library file and key.
+     */
+    private File snapshotFile(File libraryFile, String key)
+    {
+        String identifier = libraryFile.getAbsolutePath() + '\n' + key;
+
+        return new File(cacheDirectory,
+                        libraryFile.getName() + '-' +
+                        Integer.toHexString(identifier.hashCode()) +
+                        SNAPSHOT_EXTENSION);
+    }
+
+
+    /**
+     * Computes a checksum of the contents of the given file.
+     */
+    private static long checksum(File file) throws IOException
+    {
+        CRC32 crc32 = new CRC32();
+
+        try (InputStream inputStream = new FileInputStream(file))
+        {
+            byte[] buffer = new byte[65536];
+            while (true)
+            {
+                int count = inputStream.read(buffer);
+                if (count < 0)
+                {
+                    break;
+                }
+
+                crc32.update(buffer, 0, count);
+            }
+        }
+
+        return crc32.getValue();
+    }
+
+
+    /**
+     * Reads a count of elements with the given minimum size from the given
+     * buffer, making sure that the remaining buffer can contain them.
+     */
+    private static int readCount(ByteBuffer buffer, int elementSize)
+    {
+        int count = buffer.getInt();
+        if (count < 0 ||
+            count > buffer.remaining() / elementSize)
+        {
+            throw new BufferUnderflowException();
+        }
+
+        return count;
+    }
+
+
+    /**
+     * Restores a library class from the given buffer.
+     */
+    private static LibraryClass readClass(ByteBuffer  buffer,
+                                          StringTable stringTable)
+    {
+        LibraryClass libraryClass = new LibraryClass();
+
+        libraryClass.u2accessFlags  = buffer.getInt();
+        libraryClass.thisClassName  = stringTable.getString(buffer.getInt());
+        libraryClass.superClassName = stringTable.getString(buffer.getInt());
+
+        int interfacesCount = readCount(buffer, 4);
+        libraryClass.interfaceNames = new String[interfacesCount];
+        for (int index = 0; index < interfacesCount; index++)
+        {
+            libraryClass.interfaceNames[index] = stringTable.getString(buffer.getInt());
+        }
+
+        int fieldsCount = readCount(buffer, 12);
+        libraryClass.fields = new LibraryField[fieldsCount];
+        for (int index = 0; index < fieldsCount; index++)
+        {
+            libraryClass.fields[index] =
+                new LibraryField(buffer.getInt(),
+                                 stringTable.getString(buffer.getInt()),
+                                 stringTable.getString(buffer.getInt()));
+        }
+
+        int methodsCount = readCount(buffer, 12);
+        libraryClass.methods = new LibraryMethod[methodsCount];
+        for (int index = 0; index < methodsCount; index++)
+        {
+            libraryClass.methods[index] =
+                new LibraryMethod(buffer.getInt(),
+                                  stringTable.getString(buffer.getInt()),
+                                  stringTable.getString(buffer.getInt()));
+        }
+
+        return libraryClass;
+    }
+
+
+    /**
+     * Writes the given library class to the given output.
+     */
+    private static void writeClass(DataOutput           output,
+                                   Map<String, Integer> stringIndices,
+                                   LibraryClass         libraryClass)
+    throws IOException
+    {
+        output.writeInt(libraryClass.u2accessFlags);
+        output.writeInt(stringIndex(stringIndices, libraryClass.thisClassName));
+        output.writeInt(stringIndex(stringIndices, libraryClass.superClassName));
+
+        output.writeInt(libraryClass.interfaceNames.length);
+        for (String interfaceName : libraryClass.interfaceNames)
+        {
+            output.writeInt(stringIndex(stringIndices, interfaceName));
+        }
+
+        writeMembers(output, stringIndices, libraryClass.fields);
+        writeMembers(output, stringIndices, libraryClass.methods);
+    }
+
+
+    /**
+     * Writes the given library members to the given output.
+     */
+    private static void writeMembers(DataOutput           output,
+                                     Map<String, Integer> stringIndices,
+                                     LibraryMember[]      libraryMembers)
+    throws IOException
+    {
+        output.writeInt(libraryMembers.length);
+        for (LibraryMember libraryMember : libraryMembers)
+        {
+            output.writeInt(libraryMember.u2accessFlags);
+            output.writeInt(stringIndex(stringIndices, libraryMember.name));
+            output.writeInt(stringIndex(stringIndices, libraryMember.descriptor));
+        }
+    }
+
+
+    /**
+     * Collects the names and descriptors of the given library members.
+     */
+    private static void collectStrings(Map<String, Integer> stringIndices,
+                                       LibraryMember[]      libraryMembers)
+    {
+        for (LibraryMember libraryMember : libraryMembers)
+        {
+            stringIndex(stringIndices, libraryMember.name);
+            stringIndex(stringIndices, libraryMember.descriptor);
+        }
+    }
+
+
+    /**
+     * Returns the index of the given string, adding it if necessary. A null
+     * string has index -1.
+     */
+    private static int stringIndex(Map<String, Integer> stringIndices,
+                                   String               string)
+    {
+        if (string == null)
+        {
+            return -1;
+        }
+
+        Integer index = stringIndices.get(string);
+        if (index == null)
+        {
+            index = stringIndices.size();
+            stringIndices.put(string, index);
+        }
+
+        return index;
+    }
+
+
+    /**
+     * Writes the given strings, preceded by their offsets in the table.
+     * The characters are written as they are, so any strings survive the
+     * round trip unchanged.
+     */
+    private static void writeStringTable(DataOutput         output,
+                                         Collection<String> strings)
+    throws IOException
+    {
+        output.writeInt(strings.size());
+
+        int offset = 0;
+        for (String string : strings)
+        {
+            output.writeInt(offset);
+            offset += 4 + 2 * string.length();
+        }
+
+        output.writeInt(offset);
+
+        for (String string : strings)
+        {
+            output.writeInt(string.length());
+            output.writeChars(string);
+        }
+    }
+
+
+    /**
+     * This class provides the strings of a memory-mapped string table,
+     * decoding them lazily and only once.
+     */
+    private static class StringTable
+    {
+        private final ByteBuffer buffer;
+        private final int        offsetsStart;
+        private final int        stringsStart;
+        private final String[]   strings;
+
+
+        /**
+         * Creates a new StringTable at the current position of the given
+         * buffer, and moves the position past it.
+         */
+        public StringTable(ByteBuffer buffer)
+        {
+            this.buffer = buffer;
+
+            int stringCount = readCount(buffer, 4);
+
+            offsetsStart = buffer.position();
+            stringsStart = offsetsStart + 4 * (stringCount + 1);
+            strings      = new String[stringCount];
+
+            int stringsSize = buffer.getInt(stringsStart - 4);
+
+            buffer.position(stringsStart + stringsSize);
+        }
+
+
+        /**
+         * Returns the string with the given index, or null for index -1.
+         */
+        public String getString(int index)
+        {
+            if (index < 0)
+            {
+                return null;
+            }
+
+            String string = strings[index];
+            if (string == null)
+            {
+                int position = stringsStart + buffer.getInt(offsetsStart + 4 * index);
+                int length   = buffer.getInt(position);
+
+                char[] chars = new char[length];
+                for (int charIndex = 0; charIndex < length; charIndex++)
+                {
+                    chars[charIndex] = buffer.getChar(position + 4 + 2 * charIndex);
+                }
+
+                string = new String(chars);
+                strings[index] = string;
+            }
+
+            return string;
+        }
+    }
+}
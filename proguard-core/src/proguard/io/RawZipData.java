@@ -0,0 +1,141 @@
+/*
+ * ProGuardCORE -- library to process Java bytecode.
+ *
+ * Copyright (c) 2002-2020 Guardsquare NV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package proguard.io;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class represents the raw data of an entry in a zip file, as they are
+ * stored in the file: compressed or uncompressed, with their CRC and sizes.
+ * The data can be copied as they are to another zip file, without
+ * decompressing and recompressing them.
+ *
+ * @see RawZipDataIndex
+ * @author Eric Lafortune
+ */
+public class RawZipData
+{
+    private final File    file;
+    private final long    offset;
+    private final boolean compressed;
+    private final int     crc;
+    private final long    compressedSize;
+    private final long    uncompressedSize;
+
+
+    /**
+     * Creates a new RawZipData instance.
+     * @param file             the zip file.
+     * @param offset           the offset of the data in the zip file.
+     * @param compressed       specifies whether the data are compressed.
+     * @param crc              the CRC of the uncompressed data.
+     * @param compressedSize   the size of the stored data.
+     * @param uncompressedSize the size of the uncompressed data.
+     */
+    public RawZipData(File    file,
+                      long    offset,
+                      boolean compressed,
+                      int     crc,
+                      long    compressedSize,
+                      long    uncompressedSize)
+    {
+        this.file             = file;
+        this.offset           = offset;
+        this.compressed       = compressed;
+        this.crc              = crc;
+        this.compressedSize   = compressedSize;
+        this.uncompressedSize = uncompressedSize;
+    }
+
+
+    /**
+     * Returns whether the data are compressed.
+     */
+    public boolean isCompressed()
+    {
+        return compressed;
+    }
+
+
+    /**
+     * Returns the CRC of the uncompressed data.
+     */
+    public int getCrc()
+    {
+        return crc;
+    }
+
+
+    /**
+     * Returns the size of the stored data.
+     */
+    public long getCompressedSize()
+    {
+        return compressedSize;
+    }
+
+
+    /**
+     * Returns the size of the uncompressed data.
+     */
+    public long getUncompressedSize()
+    {
+        return uncompressedSize;
+    }
+
+
+    /**
+     * Copies the stored data to the given output stream.
+     */
+    public void writeTo(OutputStream outputStream) throws IOException
+    {
+        FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try
+        {
+            WritableByteChannel outputChannel = Channels.newChannel(outputStream);
+
+            long position = offset;
+            long end      = offset + compressedSize;
+            while (position < end)
+            {
+                long count = fileChannel.transferTo(position, end - position, outputChannel);
+                if (count <= 0)
+                {
+                    throw new EOFException("Unexpected end of zip file [" + file + "]");
+                }
+
+                position += count;
+            }
+        }
+        finally
+        {
+            fileChannel.close();
+        }
+    }
+
+
+    // Implementations for Object.
+
+    @Override
+    public String toString()
+    {
+        return "RawZipData(" + file + ", offset = " + offset + ", " + compressedSize + "/" + uncompressedSize + " bytes)";
+    }
+}
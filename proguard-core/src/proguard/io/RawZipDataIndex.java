@@ -0,0 +1,249 @@
+/*
+ * ProGuardCORE -- library to process Java bytecode.
+ *
+ * Copyright (c) 2002-2020 Guardsquare NV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package proguard.io;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.ZipEntry;
+
+/**
+ * This class locates the raw data of the entries in a zip file, based on
+ * the central directory of the file. It reads the central directory when
+ * it is first needed.
+ * <p/>
+ * The index doesn't support encrypted entries or zip64 files. It then
+ * simply doesn't provide the raw data.
+ *
+ * @see RawZipData
+ * @author Eric Lafortune
+ */
+public class RawZipDataIndex
+{
+    private static final int MAGIC_LOCAL_FILE_HEADER             = 0x04034b50;
+    private static final int MAGIC_CENTRAL_DIRECTORY_FILE_HEADER = 0x02014b50;
+    private static final int MAGIC_END_OF_CENTRAL_DIRECTORY      = 0x06054b50;
+
+    private static final int LOCAL_FILE_HEADER_SIZE        = 30;
+    private static final int CENTRAL_DIRECTORY_HEADER_SIZE = 46;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int MAX_COMMENT_SIZE              = 0xffff;
+
+    private static final int FLAG_ENCRYPTED = 0x0001;
+
+    private static final int METHOD_UNCOMPRESSED = 0;
+    private static final int METHOD_COMPRESSED   = 8;
+
+
+    private final File file;
+
+    // The offsets of the local file headers, by entry name.
+    private Map<String, Long> localFileHeaderOffsets;
+
+
+    /**
+     * Creates a new RawZipDataIndex for the given zip file.
+     */
+    public RawZipDataIndex(File file)
+    {
+        this.file = file;
+    }
+
+
+    /**
+     * Returns the raw data of the given entry of the zip file, or null if
+     * they can't be located.
+     */
+    public synchronized RawZipData getRawData(ZipEntry zipEntry)
+    {
+        int method = zipEntry.getMethod();
+        if (method != METHOD_UNCOMPRESSED &&
+            method != METHOD_COMPRESSED)
+        {
+            return null;
+        }
+
+        try
+        {
+            if (localFileHeaderOffsets == null)
+            {
+                localFileHeaderOffsets = readLocalFileHeaderOffsets();
+            }
+
+            Long localFileHeaderOffset = localFileHeaderOffsets.get(zipEntry.getName());
+            if (localFileHeaderOffset == null)
+            {
+                return null;
+            }
+
+            return new RawZipData(file,
+                                  dataOffset(localFileHeaderOffset.longValue()),
+                                  method == METHOD_COMPRESSED,
+                                  (int)zipEntry.getCrc(),
+                                  zipEntry.getCompressedSize(),
+                                  zipEntry.getSize());
+        }
+        catch (IOException e)
+        {
+            // We'll just have to do without the raw data.
+            return null;
+        }
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Reads the offsets of the local file headers of all supported entries
+     * from the central directory.
+     */
+    private Map<String, Long> readLocalFileHeaderOffsets() throws IOException
+    {
+        Map<String, Long> offsets = new HashMap<>();
+
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try
+        {
+            long fileLength = randomAccessFile.length();
+
+            // Find the end of the central directory, which may be followed
+            // by a comment.
+            int    tailLength = (int)Math.min(fileLength, END_OF_CENTRAL_DIRECTORY_SIZE + MAX_COMMENT_SIZE);
+            byte[] tail       = new byte[tailLength];
+            randomAccessFile.seek(fileLength - tailLength);
+            randomAccessFile.readFully(tail);
+
+            int endIndex = tailLength - END_OF_CENTRAL_DIRECTORY_SIZE;
+            while (endIndex >= 0 &&
+                   readInt(tail, endIndex) != MAGIC_END_OF_CENTRAL_DIRECTORY)
+            {
+                endIndex--;
+            }
+
+            if (endIndex < 0)
+            {
+                return offsets;
+            }
+
+            long centralDirectorySize   = readInt(tail, endIndex + 12) & 0xffffffffL;
+            long centralDirectoryOffset = readInt(tail, endIndex + 16) & 0xffffffffL;
+
+            // We don't support zip64 files.
+            if (centralDirectorySize   == 0xffffffffL ||
+                centralDirectoryOffset == 0xffffffffL)
+            {
+                return offsets;
+            }
+
+            // The zip data may be preceded by a header, for instance in
+            // jmod files. All offsets are then relative to the zip data.
+            long endOffset        = fileLength - tailLength + endIndex;
+            long zipDataOffset    = endOffset - centralDirectorySize - centralDirectoryOffset;
+
+            byte[] centralDirectory = new byte[(int)centralDirectorySize];
+            randomAccessFile.seek(endOffset - centralDirectorySize);
+            randomAccessFile.readFully(centralDirectory);
+
+            int index = 0;
+            while (index + CENTRAL_DIRECTORY_HEADER_SIZE <= centralDirectory.length &&
+                   readInt(centralDirectory, index) == MAGIC_CENTRAL_DIRECTORY_FILE_HEADER)
+            {
+                int  flags             = readShort(centralDirectory, index + 8);
+                int  nameLength        = readShort(centralDirectory, index + 28);
+                int  extraFieldLength  = readShort(centralDirectory, index + 30);
+                int  commentLength     = readShort(centralDirectory, index + 32);
+                long localHeaderOffset = readInt(centralDirectory, index + 42) & 0xffffffffL;
+
+                if ((flags & FLAG_ENCRYPTED) == 0 &&
+                    localHeaderOffset != 0xffffffffL)
+                {
+                    String name = new String(centralDirectory,
+                                             index + CENTRAL_DIRECTORY_HEADER_SIZE,
+                                             nameLength,
+                                             StandardCharsets.UTF_8);
+
+                    offsets.put(name, Long.valueOf(zipDataOffset + localHeaderOffset));
+                }
+
+                index += CENTRAL_DIRECTORY_HEADER_SIZE +
+                         nameLength                    +
+                         extraFieldLength              +
+                         commentLength;
+            }
+        }
+        finally
+        {
+            randomAccessFile.close();
+        }
+
+        return offsets;
+    }
+
+
+    /**
+     * Returns the offset of the data following the local file header at the
+     * given offset.
+     */
+    private long dataOffset(long localFileHeaderOffset) throws IOException
+    {
+        byte[] header = new byte[LOCAL_FILE_HEADER_SIZE];
+
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try
+        {
+            randomAccessFile.seek(localFileHeaderOffset);
+            randomAccessFile.readFully(header);
+        }
+        finally
+        {
+            randomAccessFile.close();
+        }
+
+        if (readInt(header, 0) != MAGIC_LOCAL_FILE_HEADER)
+        {
+            throw new IOException("Unexpected local file header in zip file [" + file + "]");
+        }
+
+        return localFileHeaderOffset      +
+               LOCAL_FILE_HEADER_SIZE     +
+               readShort(header, 26)      +
+               readShort(header, 28);
+    }
+
+
+    /**
+     * Reads a little-endian short value from the given array.
+     */
+    private static int readShort(byte[] bytes, int index)
+    {
+        return (bytes[index    ] & 0xff) |
+               (bytes[index + 1] & 0xff) << 8;
+    }
+
+
+    /**
+     * Reads a little-endian int value from the given array.
+     */
+    private static int readInt(byte[] bytes, int index)
+    {
+        return (bytes[index    ] & 0xff)       |
+               (bytes[index + 1] & 0xff) <<  8 |
+               (bytes[index + 2] & 0xff) << 16 |
+               (bytes[index + 3] & 0xff) << 24;
+    }
+}
@@ -29,20 +29,46 @@ import java.util.zip.*;
  */
 public class ZipFileDataEntry implements DataEntry
 {
-    private final DataEntry   parent;
-    private final ZipEntry    zipEntry;
-    private       ZipFile     zipFile;
-    private       InputStream zipInputStream;
-    private       InputStream bufferedInputStream;
+    private final DataEntry       parent;
+    private final ZipEntry        zipEntry;
+    private       ZipFile         zipFile;
+    private final RawZipDataIndex rawZipDataIndex;
+    private       InputStream     zipInputStream;
+    private       InputStream     bufferedInputStream;
 
 
     public ZipFileDataEntry(DataEntry parent,
                             ZipEntry  zipEntry,
                             ZipFile   zipFile)
     {
-        this.parent   = parent;
-        this.zipEntry = zipEntry;
-        this.zipFile  = zipFile;
+        this(parent, zipEntry, zipFile, null);
+    }
+
+
+    /**
+     * Creates a new ZipFileDataEntry that can also provide its raw data,
+     * based on the given index.
+     */
+    public ZipFileDataEntry(DataEntry       parent,
+                            ZipEntry        zipEntry,
+                            ZipFile         zipFile,
+                            RawZipDataIndex rawZipDataIndex)
+    {
+        this.parent          = parent;
+        this.zipEntry        = zipEntry;
+        this.zipFile         = zipFile;
+        this.rawZipDataIndex = rawZipDataIndex;
+    }
+
+
+    /**
+     * Returns the raw data of this entry, as they are stored in the zip
+     * file, or null if they aren't available.
+     */
+    public RawZipData getRawData()
+    {
+        return rawZipDataIndex == null ? null :
+            rawZipDataIndex.getRawData(zipEntry);
     }
 
 
@@ -21,6 +21,7 @@ import proguard.util.*;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.zip.*;
 
 /**
@@ -34,7 +35,19 @@ import java.util.zip.*;
  * the corresponding data are only written when their output streams are closed.
  * <p/>
  * The code automatically computes the CRC and lengths of the data, for
- * compressed and uncompressed data.
+ * compressed and uncompressed data. The data of each entry are buffered in
+ * memory until it is closed, spilling over to a temporary file for entries
+ * that are larger than a threshold, so large entries don't need large
+ * amounts of memory.
+ * <p/>
+ * If the caller specifies multiple compression threads, compressed entries
+ * are compressed in parallel on a pool of worker threads. Their data are
+ * still written in the order in which their output streams are closed, so
+ * the resulting zip data are the same.
+ * <p/>
+ * The output streams of the entries also implement
+ * {@link RawDataOutputStream}, so they can accept raw data from other zip
+ * files, which are then copied without recompressing them.
  *
  * @author Eric Lafortune
  */
@@ -49,6 +62,10 @@ public class ZipOutput
     private static final int METHOD_UNCOMPRESSED  =  0;
     private static final int METHOD_COMPRESSED    =  8;
 
+    // The maximum number of bytes of an entry that are buffered in memory,
+    // before spilling over to a temporary file.
+    private static final int BUFFER_THRESHOLD = Integer.getInteger("zip.buffer.threshold", 1024 * 1024);
+
     private static final boolean DEBUG = false;
 
 
@@ -57,9 +74,36 @@ public class ZipOutput
 
     private final String           comment;
 
+    // The number of threads for compressing entries, if larger than 1.
+    // The entries are compressed sequentially otherwise.
+    private final int              compressionThreadCount;
+
     private List zipEntries    = new ArrayList();
     private Set  zipEntryNames = new HashSet();
 
+    // The closed entries whose data still have to be written out, in order.
+    private final Deque<ZipEntry> pendingEntries = new ArrayDeque<ZipEntry>();
+    private       ExecutorService compressionExecutor;
+
+    // The buffers that currently have temporary files, so we can delete
+    // them even if their entries are never written out.
+    private final Set<SpillingOutputStream> spilledOutputStreams = Collections.synchronizedSet(new HashSet<SpillingOutputStream>());
+
+
+    /**
+     * This interface is implemented by output streams of zip entries that
+     * can accept their data in raw form, as stored in another zip file.
+     */
+    public interface RawDataOutputStream
+    {
+        /**
+         * Sets the given raw data as the entire data of the zip entry, if
+         * they are compatible and if no other data have been written yet.
+         * @return whether the raw data were accepted.
+         */
+        boolean writeRawData(RawZipData rawZipData);
+    }
+
 
     // Regular constructors.
 
@@ -119,9 +163,10 @@ public class ZipOutput
                      int              uncompressedAlignment,
                      String           comment)
     {
-        this.outputStream          = outputStream;
-        this.uncompressedAlignment = uncompressedAlignment;
-        this.comment               = comment;
+        this.outputStream           = outputStream;
+        this.uncompressedAlignment  = uncompressedAlignment;
+        this.comment                = comment;
+        this.compressionThreadCount = 1;
     }
 
 
@@ -181,9 +226,64 @@ public class ZipOutput
                      String           comment)
     throws IOException
     {
-        this.outputStream          = outputStream;
-        this.uncompressedAlignment = uncompressedAlignment;
-        this.comment               = comment;
+        this(outputStream,
+             header,
+             uncompressedAlignment,
+             comment,
+             1);
+    }
+
+
+    /**
+     * Creates a new ZipOutput that aligns uncompressed entries, contains a
+     * comment, and compresses entries in parallel.
+     *
+     * @param outputStream           the output stream to which the zip data will be written.
+     * @param header                 an optional header for the zip file.
+     * @param uncompressedAlignment  the requested alignment of uncompressed data.
+     * @param comment                optional comment for the entire zip file.
+     * @param compressionThreadCount the number of threads for compressing
+     *                               entries. With a single thread, the
+     *                               entries are compressed sequentially.
+     */
+    public ZipOutput(OutputStream  outputStream,
+                     byte[]        header,
+                     int           uncompressedAlignment,
+                     String        comment,
+                     int           compressionThreadCount)
+    throws IOException
+    {
+        this(new DataOutputStream(outputStream),
+             header,
+             uncompressedAlignment,
+             comment,
+             compressionThreadCount);
+    }
+
+
+    /**
+     * Creates a new ZipOutput that aligns uncompressed entries, contains a
+     * comment, and compresses entries in parallel.
+     *
+     * @param outputStream           the output stream to which the zip data will be written.
+     * @param header                 an optional header for the zip file.
+     * @param uncompressedAlignment  the requested alignment of uncompressed data.
+     * @param comment                optional comment for the entire zip file.
+     * @param compressionThreadCount the number of threads for compressing
+     *                               entries. With a single thread, the
+     *                               entries are compressed sequentially.
+     */
+    public ZipOutput(DataOutputStream outputStream,
+                     byte[]           header,
+                     int              uncompressedAlignment,
+                     String           comment,
+                     int              compressionThreadCount)
+    throws IOException
+    {
+        this.outputStream           = outputStream;
+        this.uncompressedAlignment  = uncompressedAlignment;
+        this.comment                = comment;
+        this.compressionThreadCount = compressionThreadCount;
         if (header != null)
         {
             outputStream.write(header);
@@ -296,9 +396,17 @@ public class ZipOutput
      */
     public void close() throws IOException
     {
-        long centralDirectoryOffset = writeStartOfCentralDirectory();
+        try
+        {
+            long centralDirectoryOffset = writeStartOfCentralDirectory();
 
-        close(centralDirectoryOffset);
+            close(centralDirectoryOffset);
+        }
+        finally
+        {
+            // Also clean up if writing the pending entries has failed.
+            releaseResources();
+        }
     }
 
 
@@ -308,14 +416,21 @@ public class ZipOutput
      */
     public void close(long centralDirectoryOffset) throws IOException
     {
-        // Write the central directory.
-        long centralDirectorySize = writeEntriesOfCentralDirectory();
+        try
+        {
+            // Write the central directory.
+            long centralDirectorySize = writeEntriesOfCentralDirectory();
 
-        writeEndOfCentralDirectory(centralDirectoryOffset,
-                                   centralDirectorySize);
+            writeEndOfCentralDirectory(centralDirectoryOffset,
+                                       centralDirectorySize);
 
-        // Close the underlying output stream.
-        outputStream.close();
+            // Close the underlying output stream.
+            outputStream.close();
+        }
+        finally
+        {
+            releaseResources();
+        }
 
         // Make sure the archive can't be used any further.
         outputStream  = null;
@@ -327,8 +442,11 @@ public class ZipOutput
     /**
      * Returns the current size of the data written to the output stream.
      */
-    protected long size()
+    protected long size() throws IOException
     {
+        // Make sure all closed entries have been written out.
+        writePendingEntries(0);
+
         return outputStream.size();
     }
 
@@ -337,13 +455,16 @@ public class ZipOutput
      * Starts the central directory.
      * @return the current position in the output stream.
      */
-    protected long writeStartOfCentralDirectory()
+    protected long writeStartOfCentralDirectory() throws IOException
     {
         if (DEBUG)
         {
             System.out.println("ZipOutput.writeStartOfCentralDirectory");
         }
 
+        // Make sure all closed entries have been written out.
+        writePendingEntries(0);
+
         // The central directory as such doesn't have a header.
         return outputStream.size();
     }
@@ -429,6 +550,14 @@ public class ZipOutput
         private byte[]  extraField;
         private String  comment;
 
+        // The buffered (compressed) data, until they are written out, and
+        // the future result of their compression, if any.
+        private SpillingOutputStream data;
+        private Future<?>            compression;
+
+        // The raw data that replace the above data, if any.
+        private RawZipData           rawData;
+
 
         /**
          * Creates a new zip entry, returning output stream to write its data.
@@ -468,9 +597,56 @@ public class ZipOutput
 
         public OutputStream createOutputStream() throws IOException
         {
-            return compressed ?
-                new CompressedZipEntryOutputStream() :
-                new UncompressedZipEntryOutputStream();
+            return !compressed    ? new UncompressedZipEntryOutputStream() :
+                   compressionThreadCount > 1 ? new ParallelCompressedZipEntryOutputStream() :
+                                                new CompressedZipEntryOutputStream();
+        }
+
+
+        /**
+         * Writes the local file header and the data to the main zip output
+         * stream.
+         */
+        private void writeLocalFileHeaderAndData() throws IOException
+        {
+            offset = outputStream.size();
+
+            writeLocalFileHeader();
+
+            if (rawData != null)
+            {
+                rawData.writeTo(outputStream);
+                rawData = null;
+            }
+            else
+            {
+                data.writeTo(outputStream);
+                data = null;
+            }
+        }
+
+
+        /**
+         * Sets the given raw data as the data of the entry, if they have the
+         * right compression and if no other data have been written yet.
+         * @return whether the raw data were accepted.
+         */
+        private boolean setRawData(RawZipData rawZipData,
+                                   long       writtenSize)
+        {
+            if (rawZipData.isCompressed() != compressed ||
+                writtenSize               != 0L         ||
+                rawData                   != null)
+            {
+                return false;
+            }
+
+            rawData          = rawZipData;
+            crc              = rawZipData.getCrc();
+            compressedSize   = rawZipData.getCompressedSize();
+            uncompressedSize = rawZipData.getUncompressedSize();
+
+            return true;
         }
 
 
@@ -580,21 +756,17 @@ public class ZipOutput
          * This OutputStream writes its uncompressed zip entry out to its zip
          * output stream when it is closed.
          */
-        private class UncompressedZipEntryOutputStream extends ByteArrayOutputStream
+        private class UncompressedZipEntryOutputStream
+        extends       SpillingOutputStream
+        implements    RawDataOutputStream
         {
             private CRC32 crc32 = new CRC32();
 
 
-            private UncompressedZipEntryOutputStream()
-            {
-                super(16 * 1024);
-            }
-
-
             // Overridden methods for OutputStream.
 
             @Override
-            public void write(int b)
+            public void write(int b) throws IOException
             {
                 super.write(b);
 
@@ -610,7 +782,7 @@ public class ZipOutput
 
 
             @Override
-            public void write(byte[] b, int off, int len)
+            public void write(byte[] b, int off, int len) throws IOException
             {
                 super.write(b, off, len);
 
@@ -623,15 +795,24 @@ public class ZipOutput
             {
                 super.close();
 
-                byte[] bytes = super.toByteArray();
+                if (rawData == null)
+                {
+                    crc              = (int)crc32.getValue();
+                    compressedSize   = super.size();
+                    uncompressedSize = super.size();
+                    data             = this;
+                }
+
+                writeEntry(ZipEntry.this, null);
+            }
 
-                offset           = outputStream.size();
-                crc              = (int)crc32.getValue();
-                compressedSize   = bytes.length;
-                uncompressedSize = bytes.length;
 
-                writeLocalFileHeader();
-                outputStream.write(bytes);
+            // Implementations for RawDataOutputStream.
+
+            @Override
+            public boolean writeRawData(RawZipData rawZipData)
+            {
+                return setRawData(rawZipData, super.size());
             }
         }
 
@@ -640,14 +821,16 @@ public class ZipOutput
          * This OutputStream writes its compressed zip entry out to its zip
          * output stream when it is closed.
          */
-        private class CompressedZipEntryOutputStream extends DeflaterOutputStream
+        private class CompressedZipEntryOutputStream
+        extends       DeflaterOutputStream
+        implements    RawDataOutputStream
         {
             private CRC32 crc32 = new CRC32();
 
 
             private CompressedZipEntryOutputStream()
             {
-                super(new ByteArrayOutputStream(16 * 1024),
+                super(new SpillingOutputStream(),
                       new Deflater(Deflater.BEST_COMPRESSION, true),
                       1024);
             }
@@ -687,18 +870,439 @@ public class ZipOutput
                 super.def.end();
                 super.close();
 
-                ByteArrayOutputStream byteArrayOutputStream =
-                    (ByteArrayOutputStream)super.out;
+                if (rawData == null)
+                {
+                    data           = (SpillingOutputStream)super.out;
+                    crc            = (int)crc32.getValue();
+                    compressedSize = data.size();
+                }
+
+                writeEntry(ZipEntry.this, null);
+            }
+
+
+            // Implementations for RawDataOutputStream.
+
+            @Override
+            public boolean writeRawData(RawZipData rawZipData)
+            {
+                return setRawData(rawZipData, uncompressedSize);
+            }
+        }
+
+
+        /**
+         * This OutputStream buffers its uncompressed data and compresses them
+         * on a worker thread when it is closed. The compressed zip entry is
+         * then written out to its zip output stream in its turn.
+         */
+        private class ParallelCompressedZipEntryOutputStream
+        extends       SpillingOutputStream
+        implements    RawDataOutputStream
+        {
+            // Overridden methods for OutputStream.
+
+            @Override
+            public void close() throws IOException
+            {
+                super.close();
+
+                if (rawData != null)
+                {
+                    // We don't need to compress anything.
+                    writeEntry(ZipEntry.this, null);
+                    return;
+                }
+
+                writeEntry(ZipEntry.this,
+                           compressionExecutor().submit(() ->
+                           {
+                               // Compress the data with the Deflater and the
+                               // CRC32 of the worker thread.
+                               MyCompressionThread thread = (MyCompressionThread)Thread.currentThread();
+
+                               Deflater deflater = thread.deflater;
+                               CRC32    crc32    = thread.crc32;
+                               deflater.reset();
+                               crc32.reset();
+
+                               SpillingOutputStream compressedData = new SpillingOutputStream();
+
+                               try
+                               {
+                                   DeflaterOutputStream deflaterOutputStream =
+                                       new DeflaterOutputStream(compressedData, deflater, 1024);
+
+                                   this.writeTo(new CheckedOutputStream(deflaterOutputStream, crc32));
+
+                                   deflaterOutputStream.close();
+                               }
+                               catch (IOException | RuntimeException e)
+                               {
+                                   compressedData.delete();
+                                   throw e;
+                               }
+
+                               crc              = (int)crc32.getValue();
+                               compressedSize   = compressedData.size();
+                               uncompressedSize = this.size();
+                               data             = compressedData;
+
+                               return null;
+                           }));
+            }
+
+
+            // Implementations for RawDataOutputStream.
+
+            @Override
+            public boolean writeRawData(RawZipData rawZipData)
+            {
+                return setRawData(rawZipData, super.size());
+            }
+        }
+    }
+
+
+    /**
+     * Writes out the given closed entry, or queues it if other entries
+     * still have to be written out first.
+     * @param zipEntry    the zip entry.
+     * @param compression the future result of the compression of the
+     *                    entry, or null if its data are ready.
+     */
+    private void writeEntry(ZipEntry zipEntry,
+                            Future<?> compression)
+    throws IOException
+    {
+        zipEntry.compression = compression;
+
+        pendingEntries.add(zipEntry);
+
+        // Keep the buffered data of the waiting entries in check.
+        writePendingEntries(4 * compressionThreadCount);
+    }
+
+
+    /**
+     * Writes out the pending entries whose data are ready, in order.
+     * @param maxPendingEntryCount the maximum number of entries that may
+     *                             remain pending. The method waits for
+     *                             the compression of any other entries.
+     */
+    private void writePendingEntries(int maxPendingEntryCount) throws IOException
+    {
+        while (!pendingEntries.isEmpty())
+        {
+            ZipEntry  zipEntry    = pendingEntries.peek();
+            Future<?> compression = zipEntry.compression;
+            if (compression != null)
+            {
+                if (pendingEntries.size() <= maxPendingEntryCount &&
+                    !compression.isDone())
+                {
+                    break;
+                }
+
+                waitFor(compression);
+            }
+
+            pendingEntries.remove();
+            zipEntry.writeLocalFileHeaderAndData();
+        }
+    }
+
+
+    /**
+     * Waits for the given compression to finish.
+     */
+    private void waitFor(Future<?> compression) throws IOException
+    {
+        try
+        {
+            compression.get();
+        }
+        catch (InterruptedException e)
+        {
+            throw (IOException)new InterruptedIOException("Compressing the zip entries was interrupted").initCause(e);
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+            {
+                throw (IOException)cause;
+            }
+
+            throw new RuntimeException(cause);
+        }
+    }
+
+
+    /**
+     * Returns the executor for compressing entries in parallel, creating
+     * it if necessary.
+     */
+    private ExecutorService compressionExecutor()
+    {
+        if (compressionExecutor == null)
+        {
+            compressionExecutor =
+                Executors.newFixedThreadPool(compressionThreadCount, new MyCompressionThreadFactory());
+        }
+
+        return compressionExecutor;
+    }
+
+
+    /**
+     * This ThreadFactory creates compression threads.
+     */
+    private static class MyCompressionThreadFactory
+    implements           ThreadFactory
+    {
+        private int threadCounter = 0;
+
+        public Thread newThread(Runnable runnable)
+        {
+            return new MyCompressionThread(++threadCounter, runnable);
+        }
+    }
+
+
+    /**
+     * This Thread compresses zip entries with its own Deflater and CRC32.
+     */
+    private static class MyCompressionThread
+    extends              Thread
+    {
+        private final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        private final CRC32    crc32    = new CRC32();
+
+        public MyCompressionThread(int counter, Runnable runnable)
+        {
+            super(runnable, "Zip Compressor " + counter);
+
+            // Don't keep the application alive if the zip output is never
+            // closed.
+            setDaemon(true);
+        }
 
-                byte[] compressedBytes = byteArrayOutputStream.toByteArray();
 
-                offset         = outputStream.size();
-                crc            = (int)crc32.getValue();
-                compressedSize = compressedBytes.length;
+        // Implementations for Runnable.
 
-                writeLocalFileHeader();
-                outputStream.write(compressedBytes);
+        public void run()
+        {
+            try
+            {
+                super.run();
             }
+            finally
+            {
+                // Make sure the memory is freed. [JDK-4797189]
+                deflater.end();
+            }
+        }
+    }
+
+
+    /**
+     * Stops the compression threads and deletes the temporary files of any
+     * entries that have failed or that have never been written out.
+     */
+    private void releaseResources()
+    {
+        if (compressionExecutor != null)
+        {
+            // Wait for any running compressions, so they can't leave
+            // temporary files behind.
+            compressionExecutor.shutdownNow();
+            try
+            {
+                compressionExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+
+            compressionExecutor = null;
+        }
+
+        deleteTemporaryFiles();
+    }
+
+
+    /**
+     * Deletes the temporary files of all buffers that still have them.
+     */
+    private void deleteTemporaryFiles()
+    {
+        SpillingOutputStream[] spilledOutputStreams;
+        synchronized (this.spilledOutputStreams)
+        {
+            spilledOutputStreams =
+                this.spilledOutputStreams.toArray(new SpillingOutputStream[this.spilledOutputStreams.size()]);
+        }
+
+        for (SpillingOutputStream spilledOutputStream : spilledOutputStreams)
+        {
+            spilledOutputStream.delete();
+        }
+    }
+
+
+    /**
+     * This OutputStream buffers its data in memory, or in a temporary file
+     * once the data exceed a threshold. The data can then be written out to
+     * another output stream, after which any temporary file is deleted.
+     */
+    private class SpillingOutputStream extends OutputStream
+    {
+        private ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(16 * 1024);
+        private File                  tempFile;
+        private OutputStream          tempFileOutputStream;
+        private long                  size;
+
+
+        /**
+         * Returns the number of bytes written to this stream.
+         */
+        public long size()
+        {
+            return size;
+        }
+
+
+        /**
+         * Writes out all data written to this stream to the given output
+         * stream, and releases any temporary resources. The stream must
+         * have been closed.
+         */
+        public void writeTo(OutputStream outputStream) throws IOException
+        {
+            if (tempFile == null)
+            {
+                byteArrayOutputStream.writeTo(outputStream);
+                byteArrayOutputStream = null;
+            }
+            else
+            {
+                try
+                {
+                    InputStream inputStream = new FileInputStream(tempFile);
+                    try
+                    {
+                        byte[] buffer = new byte[64 * 1024];
+                        while (true)
+                        {
+                            int count = inputStream.read(buffer);
+                            if (count < 0)
+                            {
+                                break;
+                            }
+
+                            outputStream.write(buffer, 0, count);
+                        }
+                    }
+                    finally
+                    {
+                        inputStream.close();
+                    }
+                }
+                finally
+                {
+                    delete();
+                }
+            }
+        }
+
+
+        /**
+         * Releases the data and deletes the temporary file, if any.
+         */
+        public void delete()
+        {
+            byteArrayOutputStream = null;
+
+            if (tempFileOutputStream != null)
+            {
+                try
+                {
+                    tempFileOutputStream.close();
+                }
+                catch (IOException e)
+                {
+                    // We're deleting the file anyway.
+                }
+
+                tempFileOutputStream = null;
+            }
+
+            if (tempFile != null)
+            {
+                tempFile.delete();
+
+                spilledOutputStreams.remove(this);
+            }
+        }
+
+
+        // Implementations for OutputStream.
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            prepareWrite(1).write(b);
+        }
+
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            prepareWrite(len).write(b, off, len);
+        }
+
+
+        @Override
+        public void close() throws IOException
+        {
+            if (tempFileOutputStream != null)
+            {
+                tempFileOutputStream.close();
+                tempFileOutputStream = null;
+            }
+        }
+
+
+        // Small utility methods.
+
+        /**
+         * Returns the stream to which the given number of bytes can be
+         * written, spilling the data over to a temporary file if necessary.
+         */
+        private OutputStream prepareWrite(int length) throws IOException
+        {
+            size += length;
+
+            if (tempFile == null &&
+                size > BUFFER_THRESHOLD)
+            {
+                tempFile = File.createTempFile("proguard", ".zipentry");
+
+                spilledOutputStreams.add(this);
+
+                tempFileOutputStream =
+                    new BufferedOutputStream(
+                    new FileOutputStream(tempFile), 64 * 1024);
+
+                byteArrayOutputStream.writeTo(tempFileOutputStream);
+                byteArrayOutputStream = null;
+            }
+
+            return tempFile == null ?
+                byteArrayOutputStream :
+                tempFileOutputStream;
         }
     }
 
@@ -36,6 +36,7 @@ public class ZipWriter implements DataEntryWriter
     private final int             extraUncompressedAlignment;
     private final int             modificationTime;
     private final byte[]          header;
+    private final int             compressionThreadCount;
     private final DataEntryWriter dataEntryWriter;
 
     private DataEntry currentParentEntry;
@@ -109,6 +110,7 @@ public class ZipWriter implements DataEntryWriter
         this.extraUncompressedAlignment       = extraUncompressedAlignment;
         this.modificationTime                 = modificationTime;
         this.header                           = null;
+        this.compressionThreadCount           = 1;
         this.dataEntryWriter                  = dataEntryWriter;
     }
 
@@ -162,6 +164,45 @@ public class ZipWriter implements DataEntryWriter
                      int             modificationTime,
                      byte[]          header,
                      DataEntryWriter dataEntryWriter)
+    {
+        this(uncompressedFilter,
+             uncompressedAlignment,
+             extraUncompressedAlignmentFilter,
+             extraUncompressedAlignment,
+             modificationTime,
+             header,
+             1,
+             dataEntryWriter);
+    }
+
+
+    /**
+     * Creates a new ZipWriter that compresses the entries of its zip archives
+     * in parallel.
+     * @param uncompressedFilter                an optional filter for files that should not
+     *                                          be compressed.
+     * @param uncompressedAlignment             the desired alignment for the data of
+     *                                          uncompressed entries.
+     * @param extraUncompressedAlignmentFilter  an optional filter for files that should not
+     *                                          be compressed and use a different alignment.
+     * @param extraUncompressedAlignment        the desired alignment for the data of
+     *                                          entries matching extraAlignmentFilter.
+     * @param modificationTime                  the modification date and time of the zip
+     *                                          entries, in DOS format.
+     * @param header                            an optional header for the zip archives.
+     * @param compressionThreadCount            the number of threads for compressing the
+     *                                          entries of each zip archive.
+     * @param dataEntryWriter                   the data entry writer that can provide
+     *                                          output streams for the zip archives.
+     */
+    public ZipWriter(StringMatcher   uncompressedFilter,
+                     int             uncompressedAlignment,
+                     StringMatcher   extraUncompressedAlignmentFilter,
+                     int             extraUncompressedAlignment,
+                     int             modificationTime,
+                     byte[]          header,
+                     int             compressionThreadCount,
+                     DataEntryWriter dataEntryWriter)
     {
         this.uncompressedFilter               = uncompressedFilter;
         this.uncompressedAlignment            = uncompressedAlignment;
@@ -169,6 +210,7 @@ public class ZipWriter implements DataEntryWriter
         this.extraUncompressedAlignment       = extraUncompressedAlignment;
         this.modificationTime                 = modificationTime;
         this.header                           = header;
+        this.compressionThreadCount           = compressionThreadCount;
         this.dataEntryWriter                  = dataEntryWriter;
     }
 
@@ -299,7 +341,8 @@ public class ZipWriter implements DataEntryWriter
         return new ZipOutput(outputStream,
                              header,
                              uncompressedAlignment,
-                             comment);
+                             comment,
+                             compressionThreadCount);
     }
 
 
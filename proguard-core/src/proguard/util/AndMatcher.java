@@ -47,4 +47,15 @@ public class AndMatcher extends StringMatcher
         return matcher1.matches(string, beginOffset, endOffset) &&
                matcher2.matches(string, beginOffset, endOffset);
     }
+
+
+    @Override
+    boolean addDecisions(AutomatonMatcher.Builder builder)
+    {
+        // We can only compile a negated first matcher, which rejects its
+        // strings, as created by the ListParser.
+        return matcher1 instanceof NotMatcher                      &&
+               ((NotMatcher)matcher1).addNegatedDecision(builder) &&
+               matcher2.addDecisions(builder);
+    }
 }
@@ -0,0 +1,746 @@
+/*
+ * ProGuardCORE -- library to process Java bytecode.
+ *
+ * Copyright (c) 2002-2020 Guardsquare NV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package proguard.util;
+
+import java.util.*;
+
+/**
+ * This {@link StringMatcher} matches strings with a deterministic finite
+ * automaton that is equivalent to a given {@link StringMatcher}, typically a
+ * tree of matchers created by a {@link ListParser}. The automaton looks at
+ * each character of a string only once, instead of recursively trying the
+ * matchers of the tree and backtracking over their wildcards.
+ * <p/>
+ * The matcher compiles the tree when it first needs it, and then creates
+ * the states of the automaton lazily, as it encounters them. It delegates
+ * to the tree itself if the tree contains matchers that can't be compiled,
+ * notably wildcards that are referenced by other matchers or functions of
+ * a {@link WildcardManager}, or if the automaton grows too large. It also
+ * delegates to simple trees, without backtracking wildcards and with few
+ * entries, since they are generally faster than the automaton.
+ * <p/>
+ * The matcher is thread-safe, as far as the given matcher is thread-safe.
+ *
+ * @author Eric Lafortune
+ */
+public class AutomatonMatcher extends StringMatcher
+{
+    private static final int MAXIMUM_STATE_COUNT = 10000;
+
+
+    private final StringMatcher matcher;
+
+    private volatile MyAutomaton automaton;
+    private volatile boolean     delegate;
+
+
+    /**
+     * Creates a new AutomatonMatcher that is equivalent to the given
+     * StringMatcher.
+     */
+    public AutomatonMatcher(StringMatcher matcher)
+    {
+        this.matcher = matcher;
+    }
+
+
+    // Implementations for StringMatcher.
+
+    @Override
+    protected boolean matches(String string, int beginOffset, int endOffset)
+    {
+        MyAutomaton automaton = automaton();
+
+        return automaton != null ?
+            automaton.matches(this, string, beginOffset, endOffset) :
+            matcher.matches(string, beginOffset, endOffset);
+    }
+
+
+    @Override
+    int addStates(Builder builder, int nextState)
+    {
+        return builder.addStates(matcher, nextState);
+    }
+
+
+    @Override
+    boolean addDecisions(Builder builder)
+    {
+        return matcher.addDecisions(builder);
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Returns the automaton, compiling it if necessary, or null if the
+     * matcher can't be compiled.
+     */
+    private MyAutomaton automaton()
+    {
+        MyAutomaton automaton = this.automaton;
+        if (automaton == null && !delegate)
+        {
+            synchronized (this)
+            {
+                automaton = this.automaton;
+                if (automaton == null && !delegate)
+                {
+                    Builder builder = new Builder();
+                    if (matcher.addDecisions(builder) &&
+                        builder.isWorthwhile())
+                    {
+                        automaton = this.automaton = new MyAutomaton(builder);
+                    }
+                    else
+                    {
+                        delegate = true;
+                    }
+                }
+            }
+        }
+
+        return automaton;
+    }
+
+
+    /**
+     * Permanently delegates to the original matcher, since the automaton
+     * has grown too large, and returns whether the given string matches.
+     */
+    private boolean delegate(String string, int beginOffset, int endOffset)
+    {
+        delegate  = true;
+        automaton = null;
+
+        return matcher.matches(string, beginOffset, endOffset);
+    }
+
+
+    /**
+     * This class collects the states of a nondeterministic automaton, from
+     * the compilation hooks of the matchers. The automaton consists of a
+     * prioritized list of decisions: the first accepting state that the
+     * automaton reaches at the end of a string determines the result. If it
+     * doesn't reach any accepting state, the result is the default result.
+     */
+    static class Builder
+    {
+        private static final int MAXIMUM_NFA_STATE_COUNT        = 100000;
+        private static final int MAXIMUM_REPETITION_STATE_COUNT = 1024;
+        private static final int MINIMUM_ACCEPT_STATE_COUNT     = 5;
+
+        private static final int CHARACTER       = 0;
+        private static final int CHARACTER_CLASS = 1;
+        private static final int SPLIT           = 2;
+        private static final int ACCEPT          = 3;
+
+
+        private final List<MyNfaState> states        = new ArrayList<>();
+        private final List<Integer>    initialStates = new ArrayList<>();
+        private       boolean          defaultResult;
+        private       boolean          hasBacktracking;
+        private       int              acceptStateCount;
+
+        // The map: [matcher - [next state - initial state]]
+        private final Map<StringMatcher, Map<Integer, Integer>> matcherStates = new IdentityHashMap<>();
+
+
+        /**
+         * Adds the states of the given matcher, continuing with the given
+         * state. Matchers that are shared, like the continuations of the
+         * alternatives of an {@link OrMatcher}, only get their states once
+         * for each next state. Returns the initial state of the added states,
+         * or -1 if the matcher can't be compiled or if the automaton would
+         * become too large.
+         */
+        int addStates(StringMatcher matcher, int nextState)
+        {
+            Map<Integer, Integer> initialStates = matcherStates.get(matcher);
+            if (initialStates == null)
+            {
+                initialStates = new HashMap<>();
+                matcherStates.put(matcher, initialStates);
+            }
+
+            Integer initialState = initialStates.get(nextState);
+            if (initialState == null)
+            {
+                initialState = states.size() > MAXIMUM_NFA_STATE_COUNT ?
+                    -1 :
+                    matcher.addStates(this, nextState);
+
+                initialStates.put(nextState, initialState);
+            }
+
+            return initialState;
+        }
+
+
+        /**
+         * Adds a state that matches the given character and then continues
+         * with the given state. Returns the new state.
+         */
+        int addCharacterState(char character, int nextState)
+        {
+            MyNfaState state = new MyNfaState(CHARACTER);
+            state.character = character;
+            state.nextState = nextState;
+
+            return addState(state);
+        }
+
+
+        /**
+         * Adds a state that matches a single character from the given
+         * optional list of allowed characters, excluding the given optional
+         * list of disallowed characters, and then continues with the given
+         * state. Returns the new state.
+         */
+        int addCharacterClassState(char[] allowedCharacters,
+                                   char[] disallowedCharacters,
+                                   int    nextState)
+        {
+            MyNfaState state = new MyNfaState(CHARACTER_CLASS);
+            state.allowedCharacters    = allowedCharacters;
+            state.disallowedCharacters = disallowedCharacters;
+            state.nextState            = nextState;
+
+            return addState(state);
+        }
+
+
+        /**
+         * Adds the states that match the specified number of characters from
+         * the given character class, and then continue with the given state.
+         * Returns the initial state of the sequence, or -1 if the number of
+         * states would be excessive.
+         */
+        int addRepetitionStates(char[] allowedCharacters,
+                                char[] disallowedCharacters,
+                                int    minimumLength,
+                                int    maximumLength,
+                                int    nextState)
+        {
+            // Does the tree need to backtrack over a variable number of
+            // characters?
+            if (minimumLength != maximumLength &&
+                states.get(nextState).type != ACCEPT)
+            {
+                hasBacktracking = true;
+            }
+
+            if (maximumLength == Integer.MAX_VALUE)
+            {
+                // Create a loop.
+                int loopState = addSplitState();
+                int characterState =
+                    addCharacterClassState(allowedCharacters,
+                                           disallowedCharacters,
+                                           loopState);
+
+                states.get(loopState).targetStates =
+                    new int[] { characterState, nextState };
+
+                nextState = loopState;
+            }
+            else if (maximumLength > MAXIMUM_REPETITION_STATE_COUNT)
+            {
+                return -1;
+            }
+            else
+            {
+                // Create a chain of optional characters.
+                int optionalState = nextState;
+                for (int count = minimumLength; count < maximumLength; count++)
+                {
+                    optionalState =
+                        addSplitState(nextState,
+                                      addCharacterClassState(allowedCharacters,
+                                                             disallowedCharacters,
+                                                             optionalState));
+                }
+
+                nextState = optionalState;
+            }
+
+            if (minimumLength > MAXIMUM_REPETITION_STATE_COUNT)
+            {
+                return -1;
+            }
+
+            // Prepend the mandatory characters.
+            for (int count = 0; count < minimumLength; count++)
+            {
+                nextState = addCharacterClassState(allowedCharacters,
+                                                   disallowedCharacters,
+                                                   nextState);
+            }
+
+            return nextState;
+        }
+
+
+        /**
+         * Adds a state that matches any string, and then continues with the
+         * given state. Returns the new state.
+         */
+        int addAnyStringState(int nextState)
+        {
+            return addRepetitionStates(null, null, 0, Integer.MAX_VALUE, nextState);
+        }
+
+
+        /**
+         * Adds a state that continues with all of the given states. Without
+         * any states, it doesn't match anything. Returns the new state.
+         */
+        int addSplitState(int... targetStates)
+        {
+            MyNfaState state = new MyNfaState(SPLIT);
+            state.targetStates = targetStates;
+
+            return addState(state);
+        }
+
+
+        /**
+         * Adds an accepting state with the given result. Accepting states
+         * that are added earlier take precedence over accepting states that
+         * are added later.
+         */
+        int addAcceptState(boolean result)
+        {
+            MyNfaState state = new MyNfaState(ACCEPT);
+            state.result = result;
+
+            acceptStateCount++;
+
+            return addState(state);
+        }
+
+
+        /**
+         * Adds the given state as an initial state of the automaton.
+         */
+        void addInitialState(int state)
+        {
+            initialStates.add(state);
+        }
+
+
+        /**
+         * Sets the result if the automaton doesn't reach any accepting state.
+         */
+        void setDefaultResult(boolean defaultResult)
+        {
+            this.defaultResult = defaultResult;
+        }
+
+
+        /**
+         * Returns whether the automaton is likely to be faster than the
+         * original tree of matchers, which is the case if the tree has to
+         * backtrack or if it has to check many entries, and if the automaton
+         * hasn't become too large.
+         */
+        boolean isWorthwhile()
+        {
+            return states.size() <= MAXIMUM_NFA_STATE_COUNT &&
+                   (hasBacktracking ||
+                    acceptStateCount >= MINIMUM_ACCEPT_STATE_COUNT);
+        }
+
+
+        // Small utility methods.
+
+        private int addState(MyNfaState state)
+        {
+            states.add(state);
+
+            return states.size() - 1;
+        }
+    }
+
+
+    /**
+     * This class represents a state of the nondeterministic automaton.
+     */
+    private static class MyNfaState
+    {
+        private final int type;
+
+        private char    character;
+        private char[]  allowedCharacters;
+        private char[]  disallowedCharacters;
+        private int     nextState;
+        private int[]   targetStates;
+        private boolean result;
+
+
+        private MyNfaState(int type)
+        {
+            this.type = type;
+        }
+
+
+        /**
+         * Returns whether the state matches the given character.
+         */
+        private boolean matches(char character)
+        {
+            if (type == Builder.CHARACTER)
+            {
+                return this.character == character;
+            }
+
+            if (allowedCharacters != null)
+            {
+                return contains(allowedCharacters, character);
+            }
+
+            return disallowedCharacters == null ||
+                   !contains(disallowedCharacters, character);
+        }
+
+
+        private boolean contains(char[] characters, char character)
+        {
+            for (int index = 0; index < characters.length; index++)
+            {
+                if (characters[index] == character)
+                {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+
+
+    /**
+     * This class represents a deterministic automaton whose states are
+     * created lazily from sets of states of the nondeterministic automaton.
+     * <p/>
+     * The characters that occur in the nondeterministic automaton each get
+     * their own character class. All other characters share a common
+     * character class, since no state can tell them apart.
+     * <p/>
+     * The transition table contains encoded states: their indices, shifted
+     * left, combined with their result flag and their dead flag. Encoded
+     * states are never 0, so a 0 entry represents an unknown transition.
+     */
+    private static class MyAutomaton
+    {
+        private static final int RESULT = 1;
+        private static final int DEAD   = 2;
+        private static final int SHIFT  = 2;
+
+
+        private final MyNfaState[] nfaStates;
+        private final boolean      defaultResult;
+
+        private final char[]       characters;
+        private final int[]        asciiCharacterClasses = new int[128];
+        private final char         otherCharacter;
+        private final int          characterClassCount;
+
+        private final List<BitSet>         stateNfaStates = new ArrayList<>();
+        private final Map<BitSet, Integer> encodedStates  = new HashMap<>();
+        private final int                  initialState;
+
+        private volatile int[] transitions;
+
+
+        private MyAutomaton(Builder builder)
+        {
+            nfaStates     = builder.states.toArray(new MyNfaState[0]);
+            defaultResult = builder.defaultResult;
+
+            // Collect all characters that states can tell apart.
+            SortedSet<Character> characterSet = new TreeSet<>();
+            for (MyNfaState nfaState : nfaStates)
+            {
+                if (nfaState.type == Builder.CHARACTER)
+                {
+                    characterSet.add(nfaState.character);
+                }
+                else if (nfaState.type == Builder.CHARACTER_CLASS)
+                {
+                    addCharacters(characterSet, nfaState.allowedCharacters);
+                    addCharacters(characterSet, nfaState.disallowedCharacters);
+                }
+            }
+
+            characters = new char[characterSet.size()];
+            int index = 0;
+            for (Character character : characterSet)
+            {
+                characters[index++] = character;
+            }
+
+            characterClassCount = characters.length + 1;
+
+            for (char character = 0; character < 128; character++)
+            {
+                asciiCharacterClasses[character] = characterClass(character);
+            }
+
+            // Find a representative for all other characters.
+            char character = Character.MAX_VALUE;
+            while (Arrays.binarySearch(characters, character) >= 0)
+            {
+                character--;
+            }
+            otherCharacter = character;
+
+            transitions = new int[16 * characterClassCount];
+
+            // Skip state index 0, so encoded states are never 0.
+            stateNfaStates.add(null);
+
+            // Create the initial state.
+            BitSet initialNfaStates = new BitSet();
+            for (int nfaState : builder.initialStates)
+            {
+                addClosure(initialNfaStates, nfaState);
+            }
+
+            initialState = encodedState(initialNfaStates);
+        }
+
+
+        /**
+         * Returns whether the given string matches, or delegates to the
+         * given matcher if the automaton has grown too large.
+         */
+        public boolean matches(AutomatonMatcher matcher,
+                               String           string,
+                               int              beginOffset,
+                               int              endOffset)
+        {
+            int[] transitions = this.transitions;
+            int   state       = initialState;
+
+            for (int offset = beginOffset; offset < endOffset; offset++)
+            {
+                // Without any remaining character states, the remainder
+                // of the string can't match anything.
+                if ((state & DEAD) != 0)
+                {
+                    return defaultResult;
+                }
+
+                char character      = string.charAt(offset);
+                int  characterClass = character < 128 ?
+                    asciiCharacterClasses[character] :
+                    characterClass(character);
+
+                // Reading the transitions without synchronization is safe:
+                // an entry is either 0 or the final encoded state.
+                int index     = (state >>> SHIFT) * characterClassCount + characterClass;
+                int nextState = index < transitions.length ?
+                    transitions[index] :
+                    0;
+
+                if (nextState == 0)
+                {
+                    nextState = createNextState(state, characterClass);
+                    if (nextState == 0)
+                    {
+                        return matcher.delegate(string, beginOffset, endOffset);
+                    }
+
+                    transitions = this.transitions;
+                }
+
+                state = nextState;
+            }
+
+            return (state & RESULT) != 0;
+        }
+
+
+        // Small utility methods.
+
+        /**
+         * Creates the encoded state after the given encoded state and
+         * character class, or returns 0 if the automaton has grown too large.
+         */
+        private synchronized int createNextState(int state,
+                                                 int characterClass)
+        {
+            int index     = (state >>> SHIFT) * characterClassCount + characterClass;
+            int nextState = transitions[index];
+            if (nextState == 0)
+            {
+                char character = characterClass == 0 ?
+                    otherCharacter :
+                    characters[characterClass - 1];
+
+                BitSet nextNfaStates = new BitSet();
+
+                BitSet nfaStateSet = stateNfaStates.get(state >>> SHIFT);
+                for (int nfaStateIndex = nfaStateSet.nextSetBit(0);
+                     nfaStateIndex >= 0;
+                     nfaStateIndex = nfaStateSet.nextSetBit(nfaStateIndex + 1))
+                {
+                    MyNfaState nfaState = nfaStates[nfaStateIndex];
+                    if (nfaState.type != Builder.ACCEPT &&
+                        nfaState.matches(character))
+                    {
+                        addClosure(nextNfaStates, nfaState.nextState);
+                    }
+                }
+
+                Integer encodedState = encodedStates.get(nextNfaStates);
+                if (encodedState != null)
+                {
+                    nextState = encodedState;
+                }
+                else if (stateNfaStates.size() > MAXIMUM_STATE_COUNT)
+                {
+                    return 0;
+                }
+                else
+                {
+                    nextState = encodedState(nextNfaStates);
+                }
+
+                transitions[index] = nextState;
+            }
+
+            return nextState;
+        }
+
+
+        /**
+         * Returns the encoded state for the given set of states of the
+         * nondeterministic automaton, creating it if necessary.
+         */
+        private int encodedState(BitSet nfaStateSet)
+        {
+            Integer encodedState = encodedStates.get(nfaStateSet);
+            if (encodedState != null)
+            {
+                return encodedState;
+            }
+
+            // The first accepting state determines the result.
+            boolean result    = defaultResult;
+            boolean hasResult = false;
+            boolean isDead    = true;
+
+            for (int nfaStateIndex = nfaStateSet.nextSetBit(0);
+                 nfaStateIndex >= 0;
+                 nfaStateIndex = nfaStateSet.nextSetBit(nfaStateIndex + 1))
+            {
+                MyNfaState nfaState = nfaStates[nfaStateIndex];
+                if (nfaState.type == Builder.ACCEPT)
+                {
+                    if (!hasResult)
+                    {
+                        result    = nfaState.result;
+                        hasResult = true;
+                    }
+                }
+                else
+                {
+                    isDead = false;
+                }
+            }
+
+            int stateIndex = stateNfaStates.size();
+            stateNfaStates.add(nfaStateSet);
+
+            int state = (stateIndex << SHIFT) |
+                        (result ? RESULT : 0) |
+                        (isDead ? DEAD   : 0);
+
+            encodedStates.put(nfaStateSet, state);
+
+            // Grow the transition table if necessary. Threads that are
+            // still using the old table just see unknown transitions.
+            int length = (stateIndex + 1) * characterClassCount;
+            if (length > transitions.length)
+            {
+                transitions = Arrays.copyOf(transitions, 2 * length);
+            }
+
+            return state;
+        }
+
+
+        /**
+         * Adds the given state and all states that it reaches without
+         * matching any characters to the given set, leaving out split
+         * states.
+         */
+        private void addClosure(BitSet nfaStateSet, int nfaStateIndex)
+        {
+            addClosure(nfaStateSet, new BitSet(), nfaStateIndex);
+        }
+
+
+        private void addClosure(BitSet nfaStateSet,
+                                BitSet splitStateSet,
+                                int    nfaStateIndex)
+        {
+            MyNfaState nfaState = nfaStates[nfaStateIndex];
+            if (nfaState.type != Builder.SPLIT)
+            {
+                nfaStateSet.set(nfaStateIndex);
+            }
+            else if (!splitStateSet.get(nfaStateIndex))
+            {
+                splitStateSet.set(nfaStateIndex);
+
+                for (int targetState : nfaState.targetStates)
+                {
+                    addClosure(nfaStateSet, splitStateSet, targetState);
+                }
+            }
+        }
+
+
+        /**
+         * Returns the character class of the given character.
+         */
+        private int characterClass(char character)
+        {
+            int index = Arrays.binarySearch(characters, character);
+
+            return index < 0 ? 0 : index + 1;
+        }
+
+
+        private void addCharacters(Set<Character> characterSet,
+                                   char[]         characters)
+        {
+            if (characters != null)
+            {
+                for (char character : characters)
+                {
+                    characterSet.add(character);
+                }
+            }
+        }
+    }
+}
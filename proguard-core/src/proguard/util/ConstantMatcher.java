@@ -43,4 +43,22 @@ public class ConstantMatcher extends StringMatcher
     {
         return matches;
     }
+
+
+    @Override
+    int addStates(AutomatonMatcher.Builder builder, int nextState)
+    {
+        return matches ?
+            builder.addAnyStringState(nextState) :
+            builder.addSplitState();
+    }
+
+
+    @Override
+    boolean addDecisions(AutomatonMatcher.Builder builder)
+    {
+        builder.setDefaultResult(matches);
+
+        return true;
+    }
 }
@@ -31,4 +31,11 @@ public class EmptyStringMatcher extends StringMatcher
     {
         return endOffset <= beginOffset;
     }
+
+
+    @Override
+    int addStates(AutomatonMatcher.Builder builder, int nextState)
+    {
+        return nextState;
+    }
 }
@@ -68,4 +68,26 @@ public class FixedStringMatcher extends StringMatcher
                                     beginOffset + fixedStringLength,
                                     endOffset));
     }
+
+
+    @Override
+    int addStates(AutomatonMatcher.Builder builder, int nextState)
+    {
+        if (nextMatcher != null)
+        {
+            nextState = builder.addStates(nextMatcher, nextState);
+            if (nextState < 0)
+            {
+                return -1;
+            }
+        }
+
+        for (int index = fixedString.length() - 1; index >= 0; index--)
+        {
+            nextState = builder.addCharacterState(fixedString.charAt(index),
+                                                  nextState);
+        }
+
+        return nextState;
+    }
 }
@@ -26,6 +26,8 @@ import java.util.List;
  * If an entry with a negator matches, a negative match is returned, without
  * considering any subsequent entries in the list. The creation of {@link StringMatcher}
  * instances for the entries is delegated to the given {@link StringParser}.
+ * By default, the parser wraps the resulting matchers in an
+ * {@link AutomatonMatcher}, which compiles them into an automaton.
  * <p/>
  * For example,
  *     "*.xml,*.jpg" matches all strings with the given extensions;
@@ -38,6 +40,7 @@ import java.util.List;
 public class ListParser implements StringParser
 {
     private final StringParser stringParser;
+    private final boolean      compile;
 
 
     /**
@@ -45,8 +48,22 @@ public class ListParser implements StringParser
      * comma-separated list with the given StringParser.
      */
     public ListParser(StringParser stringParser)
+    {
+        this(stringParser, true);
+    }
+
+
+    /**
+     * Creates a new ListParser that parses individual elements in the
+     * comma-separated list with the given StringParser.
+     * @param stringParser the parser for the individual elements.
+     * @param compile      specifies whether the resulting matchers should
+     *                     be compiled into automata.
+     */
+    public ListParser(StringParser stringParser, boolean compile)
     {
         this.stringParser = stringParser;
+        this.compile      = compile;
     }
 
 
@@ -105,7 +122,14 @@ public class ListParser implements StringParser
             index -= stringMatchers.length;
         }
 
-        return listMatcher != null ? listMatcher : new ConstantMatcher(true);
+        if (listMatcher == null)
+        {
+            return new ConstantMatcher(true);
+        }
+
+        return compile ?
+            new AutomatonMatcher(listMatcher) :
+            listMatcher;
     }
 
 
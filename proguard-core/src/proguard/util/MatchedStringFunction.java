@@ -35,6 +35,9 @@ public class MatchedStringFunction implements StringFunction
     public MatchedStringFunction(VariableStringMatcher variableStringMatcher)
     {
         this.variableStringMatcher = variableStringMatcher;
+
+        // The variable string matcher must remember its matching strings.
+        variableStringMatcher.setReferenced();
     }
 
 
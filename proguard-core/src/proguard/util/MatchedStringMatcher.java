@@ -43,6 +43,9 @@ public class MatchedStringMatcher extends StringMatcher
     {
         this.variableStringMatcher = variableStringMatcher;
         this.nextMatcher           = nextMatcher;
+
+        // The variable string matcher must remember its matching strings.
+        variableStringMatcher.setReferenced();
     }
 
 
@@ -41,4 +41,37 @@ public class NotMatcher extends StringMatcher
     {
         return !matcher.matches(string, beginOffset, endOffset);
     }
+
+
+    @Override
+    boolean addDecisions(AutomatonMatcher.Builder builder)
+    {
+        if (!addNegatedDecision(builder))
+        {
+            return false;
+        }
+
+        builder.setDefaultResult(true);
+
+        return true;
+    }
+
+
+    /**
+     * Adds a decision that rejects the strings that the negated matcher
+     * matches.
+     */
+    boolean addNegatedDecision(AutomatonMatcher.Builder builder)
+    {
+        int initialState =
+            builder.addStates(matcher, builder.addAcceptState(false));
+        if (initialState < 0)
+        {
+            return false;
+        }
+
+        builder.addInitialState(initialState);
+
+        return true;
+    }
 }
@@ -51,4 +51,50 @@ public class OrMatcher extends StringMatcher
 
         return false;
     }
+
+
+    @Override
+    int addStates(AutomatonMatcher.Builder builder, int nextState)
+    {
+        int[] initialStates = new int[matchers.length];
+        for (int index = 0; index < matchers.length; index++)
+        {
+            initialStates[index] = builder.addStates(matchers[index], nextState);
+            if (initialStates[index] < 0)
+            {
+                return -1;
+            }
+        }
+
+        return builder.addSplitState(initialStates);
+    }
+
+
+    @Override
+    boolean addDecisions(AutomatonMatcher.Builder builder)
+    {
+        if (matchers.length == 0)
+        {
+            builder.setDefaultResult(false);
+
+            return true;
+        }
+
+        // Each matcher but the last one accepts its strings. The last one
+        // makes the remaining decisions.
+        int lastIndex = matchers.length - 1;
+        for (int index = 0; index < lastIndex; index++)
+        {
+            int initialState =
+                builder.addStates(matchers[index], builder.addAcceptState(true));
+            if (initialState < 0)
+            {
+                return false;
+            }
+
+            builder.addInitialState(initialState);
+        }
+
+        return matchers[lastIndex].addDecisions(builder);
+    }
 }
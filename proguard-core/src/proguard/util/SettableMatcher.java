@@ -41,4 +41,11 @@ public class SettableMatcher extends StringMatcher
     {
         return matcher.matches(string, beginOffset, endOffset);
     }
+
+
+    @Override
+    int addStates(AutomatonMatcher.Builder builder, int nextState)
+    {
+        return builder.addStates(matcher, nextState);
+    }
 }
@@ -47,4 +47,44 @@ public abstract class StringMatcher
     protected abstract boolean matches(String string,
                                        int    beginOffset,
                                        int    endOffset);
+
+
+    // Hooks for compiling matchers into an AutomatonMatcher.
+
+    /**
+     * Adds the states of a nondeterministic automaton that matches the same
+     * strings as this matcher to the given builder, continuing with the
+     * given state after a match.
+     * @param builder   the builder of the automaton.
+     * @param nextState the state that follows a matching substring.
+     * @return the initial state of the added states, or -1 if the matcher
+     *         can't be compiled.
+     */
+    int addStates(AutomatonMatcher.Builder builder, int nextState)
+    {
+        return -1;
+    }
+
+
+    /**
+     * Adds the decisions of this matcher as a list of accepting states to
+     * the given builder, in order of priority, and sets the default result.
+     * The default implementation adds a single decision that accepts the
+     * strings that this matcher matches.
+     * @param builder the builder of the automaton.
+     * @return whether the matcher could be compiled.
+     */
+    boolean addDecisions(AutomatonMatcher.Builder builder)
+    {
+        int initialState = builder.addStates(this, builder.addAcceptState(true));
+        if (initialState < 0)
+        {
+            return false;
+        }
+
+        builder.addInitialState(initialState);
+        builder.setDefaultResult(false);
+
+        return true;
+    }
 }
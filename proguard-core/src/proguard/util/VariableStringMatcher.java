@@ -31,6 +31,10 @@ public class VariableStringMatcher extends StringMatcher
     private final int           maximumLength;
     private final StringMatcher nextMatcher;
 
+    // Referenced matchers must remember their matching strings, so they
+    // can't be compiled.
+    private boolean isReferenced;
+
     // Remember the most recently attempted match.
     private String string;
     private int    matchingBeginOffset;
@@ -62,6 +66,16 @@ public class VariableStringMatcher extends StringMatcher
     }
 
 
+    /**
+     * Marks this matcher as referenced by other matchers or functions, which
+     * use its matching strings.
+     */
+    void setReferenced()
+    {
+        isReferenced = true;
+    }
+
+
     /**
      * Returns the string that has been matched most recently.
      */
@@ -165,6 +179,31 @@ public class VariableStringMatcher extends StringMatcher
     }
 
 
+    @Override
+    int addStates(AutomatonMatcher.Builder builder, int nextState)
+    {
+        if (isReferenced)
+        {
+            return -1;
+        }
+
+        if (nextMatcher != null)
+        {
+            nextState = builder.addStates(nextMatcher, nextState);
+            if (nextState < 0)
+            {
+                return -1;
+            }
+        }
+
+        return builder.addRepetitionStates(allowedCharacters,
+                                           disallowedCharacters,
+                                           minimumLength,
+                                           maximumLength,
+                                           nextState);
+    }
+
+
     // Small utility methods.
 
     /**
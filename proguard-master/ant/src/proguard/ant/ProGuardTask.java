@@ -94,6 +94,18 @@ public class ProGuardTask extends ConfigurationTask
     }
 
 
+    public void setLibrarycache(File libraryCache)
+    {
+        configuration.libraryCache = resolvedFile(libraryCache);
+    }
+
+
+    public void setLazylibraryclasses(boolean lazyLibraryClasses)
+    {
+        configuration.lazyLibraryClasses = lazyLibraryClasses;
+    }
+
+
     public void setTarget(String target)
     {
         configuration.targetClassVersion = ClassUtil.internalClassVersion(target);
@@ -110,6 +122,12 @@ public class ProGuardTask extends ConfigurationTask
     }
 
 
+    public void setIncremental(File incremental)
+    {
+        configuration.incremental = resolvedFile(incremental);
+    }
+
+
     public void setPrintseeds(File printSeeds)
     {
         configuration.printSeeds = optionalFile(printSeeds);
@@ -318,6 +336,12 @@ public class ProGuardTask extends ConfigurationTask
     }
 
 
+    public void setPrinttrace(File printTrace)
+    {
+        configuration.printTrace = optionalFile(printTrace);
+    }
+
+
     public void setAddconfigurationdebugging(boolean addConfigurationDebugging)
     {
         configuration.addConfigurationDebugging = addConfigurationDebugging;
@@ -0,0 +1,143 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2020 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.benchmark;
+
+import com.sun.management.*;
+
+import javax.management.*;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class keeps track of the heap of the current virtual machine: the
+ * total number of bytes that it has allocated, and the peak heap usage. It
+ * derives both from the heap usage before and after each garbage collection,
+ * so it also accounts for the allocations of short-lived worker threads.
+ *
+ * @author Eric Lafortune
+ */
+public class HeapMonitor
+implements   NotificationListener
+{
+    private final MemoryMXBean memoryMXBean   = ManagementFactory.getMemoryMXBean();
+    private final Set<String>  heapPoolNames  = new HashSet<>();
+
+    private final AtomicLong   collectedBytes = new AtomicLong();
+    private final AtomicLong   peakBytes      = new AtomicLong();
+
+
+    /**
+     * Creates a new HeapMonitor and starts listening to the garbage
+     * collectors of the virtual machine.
+     */
+    public HeapMonitor()
+    {
+        for (MemoryPoolMXBean memoryPoolMXBean : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if (memoryPoolMXBean.getType() == MemoryType.HEAP)
+            {
+                heapPoolNames.add(memoryPoolMXBean.getName());
+            }
+        }
+
+        for (GarbageCollectorMXBean garbageCollectorMXBean : ManagementFactory.getGarbageCollectorMXBeans())
+        {
+            if (garbageCollectorMXBean instanceof NotificationEmitter)
+            {
+                ((NotificationEmitter)garbageCollectorMXBean).addNotificationListener(this, null, null);
+            }
+        }
+    }
+
+
+    /**
+     * Returns the total number of bytes that have been allocated on the heap
+     * so far.
+     */
+    public long allocatedBytes()
+    {
+        return collectedBytes.get() + usedBytes();
+    }
+
+
+    /**
+     * Returns the peak heap usage since the previous call, in bytes, and
+     * starts tracking a new peak.
+     */
+    public long resetPeakBytes()
+    {
+        long usedBytes = usedBytes();
+
+        return Math.max(peakBytes.getAndSet(usedBytes), usedBytes);
+    }
+
+
+    /**
+     * Returns the current heap usage, in bytes.
+     */
+    public long usedBytes()
+    {
+        return memoryMXBean.getHeapMemoryUsage().getUsed();
+    }
+
+
+    // Implementations for NotificationListener.
+
+    public void handleNotification(Notification notification, Object handback)
+    {
+        if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType()))
+        {
+            GcInfo gcInfo =
+                GarbageCollectionNotificationInfo.from((CompositeData)notification.getUserData()).getGcInfo();
+
+            long bytesBefore = heapBytes(gcInfo.getMemoryUsageBeforeGc());
+            long bytesAfter  = heapBytes(gcInfo.getMemoryUsageAfterGc());
+
+            collectedBytes.addAndGet(bytesBefore - bytesAfter);
+            peakBytes.accumulateAndGet(bytesBefore, Math::max);
+        }
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Returns the total number of used bytes in the heap pools of the given
+     * memory usage map.
+     */
+    private long heapBytes(Map<String, MemoryUsage> memoryUsages)
+    {
+        long bytes = 0L;
+
+        for (Map.Entry<String, MemoryUsage> entry : memoryUsages.entrySet())
+        {
+            if (heapPoolNames.contains(entry.getKey()))
+            {
+                bytes += entry.getValue().getUsed();
+            }
+        }
+
+        return bytes;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2020 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.benchmark;
+
+/**
+ * This class contains the measurements of a single phase of a ProGuard run.
+ *
+ * @author Eric Lafortune
+ */
+public class PhaseMeasurement
+{
+    public final String phaseName;
+    public final int    depth;
+    public final long   wallTimeNanos;
+    public final long   cpuTimeNanos;
+    public final long   allocatedBytes;
+    public final long   peakHeapBytes;
+
+
+    /**
+     * Creates a new PhaseMeasurement.
+     * @param phaseName      the name of the phase.
+     * @param depth          the nesting depth of the phase, starting at 0
+     *                       for the top-level phases.
+     * @param wallTimeNanos  the elapsed time of the phase.
+     * @param cpuTimeNanos   the CPU time that the process spent in all of its
+     *                       threads during the phase.
+     * @param allocatedBytes the number of bytes allocated on the heap during
+     *                       the phase.
+     * @param peakHeapBytes  the peak heap usage during the phase.
+     */
+    public PhaseMeasurement(String phaseName,
+                            int    depth,
+                            long   wallTimeNanos,
+                            long   cpuTimeNanos,
+                            long   allocatedBytes,
+                            long   peakHeapBytes)
+    {
+        this.phaseName      = phaseName;
+        this.depth          = depth;
+        this.wallTimeNanos  = wallTimeNanos;
+        this.cpuTimeNanos   = cpuTimeNanos;
+        this.allocatedBytes = allocatedBytes;
+        this.peakHeapBytes  = peakHeapBytes;
+    }
+}
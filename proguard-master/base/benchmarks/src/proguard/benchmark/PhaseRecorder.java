@@ -0,0 +1,145 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2020 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.benchmark;
+
+import com.sun.management.OperatingSystemMXBean;
+import proguard.ProcessingListener;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+/**
+ * This ProcessingListener measures the wall time, the CPU time, the
+ * allocated memory, and the peak heap usage of each phase of a ProGuard run,
+ * including nested phases.
+ *
+ * @author Eric Lafortune
+ */
+public class PhaseRecorder
+implements   ProcessingListener
+{
+    private final OperatingSystemMXBean operatingSystemMXBean =
+        (OperatingSystemMXBean)ManagementFactory.getOperatingSystemMXBean();
+
+    private final HeapMonitor            heapMonitor;
+    private final List<PhaseMeasurement> phaseMeasurements = new ArrayList<>();
+    private final Deque<MyOpenPhase>     openPhases        = new ArrayDeque<>();
+
+
+    /**
+     * Creates a new PhaseRecorder.
+     * @param heapMonitor the monitor that keeps track of the allocations
+     *                    and of the peak heap usage.
+     */
+    public PhaseRecorder(HeapMonitor heapMonitor)
+    {
+        this.heapMonitor = heapMonitor;
+    }
+
+
+    /**
+     * Returns the measurements of all phases that have finished, in the
+     * order in which they were started.
+     */
+    public List<PhaseMeasurement> getPhaseMeasurements()
+    {
+        return phaseMeasurements;
+    }
+
+
+    // Implementations for ProcessingListener.
+
+    public void phaseStarted(String phaseName)
+    {
+        updatePeakBytes();
+
+        // Reserve the position of the phase in the list.
+        openPhases.push(new MyOpenPhase(phaseMeasurements.size(),
+                                        heapMonitor.allocatedBytes(),
+                                        operatingSystemMXBean.getProcessCpuTime(),
+                                        System.nanoTime()));
+
+        phaseMeasurements.add(null);
+    }
+
+
+    public void phaseFinished(String phaseName)
+    {
+        long endWallTime       = System.nanoTime();
+        long endCpuTime        = operatingSystemMXBean.getProcessCpuTime();
+        long endAllocatedBytes = heapMonitor.allocatedBytes();
+
+        updatePeakBytes();
+
+        MyOpenPhase openPhase = openPhases.pop();
+
+        phaseMeasurements.set(openPhase.index,
+                              new PhaseMeasurement(phaseName,
+                                                   openPhases.size(),
+                                                   endWallTime       - openPhase.startWallTime,
+                                                   endCpuTime        - openPhase.startCpuTime,
+                                                   endAllocatedBytes - openPhase.startAllocatedBytes,
+                                                   openPhase.peakBytes));
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Accounts for the peak heap usage since the previous update in all
+     * phases that are currently open.
+     */
+    private void updatePeakBytes()
+    {
+        long peakBytes = heapMonitor.resetPeakBytes();
+
+        for (MyOpenPhase openPhase : openPhases)
+        {
+            openPhase.peakBytes = Math.max(openPhase.peakBytes, peakBytes);
+        }
+    }
+
+
+    /**
+     * This class contains the measurements at the start of a phase that
+     * hasn't finished yet.
+     */
+    private static class MyOpenPhase
+    {
+        private final int  index;
+        private final long startAllocatedBytes;
+        private final long startCpuTime;
+        private final long startWallTime;
+        private       long peakBytes;
+
+
+        public MyOpenPhase(int  index,
+                           long startAllocatedBytes,
+                           long startCpuTime,
+                           long startWallTime)
+        {
+            this.index               = index;
+            this.startAllocatedBytes = startAllocatedBytes;
+            this.startCpuTime        = startCpuTime;
+            this.startWallTime       = startWallTime;
+        }
+    }
+}
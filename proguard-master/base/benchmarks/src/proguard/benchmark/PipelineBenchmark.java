@@ -0,0 +1,542 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2020 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.benchmark;
+
+import proguard.*;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.net.URISyntaxException;
+import java.util.*;
+
+/**
+ * This tool runs the complete ProGuard pipeline on a bundled sample program
+ * (ProGuard itself) and on generated applications of increasing sizes. It
+ * measures the wall time, the CPU time, the allocated memory, and the peak
+ * heap usage of each phase and of each optimization pass, and writes the
+ * results to a JSON file, so they can be compared across releases.
+ * <p/>
+ * Usage:
+ *     java proguard.benchmark.PipelineBenchmark [options...]
+ * with the options:
+ *     -output <file>           the JSON output file (benchmark.json).
+ *     -classes <n,...>         the sizes of the generated applications
+ *                              (1000,10000,100000).
+ *     -iterations <n>          the number of runs per program (1).
+ *     -optimizationpasses <n>  the number of optimization passes (5).
+ *     -workdir <directory>     the directory for the generated jars and the
+ *                              processed jars (a temporary directory).
+ *     -nosample                skips the bundled sample program.
+ *
+ * @author Eric Lafortune
+ */
+public class PipelineBenchmark
+{
+    private static final String OUTPUT_OPTION              = "-output";
+    private static final String CLASSES_OPTION             = "-classes";
+    private static final String ITERATIONS_OPTION          = "-iterations";
+    private static final String OPTIMIZATION_PASSES_OPTION = "-optimizationpasses";
+    private static final String WORK_DIRECTORY_OPTION      = "-workdir";
+    private static final String NO_SAMPLE_OPTION           = "-nosample";
+
+    private static final String USAGE = "Usage: java proguard.benchmark.PipelineBenchmark [" +
+                                        OUTPUT_OPTION              + " <file>] [" +
+                                        CLASSES_OPTION             + " <n,...>] [" +
+                                        ITERATIONS_OPTION          + " <n>] [" +
+                                        OPTIMIZATION_PASSES_OPTION + " <n>] [" +
+                                        WORK_DIRECTORY_OPTION      + " <directory>] [" +
+                                        NO_SAMPLE_OPTION           + "]";
+
+    private static final String SAMPLE_PROGRAM_NAME = "proguard";
+
+
+    // The settings.
+    private final File    outputFile;
+    private final int[]   classCounts;
+    private final int     iterations;
+    private final int     optimizationPasses;
+    private final File    workDirectory;
+    private final boolean includeSample;
+
+    private final HeapMonitor heapMonitor = new HeapMonitor();
+    private final List<MyRun> runs        = new ArrayList<>();
+
+
+    /**
+     * Creates a new PipelineBenchmark.
+     * @param outputFile         the JSON file to which the results are
+     *                           written.
+     * @param classCounts        the sizes of the generated applications.
+     * @param iterations         the number of times each program is
+     *                           processed.
+     * @param optimizationPasses the number of optimization passes.
+     * @param workDirectory      the directory for the input jars and output
+     *                           jars.
+     * @param includeSample      specifies whether to process the bundled
+     *                           sample program too.
+     */
+    public PipelineBenchmark(File    outputFile,
+                             int[]   classCounts,
+                             int     iterations,
+                             int     optimizationPasses,
+                             File    workDirectory,
+                             boolean includeSample)
+    {
+        this.outputFile         = outputFile;
+        this.classCounts        = classCounts;
+        this.iterations         = iterations;
+        this.optimizationPasses = optimizationPasses;
+        this.workDirectory      = workDirectory;
+        this.includeSample      = includeSample;
+    }
+
+
+    /**
+     * Processes all programs and writes out the results.
+     */
+    public void execute() throws Exception
+    {
+        if (includeSample)
+        {
+            benchmarkSample();
+        }
+
+        for (int classCount : classCounts)
+        {
+            benchmarkGeneratedProgram(classCount);
+        }
+
+        writeResults();
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Processes ProGuard itself, from the class path of this tool.
+     */
+    private void benchmarkSample() throws Exception
+    {
+        Set<String> inputPaths = new LinkedHashSet<>();
+        inputPaths.add(codeSourcePath(ProGuard.class));
+        inputPaths.add(codeSourcePath(proguard.classfile.ClassPool.class));
+
+        List<String> options = new ArrayList<>();
+        for (String inputPath : inputPaths)
+        {
+            options.add("-injars " + quote(inputPath) + "(**.class)");
+        }
+
+        // The remaining class path entries, like Gson and Kotlin, are
+        // libraries.
+        for (String path : System.getProperty("java.class.path").split(File.pathSeparator))
+        {
+            if (path.length() > 0 &&
+                !inputPaths.contains(new File(path).getAbsolutePath()))
+            {
+                options.add("-libraryjars " + quote(path) + "(**.class)");
+            }
+        }
+
+        options.add("-keep public class proguard.ProGuard { public static void main(java.lang.String[]); }");
+        options.add("-keep,allowobfuscation class proguard.optimize.gson._*");
+        options.add("-keepclassmembers class proguard.optimize.gson._* { *; }");
+        options.add("-adaptclassstrings proguard.optimize.gson.**");
+        options.add("-dontnote");
+        options.add("-dontwarn");
+        options.add("-ignorewarnings");
+
+        benchmark(SAMPLE_PROGRAM_NAME, -1, options);
+    }
+
+
+    /**
+     * Generates an application with the given number of classes and
+     * processes it.
+     */
+    private void benchmarkGeneratedProgram(int classCount) throws Exception
+    {
+        String programName = "generated-" + classCount;
+
+        // Generate the input jar, if we haven't done so before.
+        File inputJar = new File(workDirectory, programName + ".jar");
+        if (!inputJar.exists())
+        {
+            System.out.println("Generating [" + inputJar + "]...");
+
+            new ProgramGenerator(classCount).writeJar(inputJar);
+        }
+
+        List<String> options = new ArrayList<>();
+        options.add("-injars " + quote(inputJar.getPath()));
+        options.add("-keep public class " +
+                    ProgramGenerator.MAIN_CLASS_NAME.replace('/', '.') +
+                    " { public static void main(java.lang.String[]); }");
+
+        benchmark(programName, classCount + 2, options);
+    }
+
+
+    /**
+     * Processes the specified program the given number of times, with the
+     * given program-specific options.
+     */
+    private void benchmark(String       programName,
+                           int          classCount,
+                           List<String> programOptions) throws Exception
+    {
+        File outputJar = new File(workDirectory, programName + "-out.jar");
+
+        List<String> options = new ArrayList<>(programOptions);
+        options.add("-outjars " + quote(outputJar.getPath()));
+        options.add("-libraryjars " + runtimeLibrary());
+        options.add("-optimizationpasses " + optimizationPasses);
+        options.add("-forceprocessing");
+
+        for (int iteration = 1; iteration <= iterations; iteration++)
+        {
+            System.out.println("Processing [" + programName + "] (iteration " + iteration + "/" + iterations + ")...");
+
+            // Parse a fresh configuration, since ProGuard may change it.
+            Configuration configuration = new Configuration();
+
+            ConfigurationParser parser =
+                new ConfigurationParser(options.toArray(new String[0]),
+                                        System.getProperties());
+            try
+            {
+                parser.parse(configuration);
+            }
+            finally
+            {
+                parser.close();
+            }
+
+            // Start from a clean heap.
+            System.gc();
+
+            PhaseRecorder phaseRecorder = new PhaseRecorder(heapMonitor);
+
+            long startTime = System.nanoTime();
+
+            new ProGuard(configuration, phaseRecorder).execute();
+
+            long wallTimeNanos = System.nanoTime() - startTime;
+
+            MyRun run = new MyRun(programName,
+                                  classCount,
+                                  iteration,
+                                  wallTimeNanos,
+                                  phaseRecorder.getPhaseMeasurements());
+            runs.add(run);
+
+            printRun(run);
+        }
+    }
+
+
+    /**
+     * Prints out a summary of the given run.
+     */
+    private void printRun(MyRun run)
+    {
+        System.out.println(String.format(Locale.ROOT,
+                                         "  %-50s %10s %10s %12s %10s",
+                                         "Phase", "Wall (ms)", "CPU (ms)", "Alloc (MB)", "Peak (MB)"));
+
+        for (PhaseMeasurement phaseMeasurement : run.phaseMeasurements)
+        {
+            System.out.println(String.format(Locale.ROOT,
+                                             "  %-50s %10d %10d %12d %10d",
+                                             indentation(phaseMeasurement.depth) + phaseMeasurement.phaseName,
+                                             phaseMeasurement.wallTimeNanos  / 1000000L,
+                                             phaseMeasurement.cpuTimeNanos   / 1000000L,
+                                             phaseMeasurement.allocatedBytes / (1024L * 1024L),
+                                             phaseMeasurement.peakHeapBytes  / (1024L * 1024L)));
+        }
+
+        System.out.println(String.format(Locale.ROOT,
+                                         "  %-50s %10d",
+                                         "Total", run.wallTimeNanos / 1000000L));
+    }
+
+
+    /**
+     * Writes all results to the JSON output file.
+     */
+    private void writeResults() throws IOException
+    {
+        System.out.println("Writing results to [" + outputFile + "]...");
+
+        PrintWriter writer =
+            new PrintWriter(
+            new BufferedWriter(
+            new OutputStreamWriter(
+            new FileOutputStream(outputFile), "UTF-8")));
+
+        try
+        {
+            writer.println("{");
+            writer.println("  \"version\": " + jsonString(ProGuard.VERSION) + ",");
+            writer.println("  \"javaVersion\": " + jsonString(System.getProperty("java.version")) + ",");
+            writer.println("  \"availableProcessors\": " + Runtime.getRuntime().availableProcessors() + ",");
+            writer.println("  \"maxHeapBytes\": " + Runtime.getRuntime().maxMemory() + ",");
+            writer.println("  \"jvmArguments\": " + jsonStrings(ManagementFactory.getRuntimeMXBean().getInputArguments()) + ",");
+            writer.println("  \"optimizationPasses\": " + optimizationPasses + ",");
+            writer.println("  \"runs\": [");
+
+            for (int runIndex = 0; runIndex < runs.size(); runIndex++)
+            {
+                MyRun run = runs.get(runIndex);
+
+                writer.println("    {");
+                writer.println("      \"program\": " + jsonString(run.programName) + ",");
+                if (run.classCount >= 0)
+                {
+                    writer.println("      \"classCount\": " + run.classCount + ",");
+                }
+                writer.println("      \"iteration\": " + run.iteration + ",");
+                writer.println("      \"wallTimeNanos\": " + run.wallTimeNanos + ",");
+                writer.println("      \"phases\": [");
+
+                List<PhaseMeasurement> phaseMeasurements = run.phaseMeasurements;
+                for (int phaseIndex = 0; phaseIndex < phaseMeasurements.size(); phaseIndex++)
+                {
+                    PhaseMeasurement phaseMeasurement = phaseMeasurements.get(phaseIndex);
+
+                    writer.println("        {" +
+                                   " \"name\": "           + jsonString(phaseMeasurement.phaseName) + "," +
+                                   " \"depth\": "          + phaseMeasurement.depth                 + "," +
+                                   " \"wallTimeNanos\": "  + phaseMeasurement.wallTimeNanos         + "," +
+                                   " \"cpuTimeNanos\": "   + phaseMeasurement.cpuTimeNanos          + "," +
+                                   " \"allocatedBytes\": " + phaseMeasurement.allocatedBytes        + "," +
+                                   " \"peakHeapBytes\": "  + phaseMeasurement.peakHeapBytes         +
+                                   " }" + (phaseIndex < phaseMeasurements.size() - 1 ? "," : ""));
+                }
+
+                writer.println("      ]");
+                writer.println("    }" + (runIndex < runs.size() - 1 ? "," : ""));
+            }
+
+            writer.println("  ]");
+            writer.println("}");
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+
+    /**
+     * Returns the library option value for the run-time classes of the
+     * current Java virtual machine.
+     */
+    private static String runtimeLibrary()
+    {
+        String javaHome = System.getProperty("java.home");
+
+        // Java 9 and higher contain modules; older versions contain rt.jar.
+        File javaBaseModule = new File(javaHome, "jmods" + File.separator + "java.base.jmod");
+
+        return javaBaseModule.exists() ?
+            quote(javaBaseModule.getPath()) + "(!**.jar;!module-info.class)" :
+            quote(new File(javaHome, "lib" + File.separator + "rt.jar").getPath());
+    }
+
+
+    /**
+     * Returns the absolute path of the jar or directory from which the given
+     * class was loaded.
+     */
+    private static String codeSourcePath(Class<?> clazz) throws URISyntaxException
+    {
+        return new File(clazz.getProtectionDomain().getCodeSource().getLocation().toURI()).getAbsolutePath();
+    }
+
+
+    private static String indentation(int depth)
+    {
+        StringBuilder builder = new StringBuilder();
+        for (int count = 0; count < depth; count++)
+        {
+            builder.append("  ");
+        }
+
+        return builder.toString();
+    }
+
+
+    /**
+     * Quotes the given file name for the configuration parser.
+     */
+    private static String quote(String fileName)
+    {
+        return "'" + fileName + "'";
+    }
+
+
+    private static String jsonStrings(List<String> strings)
+    {
+        StringBuilder builder = new StringBuilder("[");
+        for (int index = 0; index < strings.size(); index++)
+        {
+            if (index > 0)
+            {
+                builder.append(", ");
+            }
+
+            builder.append(jsonString(strings.get(index)));
+        }
+
+        return builder.append(']').toString();
+    }
+
+
+    private static String jsonString(String string)
+    {
+        StringBuilder builder = new StringBuilder("\"");
+        for (int index = 0; index < string.length(); index++)
+        {
+            char c = string.charAt(index);
+            switch (c)
+            {
+                case '"':  builder.append("\\\""); break;
+                case '\\': builder.append("\\\\"); break;
+                default:
+                    if (c < ' ')
+                    {
+                        builder.append(String.format("\\u%04x", (int)c));
+                    }
+                    else
+                    {
+                        builder.append(c);
+                    }
+            }
+        }
+
+        return builder.append('"').toString();
+    }
+
+
+    /**
+     * This class contains the results of a single run of ProGuard.
+     */
+    private static class MyRun
+    {
+        private final String                 programName;
+        private final int                    classCount;
+        private final int                    iteration;
+        private final long                   wallTimeNanos;
+        private final List<PhaseMeasurement> phaseMeasurements;
+
+
+        public MyRun(String                 programName,
+                     int                    classCount,
+                     int                    iteration,
+                     long                   wallTimeNanos,
+                     List<PhaseMeasurement> phaseMeasurements)
+        {
+            this.programName       = programName;
+            this.classCount        = classCount;
+            this.iteration         = iteration;
+            this.wallTimeNanos     = wallTimeNanos;
+            this.phaseMeasurements = phaseMeasurements;
+        }
+    }
+
+
+    /**
+     * The main method for the benchmark.
+     */
+    public static void main(String[] args)
+    {
+        File    outputFile         = new File("benchmark.json");
+        int[]   classCounts        = new int[] { 1000, 10000, 100000 };
+        int     iterations         = 1;
+        int     optimizationPasses = 5;
+        File    workDirectory      = null;
+        boolean includeSample      = true;
+
+        try
+        {
+            for (int argumentIndex = 0; argumentIndex < args.length; argumentIndex++)
+            {
+                String arg = args[argumentIndex];
+                if      (arg.equals(OUTPUT_OPTION))              outputFile         = new File(args[++argumentIndex]);
+                else if (arg.equals(CLASSES_OPTION))             classCounts        = parseInts(args[++argumentIndex]);
+                else if (arg.equals(ITERATIONS_OPTION))          iterations         = Integer.parseInt(args[++argumentIndex]);
+                else if (arg.equals(OPTIMIZATION_PASSES_OPTION)) optimizationPasses = Integer.parseInt(args[++argumentIndex]);
+                else if (arg.equals(WORK_DIRECTORY_OPTION))      workDirectory      = new File(args[++argumentIndex]);
+                else if (arg.equals(NO_SAMPLE_OPTION))           includeSample      = false;
+                else
+                {
+                    throw new IllegalArgumentException("Unknown option [" + arg + "]");
+                }
+            }
+        }
+        catch (RuntimeException e)
+        {
+            System.err.println(USAGE);
+            System.exit(-1);
+        }
+
+        try
+        {
+            if (workDirectory == null)
+            {
+                workDirectory = File.createTempFile("proguard-benchmark", "");
+                workDirectory.delete();
+            }
+
+            workDirectory.mkdirs();
+
+            new PipelineBenchmark(outputFile,
+                                  classCounts,
+                                  iterations,
+                                  optimizationPasses,
+                                  workDirectory,
+                                  includeSample).execute();
+        }
+        catch (Exception ex)
+        {
+            ex.printStackTrace();
+
+            System.exit(1);
+        }
+
+        System.exit(0);
+    }
+
+
+    private static int[] parseInts(String string)
+    {
+        String[] strings = string.split(",");
+
+        int[] ints = new int[strings.length];
+        for (int index = 0; index < strings.length; index++)
+        {
+            ints[index] = Integer.parseInt(strings[index].trim());
+        }
+
+        return ints;
+    }
+}
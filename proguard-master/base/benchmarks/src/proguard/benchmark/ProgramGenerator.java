@@ -0,0 +1,389 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2020 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.benchmark;
+
+import proguard.classfile.*;
+import proguard.classfile.editor.*;
+import proguard.classfile.io.ProgramClassWriter;
+
+import java.io.*;
+import java.util.jar.*;
+
+/**
+ * This class generates synthetic applications of a given number of classes,
+ * as jars that ProGuard can process. The applications are deterministic and
+ * contain the constructs that the various processing steps care about:
+ * unused classes and methods to shrink, small methods to inline, constants
+ * to propagate, class hierarchies, loops, switches, and string operations.
+ * The classes are linked in a long chain of invocations, starting from a
+ * main class, so the shrinker has to keep most of them. They have class
+ * version 1.6, so they don't need preverification to run.
+ *
+ * @author Eric Lafortune
+ */
+public class ProgramGenerator
+{
+    public static final String MAIN_CLASS_NAME = "com/example/Main";
+
+    private static final String TASK_CLASS_NAME = "com/example/Task";
+
+    private static final int PACKAGE_SIZE          = 100;
+    private static final int CLASS_HIERARCHY_DEPTH = 4;
+    private static final int UNUSED_CLASS_INTERVAL = 10;
+
+    private static final String NAME_JAVA_LANG_STRING_BUILDER = "java/lang/StringBuilder";
+    private static final String NAME_JAVA_LANG_SYSTEM         = "java/lang/System";
+    private static final String NAME_JAVA_IO_PRINT_STREAM     = "java/io/PrintStream";
+
+
+    private final int classCount;
+
+
+    /**
+     * Creates a new ProgramGenerator.
+     * @param classCount the number of classes in the generated application,
+     *                   besides the main class and an interface.
+     */
+    public ProgramGenerator(int classCount)
+    {
+        this.classCount = classCount;
+    }
+
+
+    /**
+     * Writes the application to the given jar file.
+     */
+    public void writeJar(File jarFile) throws IOException
+    {
+        JarOutputStream jarOutputStream =
+            new JarOutputStream(
+            new BufferedOutputStream(
+            new FileOutputStream(jarFile)));
+
+        try
+        {
+            writeClass(jarOutputStream, createMainClass());
+            writeClass(jarOutputStream, createTaskClass());
+
+            for (int index = 0; index < classCount; index++)
+            {
+                writeClass(jarOutputStream, createProgramClass(index));
+            }
+        }
+        finally
+        {
+            jarOutputStream.close();
+        }
+    }
+
+
+    /**
+     * Creates the main class, which invokes the first class of the chain.
+     */
+    public ProgramClass createMainClass()
+    {
+        return
+            new ClassBuilder(VersionConstants.CLASS_VERSION_1_6,
+                             AccessConstants.PUBLIC,
+                             MAIN_CLASS_NAME,
+                             ClassConstants.NAME_JAVA_LANG_OBJECT)
+                .addMethod(AccessConstants.PUBLIC |
+                           AccessConstants.STATIC,
+                           "main",
+                           "([Ljava/lang/String;)V",
+                           50,
+                           code -> code
+                               .getstatic(NAME_JAVA_LANG_SYSTEM, "out", "Ljava/io/PrintStream;")
+                               .new_(className(0))
+                               .dup()
+                               .invokespecial(className(0),
+                                              ClassConstants.METHOD_NAME_INIT,
+                                              ClassConstants.METHOD_TYPE_INIT)
+                               .aload_0()
+                               .arraylength()
+                               .invokeinterface(TASK_CLASS_NAME, "run", "(I)I")
+                               .invokevirtual(NAME_JAVA_IO_PRINT_STREAM, "println", "(I)V")
+                               .return_())
+                .getProgramClass();
+    }
+
+
+    /**
+     * Creates the interface that all classes of the chain implement.
+     */
+    public ProgramClass createTaskClass()
+    {
+        return
+            new ClassBuilder(VersionConstants.CLASS_VERSION_1_6,
+                             AccessConstants.PUBLIC    |
+                             AccessConstants.INTERFACE |
+                             AccessConstants.ABSTRACT,
+                             TASK_CLASS_NAME,
+                             ClassConstants.NAME_JAVA_LANG_OBJECT)
+                .addMethod(AccessConstants.PUBLIC |
+                           AccessConstants.ABSTRACT,
+                           "run",
+                           "(I)I")
+                .getProgramClass();
+    }
+
+
+    /**
+     * Creates the specified class of the chain.
+     */
+    public ProgramClass createProgramClass(int index)
+    {
+        String className      = className(index);
+        String superClassName = index % CLASS_HIERARCHY_DEPTH == 0 ?
+            ClassConstants.NAME_JAVA_LANG_OBJECT :
+            className(index - 1);
+        int    nextIndex      = nextIndex(index);
+
+        ClassBuilder classBuilder =
+            new ClassBuilder(VersionConstants.CLASS_VERSION_1_6,
+                             AccessConstants.PUBLIC,
+                             className,
+                             superClassName);
+
+        if (index % CLASS_HIERARCHY_DEPTH == 0)
+        {
+            classBuilder.addInterface(TASK_CLASS_NAME);
+        }
+
+        return classBuilder
+            .addField(AccessConstants.PRIVATE, "value", "I")
+            .addField(AccessConstants.PRIVATE, "name", "Ljava/lang/String;")
+
+            // public Cn() { super(); this.name = "Cn"; }
+            .addMethod(AccessConstants.PUBLIC,
+                       ClassConstants.METHOD_NAME_INIT,
+                       ClassConstants.METHOD_TYPE_INIT,
+                       50,
+                       code -> code
+                           .aload_0()
+                           .invokespecial(superClassName,
+                                          ClassConstants.METHOD_NAME_INIT,
+                                          ClassConstants.METHOD_TYPE_INIT)
+                           .aload_0()
+                           .ldc("C" + index)
+                           .putfield(className, "name", "Ljava/lang/String;")
+                           .return_())
+
+            // private static int constant() { return n; }
+            .addMethod(AccessConstants.PRIVATE |
+                       AccessConstants.STATIC,
+                       "constant",
+                       "()I",
+                       10,
+                       code -> code
+                           .pushInt(index)
+                           .ireturn())
+
+            // public int getValue() { return this.value; }
+            .addMethod(AccessConstants.PUBLIC,
+                       "getValue",
+                       "()I",
+                       10,
+                       code -> code
+                           .aload_0()
+                           .getfield(className, "value", "I")
+                           .ireturn())
+
+            // public void setValue(int value) { this.value = value; }
+            .addMethod(AccessConstants.PUBLIC,
+                       "setValue",
+                       "(I)V",
+                       10,
+                       code -> code
+                           .aload_0()
+                           .iload_1()
+                           .putfield(className, "value", "I")
+                           .return_())
+
+            // public int run(int x) { ... }
+            .addMethod(AccessConstants.PUBLIC,
+                       "run",
+                       "(I)I",
+                       200,
+                       code -> composeRunMethodBody(code,
+                                                    className,
+                                                    nextIndex))
+
+            // public void unused() { System.out.println("Unused Cn"); }
+            .addMethod(AccessConstants.PUBLIC,
+                       "unused",
+                       "()V",
+                       20,
+                       code -> code
+                           .getstatic(NAME_JAVA_LANG_SYSTEM, "out", "Ljava/io/PrintStream;")
+                           .ldc("Unused C" + index)
+                           .invokevirtual(NAME_JAVA_IO_PRINT_STREAM, "println", "(Ljava/lang/String;)V")
+                           .return_())
+
+            .getProgramClass();
+    }
+
+
+    /**
+     * Returns the name of the specified class of the chain.
+     */
+    public String className(int index)
+    {
+        return "com/example/p" + (index / PACKAGE_SIZE) + "/C" + index;
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Returns the index of the class that the specified class invokes, or
+     * -1 if it is the end of the chain. The chain skips some classes, so
+     * they end up unused.
+     */
+    private int nextIndex(int index)
+    {
+        int nextIndex = index + 1;
+        if (nextIndex % UNUSED_CLASS_INTERVAL == UNUSED_CLASS_INTERVAL - 1)
+        {
+            nextIndex++;
+        }
+
+        return nextIndex < classCount ? nextIndex : -1;
+    }
+
+
+    /**
+     * Composes the body of the method 'int run(int x)'.
+     */
+    private void composeRunMethodBody(CompactCodeAttributeComposer code,
+                                      String                       className,
+                                      int                          nextIndex)
+    {
+        CompactCodeAttributeComposer.Label loop      = code.createLabel();
+        CompactCodeAttributeComposer.Label loopEnd   = code.createLabel();
+        CompactCodeAttributeComposer.Label case0     = code.createLabel();
+        CompactCodeAttributeComposer.Label case1     = code.createLabel();
+        CompactCodeAttributeComposer.Label case2     = code.createLabel();
+        CompactCodeAttributeComposer.Label switchEnd = code.createLabel();
+
+        // this.setValue(x + constant());
+        code.aload_0()
+            .iload_1()
+            .invokestatic(className, "constant", "()I")
+            .iadd()
+            .invokevirtual(className, "setValue", "(I)V")
+
+            // x = this.getValue();
+            .aload_0()
+            .invokevirtual(className, "getValue", "()I")
+            .istore_1()
+
+            // for (int i = 0; i < (x & 7); i++) x += i;
+            .iconst_0()
+            .istore_2()
+            .label(loop)
+            .iload_2()
+            .iload_1()
+            .bipush(7)
+            .iand()
+            .ificmpge(loopEnd)
+            .iload_1()
+            .iload_2()
+            .iadd()
+            .istore_1()
+            .iinc(2, 1)
+            .goto_(loop)
+            .label(loopEnd)
+
+            // switch (x & 3) { case 0: x += 1; break; case 1: x *= 2; break; case 2: x -= 3; }
+            .iload_1()
+            .iconst_3()
+            .iand()
+            .tableswitch(switchEnd, 0, 2, new CompactCodeAttributeComposer.Label[] { case0, case1, case2 })
+            .label(case0)
+            .iinc(1, 1)
+            .goto_(switchEnd)
+            .label(case1)
+            .iload_1()
+            .iconst_2()
+            .imul()
+            .istore_1()
+            .goto_(switchEnd)
+            .label(case2)
+            .iload_1()
+            .iconst_3()
+            .isub()
+            .istore_1()
+            .label(switchEnd)
+
+            // x += new StringBuilder().append(this.name).append(x).toString().length();
+            .iload_1()
+            .new_(NAME_JAVA_LANG_STRING_BUILDER)
+            .dup()
+            .invokespecial(NAME_JAVA_LANG_STRING_BUILDER,
+                           ClassConstants.METHOD_NAME_INIT,
+                           ClassConstants.METHOD_TYPE_INIT)
+            .aload_0()
+            .getfield(className, "name", "Ljava/lang/String;")
+            .invokevirtual(NAME_JAVA_LANG_STRING_BUILDER, "append", "(Ljava/lang/String;)Ljava/lang/StringBuilder;")
+            .iload_1()
+            .invokevirtual(NAME_JAVA_LANG_STRING_BUILDER, "append", "(I)Ljava/lang/StringBuilder;")
+            .invokevirtual(NAME_JAVA_LANG_STRING_BUILDER, "toString", "()Ljava/lang/String;")
+            .invokevirtual(ClassConstants.NAME_JAVA_LANG_STRING, "length", "()I")
+            .iadd()
+            .istore_1();
+
+        if (nextIndex >= 0)
+        {
+            String nextClassName = className(nextIndex);
+
+            // x = new Cnext().run(x);
+            code.new_(nextClassName)
+                .dup()
+                .invokespecial(nextClassName,
+                               ClassConstants.METHOD_NAME_INIT,
+                               ClassConstants.METHOD_TYPE_INIT)
+                .iload_1()
+                .invokevirtual(nextClassName, "run", "(I)I")
+                .istore_1();
+        }
+
+        code.iload_1()
+            .ireturn();
+    }
+
+
+    /**
+     * Writes the given class to the given jar output stream.
+     */
+    private void writeClass(JarOutputStream jarOutputStream,
+                            ProgramClass    programClass)
+    throws IOException
+    {
+        jarOutputStream.putNextEntry(new JarEntry(programClass.getName() + ClassConstants.CLASS_FILE_EXTENSION));
+
+        programClass.accept(
+            new ProgramClassWriter(
+            new DataOutputStream(jarOutputStream)));
+
+        jarOutputStream.closeEntry();
+    }
+}
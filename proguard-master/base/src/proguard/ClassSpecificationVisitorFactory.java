@@ -20,12 +20,14 @@
  */
 package proguard;
 
+import proguard.classfile.*;
+import proguard.classfile.attribute.annotation.Annotation;
 import proguard.classfile.attribute.annotation.visitor.*;
 import proguard.classfile.attribute.visitor.*;
 import proguard.classfile.visitor.*;
 import proguard.util.*;
 
-import java.util.List;
+import java.util.*;
 
 /**
  * This factory creates visitors to efficiently travel to specified classes and
@@ -35,6 +37,9 @@ import java.util.List;
  */
 public class ClassSpecificationVisitorFactory
 {
+    private final MyAnnotatedClassIndex annotatedClassIndex = new MyAnnotatedClassIndex();
+
+
     /**
      * Constructs a ClassPoolVisitor to efficiently travel to the specified
      * classes, class members, and attributes.
@@ -100,7 +105,22 @@ public class ClassSpecificationVisitorFactory
             }
         }
 
-        return multiClassPoolVisitor;
+        return createIndexedClassPoolVisitor(multiClassPoolVisitor);
+    }
+
+
+    /**
+     * Wraps the given ClassPoolVisitor, which typically combines visitors
+     * created by this factory, so that they can share an index of the
+     * annotated classes in the class pools that they visit. The visitors
+     * then only need to visit the classes with the specified annotations,
+     * instead of all classes.
+     *
+     * @param classPoolVisitor the ClassPoolVisitor to be wrapped.
+     */
+    protected ClassPoolVisitor createIndexedClassPoolVisitor(ClassPoolVisitor classPoolVisitor)
+    {
+        return new MyIndexedClassPoolVisitor(classPoolVisitor);
     }
 
 
@@ -166,6 +186,20 @@ public class ClassSpecificationVisitorFactory
                                        attributeVisitor,
                                        wildcardManager);
 
+        // Can we look up the annotated classes in the index, or can we
+        // only visit the classes with the literal prefix of the class name?
+        boolean indexedAnnotationType =
+            annotationType        != null &&
+            extendsAnnotationType == null &&
+            extendsClassName      == null &&
+            !containsWildCards(annotationType);
+
+        String classNamePrefix =
+            extendsAnnotationType == null &&
+            extendsClassName      == null ?
+                literalPrefix(className) :
+                "";
+
         // If the class name has wildcards, only visit classes with matching names.
         if (extendsAnnotationType != null ||
             extendsClassName      != null ||
@@ -235,10 +269,13 @@ public class ClassSpecificationVisitorFactory
             }
         }
 
-        // If specified, visit a single named class, otherwise visit all classes.
-        return className != null ?
-            new NamedClassVisitor(combinedClassVisitor, className) :
-            new AllClassVisitor(combinedClassVisitor);
+        // If specified, visit a single named class, otherwise visit the
+        // annotated classes, the classes with the right prefix, or all
+        // classes.
+        return className != null            ? new NamedClassVisitor(combinedClassVisitor, className) :
+               indexedAnnotationType        ? new MyAnnotatedClassPoolVisitor(annotationType, combinedClassVisitor) :
+               classNamePrefix.length() > 0 ? new MyPrefixedClassPoolVisitor(classNamePrefix, combinedClassVisitor) :
+                                              new AllClassVisitor(combinedClassVisitor);
     }
 
 
@@ -663,6 +700,30 @@ public class ClassSpecificationVisitorFactory
     }
 
 
+    /**
+     * Returns the literal prefix of the given class name, up to its first
+     * wild card, or an empty string if the class name is a list or a
+     * negation.
+     */
+    private String literalPrefix(String className)
+    {
+        if (className.indexOf(',') >= 0 ||
+            className.indexOf('!') >= 0)
+        {
+            return "";
+        }
+
+        int index = 0;
+        while (index < className.length() &&
+               "*?%<".indexOf(className.charAt(index)) < 0)
+        {
+            index++;
+        }
+
+        return className.substring(0, index);
+    }
+
+
     /**
      * Returns whether the given string contains a numeric reference to a
      * wild card ("<n>").
@@ -692,4 +753,182 @@ public class ClassSpecificationVisitorFactory
 
         return true;
     }
+
+
+    /**
+     * This ClassPoolVisitor lets a given ClassVisitor visit all classes
+     * whose names start with a given prefix.
+     */
+    private static class MyPrefixedClassPoolVisitor
+    implements           ClassPoolVisitor
+    {
+        private final String       classNamePrefix;
+        private final ClassVisitor classVisitor;
+
+
+        public MyPrefixedClassPoolVisitor(String       classNamePrefix,
+                                          ClassVisitor classVisitor)
+        {
+            this.classNamePrefix = classNamePrefix;
+            this.classVisitor    = classVisitor;
+        }
+
+
+        // Implementations for ClassPoolVisitor.
+
+        public void visitClassPool(ClassPool classPool)
+        {
+            classPool.prefixedClassesAccept(classNamePrefix, classVisitor);
+        }
+    }
+
+
+    /**
+     * This ClassPoolVisitor lets a given ClassVisitor visit all classes
+     * that have a given annotation, based on the index of annotated
+     * classes, if available. Otherwise, it visits all classes.
+     */
+    private class MyAnnotatedClassPoolVisitor
+    implements    ClassPoolVisitor
+    {
+        private final String       annotationType;
+        private final ClassVisitor classVisitor;
+
+
+        public MyAnnotatedClassPoolVisitor(String       annotationType,
+                                           ClassVisitor classVisitor)
+        {
+            this.annotationType = annotationType;
+            this.classVisitor   = classVisitor;
+        }
+
+
+        // Implementations for ClassPoolVisitor.
+
+        public void visitClassPool(ClassPool classPool)
+        {
+            List<Clazz> annotatedClasses =
+                annotatedClassIndex.annotatedClasses(classPool, annotationType);
+
+            if (annotatedClasses != null)
+            {
+                for (int index = 0; index < annotatedClasses.size(); index++)
+                {
+                    annotatedClasses.get(index).accept(classVisitor);
+                }
+            }
+            else
+            {
+                classPool.classesAccept(classVisitor);
+            }
+        }
+    }
+
+
+    /**
+     * This ClassPoolVisitor makes the index of annotated classes available
+     * for the class pool that it visits, while its delegate visits it.
+     */
+    private class MyIndexedClassPoolVisitor
+    implements    ClassPoolVisitor
+    {
+        private final ClassPoolVisitor classPoolVisitor;
+
+
+        public MyIndexedClassPoolVisitor(ClassPoolVisitor classPoolVisitor)
+        {
+            this.classPoolVisitor = classPoolVisitor;
+        }
+
+
+        // Implementations for ClassPoolVisitor.
+
+        public void visitClassPool(ClassPool classPool)
+        {
+            ClassPool previousClassPool = annotatedClassIndex.startIndexing(classPool);
+            try
+            {
+                classPoolVisitor.visitClassPool(classPool);
+            }
+            finally
+            {
+                annotatedClassIndex.startIndexing(previousClassPool);
+            }
+        }
+    }
+
+
+    /**
+     * This AnnotationVisitor indexes the classes of a class pool by the types
+     * of their annotations. It only creates the index when it is first
+     * needed, since the class pool shouldn't change while it is indexed.
+     */
+    private static class MyAnnotatedClassIndex
+    implements           AnnotationVisitor
+    {
+        private ClassPool                classPool;
+        private Map<String, List<Clazz>> annotatedClasses;
+
+
+        /**
+         * Starts indexing the given class pool, or stops indexing if it is
+         * null, returning the previously indexed class pool.
+         */
+        public ClassPool startIndexing(ClassPool classPool)
+        {
+            ClassPool previousClassPool = this.classPool;
+
+            this.classPool        = classPool;
+            this.annotatedClasses = null;
+
+            return previousClassPool;
+        }
+
+
+        /**
+         * Returns the classes in the given class pool that have the given
+         * annotation type, in the order of the class pool, or null if the
+         * class pool isn't being indexed.
+         */
+        public List<Clazz> annotatedClasses(ClassPool classPool, String annotationType)
+        {
+            if (classPool != this.classPool)
+            {
+                return null;
+            }
+
+            if (annotatedClasses == null)
+            {
+                annotatedClasses = new HashMap<>();
+
+                classPool.classesAccept(
+                    new AllAttributeVisitor(
+                    new AllAnnotationVisitor(this)));
+            }
+
+            List<Clazz> classes = annotatedClasses.get(annotationType);
+
+            return classes != null ?
+                classes :
+                Collections.<Clazz>emptyList();
+        }
+
+
+        // Implementations for AnnotationVisitor.
+
+        public void visitAnnotation(Clazz clazz, Annotation annotation)
+        {
+            List<Clazz> classes =
+                annotatedClasses.computeIfAbsent(annotation.getType(clazz),
+                                                 type -> new ArrayList<>());
+
+            // Add each class only once, even if it has the annotation in
+            // multiple attributes.
+            if (classes.isEmpty() ||
+                classes.get(classes.size() - 1) != clazz)
+            {
+                classes.add(clazz);
+            }
+        }
+    }
 }
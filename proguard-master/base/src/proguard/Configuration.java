@@ -62,6 +62,18 @@ public class Configuration
      */
     public boolean                      skipNonPublicLibraryClassMembers = true;
 
+    /**
+     * An optional directory for caching the classes that have been read from
+     * library jars, so they don't have to be parsed again in subsequent runs.
+     */
+    public File                         libraryCache;
+
+    /**
+     * Specifies whether to read library classes only when they are actually
+     * referenced, instead of reading all of them up front.
+     */
+    public boolean                      lazyLibraryClasses               = false;
+
     /**
      * A list of String instances specifying directories to be kept in
      * the output directories or the output jars. A <code>null</code> list
@@ -99,6 +111,13 @@ public class Configuration
      */
     public long                         lastModified                     = 0L;
 
+    /**
+     * An optional directory for keeping the state of processing runs, so
+     * subsequent runs can be skipped if their input hasn't actually changed,
+     * or can reuse the obfuscation mapping if it has.
+     */
+    public File                         incremental;
+
     ///////////////////////////////////////////////////////////////////////////
     // Keep options for code.
     ///////////////////////////////////////////////////////////////////////////
@@ -401,6 +420,13 @@ public class Configuration
      */
     public File                         dump;
 
+    /**
+     * An optional output file for a trace of the processing phases, with
+     * their times, program sizes, heap usage, and counters.
+     * An empty file name means the standard output.
+     */
+    public File                         printTrace;
+
     /**
      * Specifies whether to add logging to reflection code, providing suggestions
      * on the ProGuard configuration.
@@ -102,15 +102,19 @@ public class ConfigurationConstants
     public static final String IGNORE_WARNINGS_OPTION                            = "-ignorewarnings";
     public static final String PRINT_CONFIGURATION_OPTION                        = "-printconfiguration";
     public static final String DUMP_OPTION                                       = "-dump";
+    public static final String PRINT_TRACE_OPTION                                = "-printtrace";
     public static final String ADD_CONFIGURATION_DEBUGGING_OPTION                = "-addconfigurationdebugging";
     public static final String SKIP_NON_PUBLIC_LIBRARY_CLASSES_OPTION            = "-skipnonpubliclibraryclasses";
     public static final String DONT_SKIP_NON_PUBLIC_LIBRARY_CLASSES_OPTION       = "-dontskipnonpubliclibraryclasses";
     public static final String DONT_SKIP_NON_PUBLIC_LIBRARY_CLASS_MEMBERS_OPTION = "-dontskipnonpubliclibraryclassmembers";
+    public static final String LIBRARY_CACHE_OPTION                              = "-librarycache";
+    public static final String LAZY_LIBRARY_CLASSES_OPTION                       = "-lazylibraryclasses";
     public static final String TARGET_OPTION                                     = "-target";
     public static final String KEEP_DIRECTORIES_OPTION                           = "-keepdirectories";
     public static final String DONT_COMPRESS_OPTION                              = "-dontcompress";
     public static final String ZIP_ALIGN_OPTION                                  = "-zipalign";
     public static final String FORCE_PROCESSING_OPTION                           = "-forceprocessing";
+    public static final String INCREMENTAL_OPTION                                = "-incremental";
 
     public static final String KEEP_KOTLIN_METADATA                              = "-keepkotlinmetadata";
 
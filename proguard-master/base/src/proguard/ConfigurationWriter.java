@@ -99,11 +99,14 @@ public class ConfigurationWriter
         // Write the other options.
         writeOption(ConfigurationConstants.SKIP_NON_PUBLIC_LIBRARY_CLASSES_OPTION,            configuration.skipNonPublicLibraryClasses);
         writeOption(ConfigurationConstants.DONT_SKIP_NON_PUBLIC_LIBRARY_CLASS_MEMBERS_OPTION, !configuration.skipNonPublicLibraryClassMembers);
+        writeOption(ConfigurationConstants.LIBRARY_CACHE_OPTION,                              configuration.libraryCache);
+        writeOption(ConfigurationConstants.LAZY_LIBRARY_CLASSES_OPTION,                       configuration.lazyLibraryClasses);
         writeOption(ConfigurationConstants.KEEP_DIRECTORIES_OPTION,                           configuration.keepDirectories);
         writeOption(ConfigurationConstants.DONT_COMPRESS_OPTION,                              configuration.dontCompress);
         writeOption(ConfigurationConstants.ZIP_ALIGN_OPTION,                                  configuration.zipAlign);
         writeOption(ConfigurationConstants.TARGET_OPTION,                                     ClassUtil.externalClassVersion(configuration.targetClassVersion));
         writeOption(ConfigurationConstants.FORCE_PROCESSING_OPTION,                           configuration.lastModified == Long.MAX_VALUE);
+        writeOption(ConfigurationConstants.INCREMENTAL_OPTION,                                configuration.incremental);
 
         writeOption(ConfigurationConstants.DONT_SHRINK_OPTION, !configuration.shrink);
         writeOption(ConfigurationConstants.PRINT_USAGE_OPTION, configuration.printUsage);
@@ -149,6 +152,7 @@ public class ConfigurationWriter
         writeOption(ConfigurationConstants.IGNORE_WARNINGS_OPTION,             configuration.ignoreWarnings);
         writeOption(ConfigurationConstants.PRINT_CONFIGURATION_OPTION,         configuration.printConfiguration);
         writeOption(ConfigurationConstants.DUMP_OPTION,                        configuration.dump);
+        writeOption(ConfigurationConstants.PRINT_TRACE_OPTION,                 configuration.printTrace);
         writeOption(ConfigurationConstants.ADD_CONFIGURATION_DEBUGGING_OPTION, configuration.addConfigurationDebugging);
 
         writeOption(ConfigurationConstants.PRINT_SEEDS_OPTION, configuration.printSeeds);
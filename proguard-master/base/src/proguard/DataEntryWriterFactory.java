@@ -21,6 +21,7 @@
 package proguard;
 
 import proguard.classfile.*;
+import proguard.classfile.visitor.ParallelAllClassVisitor;
 import proguard.io.*;
 import proguard.resources.file.ResourceFilePool;
 import proguard.util.*;
@@ -440,6 +441,7 @@ public class DataEntryWriterFactory
                           PAGE_ALIGNMENT,
                           modificationTime,
                           jarHeader,
+                          ParallelAllClassVisitor.getThreadCount(),
                           writer);
 
         // Do we need to sign the jar?
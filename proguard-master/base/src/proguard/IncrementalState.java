@@ -0,0 +1,639 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2020 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard;
+
+import java.io.*;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.*;
+import java.util.*;
+import java.util.zip.*;
+
+/**
+ * This class maintains the state of a previous run in a directory, for
+ * incremental processing. The state contains fingerprints of the
+ * configuration, of the contents of the input, and of the output, and the
+ * obfuscation mapping.
+ * <p/>
+ * Unlike the {@link UpToDateChecker}, which relies on modification times,
+ * it can tell that the output is still up to date if the input has been
+ * rebuilt without any actual changes. If the input has changed, but the
+ * configuration hasn't, it lets the obfuscation step reapply the previous
+ * mapping, so unchanged classes and class members keep their obfuscated
+ * names, as long as the mapping doesn't conflict with the changes.
+ * <p/>
+ * All classes are still processed again in that case. Shrinking and
+ * optimization are whole-program analyses whose results can change anywhere
+ * when a single class changes, so the state doesn't contain any seeds or
+ * usage marks to limit them to the changed classes.
+ *
+ * @author Eric Lafortune
+ */
+public class IncrementalState
+{
+    private static final String STATE_FILE_NAME   = "state.txt";
+    private static final String MAPPING_FILE_NAME = "mapping.txt";
+
+    private static final String VERSION_KEY       = "version";
+    private static final String CONFIGURATION_KEY = "configuration";
+    private static final String INPUT_KEY         = "input";
+    private static final String OUTPUT_KEY        = "output";
+
+
+    private final Configuration configuration;
+    private final File          stateFile;
+    private final File          mappingFile;
+
+    // The fingerprints of the current configuration and input.
+    private String              configurationFingerprint;
+    private Map<String, String> inputFingerprints;
+
+    // The output files, collected before any processing steps can clear
+    // the corresponding options.
+    private List<File>          outputFiles;
+
+    // The copy of the mapping of the previous run, if it can be reused.
+    private File                previousMappingFile;
+
+
+    /**
+     * Creates a new IncrementalState with the given configuration, which
+     * specifies the directory of the state.
+     */
+    public IncrementalState(Configuration configuration)
+    {
+        this.configuration = configuration;
+        this.stateFile     = new File(configuration.incremental, STATE_FILE_NAME);
+        this.mappingFile   = new File(configuration.incremental, MAPPING_FILE_NAME);
+    }
+
+
+    /**
+     * Returns the file in which the obfuscation step keeps the mapping for
+     * subsequent runs, if the configuration specifies incremental processing.
+     */
+    public static File mappingFile(Configuration configuration)
+    {
+        return configuration.incremental == null ? null :
+            new File(configuration.incremental, MAPPING_FILE_NAME);
+    }
+
+
+    /**
+     * Returns whether the output is up to date, based on the state of the
+     * previous run. If it isn't, the state of the previous run is invalidated
+     * and its obfuscation mapping is made available for reuse, if possible.
+     * @see #getPreviousMappingFile()
+     */
+    public boolean check() throws IOException
+    {
+        configurationFingerprint = configurationFingerprint();
+        inputFingerprints        = new LinkedHashMap<>();
+        outputFiles              = outputFiles();
+        previousMappingFile      = null;
+
+        addInputFingerprints(configuration.programJars);
+        addInputFingerprints(configuration.libraryJars);
+
+        Map<String, String> previousState = readState();
+
+        // Is the previous state consistent with the current state?
+        if (previousState != null &&
+            ProGuard.VERSION.equals(previousState.get(VERSION_KEY)) &&
+            configurationFingerprint.equals(previousState.get(CONFIGURATION_KEY)))
+        {
+            if (inputFingerprints.equals(filter(previousState, INPUT_KEY)) &&
+                outputFingerprints().equals(filter(previousState, OUTPUT_KEY)))
+            {
+                if (configuration.verbose)
+                {
+                    System.out.println("The output is up to date with the incremental state");
+                }
+
+                return true;
+            }
+
+            // Reuse the previous mapping, if we're obfuscating.
+            if (configuration.obfuscate        &&
+                configuration.applyMapping == null &&
+                mappingFile.isFile())
+            {
+                if (configuration.verbose)
+                {
+                    System.out.println("Reusing the mapping of the previous run");
+                }
+
+                // Keep a copy of the previous mapping, since we're
+                // overwriting the original.
+                previousMappingFile = new File(configuration.incremental, MAPPING_FILE_NAME + ".previous");
+                copy(mappingFile, previousMappingFile);
+            }
+        }
+
+        // Make sure the state of the previous run can't be mistaken for
+        // the state of this run, if it fails.
+        stateFile.delete();
+
+        return false;
+    }
+
+
+    /**
+     * Returns the copy of the obfuscation mapping of the previous run, if
+     * the obfuscation step should reapply it, or null otherwise.
+     */
+    public File getPreviousMappingFile()
+    {
+        return previousMappingFile;
+    }
+
+
+    /**
+     * Saves the state of the current run, after it has completed.
+     */
+    public void save() throws IOException
+    {
+        configuration.incremental.mkdirs();
+
+        PrintWriter writer =
+            new PrintWriter(
+            new OutputStreamWriter(
+            new FileOutputStream(stateFile), StandardCharsets.UTF_8));
+
+        try
+        {
+            writer.println(VERSION_KEY + ' ' + ProGuard.VERSION);
+            writer.println(CONFIGURATION_KEY + ' ' + configurationFingerprint);
+
+            writeEntries(writer, INPUT_KEY,  inputFingerprints);
+            writeEntries(writer, OUTPUT_KEY, outputFingerprints());
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Returns a fingerprint of the configuration and of its auxiliary input
+     * files.
+     */
+    private String configurationFingerprint() throws IOException
+    {
+        MessageDigest digest = createMessageDigest();
+
+        StringWriter stringWriter = new StringWriter();
+        new ConfigurationWriter(new PrintWriter(stringWriter)).write(configuration);
+
+        digest.update(stringWriter.toString().getBytes(StandardCharsets.UTF_8));
+
+        updateDigest(digest, configuration.applyMapping);
+        updateDigest(digest, configuration.obfuscationDictionary);
+        updateDigest(digest, configuration.classObfuscationDictionary);
+        updateDigest(digest, configuration.packageObfuscationDictionary);
+
+        return toHexString(digest.digest());
+    }
+
+
+    /**
+     * Adds the fingerprints of the input entries of the given class path.
+     */
+    private void addInputFingerprints(ClassPath classPath)
+    throws IOException
+    {
+        if (classPath != null)
+        {
+            for (int index = 0; index < classPath.size(); index++)
+            {
+                ClassPathEntry entry = classPath.get(index);
+                if (!entry.isOutput())
+                {
+                    File file = entry.getFile();
+
+                    // Collect the checksums of all files.
+                    Map<String, String> checksums = new TreeMap<>();
+                    addChecksums(file, "", checksums);
+
+                    // Summarize them in a single fingerprint.
+                    MessageDigest digest = createMessageDigest();
+                    for (Map.Entry<String, String> checksum : checksums.entrySet())
+                    {
+                        digest.update((checksum.getKey() + ' ' + checksum.getValue() + '\n').getBytes(StandardCharsets.UTF_8));
+                    }
+
+                    inputFingerprints.put(entry.toString(), toHexString(digest.digest()));
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Adds the checksums of the given file or of the files in the given
+     * directory (recursively), using the given name prefix. The checksums
+     * of zip files are based on their central directories, which already
+     * contain the checksums of their entries.
+     */
+    private void addChecksums(File                file,
+                              String              namePrefix,
+                              Map<String, String> checksums)
+    throws IOException
+    {
+        if (file.isDirectory())
+        {
+            File[] files = file.listFiles();
+            if (files != null)
+            {
+                for (File child : files)
+                {
+                    addChecksums(child,
+                                 namePrefix + child.getName() + (child.isDirectory() ? "/" : ""),
+                                 checksums);
+                }
+            }
+        }
+        else if (file.isFile())
+        {
+            if (isZipFile(file))
+            {
+                ZipFile zipFile = new ZipFile(file, StandardCharsets.UTF_8);
+                try
+                {
+                    Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                    while (entries.hasMoreElements())
+                    {
+                        ZipEntry zipEntry = entries.nextElement();
+                        if (!zipEntry.isDirectory())
+                        {
+                            checksums.put(namePrefix + zipEntry.getName(),
+                                          Long.toHexString(zipEntry.getCrc()) + ' ' +
+                                          zipEntry.getSize());
+                        }
+                    }
+                }
+                finally
+                {
+                    zipFile.close();
+                }
+            }
+            else
+            {
+                CRC32 crc32 = new CRC32();
+
+                InputStream inputStream = new FileInputStream(file);
+                try
+                {
+                    byte[] buffer = new byte[16 * 1024];
+                    while (true)
+                    {
+                        int count = inputStream.read(buffer);
+                        if (count < 0)
+                        {
+                            break;
+                        }
+
+                        crc32.update(buffer, 0, count);
+                    }
+                }
+                finally
+                {
+                    inputStream.close();
+                }
+
+                checksums.put(namePrefix,
+                              Long.toHexString(crc32.getValue()) + ' ' +
+                              file.length());
+            }
+        }
+    }
+
+
+    /**
+     * Returns the output files and directories of the configuration.
+     */
+    private List<File> outputFiles()
+    {
+        List<File> files = new ArrayList<>();
+
+        ClassPath programJars = configuration.programJars;
+        if (programJars != null)
+        {
+            for (int index = 0; index < programJars.size(); index++)
+            {
+                ClassPathEntry entry = programJars.get(index);
+                if (entry.isOutput())
+                {
+                    addOutputFile(entry.getFile(), files);
+                }
+            }
+        }
+
+        addOutputFile(configuration.printSeeds,   files);
+        addOutputFile(configuration.printUsage,   files);
+        addOutputFile(configuration.printMapping, files);
+        addOutputFile(configuration.dump,         files);
+
+        return files;
+    }
+
+
+    /**
+     * Adds the given output file, if any, to the given list. An empty file
+     * name means the standard output.
+     */
+    private void addOutputFile(File       file,
+                               List<File> files)
+    {
+        if (file != null &&
+            file.getName().length() > 0)
+        {
+            files.add(file);
+        }
+    }
+
+
+    /**
+     * Returns the fingerprints of the output files, based on their sizes
+     * and modification times.
+     */
+    private Map<String, String> outputFingerprints()
+    {
+        Map<String, String> fingerprints = new LinkedHashMap<>();
+
+        for (File file : outputFiles)
+        {
+            fingerprints.put(file.getPath(),
+                             file.isDirectory() ? "directory" :
+                             file.exists()      ? file.length() + " " + file.lastModified() :
+                                                  "missing");
+        }
+
+        return fingerprints;
+    }
+
+
+    /**
+     * Reads the state of the previous run, if any, as a map of keys to values.
+     * Keys of repeated entries are suffixed with their names.
+     */
+    private Map<String, String> readState() throws IOException
+    {
+        if (!stateFile.isFile())
+        {
+            return null;
+        }
+
+        Map<String, String> state = new LinkedHashMap<>();
+
+        BufferedReader reader =
+            new BufferedReader(
+            new InputStreamReader(
+            new FileInputStream(stateFile), StandardCharsets.UTF_8));
+
+        try
+        {
+            while (true)
+            {
+                String line = reader.readLine();
+                if (line == null)
+                {
+                    break;
+                }
+
+                int separatorIndex = line.indexOf(' ');
+                if (separatorIndex > 0)
+                {
+                    state.put(line.substring(0, separatorIndex),
+                              line.substring(separatorIndex + 1));
+                }
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+
+        return state;
+    }
+
+
+    /**
+     * Writes the given entries with the given key to the given writer.
+     */
+    private void writeEntries(PrintWriter         writer,
+                              String              key,
+                              Map<String, String> entries)
+    {
+        for (Map.Entry<String, String> entry : entries.entrySet())
+        {
+            // The name may contain spaces, but the value can't.
+            writer.println(key + ':' + encode(entry.getKey()) + ' ' + entry.getValue().replace(' ', ':'));
+        }
+    }
+
+
+    /**
+     * Returns the entries with the given key from the given state, with
+     * their original names and values.
+     */
+    private Map<String, String> filter(Map<String, String> state,
+                                       String              key)
+    {
+        Map<String, String> entries = new LinkedHashMap<>();
+
+        String prefix = key + ':';
+
+        for (Map.Entry<String, String> entry : state.entrySet())
+        {
+            String name = entry.getKey();
+            if (name.startsWith(prefix))
+            {
+                entries.put(decode(name.substring(prefix.length())),
+                            entry.getValue().replace(':', ' '));
+            }
+        }
+
+        return entries;
+    }
+
+
+    /**
+     * Encodes spaces in the given name.
+     */
+    private static String encode(String name)
+    {
+        return name.replace("%", "%25").replace(" ", "%20");
+    }
+
+
+    /**
+     * Decodes spaces in the given name.
+     */
+    private static String decode(String name)
+    {
+        return name.replace("%20", " ").replace("%25", "%");
+    }
+
+
+    /**
+     * Returns whether the given file is a zip file (jar, war, ear, zip,...).
+     */
+    private static boolean isZipFile(File file) throws IOException
+    {
+        DataInputStream inputStream = new DataInputStream(new FileInputStream(file));
+        try
+        {
+            // Jmod files have a header in front of the zip data.
+            int magic = inputStream.readInt();
+            if (magic == 0x4a4d0100)
+            {
+                magic = inputStream.readInt();
+            }
+
+            return magic == 0x504b0304;
+        }
+        catch (EOFException e)
+        {
+            return false;
+        }
+        finally
+        {
+            inputStream.close();
+        }
+    }
+
+
+    /**
+     * Updates the given digest with the contents of the given file, if any.
+     */
+    private static void updateDigest(MessageDigest digest,
+                                     File          file)
+    throws IOException
+    {
+        if (file != null && file.isFile())
+        {
+            updateDigest(digest, file.toURI().toURL());
+        }
+    }
+
+
+    /**
+     * Updates the given digest with the contents of the given URL, if any.
+     */
+    private static void updateDigest(MessageDigest digest,
+                                     URL           url)
+    throws IOException
+    {
+        if (url != null)
+        {
+            InputStream inputStream = url.openStream();
+            try
+            {
+                byte[] buffer = new byte[16 * 1024];
+                while (true)
+                {
+                    int count = inputStream.read(buffer);
+                    if (count < 0)
+                    {
+                        break;
+                    }
+
+                    digest.update(buffer, 0, count);
+                }
+            }
+            finally
+            {
+                inputStream.close();
+            }
+        }
+    }
+
+
+    /**
+     * Copies the given file.
+     */
+    private static void copy(File source, File target) throws IOException
+    {
+        InputStream inputStream = new FileInputStream(source);
+        try
+        {
+            OutputStream outputStream = new FileOutputStream(target);
+            try
+            {
+                byte[] buffer = new byte[16 * 1024];
+                while (true)
+                {
+                    int count = inputStream.read(buffer);
+                    if (count < 0)
+                    {
+                        break;
+                    }
+
+                    outputStream.write(buffer, 0, count);
+                }
+            }
+            finally
+            {
+                outputStream.close();
+            }
+        }
+        finally
+        {
+            inputStream.close();
+        }
+    }
+
+
+    /**
+     * Creates a digest for fingerprints.
+     */
+    private static MessageDigest createMessageDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+
+    /**
+     * Returns the hexadecimal representation of the given bytes.
+     */
+    private static String toHexString(byte[] bytes)
+    {
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes)
+        {
+            builder.append(Character.forDigit((b >>> 4) & 0xf, 16))
+                   .append(Character.forDigit( b        & 0xf, 16));
+        }
+
+        return builder.toString();
+    }
+}
@@ -107,36 +107,40 @@ public class Initializer
 
         if (!keepAttributesMatcher.matches(Attribute.RUNTIME_VISIBLE_ANNOTATIONS))
         {
-            programClassPool.classesAccept(
+            programClassPool.accept(
+                new ParallelAllClassVisitor(() ->
                 new AllConstantVisitor(
-                new GetAnnotationChecker(getAnnotationNotePrinter)));
+                new GetAnnotationChecker(getAnnotationNotePrinter))));
         }
 
         WarningPrinter getSignatureNotePrinter = new WarningPrinter(out, configuration.note);
 
         if (!keepAttributesMatcher.matches(Attribute.SIGNATURE))
         {
-            programClassPool.classesAccept(
+            programClassPool.accept(
+                new ParallelAllClassVisitor(() ->
                 new AllConstantVisitor(
-                new GetSignatureChecker(getSignatureNotePrinter)));
+                new GetSignatureChecker(getSignatureNotePrinter))));
         }
 
         WarningPrinter getEnclosingClassNotePrinter = new WarningPrinter(out, configuration.note);
 
         if (!keepAttributesMatcher.matches(Attribute.INNER_CLASSES))
         {
-            programClassPool.classesAccept(
+            programClassPool.accept(
+                new ParallelAllClassVisitor(() ->
                 new AllConstantVisitor(
-                new GetEnclosingClassChecker(getEnclosingClassNotePrinter)));
+                new GetEnclosingClassChecker(getEnclosingClassNotePrinter))));
         }
 
         WarningPrinter getEnclosingMethodNotePrinter = new WarningPrinter(out, configuration.note);
 
         if (!keepAttributesMatcher.matches(Attribute.ENCLOSING_METHOD))
         {
-            programClassPool.classesAccept(
+            programClassPool.accept(
+                new ParallelAllClassVisitor(() ->
                 new AllConstantVisitor(
-                new GetEnclosingMethodChecker(getEnclosingMethodNotePrinter)));
+                new GetEnclosingMethodChecker(getEnclosingMethodNotePrinter))));
         }
 
         // Construct a reduced library class pool with only those library
@@ -149,12 +153,24 @@ public class Initializer
         WarningPrinter classReferenceWarningPrinter = new WarningPrinter(err, configuration.warn);
         WarningPrinter dependencyWarningPrinter     = new WarningPrinter(err, configuration.warn);
 
+        // Library classes that are read on demand from here on get the same
+        // initialization as the library classes that have been read already.
+        ClassVisitor lazyLibraryClassInitializer =
+            new ClassSuperHierarchyInitializer(programClassPool,
+                                               libraryClassPool,
+                                               null,
+                                               dependencyWarningPrinter);
+
+        setLazyLibraryClassInitializer(libraryClassPool,
+                                       lazyLibraryClassInitializer);
+
         // Initialize the superclass hierarchies for program classes.
-        programClassPool.classesAccept(
+        programClassPool.accept(
+            new ParallelAllClassVisitor(() ->
             new ClassSuperHierarchyInitializer(programClassPool,
                                                libraryClassPool,
                                                classReferenceWarningPrinter,
-                                               null));
+                                               null)));
 
         // Initialize the superclass hierarchy of all library classes, without
         // warnings.
@@ -170,13 +186,17 @@ public class Initializer
         if (configuration.keepKotlinMetadata)
         {
             ClassVisitor kotlinMetadataInitializer =
-                new AllAttributeVisitor(
-                new AttributeNameFilter(Attribute.RUNTIME_VISIBLE_ANNOTATIONS,
-                new AllAnnotationVisitor(
-                new AnnotationTypeFilter(KotlinConstants.TYPE_KOTLIN_METADATA,
-                new KotlinMetadataInitializer(kotlinInitializationWarningPrinter)))));
+                createKotlinMetadataInitializer(kotlinInitializationWarningPrinter);
+
+            setLazyLibraryClassInitializer(libraryClassPool,
+                                           new MultiClassVisitor(
+                                               lazyLibraryClassInitializer,
+                                               kotlinMetadataInitializer));
+
+            programClassPool.accept(
+                new ParallelAllClassVisitor(() ->
+                createKotlinMetadataInitializer(kotlinInitializationWarningPrinter)));
 
-            programClassPool.classesAccept(kotlinMetadataInitializer);
             libraryClassPool.classesAccept(kotlinMetadataInitializer);
         }
 
@@ -186,13 +206,14 @@ public class Initializer
         WarningPrinter programMemberReferenceWarningPrinter = new WarningPrinter(err, configuration.warn);
         WarningPrinter libraryMemberReferenceWarningPrinter = new WarningPrinter(err, configuration.warn);
 
-        programClassPool.classesAccept(
+        programClassPool.accept(
+            new ParallelAllClassVisitor(() ->
             new ClassReferenceInitializer(programClassPool,
                                           libraryClassPool,
                                           classReferenceWarningPrinter,
                                           programMemberReferenceWarningPrinter,
                                           libraryMemberReferenceWarningPrinter,
-                                          null));
+                                          null)));
 
         if (reducedLibraryClassPool != null)
         {
@@ -213,16 +234,18 @@ public class Initializer
         }
 
         // Initialize the enum annotation references.
-        programClassPool.classesAccept(
+        programClassPool.accept(
+            new ParallelAllClassVisitor(() ->
             new AllAttributeVisitor(true,
             new AllElementValueVisitor(true,
-            new EnumFieldReferenceInitializer())));
+            new EnumFieldReferenceInitializer()))));
 
         // Initialize the Class.forName references.
         WarningPrinter dynamicClassReferenceNotePrinter = new WarningPrinter(out, configuration.note);
         WarningPrinter classForNameNotePrinter          = new WarningPrinter(out, configuration.note);
 
-        programClassPool.classesAccept(
+        programClassPool.accept(
+            new ParallelAllClassVisitor(() ->
             new AllMethodVisitor(
             new AllAttributeVisitor(
             new AllInstructionVisitor(
@@ -231,28 +254,30 @@ public class Initializer
                                                  dynamicClassReferenceNotePrinter,
                                                  null,
                                                  classForNameNotePrinter,
-                                                 createClassNoteExceptionMatcher(configuration.keep, true))))));
+                                                 createClassNoteExceptionMatcher(configuration.keep, true)))))));
 
         // Initialize the Class.get[Declared]{Field,Method} references.
         WarningPrinter getMemberNotePrinter = new WarningPrinter(out, configuration.note);
 
-        programClassPool.classesAccept(
+        programClassPool.accept(
+            new ParallelAllClassVisitor(() ->
             new AllMethodVisitor(
             new AllAttributeVisitor(
             new DynamicMemberReferenceInitializer(programClassPool,
                                                   libraryClassPool,
                                                   getMemberNotePrinter,
                                                   createClassMemberNoteExceptionMatcher(configuration.keep, true),
-                                                  createClassMemberNoteExceptionMatcher(configuration.keep, false)))));
+                                                  createClassMemberNoteExceptionMatcher(configuration.keep, false))))));
 
         // Initialize other string constant references, if requested.
         if (configuration.adaptClassStrings != null)
         {
-            programClassPool.classesAccept(
+            programClassPool.accept(
+                new ParallelAllClassVisitor(() ->
                 new ClassNameFilter(configuration.adaptClassStrings,
                 new AllConstantVisitor(
                 new StringReferenceInitializer(programClassPool,
-                                               libraryClassPool))));
+                                               libraryClassPool)))));
         }
 
         // Initialize the class references of library class members.
@@ -586,6 +611,35 @@ public class Initializer
     }
 
 
+    /**
+     * Sets the given visitor to initialize any library classes that are
+     * read on demand, if the given library class pool supports it.
+     */
+    private void setLazyLibraryClassInitializer(ClassPool    libraryClassPool,
+                                                ClassVisitor classVisitor)
+    {
+        if (libraryClassPool instanceof LazyClassPool)
+        {
+            ((LazyClassPool)libraryClassPool).setClassVisitor(classVisitor);
+        }
+    }
+
+
+    /**
+     * Creates a visitor that initializes the Kotlin metadata of the classes
+     * that it visits. The visitor is not thread-safe.
+     */
+    private ClassVisitor createKotlinMetadataInitializer(WarningPrinter warningPrinter)
+    {
+        return
+            new AllAttributeVisitor(
+            new AttributeNameFilter(Attribute.RUNTIME_VISIBLE_ANNOTATIONS,
+            new AllAnnotationVisitor(
+            new AnnotationTypeFilter(KotlinConstants.TYPE_KOTLIN_METADATA,
+            new KotlinMetadataInitializer(warningPrinter)))));
+    }
+
+
     /**
      * Extracts a list of exceptions of classes for which not to print notes,
      * from the keep configuration.
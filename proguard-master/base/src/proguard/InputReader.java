@@ -32,6 +32,10 @@ import proguard.resources.kotlinmodule.io.KotlinModuleDataEntryReader;
 import proguard.util.*;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
 
 /**
  * This class reads the input class files.
@@ -45,8 +49,13 @@ public class InputReader
     // https://sourceforge.net/p/proguard/discussion/182455/thread/76430d9e
     private static final boolean FAVOR_LIBRARY_CLASSES = System.getProperty("favor.library.classes") != null;
 
+    // The number of threads for unpacking and parsing the input, if larger
+    // than 1. The input is read sequentially otherwise.
+    private static final int THREAD_COUNT = ParallelAllClassVisitor.getThreadCount();
 
-    private final Configuration configuration;
+
+    private final Configuration     configuration;
+    private final LibraryClassCache libraryClassCache;
 
     // Field that acts as a parameter to the visitors that attach
     // feature names to classes and resource files.
@@ -59,7 +68,10 @@ public class InputReader
      */
     public InputReader(Configuration configuration)
     {
-        this.configuration = configuration;
+        this.configuration     = configuration;
+        this.libraryClassCache = configuration.libraryCache != null ?
+            new LibraryClassCache(configuration.libraryCache) :
+            null;
     }
 
 
@@ -89,27 +101,6 @@ public class InputReader
                 // Attach the current resource name, if any, to any program classes that it visits.
                 new ProgramClassFilter(clazz -> clazz.setFeatureName(featureName))));
 
-        // Create a reader to fill the program class pool (while checking for
-        // duplicates).
-        DataEntryReader classReader =
-            new ClassReader(false,
-                            configuration.skipNonPublicLibraryClasses,
-                            configuration.skipNonPublicLibraryClassMembers,
-                            configuration.shrink   ||
-                            configuration.optimize ||
-                            configuration.obfuscate,
-                            warningPrinter,
-                            classPoolFiller);
-
-        // Create a visitor that initializes the references from resource files
-        // to Java classes.
-        DataEntryNameFilter adaptedDataEntryFilter =
-            configuration.adaptResourceFileContents != null ?
-                new DataEntryNameFilter(
-                new ListParser(
-                new FileNameParser()).parse(configuration.adaptResourceFileContents)) :
-                null;
-
         // Create a visitor and a reader to fill the resource file pool with
         // plain resource file instances (while checking for duplicates).
         ResourceFileVisitor resourceFilePoolFiller =
@@ -118,24 +109,38 @@ public class InputReader
                 new ResourceFilePoolFiller(resourceFilePool),
                 new MyResourceFileFeatureNameSetter()));
 
-        DataEntryReader resourceReader =
-            new ResourceFileDataEntryReader(resourceFilePoolFiller,
-                                            adaptedDataEntryFilter);
+        boolean ignoreProgramStackMapAttributes =
+            configuration.shrink   ||
+            configuration.optimize ||
+            configuration.obfuscate;
 
-        if (configuration.keepKotlinMetadata)
+        // Read the program class files and resource files and put them in the
+        // program class pool and resource file pool.
+        if (THREAD_COUNT > 1)
         {
-            resourceReader =
-                new NameFilteredDataEntryReader(KotlinConstants.MODULE.FILE_EXPRESSION,
-                    new KotlinModuleDataEntryReader(resourceFilePoolFiller),
-                    resourceReader);
+            readInputInParallel("Reading program ",
+                                configuration.programJars,
+                                false,
+                                ignoreProgramStackMapAttributes,
+                                warningPrinter,
+                                classPoolFiller,
+                                resourceFilePoolFiller);
         }
+        else
+        {
+            // Create a reader to fill the program class pool (while checking
+            // for duplicates).
+            DataEntryReader classReader =
+                createClassReader(false,
+                                  ignoreProgramStackMapAttributes,
+                                  warningPrinter,
+                                  classPoolFiller);
 
-        // Read the program class files and resource files and put them in the
-        // program class pool and resource file pool.
-        readInput("Reading program ",
-                  configuration.programJars,
-                  new ClassFilter(classReader,
-                                  resourceReader));
+            readInput("Reading program ",
+                      configuration.programJars,
+                      new ClassFilter(classReader,
+                                      createResourceReader(resourceFilePoolFiller)));
+        }
 
         // Check if we have at least some input classes.
         if (programClassPool.size() == 0)
@@ -154,17 +159,38 @@ public class InputReader
         {
             // Read the library class files and put then in the library class
             // pool.
-            readInput("Reading library ",
-                      configuration.libraryJars,
-                      new ClassFilter(
-                      new ClassReader(true,
-                                      configuration.skipNonPublicLibraryClasses,
-                                      configuration.skipNonPublicLibraryClassMembers,
-                                      true,
-                                      warningPrinter,
-                      new ClassPresenceFilter(programClassPool, duplicateClassPrinter,
-                      new ClassPresenceFilter(libraryClassPool, duplicateClassPrinter,
-                      new ClassPoolFiller(libraryClassPool))))));
+            ClassVisitor libraryClassPoolFiller =
+                new ClassPresenceFilter(programClassPool, duplicateClassPrinter,
+                new ClassPresenceFilter(libraryClassPool, duplicateClassPrinter,
+                new ClassPoolFiller(libraryClassPool)));
+
+            if (libraryClassPool instanceof LazyClassPool)
+            {
+                readLazyLibraryInput("Reading library ",
+                                     configuration.libraryJars,
+                                     programClassPool,
+                                     (LazyClassPool)libraryClassPool,
+                                     notePrinter,
+                                     warningPrinter,
+                                     libraryClassPoolFiller);
+            }
+            else if (THREAD_COUNT > 1)
+            {
+                readInputInParallel("Reading library ",
+                                    configuration.libraryJars,
+                                    true,
+                                    true,
+                                    warningPrinter,
+                                    libraryClassPoolFiller,
+                                    null);
+            }
+            else
+            {
+                readLibraryInput("Reading library ",
+                                 configuration.libraryJars,
+                                 warningPrinter,
+                                 libraryClassPoolFiller);
+            }
         }
 
         // Print out a summary of the notes, if necessary.
@@ -268,6 +294,780 @@ public class InputReader
     }
 
 
+    /**
+     * Reads all library classes from the given class path, restoring them
+     * from the library class cache or updating the cache, if possible.
+     */
+    private void readLibraryInput(String         messagePrefix,
+                                  ClassPath      classPath,
+                                  WarningPrinter warningPrinter,
+                                  ClassVisitor   classVisitor)
+    throws IOException
+    {
+        for (int index = 0; index < classPath.size(); index++)
+        {
+            ClassPathEntry entry = classPath.get(index);
+            if (!entry.isOutput())
+            {
+                String cacheKey = libraryCacheKey(entry);
+                if (cacheKey == null)
+                {
+                    readInput(messagePrefix,
+                              entry,
+                              new ClassFilter(
+                              createClassReader(true,
+                                                true,
+                                                warningPrinter,
+                                                classVisitor)));
+                }
+                else if (!readCachedLibraryClasses(messagePrefix,
+                                                   entry,
+                                                   cacheKey,
+                                                   classVisitor))
+                {
+                    // Collect the library classes for the cache, while
+                    // filling the library class pool.
+                    List<LibraryClass> libraryClasses = new ArrayList<>();
+
+                    int warningCount = warningPrinter.getWarningCount();
+
+                    readInput(messagePrefix,
+                              entry,
+                              new ClassFilter(
+                              createClassReader(true,
+                                                true,
+                                                warningPrinter,
+                              new MultiClassVisitor(
+                                  new LibraryClassFilter(clazz -> libraryClasses.add((LibraryClass)clazz)),
+                                  classVisitor))));
+
+                    // Only cache the classes if they were read without
+                    // warnings, since the warnings wouldn't be repeated.
+                    if (warningPrinter.getWarningCount() == warningCount)
+                    {
+                        writeCachedLibraryClasses(entry,
+                                                  cacheKey,
+                                                  libraryClasses,
+                                                  warningPrinter);
+                    }
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Indexes the library classes of archives in the given class path in the
+     * given lazy library class pool, so they can be read on demand. Library
+     * classes in directories and nested archives are still read right away.
+     */
+    private void readLazyLibraryInput(String         messagePrefix,
+                                      ClassPath      classPath,
+                                      ClassPool      programClassPool,
+                                      LazyClassPool  libraryClassPool,
+                                      WarningPrinter notePrinter,
+                                      WarningPrinter warningPrinter,
+                                      ClassVisitor   classVisitor)
+    throws IOException
+    {
+        DataEntryReader classReader =
+            createClassReader(true,
+                              true,
+                              warningPrinter,
+                              classVisitor);
+
+        for (int index = 0; index < classPath.size(); index++)
+        {
+            ClassPathEntry entry = classPath.get(index);
+            if (!entry.isOutput())
+            {
+                readInput(messagePrefix,
+                          entry,
+                          new ClassFilter(
+                          new MyLazyLibraryClassIndexer(programClassPool,
+                                                        libraryClassPool,
+                                                        notePrinter,
+                                                        classReader)));
+            }
+        }
+    }
+
+
+    /**
+     * Returns the key with which the classes of the given library class
+     * path entry can be cached, or null if they can't be cached.
+     */
+    private String libraryCacheKey(ClassPathEntry classPathEntry)
+    {
+        // We're only caching the contents of archives, since they are easy
+        // to check for changes.
+        return libraryClassCache != null &&
+               classPathEntry.getFile().isFile() ?
+            classPathEntry + " " +
+            configuration.skipNonPublicLibraryClasses + " " +
+            configuration.skipNonPublicLibraryClassMembers + " " +
+            configuration.android :
+            null;
+    }
+
+
+    /**
+     * Applies the given visitor to the cached classes of the given library
+     * class path entry, if they are present and up to date.
+     */
+    private boolean readCachedLibraryClasses(String         messagePrefix,
+                                             ClassPathEntry classPathEntry,
+                                             String         cacheKey,
+                                             ClassVisitor   classVisitor)
+    throws IOException
+    {
+        try
+        {
+            return readCachedLibraryClasses(messagePrefix,
+                                            classPathEntry,
+                                            cacheKey,
+                                            classVisitor,
+                                            System.out);
+        }
+        catch (IOException ex)
+        {
+            throw (IOException)new IOException("Can't read [" + classPathEntry + "] (" + ex.getMessage() + ")").initCause(ex);
+        }
+    }
+
+
+    /**
+     * Applies the given visitor to the cached classes of the given library
+     * class path entry, if they are present and up to date, printing a
+     * message to the given print stream.
+     */
+    private boolean readCachedLibraryClasses(String         messagePrefix,
+                                             ClassPathEntry classPathEntry,
+                                             String         cacheKey,
+                                             ClassVisitor   classVisitor,
+                                             PrintStream    out)
+    throws IOException
+    {
+        if (!libraryClassCache.readClasses(classPathEntry.getFile(),
+                                           cacheKey,
+                                           classVisitor))
+        {
+            return false;
+        }
+
+        out.println(messagePrefix + "cached classes of [" + classPathEntry.getName() + "]");
+
+        return true;
+    }
+
+
+    /**
+     * Caches the given classes of the given library class path entry,
+     * printing a warning with the given warning printer if that fails.
+     * The warning doesn't count, since the cache is only an optimization.
+     */
+    private void writeCachedLibraryClasses(ClassPathEntry     classPathEntry,
+                                           String             cacheKey,
+                                           List<LibraryClass> libraryClasses,
+                                           WarningPrinter     warningPrinter)
+    {
+        try
+        {
+            libraryClassCache.writeClasses(classPathEntry.getFile(),
+                                           cacheKey,
+                                           libraryClasses);
+        }
+        catch (IOException ex)
+        {
+            if (warningPrinter.accepts(classPathEntry.getName()))
+            {
+                warningPrinter.printDetails("Warning: can't cache the classes of [" + classPathEntry.getName() + "] in [" + configuration.libraryCache + "] (" + ex.getMessage() + ")");
+            }
+        }
+    }
+
+
+    /**
+     * Reads all input entries from the given class path, unpacking them and
+     * parsing their classes on a pool of worker threads. The classes and
+     * resource files are still passed to the given visitors on the calling
+     * thread, in the order of the class path and of its entries, so the
+     * duplicate checks, the printed messages, and the feature names are the
+     * same as when reading the input sequentially.
+     */
+    private void readInputInParallel(String              messagePrefix,
+                                     ClassPath           classPath,
+                                     boolean             isLibrary,
+                                     boolean             ignoreStackMapAttributes,
+                                     WarningPrinter      warningPrinter,
+                                     ClassVisitor        classVisitor,
+                                     ResourceFileVisitor resourceFileVisitor)
+    throws IOException
+    {
+        List<ClassPathEntry> classPathEntries = new ArrayList<>();
+        for (int index = 0; index < classPath.size(); index++)
+        {
+            ClassPathEntry entry = classPath.get(index);
+            if (!entry.isOutput())
+            {
+                classPathEntries.add(entry);
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+
+        try
+        {
+            List<Future<MyClassPathEntryContents>> futures = new ArrayList<>();
+
+            for (int index = 0; index < classPathEntries.size(); index++)
+            {
+                // Unpack a limited number of class path entries ahead, to
+                // keep the buffered contents in check.
+                while (futures.size() < classPathEntries.size() &&
+                       futures.size() < index + THREAD_COUNT)
+                {
+                    ClassPathEntry entry = classPathEntries.get(futures.size());
+
+                    futures.add(executor.submit(
+                        new MyClassPathEntryUnpacker(executor,
+                                                     messagePrefix,
+                                                     entry,
+                                                     isLibrary,
+                                                     ignoreStackMapAttributes)));
+                }
+
+                // Pass the contents of the next class path entry on to the
+                // visitors.
+                ClassPathEntry entry = classPathEntries.get(index);
+
+                try
+                {
+                    MyClassPathEntryContents contents =
+                        futures.get(index).get();
+
+                    // Make sure we don't keep the contents around.
+                    futures.set(index, null);
+
+                    // Set the feature name for the class files and resource
+                    // files that we'll visit.
+                    featureName = entry.getFeatureName();
+
+                    contents.accept(warningPrinter,
+                                    classVisitor,
+                                    resourceFileVisitor);
+
+                    // Cache the library classes, if they were read without
+                    // warnings.
+                    if (contents.cacheKey != null &&
+                        contents.libraryClasses != null)
+                    {
+                        writeCachedLibraryClasses(entry,
+                                                  contents.cacheKey,
+                                                  contents.libraryClasses,
+                                                  warningPrinter);
+                    }
+                }
+                catch (IOException ex)
+                {
+                    throw (IOException)new IOException("Can't read [" + entry + "] (" + ex.getMessage() + ")").initCause(ex);
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            throw (IOException)new InterruptedIOException("Reading the input was interrupted").initCause(e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new RuntimeException(e.getCause());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+
+    /**
+     * Creates a reader that reads class files as program classes or library
+     * classes, and passes them to the given class visitor.
+     */
+    private DataEntryReader createClassReader(boolean        isLibrary,
+                                              boolean        ignoreStackMapAttributes,
+                                              WarningPrinter warningPrinter,
+                                              ClassVisitor   classVisitor)
+    {
+        return new ClassReader(isLibrary,
+                               configuration.skipNonPublicLibraryClasses,
+                               configuration.skipNonPublicLibraryClassMembers,
+                               ignoreStackMapAttributes,
+                               warningPrinter,
+                               classVisitor);
+    }
+
+
+    /**
+     * Creates a reader that reads resource files and passes them to the given
+     * resource file visitor.
+     */
+    private DataEntryReader createResourceReader(ResourceFileVisitor resourceFileVisitor)
+    {
+        // Create a visitor that initializes the references from resource files
+        // to Java classes.
+        DataEntryNameFilter adaptedDataEntryFilter =
+            configuration.adaptResourceFileContents != null ?
+                new DataEntryNameFilter(
+                new ListParser(
+                new FileNameParser()).parse(configuration.adaptResourceFileContents)) :
+                null;
+
+        DataEntryReader resourceReader =
+            new ResourceFileDataEntryReader(resourceFileVisitor,
+                                            adaptedDataEntryFilter);
+
+        if (configuration.keepKotlinMetadata)
+        {
+            resourceReader =
+                new NameFilteredDataEntryReader(KotlinConstants.MODULE.FILE_EXPRESSION,
+                    new KotlinModuleDataEntryReader(resourceFileVisitor),
+                    resourceReader);
+        }
+
+        return resourceReader;
+    }
+
+
+    /**
+     * This Callable unpacks a class path entry on a worker thread. It submits
+     * the parsing of its class files to the given executor, and collects its
+     * resource files.
+     */
+    private class MyClassPathEntryUnpacker
+    implements    Callable<MyClassPathEntryContents>,
+                  DataEntryReader,
+                  ResourceFileVisitor
+    {
+        private final ExecutorService executor;
+        private final String          messagePrefix;
+        private final ClassPathEntry  classPathEntry;
+        private final boolean         isLibrary;
+        private final boolean         ignoreStackMapAttributes;
+
+        private final MyClassPathEntryContents contents = new MyClassPathEntryContents();
+
+
+        public MyClassPathEntryUnpacker(ExecutorService executor,
+                                        String          messagePrefix,
+                                        ClassPathEntry  classPathEntry,
+                                        boolean         isLibrary,
+                                        boolean         ignoreStackMapAttributes)
+        {
+            this.executor                 = executor;
+            this.messagePrefix            = messagePrefix;
+            this.classPathEntry           = classPathEntry;
+            this.isLibrary                = isLibrary;
+            this.ignoreStackMapAttributes = ignoreStackMapAttributes;
+        }
+
+
+        // Implementations for Callable.
+
+        public MyClassPathEntryContents call()
+        {
+            // We're printing our messages to a buffer.
+            ByteArrayOutputStream messages = new ByteArrayOutputStream();
+            PrintStream           out      = new PrintStream(messages, true);
+
+            try
+            {
+                // Can we restore the library classes from the cache instead?
+                String cacheKey = isLibrary ?
+                    libraryCacheKey(classPathEntry) :
+                    null;
+
+                if (cacheKey == null ||
+                    !readCachedLibraryClasses(messagePrefix,
+                                              classPathEntry,
+                                              cacheKey,
+                                              clazz -> contents.items.add(clazz),
+                                              out))
+                {
+                    if (cacheKey != null)
+                    {
+                        // Collect the library classes for the cache.
+                        contents.cacheKey       = cacheKey;
+                        contents.libraryClasses = new ArrayList<>();
+                    }
+
+                    // Create a reader that can unwrap jars, wars, ears, jmods
+                    // and zips.
+                    DataEntryReader reader =
+                        new DataEntryReaderFactory(configuration.android)
+                            .createDataEntryReader(messagePrefix,
+                                                   classPathEntry,
+                                                   isLibrary ?
+                                                       new ClassFilter(this) :
+                                                       new ClassFilter(this, createResourceReader(this)),
+                                                   out);
+
+                    // Pump the data entries into the reader.
+                    new DirectorySource(classPathEntry.getFile()).pumpDataEntries(reader);
+                }
+            }
+            catch (IOException ex)
+            {
+                contents.exception = ex;
+            }
+
+            contents.message = messages.toString();
+
+            return contents;
+        }
+
+
+        // Implementations for DataEntryReader.
+
+        public void read(DataEntry dataEntry) throws IOException
+        {
+            // Read the class file into memory, so its zip file can be
+            // closed, and parse it on a worker thread.
+            final DataEntry bufferedDataEntry = new BufferedDataEntry(dataEntry);
+
+            contents.items.add(new MyPendingClass(executor.submit(() ->
+            {
+                MyParsedClass parsedClass = new MyParsedClass();
+
+                createClassReader(isLibrary,
+                                  ignoreStackMapAttributes,
+                                  parsedClass,
+                                  parsedClass).read(bufferedDataEntry);
+
+                return parsedClass;
+            })));
+        }
+
+
+        // Implementations for ResourceFileVisitor.
+
+        public void visitAnyResourceFile(ResourceFile resourceFile)
+        {
+            contents.items.add(resourceFile);
+        }
+    }
+
+
+    /**
+     * The contents of a class path entry: its message, any exception, and its
+     * pending parsed classes, cached classes, and resource files, in
+     * their original order.
+     */
+    private static class MyClassPathEntryContents
+    {
+        private final List<Object> items = new ArrayList<>();
+        private String             message;
+        private IOException        exception;
+
+        // Fields for collecting library classes for the library class cache.
+        private String             cacheKey;
+        private List<LibraryClass> libraryClasses;
+
+
+        /**
+         * Prints out the message and passes the classes and the resource
+         * files to the given visitors, in their original order.
+         */
+        public void accept(WarningPrinter      warningPrinter,
+                           ClassVisitor        classVisitor,
+                           ResourceFileVisitor resourceFileVisitor)
+        throws IOException, InterruptedException
+        {
+            System.out.print(message);
+
+            for (Object item : items)
+            {
+                if (item instanceof ResourceFile)
+                {
+                    ((ResourceFile)item).accept(resourceFileVisitor);
+                }
+                else if (item instanceof Clazz)
+                {
+                    ((Clazz)item).accept(classVisitor);
+                }
+                else
+                {
+                    MyParsedClass parsedClass;
+                    try
+                    {
+                        parsedClass = ((MyPendingClass)item).future.get();
+                    }
+                    catch (ExecutionException e)
+                    {
+                        Throwable cause = e.getCause();
+                        if (cause instanceof IOException)
+                        {
+                            throw (IOException)cause;
+                        }
+
+                        throw new RuntimeException(cause);
+                    }
+
+                    parsedClass.accept(warningPrinter, classVisitor);
+
+                    // Collect library classes, unless there are warnings,
+                    // since the warnings wouldn't be repeated from the
+                    // cache.
+                    if (libraryClasses != null)
+                    {
+                        if (!parsedClass.warnings.isEmpty())
+                        {
+                            libraryClasses = null;
+                        }
+                        else if (parsedClass.clazz != null)
+                        {
+                            libraryClasses.add((LibraryClass)parsedClass.clazz);
+                        }
+                    }
+                }
+            }
+
+            if (exception != null)
+            {
+                throw exception;
+            }
+        }
+    }
+
+
+    /**
+     * A class that is being parsed on a worker thread.
+     */
+    private static class MyPendingClass
+    {
+        private final Future<MyParsedClass> future;
+
+
+        public MyPendingClass(Future<MyParsedClass> future)
+        {
+            this.future = future;
+        }
+    }
+
+
+    /**
+     * This WarningPrinter and ClassVisitor collects a parsed class and its
+     * warnings on a worker thread, for passing them on later.
+     */
+    private static class MyParsedClass
+    extends              WarningPrinter
+    implements           ClassVisitor
+    {
+        private final List<String[]> warnings = new ArrayList<>();
+        private Clazz                clazz;
+
+
+        public MyParsedClass()
+        {
+            super(null);
+        }
+
+
+        /**
+         * Prints out the collected warnings with the given warning printer
+         * and passes the collected class to the given class visitor.
+         */
+        public void accept(WarningPrinter warningPrinter,
+                           ClassVisitor   classVisitor)
+        {
+            for (String[] warning : warnings)
+            {
+                warningPrinter.print(warning[0], warning[1]);
+            }
+
+            if (clazz != null)
+            {
+                clazz.accept(classVisitor);
+            }
+        }
+
+
+        // Implementations for WarningPrinter.
+
+        public void print(String className, String warning)
+        {
+            warnings.add(new String[] { className, warning });
+        }
+
+
+        // Implementations for ClassVisitor.
+
+        public void visitAnyClass(Clazz clazz)
+        {
+            this.clazz = clazz;
+        }
+    }
+
+
+    /**
+     * This DataEntryReader indexes the class files of archives in a lazy
+     * library class pool, so they can be read on demand. It delegates all
+     * other class files to the given reader.
+     */
+    private class MyLazyLibraryClassIndexer
+    implements    DataEntryReader
+    {
+        private final ClassPool       programClassPool;
+        private final LazyClassPool   libraryClassPool;
+        private final WarningPrinter  notePrinter;
+        private final DataEntryReader classReader;
+
+        private final Map<File, MyArchiveClassSource> classSources = new HashMap<>();
+
+
+        public MyLazyLibraryClassIndexer(ClassPool       programClassPool,
+                                         LazyClassPool   libraryClassPool,
+                                         WarningPrinter  notePrinter,
+                                         DataEntryReader classReader)
+        {
+            this.programClassPool = programClassPool;
+            this.libraryClassPool = libraryClassPool;
+            this.notePrinter      = notePrinter;
+            this.classReader      = classReader;
+        }
+
+
+        // Implementations for DataEntryReader.
+
+        public void read(DataEntry dataEntry) throws IOException
+        {
+            // We can only read class files on demand if they are stored
+            // directly in an archive file.
+            DataEntry parent = dataEntry.getParent();
+            if (!(parent instanceof FileDataEntry))
+            {
+                classReader.read(dataEntry);
+                return;
+            }
+
+            String dataEntryName = dataEntry.getName();
+            String className     =
+                dataEntryName.substring(0, dataEntryName.length() -
+                                           ClassConstants.CLASS_FILE_EXTENSION.length());
+
+            boolean isProgramClass = programClassPool.getClass(className) != null;
+
+            if (isProgramClass ||
+                libraryClassPool.containsClassName(className))
+            {
+                notePrinter.print(className,
+                                  "Note: duplicate definition of library class [" +
+                                  ClassUtil.externalClassName(className) + "]");
+            }
+
+            // Program classes always take precedence. Duplicate library
+            // classes only serve as fallbacks.
+            if (!isProgramClass)
+            {
+                File file = ((FileDataEntry)parent).getFile();
+
+                MyArchiveClassSource classSource = classSources.get(file);
+                if (classSource == null)
+                {
+                    classSource = new MyArchiveClassSource(file);
+                    classSources.put(file, classSource);
+                }
+
+                classSource.addClass(className, dataEntry.getOriginalName());
+
+                libraryClassPool.addLazyClass(className, classSource);
+            }
+        }
+    }
+
+
+    /**
+     * This ClassSource reads library classes on demand from an archive file.
+     * It opens the archive when it first needs it.
+     */
+    private class MyArchiveClassSource
+    implements    LazyClassPool.ClassSource
+    {
+        private final File                file;
+        private final Map<String, String> zipEntryNames = new HashMap<>();
+
+        private ZipFile zipFile;
+
+
+        public MyArchiveClassSource(File file)
+        {
+            this.file = file;
+        }
+
+
+        /**
+         * Adds the name of the class with the given name to the index of
+         * the archive.
+         */
+        public void addClass(String className, String zipEntryName)
+        {
+            zipEntryNames.put(className, zipEntryName);
+        }
+
+
+        // Implementations for ClassSource.
+
+        public Clazz readClass(String className) throws IOException
+        {
+            String zipEntryName = zipEntryNames.get(className);
+            if (zipEntryName == null)
+            {
+                return null;
+            }
+
+            if (zipFile == null)
+            {
+                zipFile = new ZipFile(file, StandardCharsets.UTF_8);
+            }
+
+            ZipEntry zipEntry = zipFile.getEntry(zipEntryName);
+            if (zipEntry == null)
+            {
+                return null;
+            }
+
+            // Parse the class, without warnings, since they are too late
+            // to be useful anyway.
+            Clazz[] clazz = new Clazz[1];
+
+            createClassReader(true,
+                              true,
+                              null,
+                              readClass -> clazz[0] = readClass)
+                .read(new ZipFileDataEntry(new FileDataEntry(file),
+                                           zipEntry,
+                                           zipFile));
+
+            // Only accept the class if it was stored under the right name.
+            return clazz[0] != null &&
+                   className.equals(clazz[0].getName()) ?
+                clazz[0] :
+                null;
+        }
+
+
+        // Implementations for Closeable.
+
+        public void close() throws IOException
+        {
+            if (zipFile != null)
+            {
+                zipFile.close();
+                zipFile = null;
+            }
+        }
+    }
+
+
     /**
      * This resource file visitor attaches the current resource name, if any,
      * to any resource files that it visits.
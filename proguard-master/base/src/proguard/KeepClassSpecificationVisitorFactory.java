@@ -108,7 +108,7 @@ extends      ClassSpecificationVisitorFactory
             }
         }
 
-        return multiClassPoolVisitor;
+        return createIndexedClassPoolVisitor(multiClassPoolVisitor);
     }
 
 
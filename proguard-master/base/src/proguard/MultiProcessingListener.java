@@ -0,0 +1,92 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2020 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard;
+
+import proguard.classfile.*;
+
+/**
+ * This {@link ProcessingListener} delegates all notifications to each
+ * {@link ProcessingListener} in a given list.
+ *
+ * @author Eric Lafortune
+ */
+public class MultiProcessingListener
+implements   ProcessingListener
+{
+    private final ProcessingListener[] processingListeners;
+
+
+    public MultiProcessingListener(ProcessingListener... processingListeners)
+    {
+        this.processingListeners = processingListeners;
+    }
+
+
+    // Implementations for ProcessingListener.
+
+    public void phaseStarted(String phaseName)
+    {
+        for (ProcessingListener processingListener : processingListeners)
+        {
+            processingListener.phaseStarted(phaseName);
+        }
+    }
+
+
+    public void phaseFinished(String phaseName)
+    {
+        for (ProcessingListener processingListener : processingListeners)
+        {
+            processingListener.phaseFinished(phaseName);
+        }
+    }
+
+
+    public void programSizeReported(int classCount,
+                                    int fieldCount,
+                                    int methodCount)
+    {
+        for (ProcessingListener processingListener : processingListeners)
+        {
+            processingListener.programSizeReported(classCount,
+                                                   fieldCount,
+                                                   methodCount);
+        }
+    }
+
+
+    public void counterReported(String counterName, int count)
+    {
+        for (ProcessingListener processingListener : processingListeners)
+        {
+            processingListener.counterReported(counterName, count);
+        }
+    }
+
+
+    public void methodEvaluated(Clazz clazz, Method method, long evaluationTimeNanos)
+    {
+        for (ProcessingListener processingListener : processingListeners)
+        {
+            processingListener.methodEvaluated(clazz, method, evaluationTimeNanos);
+        }
+    }
+}
@@ -58,11 +58,12 @@ public class ProGuard
     public static final String VERSION = "ProGuard, version " + getVersion();
 
 
-    private final Configuration    configuration;
+    private final Configuration      configuration;
+    private final ProcessingListener processingListener;
 
-    private       ClassPool        programClassPool = new ClassPool();
-    private final ClassPool        libraryClassPool = new ClassPool();
-    private final ResourceFilePool resourceFilePool = new ResourceFilePool();
+    private       ClassPool          programClassPool = new ClassPool();
+    private final ClassPool          libraryClassPool;
+    private final ResourceFilePool   resourceFilePool = new ResourceFilePool();
 
     // All injected data entries.
     private final ExtraDataEntryNameMap extraDataEntryNameMap = new ExtraDataEntryNameMap();
@@ -74,7 +75,31 @@ public class ProGuard
      */
     public ProGuard(Configuration configuration)
     {
-        this.configuration = configuration;
+        this(configuration, null);
+    }
+
+
+    /**
+     * Creates a new ProGuard object to process jars as specified by the given
+     * configuration, notifying the given listener of its successive phases.
+     * @param configuration      the configuration.
+     * @param processingListener an optional listener that is notified at
+     *                           the start and at the end of each phase.
+     */
+    public ProGuard(Configuration      configuration,
+                    ProcessingListener processingListener)
+    {
+        this.configuration      = configuration;
+        this.processingListener = processingListener;
+
+        // Only read the library classes on demand, if requested. We can't do
+        // this if we later have to come up with the obfuscated class member
+        // names that are globally unique.
+        this.libraryClassPool =
+            configuration.lazyLibraryClasses &&
+            !configuration.useUniqueClassMemberNames ?
+                new LazyClassPool() :
+                new ClassPool();
     }
 
 
@@ -101,19 +126,70 @@ public class ProGuard
             return;
         }
 
+        IncrementalState incrementalState = null;
+        if (configuration.incremental != null)
+        {
+            incrementalState = new IncrementalState(configuration);
+            if (incrementalState.check())
+            {
+                return;
+            }
+        }
+
         if (configuration.targetClassVersion != 0)
         {
             configuration.backport = true;
         }
 
-        readInput();
+        // Collect a trace of the processing, if requested.
+        ProcessingListener listener         = processingListener;
+        ProcessingTracer   processingTracer = null;
+        if (configuration.printTrace != null)
+        {
+            processingTracer = new ProcessingTracer();
+            listener         = listener == null ?
+                processingTracer :
+                new MultiProcessingListener(listener,
+                                            processingTracer);
+        }
+
+        // Try to reapply the mapping of a previous incremental run.
+        File previousMapping = incrementalState != null ?
+            incrementalState.getPreviousMappingFile() :
+            null;
+
+        process(listener, previousMapping);
+
+        if (processingTracer != null)
+        {
+            printTrace(processingTracer);
+        }
+
+        if (incrementalState != null)
+        {
+            incrementalState.save();
+        }
+    }
+
+
+    /**
+     * Performs the actual processing steps.
+     * @param listener        the listener that is notified of the successive
+     *                        phases, if any.
+     * @param previousMapping the mapping of a previous incremental run that
+     *                        the obfuscation step tries to reapply, if any.
+     */
+    private void process(ProcessingListener listener,
+                         File               previousMapping) throws IOException
+    {
+        execute(listener, "readInput", this::readInput);
 
         if (configuration.shrink    ||
             configuration.optimize  ||
             configuration.obfuscate ||
             configuration.preverify)
         {
-            clearPreverification();
+            execute(listener, "clearPreverification", this::clearPreverification);
         }
 
         if (configuration.printSeeds != null        ||
@@ -125,50 +201,50 @@ public class ProGuard
             configuration.addConfigurationDebugging ||
             configuration.keepKotlinMetadata)
         {
-            initialize();
-            mark();
+            execute(listener, "initialize", this::initialize);
+            execute(listener, "mark", this::mark);
         }
 
         if (configuration.keepKotlinMetadata)
         {
-            stripKotlinMetadataAnnotations();
+            execute(listener, "stripKotlinMetadataAnnotations", this::stripKotlinMetadataAnnotations);
         }
 
         if (configuration.optimize ||
             configuration.obfuscate)
         {
-            introducePrimitiveArrayConstants();
+            execute(listener, "introducePrimitiveArrayConstants", this::introducePrimitiveArrayConstants);
         }
 
         if (configuration.backport)
         {
-            backport();
+            execute(listener, "backport", this::backport);
         }
 
         if (configuration.addConfigurationDebugging)
         {
-            addConfigurationLogging();
+            execute(listener, "addConfigurationLogging", this::addConfigurationLogging);
         }
 
         if (configuration.printSeeds != null)
         {
-            printSeeds();
+            execute(listener, "printSeeds", this::printSeeds);
         }
 
         if (configuration.preverify ||
             configuration.android)
         {
-            inlineSubroutines();
+            execute(listener, "inlineSubroutines", this::inlineSubroutines);
         }
 
         if (configuration.shrink)
         {
-            shrink();
+            execute(listener, "shrink", this::shrink);
         }
 
         if (configuration.optimize)
         {
-            optimizeGson();
+            execute(listener, "optimizeGson", this::optimizeGson);
         }
 
         if (configuration.optimize)
@@ -177,7 +253,7 @@ public class ProGuard
                  optimizationPass < configuration.optimizationPasses;
                  optimizationPass++)
             {
-                if (!optimize(optimizationPass+1, configuration.optimizationPasses))
+                if (!optimize(listener, optimizationPass+1, configuration.optimizationPasses))
                 {
                     // Stop optimizing if the code doesn't improve any further.
                     break;
@@ -190,37 +266,37 @@ public class ProGuard
                     configuration.printUsage       = null;
                     configuration.whyAreYouKeeping = null;
 
-                    shrink();
+                    execute(listener, "shrink", this::shrink);
                 }
             }
 
-            linearizeLineNumbers();
+            execute(listener, "linearizeLineNumbers", this::linearizeLineNumbers);
         }
 
         if (configuration.obfuscate)
         {
-            obfuscate();
+            execute(listener, "obfuscate", () -> obfuscate(previousMapping));
         }
 
         if (configuration.keepKotlinMetadata)
         {
-            keepKotlinMetadata();
+            execute(listener, "keepKotlinMetadata", this::keepKotlinMetadata);
         }
 
         if (configuration.optimize ||
             configuration.obfuscate)
         {
-            expandPrimitiveArrayConstants();
+            execute(listener, "expandPrimitiveArrayConstants", this::expandPrimitiveArrayConstants);
         }
 
         if (configuration.targetClassVersion != 0)
         {
-            target();
+            execute(listener, "target", this::target);
         }
 
         if (configuration.preverify)
         {
-            preverify();
+            execute(listener, "preverify", this::preverify);
         }
 
         // Trim line numbers after preverification as this might
@@ -228,7 +304,7 @@ public class ProGuard
         if (configuration.optimize ||
             configuration.preverify)
         {
-            trimLineNumbers();
+            execute(listener, "trimLineNumbers", this::trimLineNumbers);
         }
 
         if (configuration.shrink    ||
@@ -236,17 +312,17 @@ public class ProGuard
             configuration.obfuscate ||
             configuration.preverify)
         {
-            sortClassElements();
+            execute(listener, "sortClassElements", this::sortClassElements);
         }
 
         if (configuration.programJars.hasOutput())
         {
-            writeOutput();
+            execute(listener, "writeOutput", this::writeOutput);
         }
 
         if (configuration.dump != null)
         {
-            dump();
+            execute(listener, "dump", this::dump);
         }
     }
 
@@ -514,25 +590,46 @@ public class ProGuard
     /**
      * Performs the optimization step.
      */
-    private boolean optimize(int currentPass,
-                             int maxPasses) throws IOException
+    private boolean optimize(ProcessingListener listener,
+                             int                currentPass,
+                             int                maxPasses) throws IOException
     {
         if (configuration.verbose)
         {
             System.out.println("Optimizing (pass " + currentPass + "/" + maxPasses + ")...");
         }
 
-        // Perform the actual optimization.
-        return new Optimizer(configuration).execute(programClassPool,
-                                                    libraryClassPool,
-                                                    extraDataEntryNameMap);
+        // Each optimization pass is a separate phase.
+        String phaseName = "optimize pass " + currentPass;
+
+        phaseStarted(listener, phaseName);
+        try
+        {
+            // Perform the actual optimization.
+            boolean optimized =
+                new Optimizer(configuration, listener).execute(programClassPool,
+                                                               libraryClassPool,
+                                                               extraDataEntryNameMap);
+
+            if (listener != null)
+            {
+                reportProgramSize(listener);
+            }
+
+            return optimized;
+        }
+        finally
+        {
+            phaseFinished(listener, phaseName);
+        }
     }
 
 
     /**
-     * Performs the obfuscation step.
+     * Performs the obfuscation step, trying to reapply the given mapping of
+     * a previous incremental run, if any.
      */
-    private void obfuscate() throws IOException
+    private void obfuscate(File previousMapping) throws IOException
     {
         if (configuration.verbose)
         {
@@ -540,9 +637,9 @@ public class ProGuard
         }
 
         // Perform the actual obfuscation.
-        new Obfuscator(configuration).execute(programClassPool,
-                                              libraryClassPool,
-                                              resourceFilePool);
+        new Obfuscator(configuration, previousMapping).execute(programClassPool,
+                                                               libraryClassPool,
+                                                               resourceFilePool);
     }
 
 
@@ -642,6 +739,104 @@ public class ProGuard
     }
 
 
+    /**
+     * Prints out the trace of the processing phases.
+     */
+    private void printTrace(ProcessingTracer processingTracer) throws IOException
+    {
+        if (configuration.verbose)
+        {
+            System.out.println("Printing processing trace to [" + PrintWriterUtil.fileName(configuration.printTrace) + "]...");
+        }
+
+        PrintWriter pw = PrintWriterUtil.createPrintWriterOut(configuration.printTrace);
+        try
+        {
+            processingTracer.write(pw);
+        }
+        finally
+        {
+            PrintWriterUtil.closePrintWriter(configuration.printTrace, pw);
+        }
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Performs the given phase, notifying the given processing listener, if
+     * any.
+     */
+    private void execute(ProcessingListener listener,
+                         String             phaseName,
+                         Phase              phase) throws IOException
+    {
+        phaseStarted(listener, phaseName);
+        try
+        {
+            phase.execute();
+
+            if (listener != null)
+            {
+                reportProgramSize(listener);
+            }
+        }
+        finally
+        {
+            phaseFinished(listener, phaseName);
+        }
+    }
+
+
+    /**
+     * Reports the current size of the program to the given processing
+     * listener.
+     */
+    private void reportProgramSize(ProcessingListener listener)
+    {
+        ClassCounter  classCounter  = new ClassCounter();
+        MemberCounter fieldCounter  = new MemberCounter();
+        MemberCounter methodCounter = new MemberCounter();
+
+        programClassPool.classesAccept(
+            new MultiClassVisitor(
+                classCounter,
+                new AllFieldVisitor(fieldCounter),
+                new AllMethodVisitor(methodCounter)));
+
+        listener.programSizeReported(classCounter.getCount(),
+                                     fieldCounter.getCount(),
+                                     methodCounter.getCount());
+    }
+
+
+    private void phaseStarted(ProcessingListener listener, String phaseName)
+    {
+        if (listener != null)
+        {
+            listener.phaseStarted(phaseName);
+        }
+    }
+
+
+    private void phaseFinished(ProcessingListener listener, String phaseName)
+    {
+        if (listener != null)
+        {
+            listener.phaseFinished(phaseName);
+        }
+    }
+
+
+    /**
+     * This interface represents a single phase of the processing.
+     */
+    private interface Phase
+    {
+        void execute() throws IOException;
+    }
+
+
     /**
      * Returns the implementation version from the manifest.
      */
@@ -0,0 +1,75 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2020 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard;
+
+import proguard.classfile.*;
+import proguard.evaluation.EvaluationTimeListener;
+
+/**
+ * This interface provides callbacks for the successive phases of a ProGuard
+ * run, like reading the input, shrinking, each optimization pass,
+ * obfuscating, and writing the output. Phases may contain nested phases,
+ * like the steps of an optimization pass. The listener also receives
+ * statistics about the phases: the size of the program, the values of
+ * counters, like the numbers of applied optimizations, and the time spent
+ * evaluating each method. It allows external tools to measure and trace
+ * the phases.
+ *
+ * @see ProGuard
+ * @author Eric Lafortune
+ */
+public interface ProcessingListener
+extends          EvaluationTimeListener
+{
+    /**
+     * Notifies the listener that ProGuard is starting the specified phase.
+     */
+    void phaseStarted(String phaseName);
+
+
+    /**
+     * Notifies the listener that ProGuard has finished the specified phase,
+     * successfully or not.
+     */
+    void phaseFinished(String phaseName);
+
+
+    /**
+     * Notifies the listener of the size of the program at the end of the
+     * current phase.
+     */
+    default void programSizeReported(int classCount,
+                                     int fieldCount,
+                                     int methodCount) {}
+
+
+    /**
+     * Notifies the listener of the value of a counter of the current phase,
+     * for instance the number of inlined method calls in an optimization
+     * pass.
+     */
+    default void counterReported(String counterName, int count) {}
+
+
+    // Implementations for EvaluationTimeListener.
+
+    default void methodEvaluated(Clazz clazz, Method method, long evaluationTimeNanos) {}
+}
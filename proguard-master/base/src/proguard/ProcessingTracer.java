@@ -0,0 +1,377 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2020 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard;
+
+import proguard.classfile.*;
+
+import java.io.PrintWriter;
+import java.lang.management.*;
+import java.util.*;
+
+/**
+ * This {@link ProcessingListener} collects the phases of a ProGuard run,
+ * with their statistics, and writes them out as a trace in the JSON format
+ * of the Chrome trace viewer (chrome://tracing or Perfetto). Next to the
+ * trace events, the output contains a machine-readable summary, with the
+ * times, program sizes, heap usage, and counters of all phases, and with
+ * the slowest evaluations of methods.
+ *
+ * @author Eric Lafortune
+ */
+public class ProcessingTracer
+implements   ProcessingListener
+{
+    private static final int SLOWEST_METHOD_EVALUATION_COUNT = 20;
+
+
+    private final MemoryMXBean   memoryMXBean = ManagementFactory.getMemoryMXBean();
+    private final long           startTime    = System.nanoTime();
+
+    private final List<MyPhase>  phases       = new ArrayList<>();
+    private final Deque<MyPhase> openPhases   = new ArrayDeque<>();
+
+    // The slowest method evaluations, sorted from slow to less slow.
+    private final List<MyMethodEvaluation> slowestMethodEvaluations = new ArrayList<>();
+
+    // Fields that are read by the partial evaluators in other threads.
+    private volatile String currentPhaseName;
+    private volatile long   minimumEvaluationTime;
+
+
+    /**
+     * Writes out the collected trace to the given writer.
+     */
+    public void write(PrintWriter pw)
+    {
+        long endTime = System.nanoTime() - startTime;
+
+        pw.println("{");
+        pw.println("  \"traceEvents\": [");
+        pw.print  ("    { \"name\": \"process_name\", \"ph\": \"M\", \"pid\": 1, \"args\": { \"name\": " + jsonString(ProGuard.VERSION) + " } }");
+
+        for (MyPhase phase : phases)
+        {
+            pw.println(",");
+            pw.print  ("    { \"name\": " + jsonString(phase.name) +
+                       ", \"cat\": \"phase\", \"ph\": \"X\", \"pid\": 1, \"tid\": 1" +
+                       ", \"ts\": "  + micros(phase.startTime) +
+                       ", \"dur\": " + micros(phase.endTime - phase.startTime) +
+                       ", \"args\": { " + phaseStatistics(phase) + " } }");
+        }
+
+        for (MyPhase phase : phases)
+        {
+            pw.println(",");
+            pw.print  ("    { \"name\": \"heap\", \"ph\": \"C\", \"pid\": 1" +
+                       ", \"ts\": " + micros(phase.endTime) +
+                       ", \"args\": { \"usedBytes\": " + phase.heapUsedBytes + " } }");
+        }
+
+        pw.println();
+        pw.println("  ],");
+        pw.println("  \"displayTimeUnit\": \"ms\",");
+        pw.println("  \"summary\": {");
+        pw.println("    \"version\": " + jsonString(ProGuard.VERSION) + ",");
+        pw.println("    \"timeMillis\": " + millis(endTime) + ",");
+        pw.println("    \"phases\": [");
+
+        for (int index = 0; index < phases.size(); index++)
+        {
+            MyPhase phase = phases.get(index);
+
+            pw.println("      { \"name\": " + jsonString(phase.name) +
+                       ", \"depth\": " + phase.depth +
+                       ", \"startMillis\": " + millis(phase.startTime) +
+                       ", \"timeMillis\": " + millis(phase.endTime - phase.startTime) +
+                       ", " + phaseStatistics(phase) + " }" +
+                       (index < phases.size() - 1 ? "," : ""));
+        }
+
+        pw.println("    ],");
+        pw.println("    \"slowestMethodEvaluations\": [");
+
+        synchronized (this)
+        {
+            for (int index = 0; index < slowestMethodEvaluations.size(); index++)
+            {
+                MyMethodEvaluation methodEvaluation = slowestMethodEvaluations.get(index);
+
+                pw.println("      { \"class\": " + jsonString(methodEvaluation.className) +
+                           ", \"method\": " + jsonString(methodEvaluation.methodName) +
+                           ", \"phase\": " + jsonString(methodEvaluation.phaseName) +
+                           ", \"timeMillis\": " + millis(methodEvaluation.evaluationTime) + " }" +
+                           (index < slowestMethodEvaluations.size() - 1 ? "," : ""));
+            }
+        }
+
+        pw.println("    ]");
+        pw.println("  }");
+        pw.println("}");
+    }
+
+
+    // Implementations for ProcessingListener.
+
+    public void phaseStarted(String phaseName)
+    {
+        MyPhase phase = new MyPhase(phaseName,
+                                    openPhases.size(),
+                                    System.nanoTime() - startTime);
+
+        phases.add(phase);
+        openPhases.push(phase);
+
+        currentPhaseName = phaseName;
+    }
+
+
+    public void phaseFinished(String phaseName)
+    {
+        MyPhase phase = openPhases.pop();
+
+        phase.endTime       = System.nanoTime() - startTime;
+        phase.heapUsedBytes = memoryMXBean.getHeapMemoryUsage().getUsed();
+
+        currentPhaseName = openPhases.isEmpty() ? null : openPhases.peek().name;
+    }
+
+
+    public void programSizeReported(int classCount,
+                                    int fieldCount,
+                                    int methodCount)
+    {
+        MyPhase phase = openPhases.peek();
+        if (phase != null)
+        {
+            phase.classCount  = classCount;
+            phase.fieldCount  = fieldCount;
+            phase.methodCount = methodCount;
+        }
+    }
+
+
+    public void counterReported(String counterName, int count)
+    {
+        MyPhase phase = openPhases.peek();
+        if (phase != null)
+        {
+            phase.counters.put(counterName, count);
+        }
+    }
+
+
+    public void methodEvaluated(Clazz clazz, Method method, long evaluationTimeNanos)
+    {
+        // Quickly skip the bulk of the evaluations, which are fast.
+        if (evaluationTimeNanos > minimumEvaluationTime)
+        {
+            addMethodEvaluation(clazz, method, evaluationTimeNanos);
+        }
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Adds the given method evaluation to the list of slowest method
+     * evaluations, if it qualifies.
+     */
+    private synchronized void addMethodEvaluation(Clazz  clazz,
+                                                  Method method,
+                                                  long   evaluationTime)
+    {
+        String className  = clazz.getName();
+        String methodName = method.getName(clazz) + method.getDescriptor(clazz);
+
+        // Only keep the slowest evaluation of each method.
+        for (int index = 0; index < slowestMethodEvaluations.size(); index++)
+        {
+            MyMethodEvaluation methodEvaluation = slowestMethodEvaluations.get(index);
+            if (methodEvaluation.className .equals(className) &&
+                methodEvaluation.methodName.equals(methodName))
+            {
+                if (methodEvaluation.evaluationTime >= evaluationTime)
+                {
+                    return;
+                }
+
+                slowestMethodEvaluations.remove(index);
+                break;
+            }
+        }
+
+        // Insert the evaluation at the right position.
+        int index = 0;
+        while (index < slowestMethodEvaluations.size() &&
+               slowestMethodEvaluations.get(index).evaluationTime >= evaluationTime)
+        {
+            index++;
+        }
+
+        slowestMethodEvaluations.add(index,
+                                     new MyMethodEvaluation(className,
+                                                            methodName,
+                                                            currentPhaseName,
+                                                            evaluationTime));
+
+        // Drop the fastest evaluation if the list is full.
+        int size = slowestMethodEvaluations.size();
+        if (size >= SLOWEST_METHOD_EVALUATION_COUNT)
+        {
+            if (size > SLOWEST_METHOD_EVALUATION_COUNT)
+            {
+                slowestMethodEvaluations.remove(--size);
+            }
+
+            minimumEvaluationTime = slowestMethodEvaluations.get(size - 1).evaluationTime;
+        }
+    }
+
+
+    /**
+     * Returns the statistics of the given phase, as JSON object members.
+     */
+    private String phaseStatistics(MyPhase phase)
+    {
+        StringBuilder builder = new StringBuilder();
+
+        if (phase.classCount >= 0)
+        {
+            builder.append("\"classCount\": ") .append(phase.classCount) .append(", ")
+                   .append("\"fieldCount\": ") .append(phase.fieldCount) .append(", ")
+                   .append("\"methodCount\": ").append(phase.methodCount).append(", ");
+        }
+
+        builder.append("\"heapUsedBytes\": ").append(phase.heapUsedBytes);
+
+        if (!phase.counters.isEmpty())
+        {
+            builder.append(", \"counters\": { ");
+
+            boolean first = true;
+            for (Map.Entry<String, Integer> counter : phase.counters.entrySet())
+            {
+                if (!first)
+                {
+                    builder.append(", ");
+                }
+                first = false;
+
+                builder.append(jsonString(counter.getKey())).append(": ").append(counter.getValue());
+            }
+
+            builder.append(" }");
+        }
+
+        return builder.toString();
+    }
+
+
+    private static long micros(long nanos)
+    {
+        return nanos / 1000L;
+    }
+
+
+    private static String millis(long nanos)
+    {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1000000.0);
+    }
+
+
+    private static String jsonString(String string)
+    {
+        if (string == null)
+        {
+            return "null";
+        }
+
+        StringBuilder builder = new StringBuilder("\"");
+        for (int index = 0; index < string.length(); index++)
+        {
+            char c = string.charAt(index);
+            if (c == '"' || c == '\\')
+            {
+                builder.append('\\').append(c);
+            }
+            else if (c < ' ')
+            {
+                builder.append(String.format("\\u%04x", (int)c));
+            }
+            else
+            {
+                builder.append(c);
+            }
+        }
+
+        return builder.append('"').toString();
+    }
+
+
+    /**
+     * This class represents a phase of the processing, with its statistics.
+     * Its times are relative to the start of the tracer.
+     */
+    private static class MyPhase
+    {
+        private final String               name;
+        private final int                  depth;
+        private final long                 startTime;
+        private       long                 endTime;
+        private       long                 heapUsedBytes;
+        private       int                  classCount  = -1;
+        private       int                  fieldCount  = -1;
+        private       int                  methodCount = -1;
+        private final Map<String, Integer> counters    = new LinkedHashMap<>();
+
+
+        public MyPhase(String name, int depth, long startTime)
+        {
+            this.name      = name;
+            this.depth     = depth;
+            this.startTime = startTime;
+        }
+    }
+
+
+    /**
+     * This class represents the evaluation of a method.
+     */
+    private static class MyMethodEvaluation
+    {
+        private final String className;
+        private final String methodName;
+        private final String phaseName;
+        private final long   evaluationTime;
+
+
+        public MyMethodEvaluation(String className,
+                                  String methodName,
+                                  String phaseName,
+                                  long   evaluationTime)
+        {
+            this.className      = className;
+            this.methodName     = methodName;
+            this.phaseName      = phaseName;
+            this.evaluationTime = evaluationTime;
+        }
+    }
+}
@@ -95,6 +95,7 @@ public class UpToDateChecker
             checker.updateOutputModificationTime(configuration.printMapping);
             checker.updateOutputModificationTime(configuration.printConfiguration);
             checker.updateOutputModificationTime(configuration.dump);
+            checker.updateOutputModificationTime(configuration.printTrace);
         }
         catch (IllegalStateException e)
         {
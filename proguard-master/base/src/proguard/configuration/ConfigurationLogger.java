@@ -24,11 +24,17 @@ package proguard.configuration;
 import java.io.*;
 import java.lang.reflect.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 /**
  * This class can be injected in applications to log information about reflection
  * being used in the application code, and suggest appropriate ProGuard rules for
  * keeping the reflected classes, methods and/or fields.
+ * <p>
+ * The logger can be called from multiple threads concurrently. It logs each
+ * suggestion once, without locking, and it writes the log messages on a
+ * background thread, so the reflecting code doesn't wait for the log.
  *
  * @author Johan Leys
  */
@@ -43,44 +49,34 @@ public class ConfigurationLogger implements Runnable
     private static final String EMPTY_LINE = "\u00a0\n";
 
     // Set with missing class names.
-    private static final Set<String> missingClasses = new HashSet<String>();
+    private static final Set<String> missingClasses = newConcurrentSet();
 
     // Map from class name to missing constructors.
-    private static final Map<String, Set<MethodSignature>> missingConstructors = new HashMap<String, Set<MethodSignature>>();
+    private static final ConcurrentMap<String, Set<MethodSignature>> missingConstructors       = new ConcurrentHashMap<String, Set<MethodSignature>>();
     // Set of classes on which getConstructors or getDeclaredConstructors is invoked.
-    private static final Set<String>                       constructorListingClasses = new HashSet<String>();
+    private static final Set<String>                                 constructorListingClasses = newConcurrentSet();
 
     // Map from class name to missing method signatures.
-    private static final Map<String, Set<MethodSignature>> missingMethods       = new HashMap<String, Set<MethodSignature>>();
+    private static final ConcurrentMap<String, Set<MethodSignature>> missingMethods       = new ConcurrentHashMap<String, Set<MethodSignature>>();
     // Set of classes on which getMethods or getDeclaredMethods is invoked.
-    private static final Set<String>                       methodListingClasses = new HashSet<String>();
+    private static final Set<String>                                 methodListingClasses = newConcurrentSet();
 
     // Map from class name to missing field names.
-    private static final Map<String, Set<String>> missingFields       = new HashMap<String, Set<String>>();
+    private static final ConcurrentMap<String, Set<String>> missingFields       = new ConcurrentHashMap<String, Set<String>>();
     // Set of classes on which getFields or getDeclaredFields is invoked.
-    private static final Set<String>              fieldListingCLasses = new HashSet<String>();
+    private static final Set<String>                        fieldListingCLasses = newConcurrentSet();
 
-    // Map from obfuscated class name to original class name.
-    private static Map<String, String> classNameMap;
+    // Map from obfuscated class name to original class name. It is
+    // initialized lazily, after the sets below, and read-only afterwards.
+    private static volatile Map<String, String> classNameMap;
 
     // Set of classes that have renamed or removed methods.
-    private static Set<String>         classesWithObfuscatedMethods;
+    private static Set<String>                  classesWithObfuscatedMethods;
 
     // Set of classes that have renamed or removed fields.
-    private static Set<String>         classesWithObfuscatedFields;
+    private static Set<String>                  classesWithObfuscatedFields;
 
-    private static Method logMethod;
-
-    // Try to find the Android logging class.
-    static
-    {
-        try
-        {
-            Class<?> logClass = Class.forName("android.util.Log");
-            logMethod = logClass.getMethod("w", String.class, String. class);
-        }
-        catch (Exception e) {}
-    }
+    private static final LogWriter logWriter = new LogWriter();
 
     // Classes.
 
@@ -120,9 +116,8 @@ public class ConfigurationLogger implements Runnable
                                   String invokedMethodName,
                                   String missingClassName)
     {
-        if (!LOG_ONCE || !missingClasses.contains(missingClassName))
+        if (missingClasses.add(missingClassName) || !LOG_ONCE)
         {
-            missingClasses.add(missingClassName);
             log(
                 "The class '" + originalClassName(callingClassName) + "' is calling " + invokedClassName + "." + invokedMethodName + " to retrieve\n" +
                 "the class '" + missingClassName + "', but the latter could not be found.\n" +
@@ -184,16 +179,9 @@ public class ConfigurationLogger implements Runnable
     {
         MethodSignature signature = new MethodSignature("<init>", constructorParameters);
 
-        Set<MethodSignature> constructors = missingConstructors.get(reflectedClass.getName());
-        if (constructors == null)
+        if (!isLibraryClass(reflectedClass) &&
+            (classSet(missingConstructors, reflectedClass.getName()).add(signature) || !LOG_ONCE))
         {
-            constructors = new HashSet<MethodSignature>();
-            missingConstructors.put(reflectedClass.getName(), constructors);
-        }
-
-        if ((!LOG_ONCE || !constructors.contains(signature)) && !isLibraryClass(reflectedClass))
-        {
-            constructors.add(signature);
             log(
                 "The class '" + originalClassName(invokingClassName) + "' is calling Class." + invokedMethodName + "\n" +
                 "on class '" + originalClassName(reflectedClass) + "' to retrieve\n" +
@@ -246,10 +234,9 @@ public class ConfigurationLogger implements Runnable
     {
         initializeMappings();
         if (classesWithObfuscatedMethods.contains(reflectedClass.getName()) &&
-            !constructorListingClasses.contains(reflectedClass.getName()) &&
-            !isLibraryClass(reflectedClass))
+            !isLibraryClass(reflectedClass)                                 &&
+            constructorListingClasses.add(reflectedClass.getName()))
         {
-            constructorListingClasses.add(reflectedClass.getName());
             log(
                 "The class '" + originalClassName(invokingClassName) + "' is calling Class." + reflectedMethodName + "\n" +
                 "on class '" + originalClassName(reflectedClass) + "' to retrieve its constructors.\n" +
@@ -313,17 +300,11 @@ public class ConfigurationLogger implements Runnable
                                      String  reflectedMethodName,
                                      Class[] methodParameters    )
     {
-        Set<MethodSignature> methods = missingMethods.get(reflectedClass.getName());
-        if (methods == null)
-        {
-            methods = new HashSet<MethodSignature>();
-            missingMethods.put(reflectedClass.getName(), methods);
-        }
-
         MethodSignature signature = new MethodSignature(reflectedMethodName, methodParameters);
-        if (!methods.contains(signature) && !isLibraryClass(reflectedClass))
+
+        if (!isLibraryClass(reflectedClass) &&
+            classSet(missingMethods, reflectedClass.getName()).add(signature))
         {
-            methods.add(signature);
             log(
                 "The class '" + originalClassName(invokingClassName) +
                 "' is calling Class." + invokedReflectionMethodName + "\n" +
@@ -379,10 +360,9 @@ public class ConfigurationLogger implements Runnable
     {
         initializeMappings();
         if (classesWithObfuscatedMethods.contains(reflectedClass.getName()) &&
-            !methodListingClasses.contains(reflectedClass.getName()) &&
-            !isLibraryClass(reflectedClass))
+            !isLibraryClass(reflectedClass)                                 &&
+            methodListingClasses.add(reflectedClass.getName()))
         {
-            methodListingClasses.add(reflectedClass.getName());
             log(
                 "The class '" + originalClassName(invokingClassName) +
                 "' is calling Class." + invokedReflectionMethodName + "\n" +
@@ -443,17 +423,9 @@ public class ConfigurationLogger implements Runnable
                                     Class  reflectedClass,
                                     String reflectedFieldName )
     {
-        Set<String> fields = missingFields.get(reflectedClass.getName());
-        if (fields == null)
-        {
-            fields = new HashSet<String>();
-            missingFields.put(reflectedClass.getName(), fields);
-        }
-
-        if ((!LOG_ONCE || !fields.contains(reflectedFieldName)) &&
-            !isLibraryClass(reflectedClass))
+        if (!isLibraryClass(reflectedClass) &&
+            (classSet(missingFields, reflectedClass.getName()).add(reflectedFieldName) || !LOG_ONCE))
         {
-            fields.add(reflectedFieldName);
             log(
                 "The class '" + originalClassName(invokingClassName) +
                 "' is calling Class." + invokedReflectionMethodName + "\n" +
@@ -508,10 +480,9 @@ public class ConfigurationLogger implements Runnable
     {
         initializeMappings();
         if (classesWithObfuscatedFields.contains(reflectedClass.getName()) &&
-            !fieldListingCLasses.contains(reflectedClass.getName()) &&
-            !isLibraryClass(reflectedClass))
+            !isLibraryClass(reflectedClass)                                &&
+            fieldListingCLasses.add(reflectedClass.getName()))
         {
-            fieldListingCLasses.add(reflectedClass.getName());
             log(
                 "The class '" + originalClassName(invokingClassName) +
                 "' is calling Class." + invokedReflectionMethodName + "\n" +
@@ -536,19 +507,24 @@ public class ConfigurationLogger implements Runnable
 
     private static void printConfiguration()
     {
-        log("The following settings may help solving issues related to\n" +
-            "missing classes, methods and/or fields:\n");
+        // Write any pending messages first.
+        logWriter.flush();
+
+        // Write the settings directly, since the application may be
+        // exiting, for instance if this is a shutdown hook.
+        logWriter.write("The following settings may help solving issues related to\n" +
+                        "missing classes, methods and/or fields:\n");
 
         for (String clazz : missingClasses)
         {
-            log(keepClassRule(clazz) + "\n");
+            logWriter.write(keepClassRule(clazz) + "\n");
         }
 
         for (String clazz : missingConstructors.keySet())
         {
             for (MethodSignature constructor : missingConstructors.get(clazz))
             {
-                log(keepConstructorRule(clazz, constructor) + "\n");
+                logWriter.write(keepConstructorRule(clazz, constructor) + "\n");
             }
         }
 
@@ -556,7 +532,7 @@ public class ConfigurationLogger implements Runnable
         {
             for (MethodSignature method : missingMethods.get(clazz))
             {
-                log(keepMethodRule(clazz, method.name, method) + "\n");
+                logWriter.write(keepMethodRule(clazz, method.name, method) + "\n");
             }
         }
 
@@ -564,7 +540,7 @@ public class ConfigurationLogger implements Runnable
         {
             for (String field : missingFields.get(clazz))
             {
-                log(keepFieldRule(clazz, field) + "\n");
+                logWriter.write(keepFieldRule(clazz, field) + "\n");
             }
         }
     }
@@ -658,73 +634,113 @@ public class ConfigurationLogger implements Runnable
 
     /**
      * Log a message, either on the Android Logcat, if available, or on the
-     * Standard error outputstream otherwise.
+     * Standard error outputstream otherwise. The message is written
+     * asynchronously.
      *
      * @param message the message to be logged.
      */
     private static void log(String message)
     {
-        if (logMethod != null)
-        {
-            try
-            {
-                logMethod.invoke(null, LOG_TAG, message);
-            }
-            catch (Exception e)
-            {
-                System.err.println(message);
-            }
-        }
-        else
-        {
-            System.err.println(message);
-        }
+        logWriter.log(message);
     }
 
 
+    /**
+     * Reads the class map, once, if it hasn't been read yet.
+     */
     private  static void initializeMappings()
     {
         if (classNameMap == null)
         {
-            classNameMap                 = new HashMap<String, String> ();
-            classesWithObfuscatedMethods = new HashSet<String>         ();
-            classesWithObfuscatedFields  = new HashSet<String>         ();
-
-            String line;
-            try
+            synchronized (ConfigurationLogger.class)
             {
-                BufferedReader reader =
-                    new BufferedReader(
-                        new InputStreamReader(
-                            ConfigurationLogger.class.getClassLoader().getResourceAsStream(CLASS_MAP_FILENAME)));
-
-                while ((line = reader.readLine()) != null)
+                if (classNameMap == null)
                 {
-                    StringTokenizer tokenizer            = new StringTokenizer(line, ",");
-                    String          originalClassName    = tokenizer.nextToken();
-                    String          obfuscatedClassName  = tokenizer.nextToken();
-                    boolean         hasObfuscatedMethods = tokenizer.nextToken().equals("1");
-                    boolean         hasObfuscatedFields  = tokenizer.nextToken().equals("1");
+                    Map<String, String> classNameMap                 = new HashMap<String, String> ();
+                    Set<String>         classesWithObfuscatedMethods = new HashSet<String>         ();
+                    Set<String>         classesWithObfuscatedFields  = new HashSet<String>         ();
 
-                    classNameMap.put(obfuscatedClassName, originalClassName);
+                    InputStream inputStream =
+                        ConfigurationLogger.class.getClassLoader().getResourceAsStream(CLASS_MAP_FILENAME);
 
-                    if (hasObfuscatedMethods)
+                    if (inputStream != null)
                     {
-                        classesWithObfuscatedMethods.add(obfuscatedClassName);
+                        String line;
+                        try
+                        {
+                            BufferedReader reader =
+                                new BufferedReader(
+                                    new InputStreamReader(inputStream));
+
+                            while ((line = reader.readLine()) != null)
+                            {
+                                StringTokenizer tokenizer            = new StringTokenizer(line, ",");
+                                String          originalClassName    = tokenizer.nextToken();
+                                String          obfuscatedClassName  = tokenizer.nextToken();
+                                boolean         hasObfuscatedMethods = tokenizer.nextToken().equals("1");
+                                boolean         hasObfuscatedFields  = tokenizer.nextToken().equals("1");
+
+                                classNameMap.put(obfuscatedClassName, originalClassName);
+
+                                if (hasObfuscatedMethods)
+                                {
+                                    classesWithObfuscatedMethods.add(obfuscatedClassName);
+                                }
+
+                                if (hasObfuscatedFields)
+                                {
+                                    classesWithObfuscatedFields.add(obfuscatedClassName);
+                                }
+                            }
+                            reader.close();
+                        }
+                        catch (IOException e)
+                        {
+                            e.printStackTrace();
+                        }
                     }
 
-                    if (hasObfuscatedFields)
-                    {
-                        classesWithObfuscatedFields.add(obfuscatedClassName);
-                    }
+                    ConfigurationLogger.classesWithObfuscatedMethods = classesWithObfuscatedMethods;
+                    ConfigurationLogger.classesWithObfuscatedFields  = classesWithObfuscatedFields;
+
+                    // Publish the class name map last, since it signals that
+                    // all mappings have been initialized.
+                    ConfigurationLogger.classNameMap = classNameMap;
                 }
-                reader.close();
             }
-            catch (IOException e)
+        }
+    }
+
+
+    /**
+     * Returns a new set that supports concurrent additions.
+     */
+    private static <T> Set<T> newConcurrentSet()
+    {
+        return Collections.newSetFromMap(new ConcurrentHashMap<T, Boolean>());
+    }
+
+
+    /**
+     * Returns the set for the given class name in the given map, creating
+     * it if necessary.
+     */
+    private static <T> Set<T> classSet(ConcurrentMap<String, Set<T>> map,
+                                       String                        className)
+    {
+        Set<T> set = map.get(className);
+        if (set == null)
+        {
+            Set<T> newSet = newConcurrentSet();
+
+            set = map.putIfAbsent(className, newSet);
+            if (set == null)
             {
-                e.printStackTrace();
+                set = newSet;
             }
         }
+
+        return set;
     }
 
 
@@ -750,8 +766,8 @@ public class ConfigurationLogger implements Runnable
 
     public static class MethodSignature
     {
-        private String   name;
-        private String[] parameters;
+        private final String   name;
+        private final String[] parameters;
 
 
         public MethodSignature(String name, Class[] parameters)
@@ -786,4 +802,167 @@ public class ConfigurationLogger implements Runnable
             return result;
         }
     }
+
+
+    /**
+     * This Runnable writes log messages on a background thread, either on the
+     * Android Logcat, if available, or on the standard error output stream
+     * otherwise. It keeps a bounded number of pending messages. If the log
+     * can't keep up, it drops further messages and reports how many it has
+     * dropped. It writes any messages that are still pending when the
+     * application exits.
+     */
+    public static class LogWriter implements Runnable
+    {
+        private static final int MAX_PENDING_MESSAGE_COUNT = 256;
+
+        private final BlockingQueue<String> pendingMessages     = new ArrayBlockingQueue<String>(MAX_PENDING_MESSAGE_COUNT);
+        private final AtomicInteger         droppedMessageCount = new AtomicInteger();
+        private final AtomicBoolean         started             = new AtomicBoolean();
+
+        private Method logMethod;
+
+
+        public LogWriter()
+        {
+            // Try to find the Android logging class.
+            try
+            {
+                Class<?> logClass = Class.forName("android.util.Log");
+                logMethod = logClass.getMethod("w", String.class, String. class);
+            }
+            catch (Exception e) {}
+        }
+
+
+        /**
+         * Queues the given message, starting the background thread if
+         * necessary. Drops the message if too many messages are pending.
+         */
+        public void log(String message)
+        {
+            if (!started.get() &&
+                started.compareAndSet(false, true))
+            {
+                Thread thread = new Thread(this, "ProGuard configuration logger");
+                thread.setDaemon(true);
+                thread.start();
+
+                // Write the pending messages when the application exits,
+                // since the daemon thread may not get the chance.
+                try
+                {
+                    Runtime.getRuntime().addShutdownHook(
+                        new Thread(new LogFlusher(this), "ProGuard configuration log flusher"));
+                }
+                catch (RuntimeException e)
+                {
+                    // The application is already exiting or doesn't allow
+                    // shutdown hooks.
+                }
+            }
+
+            if (!pendingMessages.offer(message))
+            {
+                droppedMessageCount.incrementAndGet();
+            }
+        }
+
+
+        /**
+         * Writes all pending messages right away, in the calling thread.
+         */
+        public void flush()
+        {
+            String message;
+            while ((message = pendingMessages.poll()) != null)
+            {
+                write(message);
+            }
+
+            writeDroppedMessageCount();
+        }
+
+
+        /**
+         * Writes the given message right away.
+         */
+        public void write(String message)
+        {
+            if (logMethod != null)
+            {
+                try
+                {
+                    logMethod.invoke(null, LOG_TAG, message);
+                }
+                catch (Exception e)
+                {
+                    System.err.println(message);
+                }
+            }
+            else
+            {
+                System.err.println(message);
+            }
+        }
+
+
+        // Implementations for Runnable.
+
+        public void run()
+        {
+            try
+            {
+                while (true)
+                {
+                    write(pendingMessages.take());
+
+                    writeDroppedMessageCount();
+                }
+            }
+            catch (InterruptedException e)
+            {
+                // Just stop writing.
+            }
+        }
+
+
+        // Small utility methods.
+
+        /**
+         * Writes and resets the number of dropped messages, if any.
+         */
+        private void writeDroppedMessageCount()
+        {
+            int droppedMessageCount = this.droppedMessageCount.getAndSet(0);
+            if (droppedMessageCount > 0)
+            {
+                write("Dropped " + droppedMessageCount + " more log messages.\n");
+            }
+        }
+    }
+
+
+    /**
+     * This Runnable writes the pending messages of a LogWriter, for instance
+     * as a shutdown hook.
+     */
+    public static class LogFlusher implements Runnable
+    {
+        private final LogWriter logWriter;
+
+
+        public LogFlusher(LogWriter logWriter)
+        {
+            this.logWriter = logWriter;
+        }
+
+
+        // Implementations for Runnable.
+
+        public void run()
+        {
+            logWriter.flush();
+        }
+    }
 }
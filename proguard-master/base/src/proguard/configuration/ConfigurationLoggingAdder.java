@@ -31,7 +31,7 @@ import proguard.classfile.instruction.visitor.InstructionVisitor;
 import proguard.classfile.util.*;
 import proguard.classfile.visitor.*;
 import proguard.io.*;
-import proguard.util.MultiValueMap;
+import proguard.util.*;
 
 import java.io.IOException;
 
@@ -72,18 +72,20 @@ implements   // Implementation interfaces.
                         ExtraDataEntryNameMap extraDataEntryNameMap)
     {
         // Load the logging utility classes in the program class pool.
-        // TODO: The initialization could be incomplete if the loaded classes depend on one another.
+        ClassPool loggingClassPool = new ClassPool();
+
         ClassReader classReader =
             new ClassReader(false, false, false, false, null,
             new MultiClassVisitor(
                 new ClassPoolFiller(programClassPool),
-                new ClassReferenceInitializer(programClassPool, libraryClassPool),
-                new ClassSubHierarchyInitializer()
+                new ClassPoolFiller(loggingClassPool)
             ));
 
         try
         {
             classReader.read(new ClassPathDataEntry(ConfigurationLogger.MethodSignature.class));
+            classReader.read(new ClassPathDataEntry(ConfigurationLogger.LogWriter.class));
+            classReader.read(new ClassPathDataEntry(ConfigurationLogger.LogFlusher.class));
             classReader.read(new ClassPathDataEntry(ConfigurationLogger.class));
         }
         catch (IOException e)
@@ -91,6 +93,23 @@ implements   // Implementation interfaces.
             throw new RuntimeException(e);
         }
 
+        // Initialize the logging classes once all of them are present,
+        // since they refer to one another.
+        loggingClassPool.classesAccept(
+            new MultiClassVisitor(
+                new ClassReferenceInitializer(programClassPool, libraryClassPool),
+                new ClassSubHierarchyInitializer()
+            ));
+
+        // Keep the run methods that the logging threads invoke, since the
+        // library class Runnable may not be present to link them.
+        loggingClassPool.classesAccept(
+            new NamedMethodVisitor("run",
+                                   "()V",
+            new ProcessingFlagSetter(ProcessingFlags.DONT_SHRINK   |
+                                     ProcessingFlags.DONT_OPTIMIZE |
+                                     ProcessingFlags.DONT_OBFUSCATE)));
+
         // Set up the instruction sequences and their replacements.
         ConfigurationLoggingInstructionSequenceConstants constants =
              new ConfigurationLoggingInstructionSequenceConstants(programClassPool,
@@ -123,5 +142,7 @@ implements   // Implementation interfaces.
         // Add a dependency from the modified class on the logging class.
         extraDataEntryNameMap.addExtraClassToClass(clazz, ConfigurationLogger.class);
         extraDataEntryNameMap.addExtraClassToClass(clazz, ConfigurationLogger.MethodSignature.class);
+        extraDataEntryNameMap.addExtraClassToClass(clazz, ConfigurationLogger.LogWriter.class);
+        extraDataEntryNameMap.addExtraClassToClass(clazz, ConfigurationLogger.LogFlusher.class);
     }
 }
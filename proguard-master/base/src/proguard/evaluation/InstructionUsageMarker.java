@@ -928,7 +928,7 @@ implements   AttributeVisitor
                                                InstructionOffsetValue producerOffsets)
         {
             InstructionOffsetValue consumerOffset =
-                new InstructionOffsetValue(offset);
+                InstructionOffsetValue.create(offset);
 
             int offsetCount = producerOffsets.instructionOffsetCount();
             for (int offsetIndex = 0; offsetIndex < offsetCount; offsetIndex++)
@@ -1220,7 +1220,7 @@ implements   AttributeVisitor
             !visitedOffsets.contains(consumerOffset))
         {
             visitedOffsets = visitedOffsets == null ?
-                new InstructionOffsetValue(consumerOffset) :
+                InstructionOffsetValue.create(consumerOffset) :
                 visitedOffsets.add(consumerOffset);
 
             // Make sure the variable is initialized after all producers.
@@ -50,6 +50,13 @@ extends DataEntryCopier
     }
 
 
+    protected boolean copyRawData(DataEntry dataEntry, OutputStream outputStream)
+    {
+        // We always need to rewrite the data.
+        return false;
+    }
+
+
     protected void copyData(InputStream inputStream, OutputStream outputStream) throws IOException
     {
         ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
@@ -51,6 +51,7 @@ import java.util.*;
 public class Obfuscator
 {
     private final Configuration configuration;
+    private final File          previousMapping;
 
 
     /**
@@ -58,7 +59,20 @@ public class Obfuscator
      */
     public Obfuscator(Configuration configuration)
     {
-        this.configuration = configuration;
+        this(configuration, null);
+    }
+
+
+    /**
+     * Creates a new Obfuscator that tries to reapply the given mapping of a
+     * previous incremental run. The mapping is only a hint: if it conflicts
+     * with the current input, the Obfuscator ignores it.
+     */
+    public Obfuscator(Configuration configuration,
+                      File          previousMapping)
+    {
+        this.configuration   = configuration;
+        this.previousMapping = previousMapping;
     }
 
 
@@ -77,11 +91,64 @@ public class Obfuscator
             throw new IOException("You have to specify '-keep' options for the obfuscation step.");
         }
 
+        // Try to reapply the mapping of a previous incremental run. If it
+        // conflicts with the current input, for instance because the class
+        // hierarchy has changed, start over without it, like a clean run.
+        // The obfuscation only renames classes and class members once it
+        // has checked for conflicts.
+        if (previousMapping != null)
+        {
+            if (execute(programClassPool,
+                        libraryClassPool,
+                        resourceFilePool,
+                        previousMapping,
+                        true))
+            {
+                return;
+            }
+
+            if (configuration.verbose)
+            {
+                System.out.println("  The previous mapping conflicts with the input; obfuscating without it...");
+            }
+        }
+
+        execute(programClassPool,
+                libraryClassPool,
+                resourceFilePool,
+                configuration.applyMapping,
+                false);
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Performs obfuscation of the given program class pool, applying the
+     * given mapping, if any.
+     * @param applyMapping  the mapping to apply, if any.
+     * @param isMappingHint specifies whether the mapping is only a hint,
+     *                      in which case the obfuscation quietly stops
+     *                      before renaming anything if the mapping leads
+     *                      to conflicts.
+     * @return whether the obfuscation has been completed.
+     */
+    private boolean execute(ClassPool        programClassPool,
+                            ClassPool        libraryClassPool,
+                            ResourceFilePool resourceFilePool,
+                            File             applyMapping,
+                            boolean          isMappingHint) throws IOException
+    {
         // We're using the system's default character encoding for writing to
         // the standard output and error output.
         PrintWriter out = new PrintWriter(System.out, true);
         PrintWriter err = new PrintWriter(System.err, true);
 
+        // Warnings about a mapping that is only a hint are irrelevant.
+        PrintWriter mappingErr = isMappingHint ?
+            new PrintWriter(new StringWriter()) :
+            err;
+
         // Clean up any old processing info.
         programClassPool.classesAccept(new ClassCleaner());
         libraryClassPool.classesAccept(new ClassCleaner());
@@ -223,18 +290,18 @@ public class Obfuscator
 
         // Apply the mapping, if one has been specified. The mapping can
         // override the names of library classes and of library class members.
-        if (configuration.applyMapping != null)
+        if (applyMapping != null)
         {
             if (configuration.verbose)
             {
                 out.println("Applying mapping from [" +
-                            PrintWriterUtil.fileName(configuration.applyMapping) +
+                            PrintWriterUtil.fileName(applyMapping) +
                             "]...");
             }
 
-            WarningPrinter warningPrinter = new WarningPrinter(err, configuration.warn);
+            WarningPrinter warningPrinter = new WarningPrinter(mappingErr, configuration.warn);
 
-            MappingReader reader = new MappingReader(configuration.applyMapping);
+            MappingReader reader = new MappingReader(applyMapping);
 
             MappingProcessor keeper =
                 new MultiMappingProcessor(new MappingProcessor[]
@@ -249,6 +316,11 @@ public class Obfuscator
             int warningCount = warningPrinter.getWarningCount();
             if (warningCount > 0)
             {
+                if (isMappingHint)
+                {
+                    return false;
+                }
+
                 err.println("Warning: there were " + warningCount +
                             " kept classes and class members that were remapped anyway.");
                 err.println("         You should adapt your configuration or edit the mapping file.");
@@ -290,15 +362,13 @@ public class Obfuscator
                                 configuration.keepKotlinMetadata));
 
         // Come up with new names for all class members.
-        NameFactory nameFactory = new SimpleNameFactory();
-        if (configuration.obfuscationDictionary != null)
-        {
-            nameFactory =
-                new DictionaryNameFactory(configuration.obfuscationDictionary,
-                                          nameFactory);
-        }
+        DictionaryNameFactory dictionaryNameFactory = configuration.obfuscationDictionary != null ?
+            new DictionaryNameFactory(configuration.obfuscationDictionary, null) :
+            null;
+
+        NameFactory nameFactory = createMemberNameFactory(dictionaryNameFactory);
 
-        WarningPrinter warningPrinter = new WarningPrinter(err, configuration.warn);
+        WarningPrinter warningPrinter = new WarningPrinter(mappingErr, configuration.warn);
 
         // Maintain a map of names to avoid [descriptor - new name - old name].
         Map descriptorMap = new HashMap();
@@ -321,86 +391,21 @@ public class Obfuscator
         }
         else
         {
+            // The names in independent class hierarchies don't affect each
+            // other, so we can come up with them in parallel. Each thread
+            // has its own name factory and map of names.
+
             // Come up with new names for all non-private class members.
-            programClassPool.classesAccept(
-                new MultiClassVisitor(
-                    // Collect all private member names in this class and down
-                    // the hierarchy.
-                    new ClassHierarchyTraveler(true, false, false, true,
-                    new AllMemberVisitor(
-                    new MemberAccessFilter(AccessConstants.PRIVATE, 0,
-                    new MemberNameCollector(configuration.overloadAggressively,
-                                            descriptorMap)))),
-
-                    // Collect all non-private member names anywhere in the
-                    // hierarchy.
-                    new ClassHierarchyTraveler(true, true, true, true,
-                    new AllMemberVisitor(
-                    new MemberAccessFilter(0, AccessConstants.PRIVATE,
-                    new MemberNameCollector(configuration.overloadAggressively,
-                                            descriptorMap)))),
-
-                    // Assign new names to all non-private members in this class.
-                    new AllMemberVisitor(
-                    new MemberAccessFilter(0, AccessConstants.PRIVATE,
-                    new MemberObfuscator(configuration.overloadAggressively,
-                                         nameFactory,
-                                         descriptorMap))),
-
-                    // Clear the collected names.
-                    new MapCleaner(descriptorMap)
-                ));
+            programClassPool.accept(
+                new ParallelHierarchyClassVisitor(() ->
+                    createNonPrivateMemberObfuscator(createMemberNameFactory(dictionaryNameFactory),
+                                                     new HashMap<>())));
 
             // Come up with new names for all private class members.
-            programClassPool.classesAccept(
-                new MultiClassVisitor(
-                    // Collect all member names in this class.
-                    new AllMemberVisitor(
-                    new MemberNameCollector(configuration.overloadAggressively,
-                                            descriptorMap)),
-
-                    // Collect all non-private member names higher up the hierarchy.
-                    new ClassHierarchyTraveler(false, true, true, false,
-                    new AllMemberVisitor(
-                    new MemberAccessFilter(0, AccessConstants.PRIVATE,
-                    new MemberNameCollector(configuration.overloadAggressively,
-                                            descriptorMap)))),
-
-                    // Collect all member names from interfaces of abstract
-                    // classes down the hierarchy.
-                    // Due to an error in the JLS/JVMS, virtual invocations
-                    // may end up at a private method otherwise (Sun/Oracle
-                    // bugs #6691741 and #6684387, ProGuard bug #3471941,
-                    // and ProGuard test #1180).
-                    new ClassHierarchyTraveler(false, false, false, true,
-                    new ClassAccessFilter(AccessConstants.ABSTRACT, 0,
-                    new ClassHierarchyTraveler(false, false, true, false,
-                    new AllMemberVisitor(
-                    new MemberNameCollector(configuration.overloadAggressively,
-                                            descriptorMap))))),
-
-                    // Collect all default method names from interfaces of
-                    // any classes down the hierarchy.
-                    // This is an extended version of the above problem
-                    // (Sun/Oracle bug #802464, ProGuard bug #662, and
-                    // ProGuard test #2060).
-                    new ClassHierarchyTraveler(false, false, false, true,
-                    new ClassHierarchyTraveler(false, false, true, false,
-                    new AllMethodVisitor(
-                    new MemberAccessFilter(0, AccessConstants.ABSTRACT | AccessConstants.STATIC,
-                    new MemberNameCollector(configuration.overloadAggressively,
-                                            descriptorMap))))),
-
-                    // Assign new names to all private members in this class.
-                    new AllMemberVisitor(
-                    new MemberAccessFilter(AccessConstants.PRIVATE, 0,
-                    new MemberObfuscator(configuration.overloadAggressively,
-                                         nameFactory,
-                                         descriptorMap))),
-
-                    // Clear the collected names.
-                    new MapCleaner(descriptorMap)
-                ));
+            programClassPool.accept(
+                new ParallelHierarchyClassVisitor(() ->
+                    createPrivateMemberObfuscator(createMemberNameFactory(dictionaryNameFactory),
+                                                  new HashMap<>())));
         }
 
         // Some class members may have ended up with conflicting names.
@@ -494,6 +499,11 @@ public class Obfuscator
         int warningCount = warningPrinter.getWarningCount();
         if (warningCount > 0)
         {
+            if (isMappingHint)
+            {
+                return false;
+            }
+
             err.println("Warning: there were " + warningCount +
                                " conflicting class member name mappings.");
             err.println("         Your configuration may be inconsistent.");
@@ -583,6 +593,28 @@ public class Obfuscator
             }
         }
 
+        // Keep the mapping for subsequent runs, if we're processing
+        // incrementally.
+        File incrementalMappingFile = IncrementalState.mappingFile(configuration);
+        if (incrementalMappingFile != null)
+        {
+            incrementalMappingFile.getParentFile().mkdirs();
+
+            PrintWriter mappingWriter =
+                PrintWriterUtil.createPrintWriter(incrementalMappingFile, out);
+
+            try
+            {
+                programClassPool.classesAcceptAlphabetically(
+                    new MappingPrinter(mappingWriter));
+            }
+            finally
+            {
+                PrintWriterUtil.closePrintWriter(incrementalMappingFile,
+                                                 mappingWriter);
+            }
+        }
+
         if (configuration.addConfigurationDebugging)
         {
             programClassPool.classesAccept(new RenamedFlagSetter());
@@ -702,7 +734,122 @@ public class Obfuscator
 
         if (configuration.keepKotlinMetadata && configuration.enableKotlinAsserter)
         {
-            new KotlinMetadataAsserter().execute(programClassPool, libraryClassPool, resourceFilePool, warningPrinter);
+            new KotlinMetadataAsserter().execute(programClassPool, libraryClassPool, resourceFilePool, new WarningPrinter(err, configuration.warn));
         }
+
+        return true;
+    }
+
+
+    /**
+     * Creates a name factory for class member names, based on the given
+     * dictionary name factory, if any.
+     */
+    private NameFactory createMemberNameFactory(DictionaryNameFactory dictionaryNameFactory)
+    {
+        NameFactory nameFactory = new SimpleNameFactory();
+
+        return dictionaryNameFactory != null ?
+            new DictionaryNameFactory(dictionaryNameFactory, nameFactory) :
+            nameFactory;
+    }
+
+
+    /**
+     * Creates a class visitor that comes up with new names for all non-private
+     * class members of the classes that it visits, with the given name factory
+     * and map of names.
+     */
+    private ClassVisitor createNonPrivateMemberObfuscator(NameFactory                      nameFactory,
+                                                          Map<String, Map<String, String>> descriptorMap)
+    {
+        return
+            new MultiClassVisitor(
+                // Collect all private member names in this class and down
+                // the hierarchy.
+                new ClassHierarchyTraveler(true, false, false, true,
+                new AllMemberVisitor(
+                new MemberAccessFilter(AccessConstants.PRIVATE, 0,
+                new MemberNameCollector(configuration.overloadAggressively,
+                                        descriptorMap)))),
+
+                // Collect all non-private member names anywhere in the
+                // hierarchy.
+                new ClassHierarchyTraveler(true, true, true, true,
+                new AllMemberVisitor(
+                new MemberAccessFilter(0, AccessConstants.PRIVATE,
+                new MemberNameCollector(configuration.overloadAggressively,
+                                        descriptorMap)))),
+
+                // Assign new names to all non-private members in this class.
+                new AllMemberVisitor(
+                new MemberAccessFilter(0, AccessConstants.PRIVATE,
+                new MemberObfuscator(configuration.overloadAggressively,
+                                     nameFactory,
+                                     descriptorMap))),
+
+                // Clear the collected names.
+                new MapCleaner(descriptorMap)
+            );
+    }
+
+
+    /**
+     * Creates a class visitor that comes up with new names for all private
+     * class members of the classes that it visits, with the given name factory
+     * and map of names.
+     */
+    private ClassVisitor createPrivateMemberObfuscator(NameFactory                      nameFactory,
+                                                       Map<String, Map<String, String>> descriptorMap)
+    {
+        return
+            new MultiClassVisitor(
+                // Collect all member names in this class.
+                new AllMemberVisitor(
+                new MemberNameCollector(configuration.overloadAggressively,
+                                        descriptorMap)),
+
+                // Collect all non-private member names higher up the hierarchy.
+                new ClassHierarchyTraveler(false, true, true, false,
+                new AllMemberVisitor(
+                new MemberAccessFilter(0, AccessConstants.PRIVATE,
+                new MemberNameCollector(configuration.overloadAggressively,
+                                        descriptorMap)))),
+
+                // Collect all member names from interfaces of abstract
+                // classes down the hierarchy.
+                // Due to an error in the JLS/JVMS, virtual invocations
+                // may end up at a private method otherwise (Sun/Oracle
+                // bugs #6691741 and #6684387, ProGuard bug #3471941,
+                // and ProGuard test #1180).
+                new ClassHierarchyTraveler(false, false, false, true,
+                new ClassAccessFilter(AccessConstants.ABSTRACT, 0,
+                new ClassHierarchyTraveler(false, false, true, false,
+                new AllMemberVisitor(
+                new MemberNameCollector(configuration.overloadAggressively,
+                                        descriptorMap))))),
+
+                // Collect all default method names from interfaces of
+                // any classes down the hierarchy.
+                // This is an extended version of the above problem
+                // (Sun/Oracle bug #802464, ProGuard bug #662, and
+                // ProGuard test #2060).
+                new ClassHierarchyTraveler(false, false, false, true,
+                new ClassHierarchyTraveler(false, false, true, false,
+                new AllMethodVisitor(
+                new MemberAccessFilter(0, AccessConstants.ABSTRACT | AccessConstants.STATIC,
+                new MemberNameCollector(configuration.overloadAggressively,
+                                        descriptorMap))))),
+
+                // Assign new names to all private members in this class.
+                new AllMemberVisitor(
+                new MemberAccessFilter(AccessConstants.PRIVATE, 0,
+                new MemberObfuscator(configuration.overloadAggressively,
+                                     nameFactory,
+                                     descriptorMap))),
+
+                // Clear the collected names.
+                new MapCleaner(descriptorMap)
+            );
     }
 }
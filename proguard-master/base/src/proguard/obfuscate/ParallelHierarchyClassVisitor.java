@@ -0,0 +1,239 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2020 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.obfuscate;
+
+import proguard.classfile.*;
+import proguard.classfile.util.MethodLinker;
+import proguard.classfile.visitor.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * This ClassPoolVisitor lets the class visitors from a given factory visit
+ * all classes of the class pools that it visits, with independent class
+ * hierarchies in parallel threads.
+ * <p/>
+ * It partitions the program classes into components that are connected by
+ * their superclasses, their interfaces, and their linked class members
+ * (see {@link MethodLinker}). Library classes don't connect components.
+ * Each component is then visited by a single thread, in the order of the
+ * class pool. Visitors that only look at the class hierarchy of the classes
+ * that they visit, and that only change the names of the classes and class
+ * members in these hierarchies, therefore produce the same results as when
+ * visiting the classes sequentially. Each thread has its own class visitor.
+ * <p/>
+ * The class members must have been linked before applying this visitor.
+ *
+ * @see ParallelAllClassVisitor
+ * @author Eric Lafortune
+ */
+public class ParallelHierarchyClassVisitor
+implements   ClassPoolVisitor
+{
+    private final ParallelAllClassVisitor.ClassVisitorFactory classVisitorFactory;
+
+
+    /**
+     * Creates a new ParallelHierarchyClassVisitor that will use the given
+     * factory to create the class visitors.
+     */
+    public ParallelHierarchyClassVisitor(ParallelAllClassVisitor.ClassVisitorFactory classVisitorFactory)
+    {
+        this.classVisitorFactory = classVisitorFactory;
+    }
+
+
+    // Implementations for ClassPoolVisitor.
+
+    public void visitClassPool(ClassPool classPool)
+    {
+        int threadCount = ParallelAllClassVisitor.getThreadCount();
+        if (threadCount <= 1)
+        {
+            // Fall back to single thread execution.
+            classPool.classesAccept(classVisitorFactory.createClassVisitor());
+        }
+        else
+        {
+            // Visit the largest components first, to balance the load.
+            List<List<Clazz>> components = components(classPool);
+            components.sort((component1, component2) -> Integer.compare(component2.size(), component1.size()));
+
+            ThreadLocal<ClassVisitor> classVisitors =
+                ThreadLocal.withInitial(classVisitorFactory::createClassVisitor);
+
+            ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+
+            try
+            {
+                List<Future<?>> futures = new ArrayList<>(components.size());
+                for (List<Clazz> component : components)
+                {
+                    futures.add(executor.submit(() ->
+                    {
+                        ClassVisitor classVisitor = classVisitors.get();
+                        for (Clazz clazz : component)
+                        {
+                            clazz.accept(classVisitor);
+                        }
+                    }));
+                }
+
+                // Rethrow any exception that was thrown in the threads.
+                for (Future<?> future : futures)
+                {
+                    future.get();
+                }
+            }
+            catch (InterruptedException e)
+            {
+                throw new RuntimeException("Parallel execution was interrupted", e);
+            }
+            catch (ExecutionException e)
+            {
+                throw new RuntimeException(e.getCause());
+            }
+            finally
+            {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Returns the connected components of the program classes in the given
+     * class pool, each with its classes in the order of the class pool.
+     */
+    private List<List<Clazz>> components(ClassPool classPool)
+    {
+        MyComponentLinker componentLinker = new MyComponentLinker();
+
+        classPool.classesAccept(componentLinker);
+
+        Map<Object, List<Clazz>> components = new LinkedHashMap<>();
+
+        classPool.classesAccept(clazz ->
+            components.computeIfAbsent(componentLinker.find(clazz),
+                                       root -> new ArrayList<>()).add(clazz));
+
+        return new ArrayList<>(components.values());
+    }
+
+
+    /**
+     * This ClassVisitor and MemberVisitor merges the components of the
+     * program classes that it visits with the components of their program
+     * superclasses and interfaces, and with the components of the classes
+     * and class members to which their class members are linked. It is a
+     * simple union-find structure.
+     */
+    private static class MyComponentLinker
+    implements           ClassVisitor,
+                         MemberVisitor
+    {
+        // The map: [class or class member - parent in its component]
+        private final Map<Object, Object> parents = new IdentityHashMap<>();
+
+
+        /**
+         * Returns the representative of the component of the given class or
+         * class member.
+         */
+        public Object find(Object object)
+        {
+            Object root = object;
+            Object parent;
+            while ((parent = parents.get(root)) != null)
+            {
+                root = parent;
+            }
+
+            // Compress the path to the root.
+            while ((parent = parents.get(object)) != null &&
+                   parent != root)
+            {
+                parents.put(object, root);
+                object = parent;
+            }
+
+            return root;
+        }
+
+
+        // Implementations for ClassVisitor.
+
+        public void visitAnyClass(Clazz clazz) {}
+
+
+        public void visitProgramClass(ProgramClass programClass)
+        {
+            // Link the class with all its program superclasses and
+            // interfaces, also if they are reached through library classes.
+            programClass.hierarchyAccept(false, true, true, false,
+                new ProgramClassFilter(superClass -> union(programClass, superClass)));
+
+            // Link the class with its class members and their linked
+            // class members.
+            programClass.fieldsAccept(this);
+            programClass.methodsAccept(this);
+        }
+
+
+        // Implementations for MemberVisitor.
+
+        public void visitAnyMember(Clazz clazz, Member member) {}
+
+
+        public void visitProgramMember(ProgramClass programClass, ProgramMember programMember)
+        {
+            union(programClass, programMember);
+
+            // Library members at the end of a chain have fixed names, so
+            // they don't connect components.
+            Member lastMember = MethodLinker.lastMember(programMember);
+            if (lastMember instanceof ProgramMember)
+            {
+                union(programMember, lastMember);
+            }
+        }
+
+
+        // Small utility methods.
+
+        /**
+         * Merges the components of the given classes or class members.
+         */
+        private void union(Object object1, Object object2)
+        {
+            Object root1 = find(object1);
+            Object root2 = find(object2);
+
+            if (root1 != root2)
+            {
+                parents.put(root2, root1);
+            }
+        }
+    }
+}
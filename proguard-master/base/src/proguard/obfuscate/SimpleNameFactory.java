@@ -84,17 +84,21 @@ public class SimpleNameFactory implements NameFactory
             cachedMixedCaseNames :
             cachedLowerCaseNames;
 
-        // Do we have the name in the cache?
-        if (index < cachedNames.size())
+        // The cache is shared between name factories in different threads.
+        synchronized (cachedNames)
         {
-            return (String)cachedNames.get(index);
-        }
+            // Do we have the name in the cache?
+            if (index < cachedNames.size())
+            {
+                return (String)cachedNames.get(index);
+            }
 
-        // Create a new name and cache it.
-        String name = newName(index);
-        cachedNames.add(index, name);
+            // Create a new name and cache it.
+            String name = newName(index);
+            cachedNames.add(index, name);
 
-        return name;
+            return name;
+        }
     }
 
 
@@ -122,7 +122,8 @@ public class Optimizer
     };
 
 
-    private final Configuration configuration;
+    private final Configuration      configuration;
+    private final ProcessingListener processingListener;
 
     private final boolean libraryGson;
     private final boolean classMarkingFinal;
@@ -166,7 +167,23 @@ public class Optimizer
      */
     public Optimizer(Configuration configuration)
     {
-        this.configuration = configuration;
+        this(configuration, null);
+    }
+
+
+    /**
+     * Creates a new Optimizer that reports its steps and its counters to
+     * the given processing listener.
+     * @param configuration      the configuration.
+     * @param processingListener an optional listener for the optimization
+     *                           steps, as nested phases, and for the
+     *                           numbers of applied optimizations.
+     */
+    public Optimizer(Configuration      configuration,
+                     ProcessingListener processingListener)
+    {
+        this.configuration      = configuration;
+        this.processingListener = processingListener;
 
         // Create a matcher for filtering optimizations.
         StringMatcher filter = configuration.optimizations != null ?
@@ -560,7 +577,8 @@ public class Optimizer
                         new PartialEvaluator(referenceTracingValueFactory1,
                                              new ParameterTracingInvocationUnit(new BasicInvocationUnit(referenceTracingValueFactory1)),
                                              false,
-                                             referenceTracingValueFactory1);
+                                             referenceTracingValueFactory1,
+                                             processingListener);
                     InstructionUsageMarker instructionUsageMarker =
                         new InstructionUsageMarker(partialEvaluator, false);
 
@@ -799,7 +817,7 @@ public class Optimizer
                 new AllMethodVisitor(
                 new AllAttributeVisitor(
                 new DebugAttributeVisitor("Filling out fields, method parameters, and return values in synthetic classes",
-                new PartialEvaluator(detailedValueFactory, storingInvocationUnit, false))))));
+                new PartialEvaluator(detailedValueFactory, storingInvocationUnit, false, null, processingListener))))));
 
             // Evaluate non-synthetic classes. We may need to evaluate all
             // casts, to account for downcasts when specializing descriptors.
@@ -823,7 +841,7 @@ public class Optimizer
                             new AllAttributeVisitor(
                             new DebugAttributeVisitor("Filling out fields, method parameters, and return values",
                             new PartialEvaluator(valueFactory, storingInvocationUnit,
-                                                 false)))));
+                                                 false, null, processingListener)))));
                     }
                 };
 
@@ -893,7 +911,7 @@ public class Optimizer
                     new ClassAccessFilter(AccessConstants.SYNTHETIC, 0,
                     new AllMethodVisitor(
                     new AllAttributeVisitor(
-                    new PartialEvaluator(valueFactory, loadingInvocationUnit, false)))));
+                    new PartialEvaluator(valueFactory, loadingInvocationUnit, false, null, processingListener)))));
             }
         }
 
@@ -920,7 +938,7 @@ public class Optimizer
                             new DebugAttributeVisitor("Simplifying code",
                             new OptimizationCodeAttributeFilter(
                             new EvaluationSimplifier(
-                            new PartialEvaluator(valueFactory, loadingInvocationUnit, false),
+                            new PartialEvaluator(valueFactory, loadingInvocationUnit, false, null, processingListener),
                             codeSimplificationAdvancedCounter)))));
                     }
                 };
@@ -964,7 +982,8 @@ public class Optimizer
                             new PartialEvaluator(referenceTracingValueFactory,
                                                  new ParameterTracingInvocationUnit(loadingInvocationUnit),
                                                  !codeSimplificationAdvanced,
-                                                 referenceTracingValueFactory),
+                                                 referenceTracingValueFactory,
+                                                 processingListener),
                             true), true, deletedCounter, addedCounter)))));
                     }
                 };
@@ -1536,6 +1555,44 @@ public class Optimizer
             System.out.println("  Number of optimized local variable frames:     " + codeAllocationVariableCount            + disabled(codeAllocationVariable));
         }
 
+        if (processingListener != null)
+        {
+            processingListener.counterReported(CLASS_MARKING_FINAL,                     classMarkingFinalCount);
+            processingListener.counterReported(CLASS_UNBOXING_ENUM,                     classUnboxingEnumCount);
+            processingListener.counterReported(CLASS_MERGING_VERTICAL,                  classMergingVerticalCount);
+            processingListener.counterReported(CLASS_MERGING_HORIZONTAL,                classMergingHorizontalCount);
+            processingListener.counterReported(CLASS_MERGING_WRAPPER,                   classMergingWrapperCount);
+            processingListener.counterReported(FIELD_REMOVAL_WRITEONLY,                 fieldRemovalWriteonlyCount);
+            processingListener.counterReported(FIELD_MARKING_PRIVATE,                   fieldMarkingPrivateCount);
+            processingListener.counterReported(FIELD_PROPAGATION_VALUE,                 fieldPropagationValueCount);
+            processingListener.counterReported(METHOD_MARKING_PRIVATE,                  methodMarkingPrivateCount);
+            processingListener.counterReported(METHOD_MARKING_STATIC,                   methodMarkingStaticCount);
+            processingListener.counterReported(METHOD_MARKING_FINAL,                    methodMarkingFinalCount);
+            processingListener.counterReported(METHOD_MARKING_SYNCHRONIZED,             methodMarkingSynchronizedCount);
+            processingListener.counterReported(METHOD_REMOVAL_PARAMETER + "/methods",   methodRemovalParameterCount1);
+            processingListener.counterReported(METHOD_REMOVAL_PARAMETER,                methodRemovalParameterCount2);
+            processingListener.counterReported(METHOD_PROPAGATION_PARAMETER,            methodPropagationParameterCount);
+            processingListener.counterReported(METHOD_PROPAGATION_RETURNVALUE,          methodPropagationReturnvalueCount);
+            processingListener.counterReported(METHOD_INLINING_SHORT,                   methodInliningShortCount);
+            processingListener.counterReported(METHOD_INLINING_UNIQUE,                  methodInliningUniqueCount);
+            processingListener.counterReported(METHOD_INLINING_TAILRECURSION,           methodInliningTailrecursionCount);
+            processingListener.counterReported(CODE_MERGING,                            codeMergingCount);
+            processingListener.counterReported(CODE_SIMPLIFICATION_VARIABLE,            codeSimplificationVariableCount);
+            processingListener.counterReported(CODE_SIMPLIFICATION_ARITHMETIC,          codeSimplificationArithmeticCount);
+            processingListener.counterReported(CODE_SIMPLIFICATION_CAST,                codeSimplificationCastCount);
+            processingListener.counterReported(CODE_SIMPLIFICATION_FIELD,               codeSimplificationFieldCount);
+            processingListener.counterReported(CODE_SIMPLIFICATION_BRANCH,              codeSimplificationBranchCount);
+            processingListener.counterReported(CODE_SIMPLIFICATION_OBJECT,              codeSimplificationObjectCount);
+            processingListener.counterReported(CODE_SIMPLIFICATION_STRING,              codeSimplificationStringCount);
+            processingListener.counterReported(CODE_SIMPLIFICATION_MATH,                codeSimplificationMathCount);
+            processingListener.counterReported(CODE_SIMPLIFICATION_MATH + "/android",   codeSimplificationAndroidMathCount);
+            processingListener.counterReported(CODE_SIMPLIFICATION_ADVANCED,            codeSimplificationAdvancedCount);
+            processingListener.counterReported(CODE_REMOVAL_ADVANCED,                   codeRemovalCount);
+            processingListener.counterReported(CODE_REMOVAL_VARIABLE,                   codeRemovalVariableCount);
+            processingListener.counterReported(CODE_REMOVAL_EXCEPTION,                  codeRemovalExceptionCount);
+            processingListener.counterReported(CODE_ALLOCATION_VARIABLE,                codeAllocationVariableCount);
+        }
+
         return classMarkingFinalCount                 > 0 ||
                classUnboxingEnumCount                 > 0 ||
                classMergingVerticalCount              > 0 ||
@@ -1705,7 +1762,8 @@ public class Optimizer
 
 
     /**
-     * A simple class pool visitor that will output timing information.
+     * A simple class pool visitor that will output timing information, and
+     * that reports its visit as a phase to the processing listener, if any.
      */
     private class TimedClassPoolVisitor
     implements ClassPoolVisitor
@@ -1738,7 +1796,22 @@ public class Optimizer
                 start = System.currentTimeMillis();
             }
 
-            classPool.accept(classPoolVisitor);
+            if (processingListener != null)
+            {
+                processingListener.phaseStarted(message);
+            }
+
+            try
+            {
+                classPool.accept(classPoolVisitor);
+            }
+            finally
+            {
+                if (processingListener != null)
+                {
+                    processingListener.phaseFinished(message);
+                }
+            }
 
             if (DETAILS)
             {
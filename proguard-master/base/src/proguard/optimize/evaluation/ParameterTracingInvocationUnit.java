@@ -92,8 +92,8 @@ extends      ReferenceTracingInvocationUnit
 
             // The trace value might be any external value or just a new instance.
             InstructionOffsetValue traceValue =
-                ParameterEscapeMarker.returnsExternalValues(referencedMethod) ? new InstructionOffsetValue(offset | InstructionOffsetValue.FIELD_VALUE)  :
-                ParameterEscapeMarker.returnsNewInstances(referencedMethod)   ? new InstructionOffsetValue(offset | InstructionOffsetValue.NEW_INSTANCE) :
+                ParameterEscapeMarker.returnsExternalValues(referencedMethod) ? InstructionOffsetValue.create(offset | InstructionOffsetValue.FIELD_VALUE)  :
+                ParameterEscapeMarker.returnsNewInstances(referencedMethod)   ? InstructionOffsetValue.create(offset | InstructionOffsetValue.NEW_INSTANCE) :
                                                                                 null;
 
             long returnedParameters =
@@ -483,7 +483,7 @@ implements   ClassVisitor,
     /**
      * Returns the set of superclasses and interfaces that are initialized.
      */
-    private Set sideEffectSuperClasses(Clazz clazz)
+    static Set sideEffectSuperClasses(Clazz clazz)
     {
         Set set = new HashSet();
 
@@ -501,7 +501,7 @@ implements   ClassVisitor,
      * Returns the set of superclasses and interfaces that are used in
      * 'instanceof' tests.
      */
-    private Set instanceofedSuperClasses(Clazz clazz)
+    static Set instanceofedSuperClasses(Clazz clazz)
     {
         Set set = new HashSet();
 
@@ -518,7 +518,7 @@ implements   ClassVisitor,
     /**
      * Returns the set of superclasses that are caught as exceptions.
      */
-    private Set caughtSuperClasses(Clazz clazz)
+    static Set caughtSuperClasses(Clazz clazz)
     {
         // Don't bother if this isn't an exception at all.
         if (!clazz.extends_(ClassConstants.NAME_JAVA_LANG_THROWABLE))
@@ -542,7 +542,7 @@ implements   ClassVisitor,
      * Returns whether the given class has a Signature attributes containing
      * type variables or parameterized types.
      */
-    private boolean hasSignatureAttribute(Clazz clazz)
+    static boolean hasSignatureAttribute(Clazz clazz)
     {
         AttributeCounter counter = new AttributeCounter();
 
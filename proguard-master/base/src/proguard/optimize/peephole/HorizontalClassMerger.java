@@ -22,10 +22,22 @@ package proguard.optimize.peephole;
 
 import proguard.classfile.*;
 import proguard.classfile.visitor.*;
+import proguard.optimize.KeepMarker;
+
+import java.util.*;
 
 /**
  * This ClassVisitor inlines siblings in the program classes that it visits,
  * whenever possible.
+ * <p>
+ * The first time it encounters a superclass, it puts the subclasses in
+ * buckets with the same class version and the same initialized,
+ * instanceofed, and caught superclasses, since the ClassMerger only merges
+ * classes that agree on those. Within a bucket, it then skips siblings that
+ * have fields or concrete methods with the same names and descriptors as
+ * the target class. The merged classes are the same as when trying all
+ * siblings, but the number of merge attempts no longer grows quadratically
+ * with the number of siblings, e.g. of java.lang.Object.
  *
  * @see ClassMerger
  * @author Eric Lafortune
@@ -33,9 +45,12 @@ import proguard.classfile.visitor.*;
 public class HorizontalClassMerger
 implements   ClassVisitor
 {
-    private final boolean                       allowAccessModification;
-    private final boolean                       mergeInterfacesAggressively;
-    private final ClassVisitor                  extraClassVisitor;
+    private final boolean                        allowAccessModification;
+    private final boolean                        mergeInterfacesAggressively;
+    private final ClassVisitor                   extraClassVisitor;
+
+    private final Set<Clazz>                     plannedSuperClasses = new HashSet<>();
+    private final Map<Clazz, MySiblingBucket>    siblingBuckets      = new HashMap<>();
 
 
     /**
@@ -87,12 +102,243 @@ implements   ClassVisitor
     @Override
     public void visitProgramClass(ProgramClass programClass)
     {
-        programClass.superClassConstantAccept(new ReferencedClassVisitor(
-                                              new SubclassTraveler(
-                                              new ClassMerger(programClass,
-                                                              allowAccessModification,
-                                                              mergeInterfacesAggressively,
-                                                              false,
-                                                              extraClassVisitor))));
+        Clazz superClass = programClass.getSuperClass();
+
+        // Retargeted classes can't absorb any other classes.
+        if (superClass != null &&
+            ClassMerger.getTargetClass(programClass) == null)
+        {
+            // Plan the siblings of this class, if we haven't done so yet.
+            if (plannedSuperClasses.add(superClass))
+            {
+                planSiblings(superClass);
+            }
+
+            MySiblingBucket siblingBucket = siblingBuckets.get(programClass);
+            if (siblingBucket != null)
+            {
+                siblingBucket.mergeSiblings(programClass,
+                                            new ClassMerger(programClass,
+                                                            allowAccessModification,
+                                                            mergeInterfacesAggressively,
+                                                            false,
+                                                            extraClassVisitor));
+            }
+        }
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Puts the mergeable subclasses of the given class in buckets of
+     * potentially compatible classes.
+     */
+    private void planSiblings(Clazz superClass)
+    {
+        List<Clazz> siblings = new ArrayList<>();
+        superClass.subclassesAccept(
+            new ProgramClassFilter(
+            new ClassCollector(siblings)));
+
+        Map<List<Object>, MySiblingBucket> buckets = new LinkedHashMap<>();
+
+        for (Clazz clazz : siblings)
+        {
+            ProgramClass sibling = (ProgramClass)clazz;
+
+            // The class merger never merges kept classes or classes with
+            // signature attributes, either way.
+            if (!KeepMarker.isKept(sibling) &&
+                !ClassMerger.hasSignatureAttribute(sibling))
+            {
+                // Only classes with the same key can be merged. The key
+                // doesn't change by merging.
+                List<Object> key =
+                    Arrays.asList(Integer.valueOf(sibling.u4version),
+                                  ClassMerger.sideEffectSuperClasses(sibling),
+                                  ClassMerger.instanceofedSuperClasses(sibling),
+                                  ClassMerger.caughtSuperClasses(sibling));
+
+                MySiblingBucket siblingBucket = buckets.get(key);
+                if (siblingBucket == null)
+                {
+                    siblingBucket = new MySiblingBucket();
+                    buckets.put(key, siblingBucket);
+                }
+
+                siblingBucket.addSibling(sibling);
+
+                siblingBuckets.put(sibling, siblingBucket);
+            }
+        }
+
+        for (MySiblingBucket siblingBucket : buckets.values())
+        {
+            siblingBucket.indexMemberSignatures();
+        }
+    }
+
+
+    /**
+     * This class contains potentially compatible siblings, in their original
+     * order. For the member signatures that they share, it keeps the indices
+     * of the siblings that have them, so it can quickly skip siblings that
+     * can't be merged into a given target class.
+     */
+    private static class MySiblingBucket
+    {
+        // Signatures shared by this many siblings are kept as bit sets.
+        private static final int DENSE_SIGNATURE_COUNT = 64;
+
+
+        private final List<ProgramClass>  siblings         = new ArrayList<>();
+        private final Map<Clazz, Integer> siblingIndices   = new HashMap<>();
+        private final List<Set<String>>   memberSignatures = new ArrayList<>();
+        private final Map<String, int[]>  sparseSignatures = new HashMap<>();
+        private final Map<String, BitSet> denseSignatures  = new HashMap<>();
+        private final BitSet              mergedSiblings   = new BitSet();
+
+
+        /**
+         * Adds the given sibling to the end of this bucket.
+         */
+        public void addSibling(ProgramClass sibling)
+        {
+            siblingIndices.put(sibling, Integer.valueOf(siblings.size()));
+            siblings.add(sibling);
+            memberSignatures.add(memberSignatures(sibling));
+        }
+
+
+        /**
+         * Indexes the member signatures that are shared by multiple siblings.
+         */
+        public void indexMemberSignatures()
+        {
+            Map<String, List<Integer>> signatureIndices = new HashMap<>();
+
+            for (int index = 0; index < siblings.size(); index++)
+            {
+                for (String signature : memberSignatures.get(index))
+                {
+                    List<Integer> indices = signatureIndices.get(signature);
+                    if (indices == null)
+                    {
+                        indices = new ArrayList<>(2);
+                        signatureIndices.put(signature, indices);
+                    }
+
+                    indices.add(Integer.valueOf(index));
+                }
+            }
+
+            for (Map.Entry<String, List<Integer>> entry : signatureIndices.entrySet())
+            {
+                List<Integer> indices = entry.getValue();
+                int           count   = indices.size();
+
+                // Signatures of single siblings never get in the way.
+                if (count >= DENSE_SIGNATURE_COUNT)
+                {
+                    BitSet bitSet = new BitSet(siblings.size());
+                    for (int index = 0; index < count; index++)
+                    {
+                        bitSet.set(indices.get(index).intValue());
+                    }
+
+                    denseSignatures.put(entry.getKey(), bitSet);
+                }
+                else if (count > 1)
+                {
+                    int[] array = new int[count];
+                    for (int index = 0; index < count; index++)
+                    {
+                        array[index] = indices.get(index).intValue();
+                    }
+
+                    sparseSignatures.put(entry.getKey(), array);
+                }
+            }
+        }
+
+
+        /**
+         * Lets the given class merger visit all siblings that may be merged
+         * into the given target class, in their original order.
+         */
+        public void mergeSiblings(ProgramClass targetClass,
+                                  ClassVisitor classMerger)
+        {
+            int targetIndex = siblingIndices.get(targetClass).intValue();
+
+            // Skip the target class itself, the siblings that have already
+            // been merged, and the siblings that have any members with the
+            // same names and descriptors. Merging only adds members to the
+            // target class, so the latter can never be merged into it.
+            BitSet skippedSiblings = (BitSet)mergedSiblings.clone();
+            skippedSiblings.set(targetIndex);
+
+            for (String signature : memberSignatures.get(targetIndex))
+            {
+                BitSet bitSet = denseSignatures.get(signature);
+                if (bitSet != null)
+                {
+                    skippedSiblings.or(bitSet);
+                }
+                else
+                {
+                    int[] array = sparseSignatures.get(signature);
+                    if (array != null)
+                    {
+                        for (int index = 0; index < array.length; index++)
+                        {
+                            skippedSiblings.set(array[index]);
+                        }
+                    }
+                }
+            }
+
+            int siblingCount = siblings.size();
+
+            for (int index = skippedSiblings.nextClearBit(0);
+                 index < siblingCount;
+                 index = skippedSiblings.nextClearBit(index + 1))
+            {
+                ProgramClass sibling = siblings.get(index);
+
+                if (ClassMerger.getTargetClass(sibling) == null)
+                {
+                    sibling.accept(classMerger);
+                }
+
+                // Remember if the sibling has been merged, into the target
+                // class or before.
+                if (ClassMerger.getTargetClass(sibling) != null)
+                {
+                    mergedSiblings.set(index);
+                }
+            }
+        }
+
+
+        /**
+         * Returns the names and descriptors of all fields and all
+         * non-abstract methods of the given class.
+         */
+        private Set<String> memberSignatures(ProgramClass programClass)
+        {
+            Set<String> signatures = new HashSet<>();
+
+            MemberVisitor memberCollector =
+                new MemberCollector(false, true, true, signatures);
+
+            programClass.fieldsAccept(memberCollector);
+            programClass.methodsAccept(
+                new MemberAccessFilter(0, AccessConstants.ABSTRACT,
+                memberCollector));
+
+            return signatures;
+        }
     }
 }
@@ -57,12 +57,15 @@ public class Preverifier
         // Classes for JME must be preverified.
         // Classes for JSE 6 may optionally be preverified.
         // Classes for JSE 7 or higher must be preverified.
-        programClassPool.classesAccept(
+        // The classes are independent, so we can preverify them in
+        // parallel, with a separate preverifier in each thread.
+        programClassPool.accept(
+            new ParallelAllClassVisitor(() ->
             new ClassVersionFilter(configuration.microEdition ?
                                        VersionConstants.CLASS_VERSION_1_0 :
                                        VersionConstants.CLASS_VERSION_1_6,
             new AllMethodVisitor(
             new AllAttributeVisitor(
-            new CodePreverifier(configuration.microEdition)))));
+            new CodePreverifier(configuration.microEdition))))));
     }
 }
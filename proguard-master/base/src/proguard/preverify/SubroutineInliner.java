@@ -53,22 +53,27 @@ public class SubroutineInliner
         // Clean up any old processing info.
         programClassPool.classesAccept(new ClassCleaner());
 
-        // Inline all subroutines.
-        ClassVisitor inliner =
-            new AllMethodVisitor(
-            new AllAttributeVisitor(
-            new CodeSubroutineInliner()));
+        // Inline all subroutines. The classes are independent, so we can
+        // process them in parallel, with a separate inliner in each thread.
+        programClassPool.accept(
+            new ParallelAllClassVisitor(() ->
+            {
+                ClassVisitor inliner =
+                    new AllMethodVisitor(
+                    new AllAttributeVisitor(
+                    new CodeSubroutineInliner()));
 
-        // In Java Standard Edition, only class files from Java 6 or higher
-        // should be preverified.
-        if (!configuration.microEdition &&
-            !configuration.android)
-        {
-            inliner =
-                new ClassVersionFilter(VersionConstants.CLASS_VERSION_1_6,
-                                       inliner);
-        }
+                // In Java Standard Edition, only class files from Java 6 or
+                // higher should be preverified.
+                if (!configuration.microEdition &&
+                    !configuration.android)
+                {
+                    inliner =
+                        new ClassVersionFilter(VersionConstants.CLASS_VERSION_1_6,
+                                               inliner);
+                }
 
-        programClassPool.classesAccept(inliner);
+                return inliner;
+            }));
     }
 }
@@ -150,6 +150,26 @@ implements   ClassVisitor,
     }
 
 
+    /**
+     * Starts a batch of marking operations that don't depend on each other,
+     * like marking the seeds. A subclass may then perform the marking
+     * operations asynchronously, until the batch is finished. This
+     * implementation performs them right away.
+     */
+    public void startBatch()
+    {
+    }
+
+
+    /**
+     * Finishes the current batch of marking operations, making sure that
+     * all of them have been performed.
+     */
+    public void finishBatch()
+    {
+    }
+
+
     // Implementations for ClassVisitor.
 
     @Override
@@ -290,12 +310,7 @@ implements   ClassVisitor,
         @Override
         public void visitProgramClass(ProgramClass programClass)
         {
-            if (shouldBeMarkedAsPossiblyUsed(programClass))
-            {
-                // We can't process the interface yet, because it might not
-                // be required. Give it a preliminary mark.
-                markAsPossiblyUsed(programClass);
-            }
+            markInterfaceAsPossiblyUsed(programClass);
         }
 
 
@@ -319,16 +334,7 @@ implements   ClassVisitor,
 
         public void visitProgramMethod(ProgramClass programClass, ProgramMethod programMethod)
         {
-            if (shouldBeMarkedAsUsed(programMethod))
-            {
-                markAsUsed(programMethod);
-
-                // Mark the method body.
-                markProgramMethodBody(programClass, programMethod);
-
-                // Note that, if the method has been marked as possibly used,
-                // the method hierarchy has already been marked (cfr. below).
-            }
+            markDefaultMethod(programClass, programMethod);
         }
     }
 
@@ -576,6 +582,42 @@ implements   ClassVisitor,
     }
 
 
+    /**
+     * Gives the given program interface a preliminary mark, if it hasn't
+     * been marked yet. It is implemented by a used class, but it might not
+     * be required.
+     */
+    protected void markInterfaceAsPossiblyUsed(ProgramClass programClass)
+    {
+        if (shouldBeMarkedAsPossiblyUsed(programClass))
+        {
+            // We can't process the interface yet, because it might not
+            // be required. Give it a preliminary mark.
+            markAsPossiblyUsed(programClass);
+        }
+    }
+
+
+    /**
+     * Marks the given default method implementation of a program interface,
+     * if it hasn't been marked yet.
+     */
+    protected void markDefaultMethod(ProgramClass programClass, ProgramMethod programMethod)
+    {
+        if (shouldBeMarkedAsUsed(programMethod))
+        {
+            markAsUsed(programMethod);
+
+            // Mark the method body.
+            markProgramMethodBody(programClass, programMethod);
+
+            // Note that, if the method has been marked as possibly used,
+            // the method hierarchy has already been marked (cfr.
+            // visitProgramMethod).
+        }
+    }
+
+
     // Implementations for ConstantVisitor.
 
     public void visitIntegerConstant(Clazz clazz, IntegerConstant integerConstant)
@@ -0,0 +1,164 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2020 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.shrink;
+
+import proguard.classfile.*;
+
+import java.util.*;
+
+/**
+ * This ClassUsageMarker marks classes and class members based on an
+ * explicit worklist, instead of recursing from one class or class member
+ * to the next one. The stack depth therefore remains bounded, even for
+ * huge code bases with long chains of references.
+ * <p/>
+ * The resulting marks are the same as with the recursive ClassUsageMarker.
+ * The marker doesn't support Kotlin metadata or extra visitors though,
+ * since their marking depends on the order in which classes are marked.
+ *
+ * @author Eric Lafortune
+ */
+public class IterativeClassUsageMarker
+extends      ClassUsageMarker
+{
+    private final Deque<Runnable> worklist = new ArrayDeque<>();
+
+    private boolean marking;
+
+
+    /**
+     * Creates a new IterativeClassUsageMarker.
+     */
+    public IterativeClassUsageMarker(SimpleUsageMarker usageMarker)
+    {
+        super(usageMarker);
+    }
+
+
+    // Implementations for ClassVisitor.
+
+    @Override
+    public void visitProgramClass(ProgramClass programClass)
+    {
+        // Don't bother scheduling a task if the class is already used.
+        if (shouldBeMarkedAsUsed(programClass))
+        {
+            schedule(programClass, () -> super.visitProgramClass(programClass));
+        }
+    }
+
+
+    @Override
+    public void visitLibraryClass(LibraryClass libraryClass)
+    {
+        if (shouldBeMarkedAsUsed(libraryClass))
+        {
+            schedule(libraryClass, () -> super.visitLibraryClass(libraryClass));
+        }
+    }
+
+
+    // Implementations for MemberVisitor.
+
+    @Override
+    public void visitProgramField(ProgramClass programClass, ProgramField programField)
+    {
+        if (shouldBeMarkedAsUsed(programField))
+        {
+            schedule(programClass, () -> super.visitProgramField(programClass, programField));
+        }
+    }
+
+
+    @Override
+    public void visitProgramMethod(ProgramClass programClass, ProgramMethod programMethod)
+    {
+        if (shouldBeMarkedAsUsed(programMethod))
+        {
+            schedule(programClass, () -> super.visitProgramMethod(programClass, programMethod));
+        }
+    }
+
+
+    @Override
+    public void visitLibraryMethod(LibraryClass libraryClass, LibraryMethod libraryMethod)
+    {
+        if (shouldBeMarkedAsUsed(libraryMethod))
+        {
+            schedule(libraryClass, () -> super.visitLibraryMethod(libraryClass, libraryMethod));
+        }
+    }
+
+
+    // Overridden methods from ClassUsageMarker.
+
+    @Override
+    protected void markInterfaceAsPossiblyUsed(ProgramClass programClass)
+    {
+        if (shouldBeMarkedAsPossiblyUsed(programClass))
+        {
+            schedule(programClass, () -> super.markInterfaceAsPossiblyUsed(programClass));
+        }
+    }
+
+
+    @Override
+    protected void markDefaultMethod(ProgramClass programClass, ProgramMethod programMethod)
+    {
+        if (shouldBeMarkedAsUsed(programMethod))
+        {
+            schedule(programClass, () -> super.markDefaultMethod(programClass, programMethod));
+        }
+    }
+
+
+    /**
+     * Schedules the given marking task, which only marks the given class or
+     * its class members directly. This implementation adds the task to the
+     * worklist, if the marker is already marking. Otherwise, it performs
+     * the task and all tasks that it adds to the worklist, until the
+     * worklist is empty.
+     */
+    protected void schedule(Clazz clazz, Runnable task)
+    {
+        if (marking)
+        {
+            worklist.push(task);
+        }
+        else
+        {
+            marking = true;
+            try
+            {
+                do
+                {
+                    task.run();
+                }
+                while ((task = worklist.poll()) != null);
+            }
+            finally
+            {
+                marking = false;
+                worklist.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2020 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.shrink;
+
+import proguard.classfile.*;
+import proguard.classfile.visitor.ParallelAllClassVisitor;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * This IterativeClassUsageMarker marks classes and class members in
+ * parallel threads of a work-stealing pool.
+ * <p/>
+ * Each class is processed by at most one thread at a time: the thread
+ * marks the class, its members, its constants, and its attributes. The
+ * tasks for marking other classes or class members are scheduled for their
+ * own classes. The preliminary marks of classes and class members that are
+ * possibly used and their final marks therefore remain consistent, without
+ * any further synchronization. The resulting marks are the same as with
+ * the recursive ClassUsageMarker.
+ * <p/>
+ * When any other thread applies the marker, it waits until the marking
+ * has completed, unless it is marking a batch of operations that don't
+ * depend on each other.
+ *
+ * @author Eric Lafortune
+ */
+public class ParallelClassUsageMarker
+extends      IterativeClassUsageMarker
+{
+    private static ForkJoinPool pool;
+
+
+    private final Map<Clazz, MyClassTasks>   classTasksMap    = new ConcurrentHashMap<>();
+    private final AtomicInteger              pendingTaskCount = new AtomicInteger();
+    private final AtomicReference<Throwable> error            = new AtomicReference<>();
+    private final Object                     lock             = new Object();
+
+    private boolean batch;
+
+
+    /**
+     * Creates a new ParallelClassUsageMarker.
+     */
+    public ParallelClassUsageMarker(SimpleUsageMarker usageMarker)
+    {
+        super(usageMarker);
+    }
+
+
+    // Overridden methods from ClassUsageMarker.
+
+    @Override
+    public void startBatch()
+    {
+        batch = true;
+    }
+
+
+    @Override
+    public void finishBatch()
+    {
+        batch = false;
+
+        awaitCompletion();
+    }
+
+
+    /**
+     * Schedules the given marking task for the given class, to be performed
+     * by a marking thread. If the current thread isn't a marking thread and
+     * it isn't marking a batch, the method waits until the marking has
+     * completed.
+     */
+    @Override
+    protected void schedule(Clazz clazz, Runnable task)
+    {
+        MyClassTasks classTasks =
+            classTasksMap.computeIfAbsent(clazz, key -> new MyClassTasks());
+
+        classTasks.add(task);
+
+        if (!batch &&
+            !isMarkingThread())
+        {
+            awaitCompletion();
+        }
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Returns whether the current thread is a marking thread.
+     */
+    private boolean isMarkingThread()
+    {
+        Thread thread = Thread.currentThread();
+
+        return thread instanceof ForkJoinWorkerThread &&
+               ((ForkJoinWorkerThread)thread).getPool() == pool;
+    }
+
+
+    /**
+     * Waits until all scheduled tasks have completed, rethrowing any
+     * exception that they may have thrown.
+     */
+    private void awaitCompletion()
+    {
+        synchronized (lock)
+        {
+            while (pendingTaskCount.get() > 0)
+            {
+                try
+                {
+                    lock.wait();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while marking used classes", e);
+                }
+            }
+        }
+
+        Throwable throwable = error.getAndSet(null);
+        if (throwable instanceof RuntimeException)
+        {
+            throw (RuntimeException)throwable;
+        }
+        else if (throwable instanceof Error)
+        {
+            throw (Error)throwable;
+        }
+        else if (throwable != null)
+        {
+            throw new RuntimeException(throwable);
+        }
+    }
+
+
+    /**
+     * Notes that a scheduled task has completed, notifying any waiting
+     * thread if it was the last one.
+     */
+    private void taskCompleted()
+    {
+        if (pendingTaskCount.decrementAndGet() == 0)
+        {
+            synchronized (lock)
+            {
+                lock.notifyAll();
+            }
+        }
+    }
+
+
+    /**
+     * Returns the shared pool of marking threads, creating it if necessary.
+     */
+    private static synchronized ForkJoinPool pool()
+    {
+        if (pool == null)
+        {
+            pool = new ForkJoinPool(ParallelAllClassVisitor.getThreadCount(),
+                                    ForkJoinPool.defaultForkJoinWorkerThreadFactory,
+                                    null,
+                                    true);
+        }
+
+        return pool;
+    }
+
+
+    /**
+     * This Runnable performs the scheduled marking tasks of a single class,
+     * in a single thread at a time.
+     */
+    private class MyClassTasks
+    implements    Runnable
+    {
+        private final Queue<Runnable> tasks     = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean   scheduled = new AtomicBoolean();
+
+
+        /**
+         * Adds the given task, scheduling the class if it isn't scheduled
+         * yet.
+         */
+        public void add(Runnable task)
+        {
+            pendingTaskCount.incrementAndGet();
+
+            tasks.add(task);
+
+            if (scheduled.compareAndSet(false, true))
+            {
+                pool().execute(this);
+            }
+        }
+
+
+        // Implementations for Runnable.
+
+        public void run()
+        {
+            do
+            {
+                Runnable task;
+                while ((task = tasks.poll()) != null)
+                {
+                    try
+                    {
+                        // Skip the remaining work after any failure.
+                        if (error.get() == null)
+                        {
+                            task.run();
+                        }
+                    }
+                    catch (Throwable e)
+                    {
+                        error.compareAndSet(null, e);
+                    }
+                    finally
+                    {
+                        taskCompleted();
+                    }
+                }
+
+                scheduled.set(false);
+            }
+            // Continue with any tasks that were added in the meantime,
+            // unless another thread has picked them up.
+            while (!tasks.isEmpty() &&
+                   scheduled.compareAndSet(false, true));
+        }
+    }
+}
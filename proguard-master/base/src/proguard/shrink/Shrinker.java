@@ -79,11 +79,18 @@ public class Shrinker
             new ShortestUsageMarker();
 
          // Create a usage marker for resources and code, tracing the reasons
-         // if specified.
-         ClassUsageMarker classUsageMarker = configuration.whyAreYouKeeping == null ?
-             new ClassUsageMarker(simpleUsageMarker) :
-             new ShortestClassUsageMarker((ShortestUsageMarker) simpleUsageMarker,
-                                          "is kept by a directive in the configuration.\n\n");
+         // if specified. Otherwise mark based on worklists, in parallel if
+         // possible. The marking of Kotlin metadata depends on the order of
+         // the marking though, so it requires the recursive marker.
+         ClassUsageMarker classUsageMarker =
+             configuration.whyAreYouKeeping != null ?
+                 new ShortestClassUsageMarker((ShortestUsageMarker) simpleUsageMarker,
+                                              "is kept by a directive in the configuration.\n\n") :
+             configuration.keepKotlinMetadata ?
+                 new ClassUsageMarker(simpleUsageMarker) :
+             ParallelAllClassVisitor.getThreadCount() > 1 ?
+                 new ParallelClassUsageMarker(simpleUsageMarker) :
+                 new IterativeClassUsageMarker(simpleUsageMarker);
 
         // Mark all used code and resources and resource files.
         new UsageMarker(configuration).mark(programClassPool,
@@ -93,6 +93,10 @@ public class UsageMarker
                      SimpleUsageMarker simpleUsageMarker,
                      ClassUsageMarker  classUsageMarker)
     {
+        // Mark the seeds and the classes that have to be kept, as a single
+        // batch, since these marking operations don't depend on each other.
+        classUsageMarker.startBatch();
+
         // Mark the seeds.
         libraryClassPool.classesAccept(classUsageMarker);
 
@@ -106,6 +110,8 @@ public class UsageMarker
                 classUsageMarker))
             ));
 
+        classUsageMarker.finishBatch();
+
         // Mark the elements of Kotlin metadata that need to be kept.
         if (configuration.keepKotlinMetadata)
         {
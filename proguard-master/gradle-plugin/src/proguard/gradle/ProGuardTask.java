@@ -256,6 +256,23 @@ public class ProGuardTask extends DefaultTask
         configuration.skipNonPublicLibraryClassMembers = false;
     }
 
+    public void librarycache(Object libraryCache)
+    {
+        configuration.libraryCache = getProject().file(libraryCache);
+    }
+
+    // Hack: support the keyword without parentheses in Groovy.
+    public Object getlazylibraryclasses()
+    {
+        lazylibraryclasses();
+        return null;
+    }
+
+    public void lazylibraryclasses()
+    {
+        configuration.lazyLibraryClasses = true;
+    }
+
     // Hack: support the keyword without parentheses in Groovy.
     public Object getkeepdirectories()
     {
@@ -292,6 +309,11 @@ public class ProGuardTask extends DefaultTask
         configuration.lastModified = Long.MAX_VALUE;
     }
 
+    public void incremental(Object incremental)
+    {
+        configuration.incremental = getProject().file(incremental);
+    }
+
     public void keep(String classSpecificationString)
     throws ParseException
     {
@@ -1267,6 +1289,24 @@ public class ProGuardTask extends DefaultTask
         configuration.dump = getProject().file(dump);
     }
 
+    // Hack: support the keyword without parentheses in Groovy.
+    public Object getprinttrace()
+    {
+        printtrace();
+        return null;
+    }
+
+    public void printtrace()
+    {
+        configuration.printTrace = Configuration.STD_OUT;
+    }
+
+    public void printtrace(Object printTrace)
+    throws ParseException
+    {
+        configuration.printTrace = getProject().file(printTrace);
+    }
+
 
     // Hack: support the keyword without parentheses in Groovy.
     public Object getaddconfigurationdebugging()
@@ -22,11 +22,18 @@ package proguard.retrace;
 
 import proguard.classfile.util.ClassUtil;
 
+import java.util.Arrays;
 import java.util.regex.*;
 
 /**
  * This class can parse and format lines that represent stack frames
- * matching a given regular expression.
+ * matching a given regular expression. A FramePattern can parse and format
+ * lines from multiple threads concurrently.
+ * <p>
+ * For the default regular expression of ReTrace, it first scans lines
+ * itself, to recognize common stack frames like
+ * <code>at com.example.Foo.bar(Foo.java:123)</code> without backtracking.
+ * It applies the regular expression to all other lines.
  *
  * @author Eric Lafortune
  */
@@ -48,6 +55,7 @@ public class FramePattern
     private final int      expressionTypeCount;
     private final Pattern  pattern;
     private final boolean  verbose;
+    private final boolean  defaultExpression;
 
 
     /**
@@ -123,6 +131,7 @@ public class FramePattern
         this.expressionTypeCount = expressionTypeCount;
         this.pattern             = Pattern.compile(expressionBuffer.toString());
         this.verbose             = verbose;
+        this.defaultExpression   = regularExpression.equals(ReTrace.REGULAR_EXPRESSION);
     }
 
 
@@ -135,9 +144,8 @@ public class FramePattern
     public FrameInfo parse(String line)
     {
         // Try to match it against the regular expression.
-        Matcher matcher = pattern.matcher(line);
-
-        if (!matcher.matches())
+        int[] matchIndices = match(line);
+        if (matchIndices == null)
         {
             return null;
         }
@@ -155,10 +163,10 @@ public class FramePattern
         // arguments.
         for (int expressionTypeIndex = 0; expressionTypeIndex < expressionTypeCount; expressionTypeIndex++)
         {
-            int startIndex = matcher.start(expressionTypeIndex + 1);
+            int startIndex = matchIndices[2 * expressionTypeIndex];
             if (startIndex >= 0)
             {
-                String match = matcher.group(expressionTypeIndex + 1);
+                String match = line.substring(startIndex, matchIndices[2 * expressionTypeIndex + 1]);
 
                 char expressionType = expressionTypes[expressionTypeIndex];
                 switch (expressionType)
@@ -220,9 +228,8 @@ public class FramePattern
     public String format(String line, FrameInfo frameInfo)
     {
         // Try to match it against the regular expression.
-        Matcher matcher = pattern.matcher(line);
-
-        if (!matcher.matches())
+        int[] matchIndices = match(line);
+        if (matchIndices == null)
         {
             return null;
         }
@@ -232,11 +239,10 @@ public class FramePattern
         int lineIndex = 0;
         for (int expressionTypeIndex = 0; expressionTypeIndex < expressionTypeCount; expressionTypeIndex++)
         {
-            int startIndex = matcher.start(expressionTypeIndex + 1);
+            int startIndex = matchIndices[2 * expressionTypeIndex];
             if (startIndex >= 0)
             {
-                int    endIndex = matcher.end(expressionTypeIndex + 1);
-                String match    = matcher.group(expressionTypeIndex + 1);
+                int endIndex = matchIndices[2 * expressionTypeIndex + 1];
 
                 // Copy a literal piece of the input line.
                 formattedBuffer.append(line.substring(lineIndex, startIndex));
@@ -307,4 +313,272 @@ public class FramePattern
         // Return the formatted line.
         return formattedBuffer.toString();
     }
+
+
+    // Small utility methods.
+
+    /**
+     * Matches the given line against the regular expression, returning the
+     * start indices and end indices of the elements, or null if the line
+     * doesn't match.
+     */
+    private int[] match(String line)
+    {
+        if (defaultExpression)
+        {
+            // Try to scan a common stack frame ourselves.
+            int[] matchIndices = scanFrame(line);
+            if (matchIndices != null)
+            {
+                return matchIndices;
+            }
+        }
+
+        Matcher matcher = pattern.matcher(line);
+        if (!matcher.matches())
+        {
+            return null;
+        }
+
+        int[] matchIndices = new int[2 * expressionTypeCount];
+        for (int expressionTypeIndex = 0; expressionTypeIndex < expressionTypeCount; expressionTypeIndex++)
+        {
+            matchIndices[2 * expressionTypeIndex]     = matcher.start(expressionTypeIndex + 1);
+            matchIndices[2 * expressionTypeIndex + 1] = matcher.end(expressionTypeIndex + 1);
+        }
+
+        return matchIndices;
+    }
+
+
+    /**
+     * Scans the given line as a plain stack frame, like
+     * "    at com.example.Foo.bar(Foo.java:123:0) ~[0]", returning the
+     * indices of the elements like the default regular expression, or null
+     * if the line has any other form.
+     */
+    private int[] scanFrame(String line)
+    {
+        int length = line.length();
+
+        // Leading blanks, "at", and blanks.
+        int index = skipBlanks(line, 0);
+        if (!line.startsWith("at", index))
+        {
+            return null;
+        }
+
+        int blankIndex = index + 2;
+        index = skipBlanks(line, blankIndex);
+        if (index == blankIndex)
+        {
+            return null;
+        }
+
+        // The class name and the method name, up to the parenthesis.
+        int classIndex   = index;
+        int segmentIndex = index;
+        while (index < length && line.charAt(index) != '(')
+        {
+            char c = line.charAt(index);
+            if (c == '.')
+            {
+                if (index == segmentIndex)
+                {
+                    return null;
+                }
+
+                segmentIndex = index + 1;
+            }
+            else if (!isClassCharacter(c))
+            {
+                return null;
+            }
+
+            index++;
+        }
+
+        if (index == length       ||
+            index == segmentIndex ||
+            segmentIndex == classIndex)
+        {
+            return null;
+        }
+
+        int methodIndex    = segmentIndex;
+        int methodEndIndex = index++;
+
+        // The optional source file, which can't start with a digit.
+        int sourceIndex = index;
+        if (index < length)
+        {
+            char c = line.charAt(index);
+            if (c == ')' || c == '-' || isDigit(c))
+            {
+                return null;
+            }
+
+            while (index < length &&
+                   (c = line.charAt(index)) != ':' &&
+                   c != '('                        &&
+                   c != ')')
+            {
+                index++;
+            }
+        }
+
+        int sourceEndIndex = index;
+
+        // The optional line number and column number.
+        int lineNumberIndex    = -1;
+        int lineNumberEndIndex = -1;
+        if (index < length && line.charAt(index) == ':')
+        {
+            lineNumberIndex    = index + 1;
+            lineNumberEndIndex = index = skipDigits(line, lineNumberIndex);
+            if (index == lineNumberIndex)
+            {
+                return null;
+            }
+
+            if (index < length && line.charAt(index) == ':')
+            {
+                int columnIndex = index + 1;
+                index = skipDigits(line, columnIndex);
+                if (index == columnIndex)
+                {
+                    return null;
+                }
+            }
+        }
+
+        if (index == length || line.charAt(index) != ')')
+        {
+            return null;
+        }
+
+        // Trailing blanks and an optional "~[...]".
+        index = skipBlanks(line, index + 1);
+        if (index < length &&
+            !(line.startsWith("~[", index) &&
+              line.charAt(length - 1) == ']' &&
+              index + 2 < length             &&
+              !containsLineSeparator(line, index)))
+        {
+            return null;
+        }
+
+        // Return the indices like the default regular expression, with its
+        // leading class name, method name, source file, and line number.
+        int[] matchIndices = new int[2 * expressionTypeCount];
+        Arrays.fill(matchIndices, -1);
+
+        matchIndices[0] = classIndex;
+        matchIndices[1] = methodIndex - 1;
+        matchIndices[2] = methodIndex;
+        matchIndices[3] = methodEndIndex;
+        matchIndices[4] = sourceIndex;
+        matchIndices[5] = sourceEndIndex;
+        matchIndices[6] = lineNumberIndex;
+        matchIndices[7] = lineNumberEndIndex;
+
+        return matchIndices;
+    }
+
+
+    /**
+     * Returns the index of the first character at or after the given index
+     * that isn't a space or a tab.
+     */
+    private int skipBlanks(String line, int index)
+    {
+        while (index < line.length() &&
+               (line.charAt(index) == ' ' ||
+                line.charAt(index) == '\t'))
+        {
+            index++;
+        }
+
+        return index;
+    }
+
+
+    /**
+     * Returns the index of the first character at or after the given index
+     * that isn't a digit.
+     */
+    private int skipDigits(String line, int index)
+    {
+        while (index < line.length() &&
+               isDigit(line.charAt(index)))
+        {
+            index++;
+        }
+
+        return index;
+    }
+
+
+    /**
+     * Returns whether the given line contains any characters that a period
+     * doesn't match in a regular expression, at or after the given index.
+     */
+    private boolean containsLineSeparator(String line, int index)
+    {
+        for (; index < line.length(); index++)
+        {
+            char c = line.charAt(index);
+            if (c == '\n'     ||
+                c == '\r'     ||
+                c == '\u0085' ||
+                c == '\u2028' ||
+                c == '\u2029')
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Returns whether the given character can be part of a class name or
+     * a member name, like in the regular expressions.
+     */
+    private static boolean isClassCharacter(char c)
+    {
+        return !isWhitespace(c) &&
+               c != '"'         &&
+               c != ':'         &&
+               c != '.'         &&
+               c != '/'         &&
+               c != '('         &&
+               c != ')';
+    }
+
+
+    /**
+     * Returns whether the given character is whitespace, like "\s" in
+     * regular expressions.
+     */
+    private static boolean isWhitespace(char c)
+    {
+        return c == ' '      ||
+               c == '\t'     ||
+               c == '\n'     ||
+               c == '\u000B' ||
+               c == '\f'     ||
+               c == '\r';
+    }
+
+
+    /**
+     * Returns whether the given character is a digit, like "\d" in regular
+     * expressions.
+     */
+    private static boolean isDigit(char c)
+    {
+        return c >= '0' && c <= '9';
+    }
 }
@@ -26,7 +26,11 @@ import java.util.*;
 
 /**
  * This class accumulates mapping information and then transforms stack frames
- * accordingly.
+ * accordingly. Alternatively, it looks up the mapping information in a
+ * mapping index, only as far as necessary for the frames that it transforms.
+ * <p>
+ * Once it has received all mapping information, a FrameRemapper can
+ * transform frames from multiple threads concurrently.
  *
  * @author Eric Lafortune
  */
@@ -39,6 +43,29 @@ public class FrameRemapper implements MappingProcessor
     private final Map<String,Map<String,Set<FieldInfo>>>  classFieldMap  = new HashMap<String,Map<String,Set<FieldInfo>>>();
     private final Map<String,Map<String,Set<MethodInfo>>> classMethodMap = new HashMap<String,Map<String,Set<MethodInfo>>>();
 
+    // The optional index that replaces the above maps.
+    private final MappingIndex                            mappingIndex;
+
+
+    /**
+     * Creates a new FrameRemapper that transforms frames based on the
+     * mapping information that it receives as a MappingProcessor.
+     */
+    public FrameRemapper()
+    {
+        this(null);
+    }
+
+
+    /**
+     * Creates a new FrameRemapper that transforms frames based on the
+     * given mapping index.
+     */
+    public FrameRemapper(MappingIndex mappingIndex)
+    {
+        this.mappingIndex = mappingIndex;
+    }
+
 
     /**
      * Transforms the given obfuscated frame back to one or more original frames.
@@ -91,34 +118,29 @@ public class FrameRemapper implements MappingProcessor
                                     String          originalClassName,
                                     List<FrameInfo> originalFieldFrames)
     {
-        // Class name -> obfuscated field names.
-        Map<String,Set<FieldInfo>> fieldMap = classFieldMap.get(originalClassName);
-        if (fieldMap != null)
+        // Class name and obfuscated field name -> fields.
+        Collection<FieldInfo> fieldSet = fieldInfos(originalClassName,
+                                                    obfuscatedFrame.getFieldName());
+        if (fieldSet != null)
         {
-            // Obfuscated field names -> fields.
-            String obfuscatedFieldName = obfuscatedFrame.getFieldName();
-            Set<FieldInfo> fieldSet = fieldMap.get(obfuscatedFieldName);
-            if (fieldSet != null)
-            {
-                String obfuscatedType = obfuscatedFrame.getType();
-                String originalType   = obfuscatedType == null ? null :
-                    originalType(obfuscatedType);
+            String obfuscatedType = obfuscatedFrame.getType();
+            String originalType   = obfuscatedType == null ? null :
+                originalType(obfuscatedType);
 
-                // Find all matching fields.
-                Iterator<FieldInfo> fieldInfoIterator = fieldSet.iterator();
-                while (fieldInfoIterator.hasNext())
+            // Find all matching fields.
+            Iterator<FieldInfo> fieldInfoIterator = fieldSet.iterator();
+            while (fieldInfoIterator.hasNext())
+            {
+                FieldInfo fieldInfo = fieldInfoIterator.next();
+                if (fieldInfo.matches(originalType))
                 {
-                    FieldInfo fieldInfo = fieldInfoIterator.next();
-                    if (fieldInfo.matches(originalType))
-                    {
-                        originalFieldFrames.add(new FrameInfo(fieldInfo.originalClassName,
-                                                              sourceFileName(fieldInfo.originalClassName),
-                                                              obfuscatedFrame.getLineNumber(),
-                                                              fieldInfo.originalType,
-                                                              fieldInfo.originalName,
-                                                              obfuscatedFrame.getMethodName(),
-                                                              obfuscatedFrame.getArguments()));
-                    }
+                    originalFieldFrames.add(new FrameInfo(fieldInfo.originalClassName,
+                                                          sourceFileName(fieldInfo.originalClassName),
+                                                          obfuscatedFrame.getLineNumber(),
+                                                          fieldInfo.originalType,
+                                                          fieldInfo.originalName,
+                                                          obfuscatedFrame.getMethodName(),
+                                                          obfuscatedFrame.getArguments()));
                 }
             }
         }
@@ -136,63 +158,120 @@ public class FrameRemapper implements MappingProcessor
                                      String          originalClassName,
                                      List<FrameInfo> originalMethodFrames)
     {
-        // Class name -> obfuscated method names.
-        Map<String,Set<MethodInfo>> methodMap = classMethodMap.get(originalClassName);
-        if (methodMap != null)
+        // Class name and obfuscated method name -> methods.
+        Collection<MethodInfo> methodSet = methodInfos(originalClassName,
+                                                       obfuscatedFrame.getMethodName());
+        if (methodSet != null)
         {
-            // Obfuscated method names -> methods.
-            String obfuscatedMethodName = obfuscatedFrame.getMethodName();
-            Set<MethodInfo> methodSet = methodMap.get(obfuscatedMethodName);
-            if (methodSet != null)
-            {
-                int obfuscatedLineNumber = obfuscatedFrame.getLineNumber();
+            int obfuscatedLineNumber = obfuscatedFrame.getLineNumber();
 
-                String obfuscatedType = obfuscatedFrame.getType();
-                String originalType   = obfuscatedType == null ? null :
-                    originalType(obfuscatedType);
+            String obfuscatedType = obfuscatedFrame.getType();
+            String originalType   = obfuscatedType == null ? null :
+                originalType(obfuscatedType);
 
-                String obfuscatedArguments = obfuscatedFrame.getArguments();
-                String originalArguments   = obfuscatedArguments == null ? null :
-                    originalArguments(obfuscatedArguments);
+            String obfuscatedArguments = obfuscatedFrame.getArguments();
+            String originalArguments   = obfuscatedArguments == null ? null :
+                originalArguments(obfuscatedArguments);
 
-                // Find all matching methods.
-                Iterator<MethodInfo> methodInfoIterator = methodSet.iterator();
-                while (methodInfoIterator.hasNext())
+            // Find all matching methods.
+            Iterator<MethodInfo> methodInfoIterator = methodSet.iterator();
+            while (methodInfoIterator.hasNext())
+            {
+                MethodInfo methodInfo = methodInfoIterator.next();
+                if (methodInfo.matches(obfuscatedLineNumber,
+                                       originalType,
+                                       originalArguments))
                 {
-                    MethodInfo methodInfo = methodInfoIterator.next();
-                    if (methodInfo.matches(obfuscatedLineNumber,
-                                           originalType,
-                                           originalArguments))
+                    // Do we have a different original first line number?
+                    // We're allowing unknown values, represented as 0.
+                    int lineNumber = obfuscatedFrame.getLineNumber();
+                    if (methodInfo.originalFirstLineNumber != methodInfo.obfuscatedFirstLineNumber)
                     {
-                        // Do we have a different original first line number?
-                        // We're allowing unknown values, represented as 0.
-                        int lineNumber = obfuscatedFrame.getLineNumber();
-                        if (methodInfo.originalFirstLineNumber != methodInfo.obfuscatedFirstLineNumber)
-                        {
-                            // Do we have an original line number range and
-                            // sufficient information to shift the line number?
-                            lineNumber = methodInfo.originalLastLineNumber    != 0                                  &&
-                                         methodInfo.originalLastLineNumber    != methodInfo.originalFirstLineNumber &&
-                                         methodInfo.obfuscatedFirstLineNumber != 0                                  &&
-                                         lineNumber                           != 0 ?
-                                methodInfo.originalFirstLineNumber - methodInfo.obfuscatedFirstLineNumber + lineNumber :
-                                methodInfo.originalFirstLineNumber;
-                        }
-
-                        originalMethodFrames.add(new FrameInfo(methodInfo.originalClassName,
-                                                               sourceFileName(methodInfo.originalClassName),
-                                                               lineNumber,
-                                                               methodInfo.originalType,
-                                                               obfuscatedFrame.getFieldName(),
-                                                               methodInfo.originalName,
-                                                               methodInfo.originalArguments));
+                        // Do we have an original line number range and
+                        // sufficient information to shift the line number?
+                        lineNumber = methodInfo.originalLastLineNumber    != 0                                  &&
+                                     methodInfo.originalLastLineNumber    != methodInfo.originalFirstLineNumber &&
+                                     methodInfo.obfuscatedFirstLineNumber != 0                                  &&
+                                     lineNumber                           != 0 ?
+                            methodInfo.originalFirstLineNumber - methodInfo.obfuscatedFirstLineNumber + lineNumber :
+                            methodInfo.originalFirstLineNumber;
                     }
+
+                    originalMethodFrames.add(new FrameInfo(methodInfo.originalClassName,
+                                                           sourceFileName(methodInfo.originalClassName),
+                                                           lineNumber,
+                                                           methodInfo.originalType,
+                                                           obfuscatedFrame.getFieldName(),
+                                                           methodInfo.originalName,
+                                                           methodInfo.originalArguments));
                 }
             }
         }
     }
 
 
+    /**
+     * Returns the fields of the given original class with the given
+     * obfuscated name, or null if there aren't any.
+     */
+    private Collection<FieldInfo> fieldInfos(String originalClassName,
+                                             String obfuscatedFieldName)
+    {
+        if (mappingIndex != null)
+        {
+            if (obfuscatedFieldName == null)
+            {
+                return null;
+            }
+
+            // Look up the fields in the index.
+            MyMemberInfoCollector memberInfoCollector = new MyMemberInfoCollector();
+            mappingIndex.fieldMappingsAccept(originalClassName,
+                                             obfuscatedFieldName,
+                                             memberInfoCollector);
+
+            return memberInfoCollector.fieldInfos;
+        }
+
+        Map<String,Set<FieldInfo>> fieldMap = classFieldMap.get(originalClassName);
+
+        return fieldMap != null ?
+            fieldMap.get(obfuscatedFieldName) :
+            null;
+    }
+
+
+    /**
+     * Returns the methods of the given original class with the given
+     * obfuscated name, or null if there aren't any.
+     */
+    private Collection<MethodInfo> methodInfos(String originalClassName,
+                                               String obfuscatedMethodName)
+    {
+        if (mappingIndex != null)
+        {
+            if (obfuscatedMethodName == null)
+            {
+                return null;
+            }
+
+            // Look up the methods in the index.
+            MyMemberInfoCollector memberInfoCollector = new MyMemberInfoCollector();
+            mappingIndex.methodMappingsAccept(originalClassName,
+                                              obfuscatedMethodName,
+                                              memberInfoCollector);
+
+            return memberInfoCollector.methodInfos;
+        }
+
+        Map<String,Set<MethodInfo>> methodMap = classMethodMap.get(originalClassName);
+
+        return methodMap != null ?
+            methodMap.get(obfuscatedMethodName) :
+            null;
+    }
+
+
     /**
      * Returns the original argument types.
      */
@@ -238,7 +317,10 @@ public class FrameRemapper implements MappingProcessor
      */
     public String originalClassName(String obfuscatedClassName)
     {
-        String originalClassName = classMap.get(obfuscatedClassName);
+        String originalClassName =
+            mappingIndex == null        ? classMap.get(obfuscatedClassName) :
+            obfuscatedClassName == null ? null                              :
+                                          mappingIndex.originalClassName(obfuscatedClassName);
 
         return originalClassName != null ?
             originalClassName :
@@ -342,6 +424,60 @@ public class FrameRemapper implements MappingProcessor
     }
 
 
+    /**
+     * This MappingProcessor collects the field information and method
+     * information that it receives from a mapping index.
+     */
+    private static class MyMemberInfoCollector implements MappingProcessor
+    {
+        private final List<FieldInfo>  fieldInfos  = new ArrayList<FieldInfo>();
+        private final List<MethodInfo> methodInfos = new ArrayList<MethodInfo>();
+
+
+        // Implementations for MappingProcessor.
+
+        public boolean processClassMapping(String className,
+                                           String newClassName)
+        {
+            return true;
+        }
+
+
+        public void processFieldMapping(String className,
+                                        String fieldType,
+                                        String fieldName,
+                                        String newClassName,
+                                        String newFieldName)
+        {
+            fieldInfos.add(new FieldInfo(className,
+                                         fieldType,
+                                         fieldName));
+        }
+
+
+        public void processMethodMapping(String className,
+                                         int    firstLineNumber,
+                                         int    lastLineNumber,
+                                         String methodReturnType,
+                                         String methodName,
+                                         String methodArguments,
+                                         String newClassName,
+                                         int    newFirstLineNumber,
+                                         int    newLastLineNumber,
+                                         String newMethodName)
+        {
+            methodInfos.add(new MethodInfo(newFirstLineNumber,
+                                           newLastLineNumber,
+                                           className,
+                                           firstLineNumber,
+                                           lastLineNumber,
+                                           methodReturnType,
+                                           methodName,
+                                           methodArguments));
+        }
+    }
+
+
     /**
      * Information about the original version and the obfuscated version of
      * a field (without the obfuscated class name or field name).
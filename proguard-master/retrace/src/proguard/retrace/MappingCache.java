@@ -0,0 +1,147 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2020 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.retrace;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * This class provides frame remappers for the mapping files of different
+ * builds, identified by build ids. The mapping file of a build is
+ * <code>&lt;build_id&gt;.txt</code> in a given directory. The cache keeps a
+ * limited number of frame remappers, evicting the least recently used ones.
+ * It loads each mapping at most once at a time, even if multiple threads
+ * request it concurrently.
+ * <p>
+ * If specified, the cache looks up mappings in indices
+ * <code>&lt;build_id&gt;.idx</code> next to the mapping files, creating
+ * them when necessary. Such remappers are cheap to load and small to keep.
+ *
+ * @see ReTrace
+ * @author Eric Lafortune
+ */
+public class MappingCache
+{
+    private static final String MAPPING_FILE_EXTENSION = ".txt";
+    private static final String INDEX_FILE_EXTENSION   = ".idx";
+
+
+    private final File    mappingDirectory;
+    private final boolean useIndices;
+
+    // Build id -> frame remapper that is loaded or being loaded.
+    private final Map<String,Future<FrameRemapper>> frameRemappers;
+
+
+    /**
+     * Creates a new MappingCache.
+     * @param mappingDirectory the directory with the mapping files.
+     * @param useIndices       specifies whether to look up the mappings in
+     *                         indices instead of reading the mapping files.
+     * @param maxMappingCount  the maximum number of mappings to keep.
+     */
+    public MappingCache(File      mappingDirectory,
+                        boolean   useIndices,
+                        final int maxMappingCount)
+    {
+        this.mappingDirectory = mappingDirectory;
+        this.useIndices       = useIndices;
+        this.frameRemappers   = new LinkedHashMap<String,Future<FrameRemapper>>(16, 0.75f, true)
+        {
+            protected boolean removeEldestEntry(Map.Entry<String,Future<FrameRemapper>> eldest)
+            {
+                return size() > maxMappingCount;
+            }
+        };
+    }
+
+
+    /**
+     * Returns a frame remapper for the mapping of the specified build,
+     * loading the mapping if necessary.
+     */
+    public FrameRemapper getFrameRemapper(final String buildId) throws IOException
+    {
+        // Don't let build ids point outside the mapping directory.
+        if (buildId.length() == 0      ||
+            buildId.startsWith(".")    ||
+            buildId.indexOf('/')  >= 0 ||
+            buildId.indexOf('\\') >= 0)
+        {
+            throw new IOException("Invalid build id [" + buildId + "]");
+        }
+
+        FutureTask<FrameRemapper> loadTask = null;
+        Future<FrameRemapper>     frameRemapper;
+
+        synchronized (frameRemappers)
+        {
+            frameRemapper = frameRemappers.get(buildId);
+            if (frameRemapper == null)
+            {
+                loadTask = new FutureTask<FrameRemapper>(new Callable<FrameRemapper>()
+                {
+                    public FrameRemapper call() throws IOException
+                    {
+                        return ReTrace.createFrameRemapper(new File(mappingDirectory, buildId + MAPPING_FILE_EXTENSION),
+                                                           useIndices ?
+                                                               new File(mappingDirectory, buildId + INDEX_FILE_EXTENSION) :
+                                                               null);
+                    }
+                });
+
+                frameRemapper = loadTask;
+                frameRemappers.put(buildId, frameRemapper);
+            }
+        }
+
+        // Load the mapping in this thread, if we've just added it.
+        if (loadTask != null)
+        {
+            loadTask.run();
+        }
+
+        try
+        {
+            return frameRemapper.get();
+        }
+        catch (ExecutionException ex)
+        {
+            // Forget about the failed mapping, so we can try again later.
+            synchronized (frameRemappers)
+            {
+                frameRemappers.remove(buildId, frameRemapper);
+            }
+
+            Throwable cause = ex.getCause();
+            throw cause instanceof IOException ?
+                (IOException)cause :
+                new IOException("Can't load mapping of build [" + buildId + "] (" + cause + ")");
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+
+            throw new InterruptedIOException("Interrupted while loading mapping of build [" + buildId + "]");
+        }
+    }
+}
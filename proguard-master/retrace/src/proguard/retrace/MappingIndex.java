@@ -0,0 +1,347 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2020 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.retrace;
+
+import proguard.obfuscate.MappingProcessor;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class provides access to a mapping index, as written by a
+ * MappingIndexWriter. It memory-maps the index file and looks up class
+ * mappings and class member mappings on demand, without loading the
+ * entire mapping.
+ * <p>
+ * The index starts with a header with a magic number, a version, the length
+ * and the modification time of the mapping file from which it was created,
+ * and the numbers of class entries, field entries, and method entries. The entries
+ * follow in sections of fixed-size records of 4-byte integers. Class entries
+ * are sorted on their obfuscated names. Field entries and method entries are
+ * sorted on the original names of their classes and their obfuscated names,
+ * keeping the order of the mapping file for equal keys. Strings are
+ * represented as offsets to a trailing section with UTF-8 strings, each
+ * preceded by their length. All strings are compared as unsigned bytes.
+ * <p>
+ * The lookup methods are thread-safe.
+ *
+ * @see MappingIndexWriter
+ * @author Eric Lafortune
+ */
+public class MappingIndex
+{
+    static final int MAGIC   = 0x50474d49;
+    static final int VERSION = 2;
+
+    static final int HEADER_SIZE       = 5 * 4 + 2 * 8;
+    static final int CLASS_ENTRY_SIZE  = 2 * 4;
+    static final int FIELD_ENTRY_SIZE  = 5 * 4;
+    static final int METHOD_ENTRY_SIZE = 10 * 4;
+
+
+    private final ByteBuffer buffer;
+    private final long       mappingLength;
+    private final long       mappingLastModified;
+    private final int        classCount;
+    private final int        fieldCount;
+    private final int        methodCount;
+    private final int        classOffset;
+    private final int        fieldOffset;
+    private final int        methodOffset;
+
+
+    /**
+     * Creates a new MappingIndex for the given index file.
+     */
+    public MappingIndex(File indexFile) throws IOException
+    {
+        RandomAccessFile file = new RandomAccessFile(indexFile, "r");
+        try
+        {
+            FileChannel channel = file.getChannel();
+
+            if (channel.size() < HEADER_SIZE ||
+                channel.size() > Integer.MAX_VALUE)
+            {
+                throw new IOException("Invalid mapping index [" + indexFile + "]");
+            }
+
+            // The mapping stays valid after closing the file.
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+        }
+        finally
+        {
+            file.close();
+        }
+
+        if (buffer.getInt(0) != MAGIC ||
+            buffer.getInt(4) != VERSION)
+        {
+            throw new IOException("Unsupported mapping index [" + indexFile + "]");
+        }
+
+        mappingLength       = buffer.getLong(8);
+        mappingLastModified = buffer.getLong(16);
+        classCount          = buffer.getInt(24);
+        fieldCount          = buffer.getInt(28);
+        methodCount         = buffer.getInt(32);
+
+        // Make sure the sections fit in the index, so lookups can't run
+        // past its end.
+        if (classCount  < 0 ||
+            fieldCount  < 0 ||
+            methodCount < 0 ||
+            HEADER_SIZE                          +
+            (long)classCount  * CLASS_ENTRY_SIZE +
+            (long)fieldCount  * FIELD_ENTRY_SIZE +
+            (long)methodCount * METHOD_ENTRY_SIZE > buffer.capacity())
+        {
+            throw new IOException("Invalid mapping index [" + indexFile + "]");
+        }
+
+        classOffset  = HEADER_SIZE;
+        fieldOffset  = classOffset + classCount * CLASS_ENTRY_SIZE;
+        methodOffset = fieldOffset + fieldCount * FIELD_ENTRY_SIZE;
+    }
+
+
+    /**
+     * Returns whether the given file starts like a mapping index.
+     */
+    public static boolean isMappingIndex(File file) throws IOException
+    {
+        DataInputStream inputStream =
+            new DataInputStream(
+            new FileInputStream(file));
+        try
+        {
+            return file.length() >= HEADER_SIZE &&
+                   inputStream.readInt() == MAGIC;
+        }
+        finally
+        {
+            inputStream.close();
+        }
+    }
+
+
+    /**
+     * Returns whether this index was created from the given mapping file in
+     * its current state, based on its length and its modification time.
+     */
+    public boolean isUpToDate(File mappingFile)
+    {
+        return mappingFile.length()       == mappingLength &&
+               mappingFile.lastModified() == mappingLastModified;
+    }
+
+
+    /**
+     * Returns the original name of the class with the given obfuscated
+     * name, or null if the mapping doesn't contain the class.
+     */
+    public String originalClassName(String obfuscatedClassName)
+    {
+        byte[] key = utf8(obfuscatedClassName);
+
+        int index = firstEntryIndex(classOffset, classCount, CLASS_ENTRY_SIZE, key, null);
+
+        return index < classCount &&
+               compare(stringOffset(classOffset, CLASS_ENTRY_SIZE, index, 0), key) == 0 ?
+            string(stringOffset(classOffset, CLASS_ENTRY_SIZE, index, 1)) :
+            null;
+    }
+
+
+    /**
+     * Presents the field mappings of the specified original class with the
+     * specified obfuscated field name to the given processor, in the order
+     * of the mapping file.
+     */
+    public void fieldMappingsAccept(String           className,
+                                    String           newFieldName,
+                                    MappingProcessor mappingProcessor)
+    {
+        byte[] key1 = utf8(className);
+        byte[] key2 = utf8(newFieldName);
+
+        for (int index = firstEntryIndex(fieldOffset, fieldCount, FIELD_ENTRY_SIZE, key1, key2);
+             index < fieldCount &&
+             compare(fieldOffset, FIELD_ENTRY_SIZE, index, key1, key2) == 0;
+             index++)
+        {
+            int entryOffset = fieldOffset + index * FIELD_ENTRY_SIZE;
+
+            mappingProcessor.processFieldMapping(string(buffer.getInt(entryOffset +  8)),
+                                                 string(buffer.getInt(entryOffset + 12)),
+                                                 string(buffer.getInt(entryOffset + 16)),
+                                                 className,
+                                                 newFieldName);
+        }
+    }
+
+
+    /**
+     * Presents the method mappings of the specified original class with the
+     * specified obfuscated method name to the given processor, in the order
+     * of the mapping file.
+     */
+    public void methodMappingsAccept(String           className,
+                                     String           newMethodName,
+                                     MappingProcessor mappingProcessor)
+    {
+        byte[] key1 = utf8(className);
+        byte[] key2 = utf8(newMethodName);
+
+        for (int index = firstEntryIndex(methodOffset, methodCount, METHOD_ENTRY_SIZE, key1, key2);
+             index < methodCount &&
+             compare(methodOffset, METHOD_ENTRY_SIZE, index, key1, key2) == 0;
+             index++)
+        {
+            int entryOffset = methodOffset + index * METHOD_ENTRY_SIZE;
+
+            mappingProcessor.processMethodMapping(string(buffer.getInt(entryOffset +  8)),
+                                                  buffer.getInt(entryOffset + 12),
+                                                  buffer.getInt(entryOffset + 16),
+                                                  string(buffer.getInt(entryOffset + 20)),
+                                                  string(buffer.getInt(entryOffset + 24)),
+                                                  string(buffer.getInt(entryOffset + 28)),
+                                                  className,
+                                                  buffer.getInt(entryOffset + 32),
+                                                  buffer.getInt(entryOffset + 36),
+                                                  newMethodName);
+        }
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Returns the index of the first entry in the given section whose key
+     * strings are greater than or equal to the given key strings.
+     */
+    private int firstEntryIndex(int    sectionOffset,
+                                int    entryCount,
+                                int    entrySize,
+                                byte[] key1,
+                                byte[] key2)
+    {
+        int low  = 0;
+        int high = entryCount;
+
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+
+            if (compare(sectionOffset, entrySize, middle, key1, key2) < 0)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+
+    /**
+     * Compares the key strings of the specified entry with the given key
+     * strings. The second key is optional.
+     */
+    private int compare(int    sectionOffset,
+                        int    entrySize,
+                        int    index,
+                        byte[] key1,
+                        byte[] key2)
+    {
+        int result = compare(stringOffset(sectionOffset, entrySize, index, 0), key1);
+
+        return result != 0 || key2 == null ? result :
+            compare(stringOffset(sectionOffset, entrySize, index, 1), key2);
+    }
+
+
+    /**
+     * Returns the offset of the specified string of the specified entry.
+     */
+    private int stringOffset(int sectionOffset,
+                             int entrySize,
+                             int index,
+                             int stringIndex)
+    {
+        return buffer.getInt(sectionOffset + index * entrySize + stringIndex * 4);
+    }
+
+
+    /**
+     * Compares the string at the given offset with the given UTF-8 bytes.
+     */
+    private int compare(int offset, byte[] bytes)
+    {
+        int length    = buffer.getInt(offset);
+        int minLength = Math.min(length, bytes.length);
+
+        offset += 4;
+
+        for (int index = 0; index < minLength; index++)
+        {
+            int result = (buffer.get(offset + index) & 0xff) - (bytes[index] & 0xff);
+            if (result != 0)
+            {
+                return result;
+            }
+        }
+
+        return length - bytes.length;
+    }
+
+
+    /**
+     * Returns the string at the given offset.
+     */
+    private String string(int offset)
+    {
+        byte[] bytes = new byte[buffer.getInt(offset)];
+
+        offset += 4;
+
+        for (int index = 0; index < bytes.length; index++)
+        {
+            bytes[index] = buffer.get(offset + index);
+        }
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Returns the UTF-8 bytes of the given string.
+     */
+    private static byte[] utf8(String string)
+    {
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+}
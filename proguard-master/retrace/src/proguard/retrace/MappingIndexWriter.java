@@ -0,0 +1,315 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2020 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.retrace;
+
+import proguard.obfuscate.MappingProcessor;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * This MappingProcessor collects mapping information and then writes it out
+ * as a mapping index that a MappingIndex can memory-map.
+ *
+ * @see MappingIndex
+ * @author Eric Lafortune
+ */
+public class MappingIndexWriter implements MappingProcessor
+{
+    // Obfuscated class name -> original class name.
+    private final Map<String,String>  classMap      = new LinkedHashMap<String,String>();
+
+    // String -> index in the list of strings.
+    private final Map<String,Integer> stringIndices = new HashMap<String,Integer>();
+    private final List<String>        strings       = new ArrayList<String>();
+
+    // Flattened field entries and method entries, with string indices.
+    private int[] fieldData  = new int[1024];
+    private int   fieldDataSize;
+    private int[] methodData = new int[1024];
+    private int   methodDataSize;
+
+
+    /**
+     * Writes out the collected mapping information to the given index file.
+     * @param indexFile           the index file.
+     * @param mappingLength       the length of the mapping file from which
+     *                            the information was collected.
+     * @param mappingLastModified the modification time of the mapping file.
+     */
+    public void write(File indexFile,
+                      long mappingLength,
+                      long mappingLastModified) throws IOException
+    {
+        // Collect the class entries.
+        int[] classData     = new int[2 * classMap.size()];
+        int   classDataSize = 0;
+        for (Map.Entry<String,String> entry : classMap.entrySet())
+        {
+            classData[classDataSize++] = stringIndex(entry.getKey());
+            classData[classDataSize++] = stringIndex(entry.getValue());
+        }
+
+        // Encode all strings.
+        byte[][] bytes = new byte[strings.size()][];
+        for (int index = 0; index < strings.size(); index++)
+        {
+            bytes[index] = strings.get(index).getBytes(StandardCharsets.UTF_8);
+        }
+
+        int classCount  = classDataSize  / 2;
+        int fieldCount  = fieldDataSize  / 5;
+        int methodCount = methodDataSize / 10;
+
+        Integer[] classOrder  = sortedEntries(classData,  classCount,  2,  bytes, false);
+        Integer[] fieldOrder  = sortedEntries(fieldData,  fieldCount,  5,  bytes, true);
+        Integer[] methodOrder = sortedEntries(methodData, methodCount, 10, bytes, true);
+
+        // Compute the offsets of the strings.
+        int[] stringOffsets = new int[strings.size()];
+
+        long offset = MappingIndex.HEADER_SIZE                          +
+                      (long)classCount  * MappingIndex.CLASS_ENTRY_SIZE  +
+                      (long)fieldCount  * MappingIndex.FIELD_ENTRY_SIZE  +
+                      (long)methodCount * MappingIndex.METHOD_ENTRY_SIZE;
+
+        for (int index = 0; index < stringOffsets.length; index++)
+        {
+            stringOffsets[index] = (int)offset;
+
+            offset += 4 + bytes[index].length;
+        }
+
+        if (offset > Integer.MAX_VALUE)
+        {
+            throw new IOException("Mapping too large for mapping index [" + indexFile + "]");
+        }
+
+        DataOutputStream outputStream =
+            new DataOutputStream(
+            new BufferedOutputStream(
+            new FileOutputStream(indexFile)));
+        try
+        {
+            // Write the header.
+            outputStream.writeInt(MappingIndex.MAGIC);
+            outputStream.writeInt(MappingIndex.VERSION);
+            outputStream.writeLong(mappingLength);
+            outputStream.writeLong(mappingLastModified);
+            outputStream.writeInt(classCount);
+            outputStream.writeInt(fieldCount);
+            outputStream.writeInt(methodCount);
+
+            // Write the class entries.
+            for (int index = 0; index < classCount; index++)
+            {
+                int entryIndex = classOrder[index].intValue() * 2;
+
+                outputStream.writeInt(stringOffsets[classData[entryIndex]]);
+                outputStream.writeInt(stringOffsets[classData[entryIndex + 1]]);
+            }
+
+            // Write the field entries.
+            for (int index = 0; index < fieldCount; index++)
+            {
+                int entryIndex = fieldOrder[index].intValue() * 5;
+
+                for (int element = 0; element < 5; element++)
+                {
+                    outputStream.writeInt(stringOffsets[fieldData[entryIndex + element]]);
+                }
+            }
+
+            // Write the method entries, with their string elements and
+            // line number elements.
+            for (int index = 0; index < methodCount; index++)
+            {
+                int entryIndex = methodOrder[index].intValue() * 10;
+
+                outputStream.writeInt(stringOffsets[methodData[entryIndex]]);
+                outputStream.writeInt(stringOffsets[methodData[entryIndex + 1]]);
+                outputStream.writeInt(stringOffsets[methodData[entryIndex + 2]]);
+                outputStream.writeInt(methodData[entryIndex + 3]);
+                outputStream.writeInt(methodData[entryIndex + 4]);
+                outputStream.writeInt(stringOffsets[methodData[entryIndex + 5]]);
+                outputStream.writeInt(stringOffsets[methodData[entryIndex + 6]]);
+                outputStream.writeInt(stringOffsets[methodData[entryIndex + 7]]);
+                outputStream.writeInt(methodData[entryIndex + 8]);
+                outputStream.writeInt(methodData[entryIndex + 9]);
+            }
+
+            // Write the strings.
+            for (int index = 0; index < bytes.length; index++)
+            {
+                outputStream.writeInt(bytes[index].length);
+                outputStream.write(bytes[index]);
+            }
+        }
+        finally
+        {
+            outputStream.close();
+        }
+    }
+
+
+    // Implementations for MappingProcessor.
+
+    public boolean processClassMapping(String className,
+                                       String newClassName)
+    {
+        // Obfuscated class name -> original class name.
+        classMap.put(newClassName, className);
+
+        return true;
+    }
+
+
+    public void processFieldMapping(String className,
+                                    String fieldType,
+                                    String fieldName,
+                                    String newClassName,
+                                    String newFieldName)
+    {
+        fieldData = ensureCapacity(fieldData, fieldDataSize + 5);
+
+        // The keys, followed by the original field.
+        fieldData[fieldDataSize++] = stringIndex(newClassName);
+        fieldData[fieldDataSize++] = stringIndex(newFieldName);
+        fieldData[fieldDataSize++] = stringIndex(className);
+        fieldData[fieldDataSize++] = stringIndex(fieldType);
+        fieldData[fieldDataSize++] = stringIndex(fieldName);
+    }
+
+
+    public void processMethodMapping(String className,
+                                     int    firstLineNumber,
+                                     int    lastLineNumber,
+                                     String methodReturnType,
+                                     String methodName,
+                                     String methodArguments,
+                                     String newClassName,
+                                     int    newFirstLineNumber,
+                                     int    newLastLineNumber,
+                                     String newMethodName)
+    {
+        methodData = ensureCapacity(methodData, methodDataSize + 10);
+
+        // The keys, followed by the original method and the obfuscated
+        // line numbers.
+        methodData[methodDataSize++] = stringIndex(newClassName);
+        methodData[methodDataSize++] = stringIndex(newMethodName);
+        methodData[methodDataSize++] = stringIndex(className);
+        methodData[methodDataSize++] = firstLineNumber;
+        methodData[methodDataSize++] = lastLineNumber;
+        methodData[methodDataSize++] = stringIndex(methodReturnType);
+        methodData[methodDataSize++] = stringIndex(methodName);
+        methodData[methodDataSize++] = stringIndex(methodArguments);
+        methodData[methodDataSize++] = newFirstLineNumber;
+        methodData[methodDataSize++] = newLastLineNumber;
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Returns the index of the given string in the list of strings, adding
+     * it if necessary.
+     */
+    private int stringIndex(String string)
+    {
+        Integer index = stringIndices.get(string);
+        if (index == null)
+        {
+            index = Integer.valueOf(strings.size());
+            stringIndices.put(string, index);
+            strings.add(string);
+        }
+
+        return index.intValue();
+    }
+
+
+    /**
+     * Returns the indices of the given entries, sorted on their first
+     * string, and optionally on their second string. The sort is stable.
+     */
+    private Integer[] sortedEntries(final int[]    data,
+                                    int            entryCount,
+                                    final int      entrySize,
+                                    final byte[][] bytes,
+                                    final boolean  compareSecondKey)
+    {
+        Integer[] order = new Integer[entryCount];
+        for (int index = 0; index < entryCount; index++)
+        {
+            order[index] = Integer.valueOf(index);
+        }
+
+        Arrays.sort(order, new Comparator<Integer>()
+        {
+            public int compare(Integer entry1, Integer entry2)
+            {
+                int index1 = entry1.intValue() * entrySize;
+                int index2 = entry2.intValue() * entrySize;
+
+                int result = compareBytes(bytes[data[index1]], bytes[data[index2]]);
+
+                return result != 0 || !compareSecondKey ? result :
+                    compareBytes(bytes[data[index1 + 1]], bytes[data[index2 + 1]]);
+            }
+        });
+
+        return order;
+    }
+
+
+    /**
+     * Compares the given arrays as unsigned bytes.
+     */
+    private static int compareBytes(byte[] bytes1, byte[] bytes2)
+    {
+        int minLength = Math.min(bytes1.length, bytes2.length);
+
+        for (int index = 0; index < minLength; index++)
+        {
+            int result = (bytes1[index] & 0xff) - (bytes2[index] & 0xff);
+            if (result != 0)
+            {
+                return result;
+            }
+        }
+
+        return bytes1.length - bytes2.length;
+    }
+
+
+    /**
+     * Returns the given array, or a larger copy if it doesn't have the
+     * given minimum length.
+     */
+    private static int[] ensureCapacity(int[] array, int minLength)
+    {
+        return array.length >= minLength ?
+            array :
+            Arrays.copyOf(array, Math.max(minLength, 2 * array.length));
+    }
+}
@@ -23,6 +23,7 @@ package proguard.retrace;
 import proguard.obfuscate.MappingReader;
 
 import java.io.*;
+import java.nio.file.*;
 import java.util.*;
 
 /**
@@ -33,11 +34,12 @@ import java.util.*;
  */
 public class ReTrace
 {
-    private static final String USAGE                  = "Usage: java proguard.retrace.ReTrace [-regex <regex>] [-allclassnames] [-verbose] <mapping_file> [<stacktrace_file>]";
+    private static final String USAGE                  = "Usage: java proguard.retrace.ReTrace [-regex <regex>] [-allclassnames] [-verbose] [-index <index_file>] <mapping_file> [<stacktrace_file>]";
     private static final String DEFAULT_REGEX          = "Default regex: ";
     private static final String REGEX_OPTION           = "-regex";
     private static final String ALL_CLASS_NAMES_OPTION = "-allclassnames";
     private static final String VERBOSE_OPTION         = "-verbose";
+    private static final String INDEX_OPTION           = "-index";
 
     // For example: "com.example.Foo.bar"
     private static final String REGULAR_EXPRESSION_CLASS_METHOD     = "%c\\.%m";
@@ -83,10 +85,12 @@ public class ReTrace
                                                      "(?:" + REGULAR_EXPRESSION_THROW            + ")";
 
     // The settings.
-    private final String  regularExpression;
-    private final boolean allClassNames;
-    private final boolean verbose;
-    private final File    mappingFile;
+    private final boolean      allClassNames;
+    private final File         mappingFile;
+    private final File         indexFile;
+
+    // The pattern for stack frames.
+    private final FramePattern pattern;
 
 
     /**
@@ -117,10 +121,36 @@ public class ReTrace
                    boolean verbose,
                    File    mappingFile)
     {
-        this.regularExpression = regularExpression;
-        this.allClassNames     = allClassNames;
-        this.verbose           = verbose;
-        this.mappingFile       = mappingFile;
+        this(regularExpression, allClassNames, verbose, mappingFile, null);
+    }
+
+
+    /**
+     * Creates a new ReTrace instance.
+     * @param regularExpression the regular expression for parsing the lines in
+     *                          the stack trace.
+     * @param allClassNames     specifies whether all words that match class
+     *                          names should be de-obfuscated, even if they
+     *                          aren't matching the regular expression.
+     * @param verbose           specifies whether the de-obfuscated stack trace
+     *                          should be verbose.
+     * @param mappingFile       the mapping file that was written out by
+     *                          ProGuard.
+     * @param indexFile         an optional index of the mapping file. ReTrace
+     *                          creates it if it doesn't exist or if it
+     *                          doesn't match the mapping file, and then looks
+     *                          up the mapping in the index.
+     */
+    public ReTrace(String  regularExpression,
+                   boolean allClassNames,
+                   boolean verbose,
+                   File    mappingFile,
+                   File    indexFile)
+    {
+        this.allClassNames = allClassNames;
+        this.mappingFile   = mappingFile;
+        this.indexFile     = indexFile;
+        this.pattern       = new FramePattern(regularExpression, verbose);
     }
 
 
@@ -132,16 +162,27 @@ public class ReTrace
     public void retrace(LineNumberReader stackTraceReader,
                         PrintWriter      stackTraceWriter) throws IOException
     {
-        // Create a pattern for stack frames.
-        FramePattern pattern = new FramePattern(regularExpression, verbose);
+        // Create a remapper with the mapping.
+        FrameRemapper mapper = createFrameRemapper(mappingFile, indexFile);
 
-        // Create a remapper.
-        FrameRemapper mapper = new FrameRemapper();
+        retrace(mapper, stackTraceReader, stackTraceWriter);
+    }
 
-        // Read the mapping file.
-        MappingReader mappingReader = new MappingReader(mappingFile);
-        mappingReader.pump(mapper);
 
+    /**
+     * De-obfuscates a given stack trace with the given frame remapper,
+     * ignoring the mapping file of this instance. This method is
+     * thread-safe, so the same instance can retrace multiple stack traces
+     * concurrently.
+     * @param mapper           the frame remapper with the mapping of the
+     *                         stack trace.
+     * @param stackTraceReader a reader for the obfuscated stack trace.
+     * @param stackTraceWriter a writer for the de-obfuscated stack trace.
+     */
+    public void retrace(FrameRemapper    mapper,
+                        LineNumberReader stackTraceReader,
+                        PrintWriter      stackTraceWriter) throws IOException
+    {
         // Read and process the lines of the stack trace.
         while (true)
         {
@@ -211,6 +252,98 @@ public class ReTrace
     }
 
 
+    /**
+     * Creates a frame remapper for the given mapping file, reading it or
+     * looking it up in the given optional index file.
+     */
+    static FrameRemapper createFrameRemapper(File mappingFile,
+                                             File indexFile) throws IOException
+    {
+        if (indexFile == null)
+        {
+            return readFrameRemapper(mappingFile);
+        }
+
+        // Can we use the existing index?
+        if (indexFile.exists())
+        {
+            try
+            {
+                MappingIndex mappingIndex = new MappingIndex(indexFile);
+                if (mappingIndex.isUpToDate(mappingFile))
+                {
+                    // Look up the mapping in the index, as far as necessary.
+                    return new FrameRemapper(mappingIndex);
+                }
+            }
+            catch (IOException e)
+            {
+                // The index is invalid or outdated. Recreate it.
+            }
+        }
+
+        // Note the state of the mapping file before reading it, so a
+        // concurrent update makes the index outdated.
+        long mappingLength       = mappingFile.length();
+        long mappingLastModified = mappingFile.lastModified();
+
+        MappingIndexWriter mappingIndexWriter = new MappingIndexWriter();
+
+        MappingReader mappingReader = new MappingReader(mappingFile);
+        mappingReader.pump(mappingIndexWriter);
+
+        // Write the index to a uniquely named temporary file first, so
+        // other instances never see a partial index.
+        File temporaryFile = null;
+        try
+        {
+            temporaryFile =
+                File.createTempFile(indexFile.getName(), ".tmp", indexFile.getAbsoluteFile().getParentFile());
+
+            mappingIndexWriter.write(temporaryFile,
+                                     mappingLength,
+                                     mappingLastModified);
+
+            Files.move(temporaryFile.toPath(),
+                       indexFile.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e)
+        {
+            // We can't write or replace the index, for instance because
+            // another instance has mapped it on Windows. Read the mapping
+            // file instead.
+            return readFrameRemapper(mappingFile);
+        }
+        finally
+        {
+            if (temporaryFile != null)
+            {
+                temporaryFile.delete();
+            }
+        }
+
+        // Look up the mapping in the index, as far as necessary.
+        return new FrameRemapper(new MappingIndex(indexFile));
+    }
+
+
+    /**
+     * Creates a frame remapper with the entire contents of the given mapping
+     * file.
+     */
+    private static FrameRemapper readFrameRemapper(File mappingFile) throws IOException
+    {
+        FrameRemapper mapper = new FrameRemapper();
+
+        MappingReader mappingReader = new MappingReader(mappingFile);
+        mappingReader.pump(mapper);
+
+        return mapper;
+    }
+
+
     /**
      * Attempts to deobfuscate each token of the line to a corresponding
      * original classname if possible.
@@ -312,6 +445,7 @@ public class ReTrace
         String  regularExpresssion = REGULAR_EXPRESSION;
         boolean verbose            = false;
         boolean allClassNames             = false;
+        File    indexFile          = null;
 
         int argumentIndex = 0;
         while (argumentIndex < args.length)
@@ -329,6 +463,10 @@ public class ReTrace
             {
                 verbose = true;
             }
+            else if (arg.equals(INDEX_OPTION))
+            {
+                indexFile = new File(args[++argumentIndex]);
+            }
             else
             {
                 break;
@@ -367,7 +505,7 @@ public class ReTrace
             try
             {
                 // Execute ReTrace with the collected settings.
-                new ReTrace(regularExpresssion, allClassNames, verbose, mappingFile)
+                new ReTrace(regularExpresssion, allClassNames, verbose, mappingFile, indexFile)
                     .retrace(reader, writer);
             }
             finally
@@ -0,0 +1,451 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2020 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.retrace;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Long-running service for de-obfuscating stack traces of multiple builds,
+ * with a resident ReTrace instance and a cache of mappings. It can retrace
+ * batches of stack traces concurrently, and it can serve requests with a
+ * simple line protocol on the standard input and output:
+ * <ul>
+ * <li>A request consists of a line with the build id, the lines of the stack
+ *     trace, and a line with a single period.</li>
+ * <li>A response consists of a line "OK", the lines of the retraced stack
+ *     trace, and a line with a single period, or a single line "ERROR"
+ *     followed by a message.</li>
+ * </ul>
+ * Stack trace lines that start with a period get an extra period in front,
+ * like in SMTP. Responses are returned in the order of the requests.
+ *
+ * @see MappingCache
+ * @author Eric Lafortune
+ */
+public class ReTraceServer
+{
+    private static final String USAGE                  = "Usage: java proguard.retrace.ReTraceServer [-regex <regex>] [-allclassnames] [-verbose] [-index] [-cachesize <n>] [-threads <n>] <mapping_directory>";
+    private static final String REGEX_OPTION           = "-regex";
+    private static final String ALL_CLASS_NAMES_OPTION = "-allclassnames";
+    private static final String VERBOSE_OPTION         = "-verbose";
+    private static final String INDEX_OPTION           = "-index";
+    private static final String CACHE_SIZE_OPTION      = "-cachesize";
+    private static final String THREADS_OPTION         = "-threads";
+
+    private static final int    DEFAULT_CACHE_SIZE     = 16;
+
+    private static final String END_OF_TRACE           = ".";
+    private static final String OK                     = "OK";
+    private static final String ERROR                  = "ERROR ";
+
+
+    private final ReTrace         reTrace;
+    private final MappingCache    mappingCache;
+    private final ExecutorService executorService;
+
+
+    /**
+     * Creates a new ReTraceServer.
+     * @param reTrace      the ReTrace instance with the settings for
+     *                     retracing.
+     * @param mappingCache the cache that provides the mappings of the builds.
+     * @param threadCount  the number of threads for retracing stack traces
+     *                     concurrently.
+     */
+    public ReTraceServer(ReTrace      reTrace,
+                         MappingCache mappingCache,
+                         int          threadCount)
+    {
+        this.reTrace         = reTrace;
+        this.mappingCache    = mappingCache;
+        this.executorService = Executors.newFixedThreadPool(threadCount);
+    }
+
+
+    /**
+     * De-obfuscates the given stack trace of the specified build, in the
+     * calling thread.
+     */
+    public String retrace(String buildId, String stackTrace) throws IOException
+    {
+        FrameRemapper mapper = mappingCache.getFrameRemapper(buildId);
+
+        StringWriter stringWriter = new StringWriter(stackTrace.length() + 256);
+
+        reTrace.retrace(mapper,
+                        new LineNumberReader(new StringReader(stackTrace)),
+                        new PrintWriter(stringWriter));
+
+        return stringWriter.toString();
+    }
+
+
+    /**
+     * Schedules the de-obfuscation of the given stack trace of the specified
+     * build.
+     */
+    public Future<String> submit(final String buildId,
+                                 final String stackTrace)
+    {
+        return executorService.submit(new Callable<String>()
+        {
+            public String call() throws IOException
+            {
+                return retrace(buildId, stackTrace);
+            }
+        });
+    }
+
+
+    /**
+     * De-obfuscates the given stack traces of the specified builds
+     * concurrently, returning the results in the same order.
+     * @throws IllegalArgumentException if the numbers of build ids and
+     *                                  stack traces differ.
+     */
+    public String[] retrace(String[] buildIds,
+                            String[] stackTraces) throws IOException
+    {
+        if (buildIds.length != stackTraces.length)
+        {
+            throw new IllegalArgumentException("Expecting as many build ids as stack traces ["+buildIds.length+"] != ["+stackTraces.length+"]");
+        }
+
+        List<Future<String>> futures = new ArrayList<Future<String>>(stackTraces.length);
+        for (int index = 0; index < stackTraces.length; index++)
+        {
+            futures.add(submit(buildIds[index], stackTraces[index]));
+        }
+
+        String[] results = new String[stackTraces.length];
+        for (int index = 0; index < results.length; index++)
+        {
+            results[index] = result(futures.get(index));
+        }
+
+        return results;
+    }
+
+
+    /**
+     * Serves requests from the given reader, writing responses to the given
+     * writer, until the end of the input.
+     */
+    public void serve(BufferedReader    requestReader,
+                      final PrintWriter responseWriter) throws IOException
+    {
+        // Pending responses, in the order of the requests. An empty
+        // response signals the end.
+        final BlockingQueue<Future<String>> responses =
+            new ArrayBlockingQueue<Future<String>>(1024);
+
+        // Write the responses as they become available, so requests and
+        // retracing can proceed in the meantime.
+        Thread responseThread = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    while (true)
+                    {
+                        Future<String> response = responses.take();
+                        if (response instanceof MyEndOfResponses)
+                        {
+                            break;
+                        }
+
+                        writeResponse(response, responseWriter);
+                    }
+                }
+                catch (InterruptedException ex)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, "ReTraceServer responses");
+
+        // Don't let the response thread keep the process alive, in case
+        // serving the requests fails badly.
+        responseThread.setDaemon(true);
+        responseThread.start();
+
+        try
+        {
+            try
+            {
+                while (true)
+                {
+                    // Read the build id.
+                    String buildId = requestReader.readLine();
+                    if (buildId == null)
+                    {
+                        break;
+                    }
+
+                    // Read the stack trace.
+                    StringBuilder stackTrace = new StringBuilder();
+                    while (true)
+                    {
+                        String line = requestReader.readLine();
+                        if (line == null ||
+                            line.equals(END_OF_TRACE))
+                        {
+                            break;
+                        }
+
+                        stackTrace.append(line.startsWith(END_OF_TRACE) ? line.substring(1) : line).append('\n');
+                    }
+
+                    responses.put(submit(buildId.trim(), stackTrace.toString()));
+                }
+            }
+            finally
+            {
+                // Let the response thread finish after the pending responses,
+                // even if reading the requests has failed.
+                responses.put(new MyEndOfResponses());
+            }
+
+            responseThread.join();
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+
+            throw new InterruptedIOException("Interrupted while serving requests");
+        }
+    }
+
+
+    /**
+     * Stops the threads of this service, after the pending work is done.
+     */
+    public void shutdown()
+    {
+        executorService.shutdown();
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Writes out the given response.
+     */
+    private void writeResponse(Future<String> response,
+                               PrintWriter    responseWriter) throws InterruptedException
+    {
+        try
+        {
+            String retracedStackTrace = result(response);
+
+            responseWriter.println(OK);
+
+            BufferedReader lineReader =
+                new BufferedReader(new StringReader(retracedStackTrace));
+
+            while (true)
+            {
+                String line = lineReader.readLine();
+                if (line == null)
+                {
+                    break;
+                }
+
+                if (line.startsWith(END_OF_TRACE))
+                {
+                    responseWriter.print(END_OF_TRACE);
+                }
+
+                responseWriter.println(line);
+            }
+
+            responseWriter.println(END_OF_TRACE);
+        }
+        catch (IOException ex)
+        {
+            responseWriter.println(errorResponse(ex.getMessage()));
+        }
+        catch (Throwable ex)
+        {
+            // Report any unexpected problem as well, so the response thread
+            // keeps running and the responses stay in sync with the requests.
+            responseWriter.println(errorResponse(ex.toString()));
+        }
+
+        responseWriter.flush();
+    }
+
+
+    /**
+     * Returns the error response with the given message, on a single line,
+     * so it doesn't break the framing of the responses.
+     */
+    private static String errorResponse(String message)
+    {
+        return ERROR + String.valueOf(message).replace('\r', ' ').replace('\n', ' ');
+    }
+
+
+    /**
+     * Returns the result of the given retrace task.
+     */
+    private String result(Future<String> future) throws IOException
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (ExecutionException ex)
+        {
+            Throwable cause = ex.getCause();
+            throw cause instanceof IOException ?
+                (IOException)cause :
+                new IOException(cause.toString());
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+
+            throw new InterruptedIOException("Interrupted while retracing");
+        }
+    }
+
+
+    /**
+     * This Future marks the end of the responses.
+     */
+    private static class MyEndOfResponses
+    extends              FutureTask<String>
+    {
+        public MyEndOfResponses()
+        {
+            super(new Callable<String>()
+            {
+                public String call()
+                {
+                    return null;
+                }
+            });
+        }
+    }
+
+
+    /**
+     * The main program for the ReTrace server.
+     */
+    public static void main(String[] args)
+    {
+        String  regularExpression = ReTrace.REGULAR_EXPRESSION;
+        boolean allClassNames     = false;
+        boolean verbose           = false;
+        boolean useIndices        = false;
+        int     cacheSize         = DEFAULT_CACHE_SIZE;
+        int     threadCount       = Runtime.getRuntime().availableProcessors();
+
+        int argumentIndex = 0;
+        try
+        {
+            while (argumentIndex < args.length)
+            {
+                String arg = args[argumentIndex];
+                if (arg.equals(REGEX_OPTION))
+                {
+                    regularExpression = args[++argumentIndex];
+                }
+                else if (arg.equals(ALL_CLASS_NAMES_OPTION))
+                {
+                    allClassNames = true;
+                }
+                else if (arg.equals(VERBOSE_OPTION))
+                {
+                    verbose = true;
+                }
+                else if (arg.equals(INDEX_OPTION))
+                {
+                    useIndices = true;
+                }
+                else if (arg.equals(CACHE_SIZE_OPTION))
+                {
+                    cacheSize = Integer.parseInt(args[++argumentIndex]);
+                }
+                else if (arg.equals(THREADS_OPTION))
+                {
+                    threadCount = Integer.parseInt(args[++argumentIndex]);
+                }
+                else
+                {
+                    break;
+                }
+
+                argumentIndex++;
+            }
+        }
+        catch (RuntimeException ex)
+        {
+            // Missing or invalid option values.
+            argumentIndex = args.length;
+        }
+
+        if (argumentIndex != args.length - 1 ||
+            cacheSize     < 1                ||
+            threadCount   < 1)
+        {
+            System.err.println(USAGE);
+            System.exit(-1);
+        }
+
+        File mappingDirectory = new File(args[argumentIndex]);
+
+        ReTraceServer server =
+            new ReTraceServer(new ReTrace(regularExpression, allClassNames, verbose, null),
+                              new MappingCache(mappingDirectory, useIndices, cacheSize),
+                              threadCount);
+
+        try
+        {
+            // We're always using the UTF-8 character encoding.
+            BufferedReader reader =
+                new BufferedReader(
+                new InputStreamReader(System.in, "UTF-8"));
+
+            PrintWriter writer =
+                new PrintWriter(
+                new BufferedWriter(
+                new OutputStreamWriter(System.out, "UTF-8")));
+
+            server.serve(reader, writer);
+        }
+        catch (IOException ex)
+        {
+            System.err.println("Error: "+ex.getMessage());
+            System.exit(1);
+        }
+        finally
+        {
+            server.shutdown();
+        }
+
+        System.exit(0);
+    }
+}